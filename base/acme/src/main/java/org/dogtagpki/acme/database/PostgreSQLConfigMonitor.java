@@ -5,6 +5,8 @@
 //
 package org.dogtagpki.acme.database;
 
+import java.sql.Connection;
+
 /**
  * @author Endi S. Dewata
  */
@@ -45,13 +47,12 @@ public class PostgreSQLConfigMonitor implements Runnable {
         running = true;
 
         while (running) {
-            try {
-                database.connect();
+            try (Connection connection = database.connect()) {
 
                 logger.info("Updating ACME configuration");
                 // update the config in memory only
 
-                String value = database.getConfig("enabled");
+                String value = database.getConfig(connection, "enabled");
                 database.enabled = value == null ? null : Boolean.valueOf(value);
                 logger.info("- enabled: " + database.enabled);
 
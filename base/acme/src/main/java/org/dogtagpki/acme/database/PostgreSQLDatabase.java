@@ -9,11 +9,9 @@ import java.io.FileReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -33,6 +31,8 @@ import org.dogtagpki.acme.ACMENonce;
 import org.dogtagpki.acme.ACMEOrder;
 import org.dogtagpki.acme.JWK;
 
+import com.netscape.cmscore.dbs.JDBCConnectionPool;
+
 /**
  * @author Endi S. Dewata
  */
@@ -41,11 +41,16 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PostgreSQLDatabase.class);
     public static Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
 
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
     protected Properties info;
     protected String url;
 
     protected Properties statements;
-    protected Connection connection;
+    protected JDBCConnectionPool connectionPool;
+    protected volatile boolean initialized;
+
+    protected int batchSize = DEFAULT_BATCH_SIZE;
 
     Boolean enabled;
     PostgreSQLConfigMonitor monitor;
@@ -68,6 +73,15 @@ public class PostgreSQLDatabase extends ACMEDatabase {
 
         url = (String) info.remove("url");
 
+        String batchSize = (String) info.remove("batchSize");
+        if (batchSize != null) {
+            this.batchSize = Integer.parseInt(batchSize);
+        }
+        logger.info("- batch size: " + this.batchSize);
+
+        connectionPool = new JDBCConnectionPool("PostgreSQLDatabase", url, info);
+        connectionPool.init();
+
         String statementsFilename = info.getProperty(
                 "statements",
                 "/usr/share/pki/acme/database/postgresql/statements.conf");
@@ -107,49 +121,44 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     }
 
     /**
-     * This method will create the initial connection, validate
-     * the current connection, or reestablish the connection if
-     * it's closed.
+     * This method will get a connection from the connection pool and
+     * create the tables on the first connection. The connection must
+     * be closed to return it into the pool.
      *
      * This method should only be called by methods implementing
      * ACMEDatabase.
-     *
-     * TODO: Use connection pool.
      */
-    public void connect() throws Exception {
+    public Connection connect() throws Exception {
 
-        if (connection == null) { // create the initial connection
-            logger.info("Connecting to " + url);
-            connection = DriverManager.getConnection(url, info);
-            setup();
-            return;
-        }
+        Connection connection = connectionPool.getConnection();
 
-        // validate the current connection
-        try (Statement st = connection.createStatement();
-            ResultSet rs = st.executeQuery("SELECT 1")) {
+        if (initialized) {
+            return connection;
+        }
 
-        } catch (SQLException e) {
+        synchronized (this) {
 
-            if (connection.isClosed()) { // reestablish the connection
-                logger.info("Reconnecting to " + url);
-                connection = DriverManager.getConnection(url, info);
-                return;
+            if (initialized) {
+                return connection;
             }
 
-            logger.error("Unable to access database: " + e.getMessage());
-
-            // https://www.postgresql.org/docs/current/errcodes-appendix.html
-            logger.error("SQL state: " + e.getSQLState());
+            try {
+                setup(connection);
+                initialized = true;
 
-            throw e;
+            } catch (Exception e) {
+                connection.close();
+                throw e;
+            }
         }
+
+        return connection;
     }
 
     /**
      * This method will create the tables if they do not exist.
      */
-    public void setup() throws Exception {
+    public void setup(Connection connection) throws Exception {
 
         logger.info("Setting up database");
 
@@ -181,7 +190,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    String getConfig(String id) throws Exception {
+    String getConfig(Connection connection, String id) throws Exception {
 
         logger.info("Getting config " + id);
 
@@ -202,7 +211,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void addConfig(String id, String value) throws Exception {
+    void addConfig(Connection connection, String id, String value) throws Exception {
 
         logger.info("Setting config " + id + ": " + value);
 
@@ -216,7 +225,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    int updateConfig(String id, String value) throws Exception {
+    int updateConfig(Connection connection, String id, String value) throws Exception {
 
         logger.info("Updating config " + id + ": " + value);
 
@@ -230,7 +239,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void removeConfig(String id) throws Exception {
+    void removeConfig(Connection connection, String id) throws Exception {
 
         logger.info("Removing config " + id);
 
@@ -243,17 +252,17 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    void setConfig(String id, String value) throws Exception {
+    void setConfig(Connection connection, String id, String value) throws Exception {
 
         if (value == null) {
-            removeConfig(id);
+            removeConfig(connection, id);
             return;
         }
 
-        int updatedRows = updateConfig(id, value);
+        int updatedRows = updateConfig(connection, id, value);
         if (updatedRows > 0) return;
 
-        addConfig(id, value);
+        addConfig(connection, id, value);
     }
 
     @Override
@@ -264,11 +273,10 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         // PostgreSQLConfigMonitor.
 
         if (monitor == null) {
-
-            connect();
-
-            String value = getConfig("enabled");
-            enabled = value == null ? null : Boolean.valueOf(value);
+            try (Connection connection = connect()) {
+                String value = getConfig(connection, "enabled");
+                enabled = value == null ? null : Boolean.valueOf(value);
+            }
         }
 
         return enabled;
@@ -277,15 +285,15 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void setEnabled(Boolean enabled) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            String value = enabled == null ? null : enabled.toString();
+            setConfig(connection, "enabled", value);
 
-        String value = enabled == null ? null : enabled.toString();
-        setConfig("enabled", value);
-
-        this.enabled = enabled;
+            this.enabled = enabled;
+        }
     }
 
-    private ACMENonce getNonce(String nonceID) throws Exception {
+    private ACMENonce getNonce(Connection connection, String nonceID) throws Exception {
 
         logger.info("Getting nonce " + nonceID);
 
@@ -318,41 +326,41 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addNonce(ACMENonce nonce) throws Exception {
 
-        connect();
-
-        String nonceID = nonce.getID();
-        logger.info("Adding nonce " + nonceID);
+        try (Connection connection = connect()) {
+            String nonceID = nonce.getID();
+            logger.info("Adding nonce " + nonceID);
 
-        String sql = statements.getProperty("addNonce");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("addNonce");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, nonceID);
+                ps.setString(1, nonceID);
 
-            Date creationTime = nonce.getCreationTime();
-            ps.setTimestamp(2, new Timestamp(creationTime.getTime()), UTC);
+                Date creationTime = nonce.getCreationTime();
+                ps.setTimestamp(2, new Timestamp(creationTime.getTime()), UTC);
 
-            Date expirationTime = nonce.getExpirationTime();
-            ps.setTimestamp(3, new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = nonce.getExpirationTime();
+                ps.setTimestamp(3, new Timestamp(expirationTime.getTime()), UTC);
 
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
         }
     }
 
     @Override
     public ACMENonce removeNonce(String nonceID) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            ACMENonce nonce = getNonce(connection, nonceID);
+            if (nonce == null) return null;
 
-        ACMENonce nonce = getNonce(nonceID);
-        if (nonce == null) return null;
-
-        deleteNonce(nonceID);
-        return nonce;
+            deleteNonce(connection, nonceID);
+            return nonce;
+        }
     }
 
-    private void deleteNonce(String nonceID) throws Exception {
+    private void deleteNonce(Connection connection, String nonceID) throws Exception {
 
         logger.info("Removing nonce " + nonceID);
 
@@ -368,20 +376,18 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void removeExpiredNonces(Date currentTime) throws Exception {
 
-        connect();
-
-        logger.info("Getting expired nonces");
+        try (Connection connection = connect()) {
+            logger.info("Getting expired nonces");
 
-        Collection<String> nonceIDs = getExpiredNonceIDs(currentTime);
+            Collection<String> nonceIDs = getExpiredNonceIDs(connection, currentTime);
 
-        logger.info("Removing expired nonces");
+            logger.info("Removing " + nonceIDs.size() + " expired nonces");
 
-        for (String nonceID : nonceIDs) {
-            deleteNonce(nonceID);
+            removeRecords(connection, nonceIDs, "removeNonce");
         }
     }
 
-    private Collection<String> getExpiredNonceIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredNonceIDs(Connection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredNonceIDs");
         logger.info("SQL: " + sql);
@@ -406,42 +412,42 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public ACMEAccount getAccount(String accountID) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            logger.info("Getting account " + accountID);
 
-        logger.info("Getting account " + accountID);
-
-        String sql = statements.getProperty("getAccount");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getAccount");
+            logger.info("SQL: " + sql);
 
-        ACMEAccount account = new ACMEAccount();
+            ACMEAccount account = new ACMEAccount();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                account.setID(accountID);
+                    account.setID(accountID);
 
-                Timestamp created = rs.getTimestamp("created");
-                account.setCreationTime(new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    account.setCreationTime(new Date(created.getTime()));
 
-                account.setStatus(rs.getString("status"));
+                    account.setStatus(rs.getString("status"));
 
-                String jwk = rs.getString("jwk");
-                account.setJWK(JWK.fromJSON(jwk));
+                    String jwk = rs.getString("jwk");
+                    account.setJWK(JWK.fromJSON(jwk));
+                }
             }
-        }
 
-        getAccountContacts(account);
+            getAccountContacts(connection, account);
 
-        return account;
+            return account;
+        }
     }
 
-    private void getAccountContacts(ACMEAccount account) throws Exception {
+    private void getAccountContacts(Connection connection, ACMEAccount account) throws Exception {
 
         String accountID = account.getID();
         logger.info("Getting contacts for " + accountID);
@@ -471,54 +477,54 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addAccount(ACMEAccount account) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            String accountID = account.getID();
+            logger.info("Adding account " + accountID);
 
-        String accountID = account.getID();
-        logger.info("Adding account " + accountID);
+            String sql = statements.getProperty("addAccount");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("addAccount");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
 
-            ps.setString(1, accountID);
+                Date creationTime = account.getCreationTime();
+                ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            Date creationTime = account.getCreationTime();
-            ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                ps.setString(3, account.getStatus());
+                ps.setString(4, account.getJWK().toJSON());
 
-            ps.setString(3, account.getStatus());
-            ps.setString(4, account.getJWK().toJSON());
+                ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
+            addAccountContacts(connection, account);
         }
-
-        addAccountContacts(account);
     }
 
     @Override
     public void updateAccount(ACMEAccount account) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            String accountID = account.getID();
+            logger.info("Updating account " + accountID);
 
-        String accountID = account.getID();
-        logger.info("Updating account " + accountID);
+            String sql = statements.getProperty("updateAccount");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("updateAccount");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, account.getStatus());
+                ps.setString(2, accountID);
 
-            ps.setString(1, account.getStatus());
-            ps.setString(2, accountID);
+                ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
+            removeAccountContacts(connection, accountID);
+            addAccountContacts(connection, account);
         }
-
-        removeAccountContacts(accountID);
-        addAccountContacts(account);
     }
 
-    private void addAccountContacts(ACMEAccount account) throws Exception {
+    private void addAccountContacts(Connection connection, ACMEAccount account) throws Exception {
 
         String[] contacts = account.getContact();
         if (contacts == null) return;
@@ -541,7 +547,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeAccountContacts(String accountID) throws Exception {
+    private void removeAccountContacts(Connection connection, String accountID) throws Exception {
 
         logger.info("Removing contacts for account " + accountID);
 
@@ -559,203 +565,203 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public ACMEOrder getOrder(String orderID) throws Exception {
 
-        connect();
-
-        logger.info("Getting order " + orderID);
+        try (Connection connection = connect()) {
+            logger.info("Getting order " + orderID);
 
-        String sql = statements.getProperty("getOrder");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getOrder");
+            logger.info("SQL: " + sql);
 
-        ACMEOrder order = new ACMEOrder();
+            ACMEOrder order = new ACMEOrder();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, orderID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, orderID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                order.setID(orderID);
-                order.setAccountID(rs.getString("account_id"));
+                    order.setID(orderID);
+                    order.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                order.setStatus(rs.getString("status"));
+                    order.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                Timestamp notBefore = rs.getTimestamp("not_before");
-                order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                    Timestamp notBefore = rs.getTimestamp("not_before");
+                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                Timestamp notAfter = rs.getTimestamp("not_after");
-                order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                    Timestamp notAfter = rs.getTimestamp("not_after");
+                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                order.setCertID(rs.getString("cert_id"));
+                    order.setCertID(rs.getString("cert_id"));
+                }
             }
-        }
 
-        getOrderIdentifiers(order);
-        getOrderAuthorizations(order);
+            getOrderIdentifiers(connection, order);
+            getOrderAuthorizations(connection, order);
 
-        return order;
+            return order;
+        }
     }
 
     @Override
     public Collection<ACMEOrder> getOrdersByAccount(String accountID) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            logger.info("Getting orders for account " + accountID);
 
-        logger.info("Getting orders for account " + accountID);
+            String sql = statements.getProperty("getOrdersByAccount");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getOrdersByAccount");
-        logger.info("SQL: " + sql);
+            Collection<ACMEOrder> orders = new ArrayList<>();
 
-        Collection<ACMEOrder> orders = new ArrayList<>();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ACMEOrder order = new ACMEOrder();
+                        order.setID(rs.getString("id"));
+                        order.setAccountID(accountID);
 
-                while (rs.next()) {
-                    ACMEOrder order = new ACMEOrder();
-                    order.setID(rs.getString("id"));
-                    order.setAccountID(accountID);
+                        Timestamp created = rs.getTimestamp("created");
+                        order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    Timestamp created = rs.getTimestamp("created");
-                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        order.setStatus(rs.getString("status"));
 
-                    order.setStatus(rs.getString("status"));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        Timestamp notBefore = rs.getTimestamp("not_before");
+                        order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                    Timestamp notBefore = rs.getTimestamp("not_before");
-                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                        Timestamp notAfter = rs.getTimestamp("not_after");
+                        order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                    Timestamp notAfter = rs.getTimestamp("not_after");
-                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                        order.setCertID(rs.getString("cert_id"));
 
-                    order.setCertID(rs.getString("cert_id"));
+                        getOrderIdentifiers(connection, order);
+                        getOrderAuthorizations(connection, order);
 
-                    getOrderIdentifiers(order);
-                    getOrderAuthorizations(order);
-
-                    orders.add(order);
+                        orders.add(order);
+                    }
                 }
             }
-        }
 
-        return orders;
+            return orders;
+        }
     }
 
     @Override
     public Collection<ACMEOrder> getOrdersByAuthorizationAndStatus(String authzID, String status)
             throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            logger.info("Getting " + status + " orders for authorization " + authzID);
 
-        logger.info("Getting " + status + " orders for authorization " + authzID);
-
-        String sql = statements.getProperty("getOrdersByAuthorizationAndStatus");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getOrdersByAuthorizationAndStatus");
+            logger.info("SQL: " + sql);
 
-        Collection<ACMEOrder> orders = new ArrayList<>();
+            Collection<ACMEOrder> orders = new ArrayList<>();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, authzID);
-            ps.setString(2, status);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, authzID);
+                ps.setString(2, status);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                while (rs.next()) {
-                    ACMEOrder order = new ACMEOrder();
-                    order.setID(rs.getString("id"));
-                    order.setAccountID(rs.getString("account_id"));
+                    while (rs.next()) {
+                        ACMEOrder order = new ACMEOrder();
+                        order.setID(rs.getString("id"));
+                        order.setAccountID(rs.getString("account_id"));
 
-                    Timestamp created = rs.getTimestamp("created");
-                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        Timestamp created = rs.getTimestamp("created");
+                        order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    order.setStatus(rs.getString("status"));
+                        order.setStatus(rs.getString("status"));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    Timestamp notBefore = rs.getTimestamp("not_before");
-                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                        Timestamp notBefore = rs.getTimestamp("not_before");
+                        order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                    Timestamp notAfter = rs.getTimestamp("not_after");
-                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                        Timestamp notAfter = rs.getTimestamp("not_after");
+                        order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                    order.setCertID(rs.getString("cert_id"));
+                        order.setCertID(rs.getString("cert_id"));
 
-                    getOrderIdentifiers(order);
-                    getOrderAuthorizations(order);
+                        getOrderIdentifiers(connection, order);
+                        getOrderAuthorizations(connection, order);
 
-                    orders.add(order);
+                        orders.add(order);
+                    }
                 }
             }
-        }
 
-        return orders;
+            return orders;
+        }
     }
 
     @Override
     public ACMEOrder getOrderByCertificate(String certID) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            logger.info("Getting order for certificate " + certID);
 
-        logger.info("Getting order for certificate " + certID);
-
-        String sql = statements.getProperty("getOrderByCertificate");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getOrderByCertificate");
+            logger.info("SQL: " + sql);
 
-        ACMEOrder order = new ACMEOrder();
+            ACMEOrder order = new ACMEOrder();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, certID);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, certID);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                if (!rs.next()) {
-                    // no order found
-                    return null;
-                }
+                    if (!rs.next()) {
+                        // no order found
+                        return null;
+                    }
 
-                // order found
+                    // order found
 
-                order.setID(rs.getString("id"));
-                order.setAccountID(rs.getString("account_id"));
+                    order.setID(rs.getString("id"));
+                    order.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                order.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                order.setStatus(rs.getString("status"));
+                    order.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                Timestamp notBefore = rs.getTimestamp("not_before");
-                order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+                    Timestamp notBefore = rs.getTimestamp("not_before");
+                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
 
-                Timestamp notAfter = rs.getTimestamp("not_after");
-                order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+                    Timestamp notAfter = rs.getTimestamp("not_after");
+                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
 
-                order.setCertID(certID);
+                    order.setCertID(certID);
+                }
             }
-        }
 
-        getOrderIdentifiers(order);
-        getOrderAuthorizations(order);
+            getOrderIdentifiers(connection, order);
+            getOrderAuthorizations(connection, order);
 
-        return order;
+            return order;
+        }
     }
 
-    private Collection<String> getExpiredOrderIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredOrderIDs(Connection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredOrderIDs");
         logger.info("SQL: " + sql);
@@ -777,7 +783,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         return orderIDs;
     }
 
-    private void getOrderIdentifiers(ACMEOrder order) throws Exception {
+    private void getOrderIdentifiers(Connection connection, ACMEOrder order) throws Exception {
 
         String orderID = order.getID();
         logger.info("Getting identifiers for order " + orderID);
@@ -806,7 +812,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void getOrderAuthorizations(ACMEOrder order) throws Exception {
+    private void getOrderAuthorizations(Connection connection, ACMEOrder order) throws Exception {
 
         String orderID = order.getID();
         logger.info("Getting authorizations for order " + orderID);
@@ -836,43 +842,43 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addOrder(ACMEOrder order) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            String orderID = order.getID();
+            logger.info("Adding order " + orderID);
 
-        String orderID = order.getID();
-        logger.info("Adding order " + orderID);
+            String sql = statements.getProperty("addOrder");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("addOrder");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, orderID);
+                ps.setString(2, order.getAccountID());
 
-            ps.setString(1, orderID);
-            ps.setString(2, order.getAccountID());
+                Date creationTime = order.getCreationTime();
+                ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            Date creationTime = order.getCreationTime();
-            ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                ps.setString(4, order.getStatus());
 
-            ps.setString(4, order.getStatus());
+                Date expirationTime = order.getExpirationTime();
+                ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            Date expirationTime = order.getExpirationTime();
-            ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date notBefore = order.getNotBeforeTime();
+                ps.setTimestamp(6, notBefore == null ? null : new Timestamp(notBefore.getTime()), UTC);
 
-            Date notBefore = order.getNotBeforeTime();
-            ps.setTimestamp(6, notBefore == null ? null : new Timestamp(notBefore.getTime()), UTC);
+                Date notAfter = order.getNotAfterTime();
+                ps.setTimestamp(7, notAfter == null ? null : new Timestamp(notAfter.getTime()), UTC);
 
-            Date notAfter = order.getNotAfterTime();
-            ps.setTimestamp(7, notAfter == null ? null : new Timestamp(notAfter.getTime()), UTC);
+                ps.setString(8, order.getCertID());
 
-            ps.setString(8, order.getCertID());
+                ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
+            addOrderIdentifiers(connection, order);
+            addOrderAuthorizations(connection, order);
         }
-
-        addOrderIdentifiers(order);
-        addOrderAuthorizations(order);
     }
 
-    private void addOrderIdentifiers(ACMEOrder order) throws Exception {
+    private void addOrderIdentifiers(Connection connection, ACMEOrder order) throws Exception {
 
         ACMEIdentifier[] identifiers = order.getIdentifiers();
         if (identifiers == null) return;
@@ -896,20 +902,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeOrderIdentifiers(String orderID) throws Exception {
-
-        logger.info("Removing identifiers for order " + orderID);
-
-        String sql = statements.getProperty("removeOrderIdentifiers");
-        logger.info("SQL: " + sql);
-
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, orderID);
-            ps.executeUpdate();
-        }
-    }
-
-    private void addOrderAuthorizations(ACMEOrder order) throws Exception {
+    private void addOrderAuthorizations(Connection connection, ACMEOrder order) throws Exception {
 
         String[] authzIDs = order.getAuthzIDs();
         if (authzIDs == null) return;
@@ -932,171 +925,145 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeOrderAuthorizations(String orderID) throws Exception {
-
-        logger.info("Removing authorizations for order " + orderID);
-
-        String sql = statements.getProperty("removeOrderAuthorizations");
-        logger.info("SQL: " + sql);
-
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, orderID);
-            ps.executeUpdate();
-        }
-    }
-
     @Override
     public void updateOrder(ACMEOrder order) throws Exception {
 
-        connect();
-
-        String orderID = order.getID();
-        logger.info("Updating order " + orderID);
-
-        String sql = statements.getProperty("updateOrder");
-        logger.info("SQL: " + sql);
-
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-
-            ps.setString(1, order.getStatus());
-            ps.setString(2, order.getCertID());
-
-            Date expirationTime = order.getExpirationTime();
-            ps.setTimestamp(3, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
-
-            ps.setString(4, orderID);
+        try (Connection connection = connect()) {
+            String orderID = order.getID();
+            logger.info("Updating order " + orderID);
 
-            ps.executeUpdate();
-        }
-    }
+            String sql = statements.getProperty("updateOrder");
+            logger.info("SQL: " + sql);
 
-    private void removeOrder(String orderID) throws Exception {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        removeOrderIdentifiers(orderID);
-        removeOrderAuthorizations(orderID);
+                ps.setString(1, order.getStatus());
+                ps.setString(2, order.getCertID());
 
-        logger.info("Removing order " + orderID);
+                Date expirationTime = order.getExpirationTime();
+                ps.setTimestamp(3, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-        String sql = statements.getProperty("removeOrder");
-        logger.info("SQL: " + sql);
+                ps.setString(4, orderID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, orderID);
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
         }
     }
 
     @Override
     public void removeExpiredOrders(Date currentTime) throws Exception {
 
-        connect();
-
-        logger.info("Getting expired order IDs");
+        try (Connection connection = connect()) {
+            logger.info("Getting expired order IDs");
 
-        Collection<String> orderIDs = getExpiredOrderIDs(currentTime);
+            Collection<String> orderIDs = getExpiredOrderIDs(connection, currentTime);
 
-        logger.info("Removing expired orders");
+            logger.info("Removing " + orderIDs.size() + " expired orders");
 
-        for (String orderID : orderIDs) {
-            removeOrder(orderID);
+            removeRecords(
+                    connection,
+                    orderIDs,
+                    "removeOrderIdentifiers",
+                    "removeOrderAuthorizations",
+                    "removeOrder");
         }
     }
 
     @Override
     public ACMEAuthorization getAuthorization(String authzID) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            logger.info("Getting authorization " + authzID);
 
-        logger.info("Getting authorization " + authzID);
+            String sql = statements.getProperty("getAuthorization");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getAuthorization");
-        logger.info("SQL: " + sql);
+            ACMEAuthorization authorization = new ACMEAuthorization();
 
-        ACMEAuthorization authorization = new ACMEAuthorization();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, authzID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, authzID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                if (!rs.next()) {
-                    return null;
-                }
+                    authorization.setID(authzID);
+                    authorization.setAccountID(rs.getString("account_id"));
 
-                authorization.setID(authzID);
-                authorization.setAccountID(rs.getString("account_id"));
-
-                Timestamp created = rs.getTimestamp("created");
-                authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                authorization.setStatus(rs.getString("status"));
+                    authorization.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                ACMEIdentifier identifier = new ACMEIdentifier();
-                identifier.setType(rs.getString("identifier_type"));
-                identifier.setValue(rs.getString("identifier_value"));
-                authorization.setIdentifier(identifier);
+                    ACMEIdentifier identifier = new ACMEIdentifier();
+                    identifier.setType(rs.getString("identifier_type"));
+                    identifier.setValue(rs.getString("identifier_value"));
+                    authorization.setIdentifier(identifier);
 
-                boolean wildcard = rs.getBoolean("wildcard");
-                authorization.setWildcard(wildcard ? true : null);
+                    boolean wildcard = rs.getBoolean("wildcard");
+                    authorization.setWildcard(wildcard ? true : null);
+                }
             }
-        }
 
-        getAuthorizationChallenges(authorization);
+            getAuthorizationChallenges(connection, authorization);
 
-        return authorization;
+            return authorization;
+        }
     }
 
     @Override
     public ACMEAuthorization getAuthorizationByChallenge(String challengeID) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            logger.info("Getting authorization for challenge " + challengeID);
 
-        logger.info("Getting authorization for challenge " + challengeID);
+            String sql = statements.getProperty("getAuthorizationByChallenge");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getAuthorizationByChallenge");
-        logger.info("SQL: " + sql);
+            ACMEAuthorization authorization = new ACMEAuthorization();
 
-        ACMEAuthorization authorization = new ACMEAuthorization();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, challengeID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, challengeID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                if (!rs.next()) {
-                    return null;
-                }
-
-                authorization.setID(rs.getString("id"));
-                authorization.setAccountID(rs.getString("account_id"));
+                    authorization.setID(rs.getString("id"));
+                    authorization.setAccountID(rs.getString("account_id"));
 
-                Timestamp created = rs.getTimestamp("created");
-                authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                authorization.setStatus(rs.getString("status"));
+                    authorization.setStatus(rs.getString("status"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                ACMEIdentifier identifier = new ACMEIdentifier();
-                identifier.setType(rs.getString("identifier_type"));
-                identifier.setValue(rs.getString("identifier_value"));
-                authorization.setIdentifier(identifier);
+                    ACMEIdentifier identifier = new ACMEIdentifier();
+                    identifier.setType(rs.getString("identifier_type"));
+                    identifier.setValue(rs.getString("identifier_value"));
+                    authorization.setIdentifier(identifier);
 
-                boolean wildcard = rs.getBoolean("wildcard");
-                authorization.setWildcard(wildcard ? true : null);
+                    boolean wildcard = rs.getBoolean("wildcard");
+                    authorization.setWildcard(wildcard ? true : null);
+                }
             }
-        }
 
-        getAuthorizationChallenges(authorization);
+            getAuthorizationChallenges(connection, authorization);
 
-        return authorization;
+            return authorization;
+        }
     }
 
-    private Collection<String> getExpiredAuthorizationIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredAuthorizationIDs(Connection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredAuthorizationIDs");
         logger.info("SQL: " + sql);
@@ -1121,55 +1088,55 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public Collection<ACMEAuthorization> getRevocationAuthorizations(String accountID, Date time) throws Exception {
 
-        connect();
-
-        logger.info("Getting authorizations for account " + accountID);
+        try (Connection connection = connect()) {
+            logger.info("Getting authorizations for account " + accountID);
 
-        String sql = statements.getProperty("getRevocationAuthorizations");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("getRevocationAuthorizations");
+            logger.info("SQL: " + sql);
 
-        Collection<ACMEAuthorization> authorizations = new ArrayList<>();
+            Collection<ACMEAuthorization> authorizations = new ArrayList<>();
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, accountID);
-            ps.setTimestamp(2, new Timestamp(time.getTime()), UTC);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, accountID);
+                ps.setTimestamp(2, new Timestamp(time.getTime()), UTC);
 
-            try (ResultSet rs = ps.executeQuery()) {
+                try (ResultSet rs = ps.executeQuery()) {
 
-                while (rs.next()) {
+                    while (rs.next()) {
 
-                    ACMEAuthorization authorization = new ACMEAuthorization();
+                        ACMEAuthorization authorization = new ACMEAuthorization();
 
-                    authorization.setID(rs.getString("id"));
-                    authorization.setAccountID(accountID);
+                        authorization.setID(rs.getString("id"));
+                        authorization.setAccountID(accountID);
 
-                    Timestamp created = rs.getTimestamp("created");
-                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+                        Timestamp created = rs.getTimestamp("created");
+                        authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                    authorization.setStatus(rs.getString("status"));
+                        authorization.setStatus(rs.getString("status"));
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                        Timestamp expires = rs.getTimestamp("expires");
+                        authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                    ACMEIdentifier identifier = new ACMEIdentifier();
-                    identifier.setType(rs.getString("identifier_type"));
-                    identifier.setValue(rs.getString("identifier_value"));
-                    authorization.setIdentifier(identifier);
+                        ACMEIdentifier identifier = new ACMEIdentifier();
+                        identifier.setType(rs.getString("identifier_type"));
+                        identifier.setValue(rs.getString("identifier_value"));
+                        authorization.setIdentifier(identifier);
 
-                    boolean wildcard = rs.getBoolean("wildcard");
-                    authorization.setWildcard(wildcard ? true : null);
+                        boolean wildcard = rs.getBoolean("wildcard");
+                        authorization.setWildcard(wildcard ? true : null);
 
-                    getAuthorizationChallenges(authorization);
+                        getAuthorizationChallenges(connection, authorization);
 
-                    authorizations.add(authorization);
+                        authorizations.add(authorization);
+                    }
                 }
             }
-        }
 
-        return authorizations;
+            return authorizations;
+        }
     }
 
-    private void getAuthorizationChallenges(ACMEAuthorization authorization) throws Exception {
+    private void getAuthorizationChallenges(Connection connection, ACMEAuthorization authorization) throws Exception {
 
         String authzID = authorization.getID();
         logger.info("Getting challenges for authorization " + authzID);
@@ -1209,68 +1176,68 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addAuthorization(ACMEAuthorization authorization) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            String authzID = authorization.getID();
+            logger.info("Adding authorization " + authzID);
 
-        String authzID = authorization.getID();
-        logger.info("Adding authorization " + authzID);
+            String sql = statements.getProperty("addAuthorization");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("addAuthorization");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, authzID);
+                ps.setString(2, authorization.getAccountID());
 
-            ps.setString(1, authzID);
-            ps.setString(2, authorization.getAccountID());
+                Date creationTime = authorization.getCreationTime();
+                ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            Date creationTime = authorization.getCreationTime();
-            ps.setTimestamp(3, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                ps.setString(4, authorization.getStatus());
 
-            ps.setString(4, authorization.getStatus());
+                Date expirationTime = authorization.getExpirationTime();
+                ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            Date expirationTime = authorization.getExpirationTime();
-            ps.setTimestamp(5, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                ACMEIdentifier identifier = authorization.getIdentifier();
+                ps.setString(6, identifier.getType());
+                ps.setString(7, identifier.getValue());
 
-            ACMEIdentifier identifier = authorization.getIdentifier();
-            ps.setString(6, identifier.getType());
-            ps.setString(7, identifier.getValue());
+                Boolean wildcard = authorization.getWildcard();
+                ps.setBoolean(8, wildcard == null ? false : wildcard);
 
-            Boolean wildcard = authorization.getWildcard();
-            ps.setBoolean(8, wildcard == null ? false : wildcard);
+                ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
+            addAuthorizationChallenges(connection, authorization);
         }
-
-        addAuthorizationChallenges(authorization);
     }
 
     @Override
     public void updateAuthorization(ACMEAuthorization authorization) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            String authzID = authorization.getID();
+            logger.info("Updating authorization " + authzID);
 
-        String authzID = authorization.getID();
-        logger.info("Updating authorization " + authzID);
+            String sql = statements.getProperty("updateAuthorization");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("updateAuthorization");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, authorization.getStatus());
 
-            ps.setString(1, authorization.getStatus());
+                Date expirationTime = authorization.getExpirationTime();
+                ps.setTimestamp(2, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            Date expirationTime = authorization.getExpirationTime();
-            ps.setTimestamp(2, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                ps.setString(3, authzID);
 
-            ps.setString(3, authzID);
+                ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
+            removeAuthorizationChallenges(connection, authzID);
+            addAuthorizationChallenges(connection, authorization);
         }
-
-        removeAuthorizationChallenges(authzID);
-        addAuthorizationChallenges(authorization);
     }
 
-    private void removeAuthorizationChallenges(String authzID) throws Exception {
+    private void removeAuthorizationChallenges(Connection connection, String authzID) throws Exception {
 
         logger.info("Removing challenges for authorization " + authzID);
 
@@ -1283,7 +1250,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void addAuthorizationChallenges(ACMEAuthorization authorization) throws Exception {
+    private void addAuthorizationChallenges(Connection connection, ACMEAuthorization authorization) throws Exception {
 
         Collection<ACMEChallenge> challenges = authorization.getChallenges();
         if (challenges == null) return;
@@ -1312,73 +1279,60 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    private void removeAuthorization(String authzID) throws Exception {
-
-        removeAuthorizationChallenges(authzID);
-
-        logger.info("Removing authorization " + authzID);
-
-        String sql = statements.getProperty("removeAuthorization");
-        logger.info("SQL: " + sql);
-
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, authzID);
-            ps.executeUpdate();
-        }
-    }
-
     @Override
     public void removeExpiredAuthorizations(Date currentTime) throws Exception {
 
-        connect();
-
-        logger.info("Getting expired authorization IDs");
+        try (Connection connection = connect()) {
+            logger.info("Getting expired authorization IDs");
 
-        Collection<String> authzIDs = getExpiredAuthorizationIDs(currentTime);
+            Collection<String> authzIDs = getExpiredAuthorizationIDs(connection, currentTime);
 
-        logger.info("Removing expired authorization");
+            logger.info("Removing " + authzIDs.size() + " expired authorizations");
 
-        for (String authzID : authzIDs) {
-            removeAuthorization(authzID);
+            removeRecords(
+                    connection,
+                    authzIDs,
+                    "removeAuthorizationChallenges",
+                    "removeAuthorization");
         }
     }
 
     @Override
     public ACMECertificate getCertificate(String certID) throws Exception {
 
-        connect();
+        try (Connection connection = connect()) {
+            logger.info("Getting certificate " + certID);
 
-        logger.info("Getting certificate " + certID);
+            String sql = statements.getProperty("getCertificate");
+            logger.info("SQL: " + sql);
 
-        String sql = statements.getProperty("getCertificate");
-        logger.info("SQL: " + sql);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, certID);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, certID);
+                try (ResultSet rs = ps.executeQuery()) {
 
-            try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
 
-                if (!rs.next()) {
-                    return null;
-                }
-
-                ACMECertificate certificate = new ACMECertificate();
-                certificate.setID(certID);
+                    ACMECertificate certificate = new ACMECertificate();
+                    certificate.setID(certID);
 
-                Timestamp created = rs.getTimestamp("created");
-                certificate.setCreationTime(created == null ? null : new Date(created.getTime()));
+                    Timestamp created = rs.getTimestamp("created");
+                    certificate.setCreationTime(created == null ? null : new Date(created.getTime()));
 
-                certificate.setData(rs.getBytes("data"));
+                    certificate.setData(rs.getBytes("data"));
 
-                Timestamp expires = rs.getTimestamp("expires");
-                certificate.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+                    Timestamp expires = rs.getTimestamp("expires");
+                    certificate.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
 
-                return certificate;
+                    return certificate;
+                }
             }
         }
     }
 
-    private Collection<String> getExpiredCertificateIDs(Date currentTime) throws Exception {
+    private Collection<String> getExpiredCertificateIDs(Connection connection, Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredCertificateIDs");
         logger.info("SQL: " + sql);
@@ -1403,55 +1357,85 @@ public class PostgreSQLDatabase extends ACMEDatabase {
     @Override
     public void addCertificate(String certID, ACMECertificate certificate) throws Exception {
 
-        connect();
-
-        logger.info("Adding certificate " + certID);
+        try (Connection connection = connect()) {
+            logger.info("Adding certificate " + certID);
 
-        String sql = statements.getProperty("addCertificate");
-        logger.info("SQL: " + sql);
+            String sql = statements.getProperty("addCertificate");
+            logger.info("SQL: " + sql);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.setString(1, certID);
+                ps.setString(1, certID);
 
-            Date creationTime = certificate.getCreationTime();
-            ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
+                Date creationTime = certificate.getCreationTime();
+                ps.setTimestamp(2, creationTime == null ? null : new Timestamp(creationTime.getTime()), UTC);
 
-            ps.setBytes(3, certificate.getData());
+                ps.setBytes(3, certificate.getData());
 
-            Date expirationTime = certificate.getExpirationTime();
-            ps.setTimestamp(4, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
+                Date expirationTime = certificate.getExpirationTime();
+                ps.setTimestamp(4, expirationTime == null ? null : new Timestamp(expirationTime.getTime()), UTC);
 
-            ps.executeUpdate();
+                ps.executeUpdate();
+            }
         }
     }
 
-    private void removeCertificate(String certID) throws Exception {
+    @Override
+    public void removeExpiredCertificates(Date currentTime) throws Exception {
 
-        logger.info("Removing certificate " + certID);
+        try (Connection connection = connect()) {
+            logger.info("Getting expired certificaate IDs");
 
-        String sql = statements.getProperty("removeCertificate");
-        logger.info("SQL: " + sql);
+            Collection<String> certIDs = getExpiredCertificateIDs(connection, currentTime);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, certID);
-            ps.executeUpdate();
+            logger.info("Removing " + certIDs.size() + " expired certificates");
+
+            removeRecords(connection, certIDs, "removeCertificate");
         }
     }
 
-    @Override
-    public void removeExpiredCertificates(Date currentTime) throws Exception {
+    /**
+     * This method will remove records in batches. Each batch executes
+     * the given statements (in order) for the IDs in the batch, and
+     * it is committed as a single transaction.
+     */
+    private void removeRecords(Connection connection, Collection<String> ids, String... names) throws Exception {
+
+        if (ids.isEmpty()) return;
+
+        List<String> list = new ArrayList<>(ids);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try {
+            for (int i = 0; i < list.size(); i += batchSize) {
 
-        connect();
+                List<String> batch = list.subList(i, Math.min(i + batchSize, list.size()));
 
-        logger.info("Getting expired certificaate IDs");
+                for (String name : names) {
 
-        Collection<String> certIDs = getExpiredCertificateIDs(currentTime);
+                    String sql = statements.getProperty(name);
+                    logger.info("SQL: " + sql);
 
-        logger.info("Removing expired certificates");
+                    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                        for (String id : batch) {
+                            ps.setString(1, id);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+
+                connection.commit();
+                logger.info("Removed " + (i + batch.size()) + " of " + list.size() + " records");
+            }
+
+        } catch (Exception e) {
+            connection.rollback();
+            throw e;
 
-        for (String certID : certIDs) {
-            removeCertificate(certID);
+        } finally {
+            connection.setAutoCommit(autoCommit);
         }
     }
 
@@ -1462,8 +1446,8 @@ public class PostgreSQLDatabase extends ACMEDatabase {
             monitor.stop();
         }
 
-        if (connection != null) {
-            connection.close();
+        if (connectionPool != null) {
+            connectionPool.close();
         }
     }
 }
@@ -24,10 +24,9 @@ import org.mozilla.jss.netscape.security.x509.RevocationReason;
 import org.mozilla.jss.netscape.security.x509.X500Name;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
-import com.netscape.certsrv.account.AccountClient;
 import com.netscape.certsrv.ca.AuthorityID;
 import com.netscape.certsrv.ca.CACertClient;
-import com.netscape.certsrv.ca.CAClient;
+import com.netscape.certsrv.ca.CAClientPool;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertEnrollmentRequest;
 import com.netscape.certsrv.cert.CertRequestInfo;
@@ -35,7 +34,6 @@ import com.netscape.certsrv.cert.CertRequestInfos;
 import com.netscape.certsrv.cert.CertReviewResponse;
 import com.netscape.certsrv.cert.CertRevokeRequest;
 import com.netscape.certsrv.client.ClientConfig;
-import com.netscape.certsrv.client.PKIClient;
 import com.netscape.certsrv.dbs.certdb.CertId;
 import com.netscape.certsrv.profile.ProfileAttribute;
 import com.netscape.certsrv.profile.ProfileInput;
@@ -50,6 +48,7 @@ public class PKIIssuer extends ACMEIssuer {
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PKIIssuer.class);
 
     private ClientConfig clientConfig = new ClientConfig();
+    private CAClientPool clientPool;
     private String profile;
     private AuthorityID authorityID;
     private X500Name authorityDN;
@@ -125,6 +124,32 @@ public class PKIIssuer extends ACMEIssuer {
             authorityDN = new X500Name(adn);
             logger.info("- authority-dn: " + adn);
         }
+
+        clientPool = new CAClientPool(clientConfig);
+
+        String maxSessions = config.getParameter("pool.maxSessions");
+        if (maxSessions != null) {
+            clientPool.setMaxSessions(Integer.parseInt(maxSessions));
+        }
+
+        String sessionTimeout = config.getParameter("pool.sessionTimeout");
+        if (sessionTimeout != null) {
+            clientPool.setSessionTimeout(Integer.parseInt(sessionTimeout));
+        }
+
+        String acquireTimeout = config.getParameter("pool.acquireTimeout");
+        if (acquireTimeout != null) {
+            clientPool.setAcquireTimeout(Integer.parseInt(acquireTimeout));
+        }
+
+        clientPool.init();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (clientPool != null) {
+            clientPool.close();
+        }
     }
 
     @Override
@@ -132,10 +157,7 @@ public class PKIIssuer extends ACMEIssuer {
 
         logger.info("Issuing certificate");
 
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
-
-            CAClient caClient = new CAClient(pkiClient);
-            AccountClient accountClient = new AccountClient(caClient);
+        return clientPool.execute("issueCertificate", true, session -> {
 
             // Here the agent credentials are stored in the ClientConfig and will
             // be sent to the CA automatically if any of the methods being called
@@ -161,10 +183,10 @@ public class PKIIssuer extends ACMEIssuer {
             // The above methods do require REST authentication so in this case
             // it's not actually necessary to call CAClient.login(). However, to
             // support both types of profiles the CAClient.login() needs to be
-            // called explicitly.
-            accountClient.login();
+            // called explicitly. The pooled session is logged in once and
+            // reused until the login expires.
 
-            CACertClient certClient = new CACertClient(caClient);
+            CACertClient certClient = session.getCertClient();
             CertEnrollmentRequest certEnrollmentRequest = certClient.getEnrollmentTemplate(profile);
 
             for (ProfileInput input : certEnrollmentRequest.getInputs()) {
@@ -185,6 +207,9 @@ public class PKIIssuer extends ACMEIssuer {
             CertRequestInfos infos = certClient.enrollRequest(
 			    certEnrollmentRequest, authorityID, authorityDN);
 
+            // the request has been submitted, do not submit it again after a login failure
+            session.setRetryable(false);
+
             logger.info("Responses:");
             CertRequestInfo info = infos.getEntries().iterator().next();
 
@@ -204,17 +229,22 @@ public class PKIIssuer extends ACMEIssuer {
             if (info.getRequestStatus() == RequestStatus.COMPLETE) {
                 id = info.getCertId();
             } else {
-                CertReviewResponse reviewInfo = certClient.reviewRequest(requestId);
-                certClient.approveRequest(requestId, reviewInfo);
-
-                info = certClient.getRequest(requestId);
+                // review again after a new login since the nonce belongs to the login session
+                session.execute(s -> {
+                    CACertClient client = s.getCertClient();
+                    CertReviewResponse reviewInfo = client.reviewRequest(requestId);
+                    client.approveRequest(requestId, reviewInfo);
+                    return null;
+                });
+
+                info = session.execute(s -> s.getCertClient().getRequest(requestId));
                 id = info.getCertId();
             }
 
             logger.info("Serial number: " + id.toHexString());
             BigInteger serialNumber = id.toBigInteger();
             return Base64.encodeBase64URLSafeString(serialNumber.toByteArray());
-        }
+        });
     }
 
     @Override
@@ -223,37 +253,33 @@ public class PKIIssuer extends ACMEIssuer {
         CertId id = new CertId(new BigInteger(1, Base64.decodeBase64(certID)));
         logger.info("Serial number: " + id.toHexString());
 
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
-
-            CAClient caClient = new CAClient(pkiClient);
-            CACertClient certClient = new CACertClient(caClient);
-            CertData certData = certClient.getCert(id);
+        CertData certData = clientPool.execute("getCertificateChain", false,
+                session -> session.getCertClient().getCert(id));
 
-            String pkcs7Chain = certData.getPkcs7CertChain();
-            logger.info("Cert chain:\n" + pkcs7Chain);
+        String pkcs7Chain = certData.getPkcs7CertChain();
+        logger.info("Cert chain:\n" + pkcs7Chain);
 
-            PKCS7 pkcs7 = new PKCS7(Utils.base64decode(pkcs7Chain));
-            X509Certificate[] certs = pkcs7.getCertificates();
+        PKCS7 pkcs7 = new PKCS7(Utils.base64decode(pkcs7Chain));
+        X509Certificate[] certs = pkcs7.getCertificates();
 
-            if (certs == null || certs.length == 0) {
-                throw new Error("PKCS #7 data contains no certificates");
-            }
+        if (certs == null || certs.length == 0) {
+            throw new Error("PKCS #7 data contains no certificates");
+        }
 
-            // sort certs from leaf to root
-            certs = Cert.sortCertificateChain(certs, true);
+        // sort certs from leaf to root
+        certs = Cert.sortCertificateChain(certs, true);
 
-            StringWriter sw = new StringWriter();
+        StringWriter sw = new StringWriter();
 
-            try (PrintWriter out = new PrintWriter(sw, true)) {
-                for (X509Certificate cert : certs) {
-                    out.println(Cert.HEADER);
-                    out.print(Utils.base64encode(cert.getEncoded(), true));
-                    out.println(Cert.FOOTER);
-                }
+        try (PrintWriter out = new PrintWriter(sw, true)) {
+            for (X509Certificate cert : certs) {
+                out.println(Cert.HEADER);
+                out.print(Utils.base64encode(cert.getEncoded(), true));
+                out.println(Cert.FOOTER);
             }
-
-            return sw.toString();
         }
+
+        return sw.toString();
     }
 
     @Override
@@ -282,10 +308,9 @@ public class PKIIssuer extends ACMEIssuer {
 
         logger.info("Reviewing certificate");
 
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
+        clientPool.execute("revokeCertificate", false, session -> {
 
-            CAClient caClient = new CAClient(pkiClient);
-            CACertClient certClient = new CACertClient(caClient);
+            CACertClient certClient = session.getCertClient();
             CertData certData = certClient.reviewCert(certID);
 
             // Compare cert in request to cert retrieved from PKI.
@@ -321,6 +346,8 @@ public class PKIIssuer extends ACMEIssuer {
                 String error = certRequestInfo.getErrorMessage();
                 throw new Exception("Unable to revoke certificate: " + error);
             }
-        }
+
+            return null;
+        });
     }
 }
@@ -0,0 +1,159 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.netscape.certsrv.util.JSONSerializer;
+
+/**
+ * Challenge validation parameters.
+ *
+ * The delays are in seconds. The delay before each retry is the previous
+ * delay multiplied by the backoff multiplier, up to the max retry delay.
+ */
+@JsonInclude(Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+public class ACMEChallengeConfig implements JSONSerializer {
+
+    private Integer threads = 20;
+    private Integer queueSize = 10000;
+    private Boolean virtualThreads = true;
+
+    private Integer maxAttempts = 5;
+    private Integer retryDelay = 5;
+    private Integer maxRetryDelay = 60;
+    private Double backoffMultiplier = 1.0;
+
+    public ACMEChallengeConfig() {}
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public Integer getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(Integer queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public Boolean getVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(Boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(Integer maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Integer getRetryDelay() {
+        return retryDelay;
+    }
+
+    public void setRetryDelay(Integer retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
+    public Integer getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    public void setMaxRetryDelay(Integer maxRetryDelay) {
+        this.maxRetryDelay = maxRetryDelay;
+    }
+
+    public Double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    public void setBackoffMultiplier(Double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    /**
+     * Returns the delay in seconds before the given attempt.
+     *
+     * @param attempt attempt number starting from 1
+     */
+    public long getRetryDelay(int attempt) {
+
+        double delay = retryDelay;
+        for (int i = 2; i < attempt && delay < maxRetryDelay; i++) {
+            delay *= backoffMultiplier;
+        }
+
+        return Math.min((long) delay, maxRetryDelay);
+    }
+
+    public void setProperty(String key, String value) throws Exception {
+
+        if (key.equals("threads")) {
+            threads = Integer.valueOf(value);
+
+        } else if (key.equals("queueSize")) {
+            queueSize = Integer.valueOf(value);
+
+        } else if (key.equals("virtualThreads")) {
+            virtualThreads = Boolean.valueOf(value);
+
+        } else if (key.equals("maxAttempts")) {
+            maxAttempts = Integer.valueOf(value);
+
+        } else if (key.equals("retryDelay")) {
+            retryDelay = Integer.valueOf(value);
+
+        } else if (key.equals("maxRetryDelay")) {
+            maxRetryDelay = Integer.valueOf(value);
+
+        } else if (key.equals("backoffMultiplier")) {
+            backoffMultiplier = Double.valueOf(value);
+        }
+    }
+
+    public static ACMEChallengeConfig fromProperties(Properties props) throws Exception {
+
+        ACMEChallengeConfig config = new ACMEChallengeConfig();
+
+        for (Entry<Object, Object> entry : props.entrySet()) {
+            String key = entry.getKey().toString();
+            String value = entry.getValue().toString();
+            config.setProperty(key, value);
+        }
+
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return toJSON();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static void main(String[] args) {
+        ACMEChallengeConfig config = new ACMEChallengeConfig();
+        System.out.println(config);
+    }
+}
@@ -0,0 +1,329 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.dogtagpki.acme.validator.ACMEValidator;
+
+/**
+ * This class processes challenges with a bounded number of threads.
+ *
+ * Each task performs a single validation attempt. If the attempt fails
+ * the next attempt is scheduled on a timer instead of keeping a thread
+ * waiting, so pending retries do not occupy any thread. The number of
+ * concurrent validations of each validator can be limited with the
+ * maxConcurrency validator parameter.
+ */
+public class ACMEChallengeExecutor {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEChallengeExecutor.class);
+
+    // delay before retrying a task that could not run due to concurrency limits
+    public static final long DEFER_DELAY = 100;
+
+    private ACMEChallengeConfig config;
+
+    private ThreadPoolExecutor workers;
+    private ScheduledExecutorService timer;
+
+    private Map<ACMEValidator, Semaphore> validatorPermits = new ConcurrentHashMap<>();
+    private Map<String, Retry> retries = new ConcurrentHashMap<>();
+
+    // statistics
+    private LongAdder submittedChallenges = new LongAdder();
+    private LongAdder rejectedChallenges = new LongAdder();
+    private LongAdder validChallenges = new LongAdder();
+    private LongAdder invalidChallenges = new LongAdder();
+    private LongAdder attempts = new LongAdder();
+    private LongAdder deferredAttempts = new LongAdder();
+
+    public ACMEChallengeExecutor(ACMEChallengeConfig config) {
+        this.config = config;
+    }
+
+    public ACMEChallengeConfig getConfig() {
+        return config;
+    }
+
+    public void init() throws Exception {
+
+        logger.info("Initializing ACME challenge executor");
+
+        int threads = config.getThreads();
+        logger.info("- threads: " + threads);
+
+        int queueSize = config.getQueueSize();
+        logger.info("- queue size: " + queueSize);
+
+        boolean virtualThreads = config.getVirtualThreads();
+        logger.info("- virtual threads: " + virtualThreads);
+
+        logger.info("- max attempts: " + config.getMaxAttempts());
+        logger.info("- retry delay: " + config.getRetryDelay());
+        logger.info("- max retry delay: " + config.getMaxRetryDelay());
+        logger.info("- backoff multiplier: " + config.getBackoffMultiplier());
+
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = Thread.ofVirtual().name("ACMEChallenge-", 1).factory();
+        } else {
+            threadFactory = Thread.ofPlatform().name("ACMEChallenge-", 1).daemon().factory();
+        }
+
+        workers = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize),
+                threadFactory);
+        workers.allowCoreThreadTimeOut(true);
+
+        timer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("ACMEChallengeTimer").daemon().factory());
+    }
+
+    /**
+     * Queues a challenge for validation.
+     *
+     * @return false if the queue is full
+     */
+    public boolean submit(ACMEChallengeProcessor processor) {
+
+        try {
+            workers.execute(() -> process(processor));
+
+        } catch (RejectedExecutionException e) {
+            logger.warn("Unable to queue challenge " + processor.getChallengeID() + ": " + e.getMessage());
+            rejectedChallenges.increment();
+            return false;
+        }
+
+        submittedChallenges.increment();
+        return true;
+    }
+
+    void process(ACMEChallengeProcessor processor) {
+
+        String challengeID = processor.getChallengeID();
+
+        Semaphore permits = getPermits(processor.getValidator());
+        if (permits != null && !permits.tryAcquire()) {
+            // retry shortly without counting an attempt
+            deferredAttempts.increment();
+            schedule(processor, DEFER_DELAY);
+            return;
+        }
+
+        try {
+            attempts.increment();
+
+            if (processor.processAttempt(config.getMaxAttempts())) {
+                retries.remove(challengeID);
+                if ("valid".equals(processor.getChallenge().getStatus())) {
+                    validChallenges.increment();
+                } else {
+                    invalidChallenges.increment();
+                }
+                return;
+            }
+
+            long delay = TimeUnit.SECONDS.toMillis(config.getRetryDelay(processor.getAttempts() + 1));
+            logger.info("Retrying challenge " + challengeID + " in " + delay + " ms");
+            schedule(processor, delay);
+
+        } catch (Throwable e) {
+            logger.error("Unable to process challenge " + challengeID + ": " + e.getMessage(), e);
+            retries.remove(challengeID);
+
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    void schedule(ACMEChallengeProcessor processor, long delay) {
+
+        Retry retry = new Retry(processor, System.currentTimeMillis() + delay);
+        retries.put(processor.getChallengeID(), retry);
+
+        try {
+            retry.future = timer.schedule(() -> resubmit(retry), delay, TimeUnit.MILLISECONDS);
+
+        } catch (RejectedExecutionException e) {
+            // executor is shutting down
+            retries.remove(processor.getChallengeID(), retry);
+        }
+    }
+
+    void resubmit(Retry retry) {
+
+        try {
+            workers.execute(() -> process(retry.processor));
+
+        } catch (RejectedExecutionException e) {
+            if (workers.isShutdown()) return;
+
+            // the queue is full, keep the challenge in processing state and try again later
+            logger.warn("Unable to queue challenge " + retry.processor.getChallengeID() + ": " + e.getMessage());
+            schedule(retry.processor, TimeUnit.SECONDS.toMillis(config.getRetryDelay()));
+        }
+    }
+
+    /**
+     * Retries a challenge immediately if it is waiting for the next attempt
+     * and the previous attempt was at least one retry delay ago.
+     *
+     * RFC 8555 Section 8.2: Retrying Challenges
+     *
+     * Servers SHOULD retry a request immediately on receiving such a POST
+     * request. In order to avoid denial-of-service attacks via client-initiated
+     * retries, servers SHOULD rate-limit such requests.
+     *
+     * @return true if the challenge has been queued
+     */
+    public boolean retry(String challengeID) {
+
+        Retry retry = retries.get(challengeID);
+        if (retry == null || retry.future == null) return false;
+
+        long minTime = retry.processor.getLastAttemptTime() + TimeUnit.SECONDS.toMillis(config.getRetryDelay());
+        if (System.currentTimeMillis() < minTime) return false;
+
+        if (!retry.future.cancel(false)) return false;
+
+        logger.info("Retrying challenge " + challengeID + " on client request");
+        retries.remove(challengeID, retry);
+
+        if (submit(retry.processor)) return true;
+
+        // keep the original schedule
+        schedule(retry.processor, Math.max(0, retry.time - System.currentTimeMillis()));
+        return false;
+    }
+
+    /**
+     * Returns the time of the next validation attempt of a challenge,
+     * or null if the challenge is not waiting for a retry.
+     */
+    public Long getRetryTime(String challengeID) {
+        Retry retry = retries.get(challengeID);
+        return retry == null ? null : retry.time;
+    }
+
+    /**
+     * Returns the number of seconds until the next validation attempt
+     * which can be returned in a Retry-After header.
+     */
+    public long getRetryAfter(String challengeID) {
+
+        Long time = getRetryTime(challengeID);
+        if (time == null) {
+            return config.getRetryDelay();
+        }
+
+        long delay = time - System.currentTimeMillis();
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(delay + 999));
+    }
+
+    Semaphore getPermits(ACMEValidator validator) {
+
+        if (validator == null) return null;
+
+        return validatorPermits.computeIfAbsent(validator, v -> {
+            int maxConcurrency = v.getMaxConcurrency();
+            if (maxConcurrency <= 0) return null;
+            logger.info("Limiting " + v.getName() + " validations to " + maxConcurrency);
+            return new Semaphore(maxConcurrency);
+        });
+    }
+
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    public int getPendingRetries() {
+        return retries.size();
+    }
+
+    public long getSubmittedChallenges() {
+        return submittedChallenges.sum();
+    }
+
+    public long getRejectedChallenges() {
+        return rejectedChallenges.sum();
+    }
+
+    public long getValidChallenges() {
+        return validChallenges.sum();
+    }
+
+    public long getInvalidChallenges() {
+        return invalidChallenges.sum();
+    }
+
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getDeferredAttempts() {
+        return deferredAttempts.sum();
+    }
+
+    public String getStatistics() {
+        return "queue depth: " + getQueueDepth()
+                + ", active: " + getActiveCount()
+                + ", pending retries: " + getPendingRetries()
+                + ", submitted: " + getSubmittedChallenges()
+                + ", rejected: " + getRejectedChallenges()
+                + ", valid: " + getValidChallenges()
+                + ", invalid: " + getInvalidChallenges()
+                + ", attempts: " + getAttempts()
+                + ", deferred: " + getDeferredAttempts();
+    }
+
+    public void shutdown() throws Exception {
+
+        logger.info("Shutting down ACME challenge executor");
+        logger.info("ACME challenges: " + getStatistics());
+
+        timer.shutdownNow();
+        workers.shutdown();
+
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    static class Retry {
+
+        final ACMEChallengeProcessor processor;
+        final long time;
+        volatile ScheduledFuture<?> future;
+
+        Retry(ACMEChallengeProcessor processor, long time) {
+            this.processor = processor;
+            this.time = time;
+        }
+    }
+}
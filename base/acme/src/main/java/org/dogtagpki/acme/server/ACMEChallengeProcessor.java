@@ -29,6 +29,9 @@ public class ACMEChallengeProcessor implements Runnable {
     ACMEChallenge challenge;
     ACMEValidator validator;
 
+    int attempts;
+    long lastAttemptTime;
+
     public ACMEChallengeProcessor(
             ACMEAccount account,
             ACMEAuthorization authorization,
@@ -41,6 +44,26 @@ public class ACMEChallengeProcessor implements Runnable {
         this.validator = validator;
     }
 
+    public String getChallengeID() {
+        return challenge.getID();
+    }
+
+    public ACMEChallenge getChallenge() {
+        return challenge;
+    }
+
+    public ACMEValidator getValidator() {
+        return validator;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getLastAttemptTime() {
+        return lastAttemptTime;
+    }
+
     @Override
     public void run() {
         try {
@@ -50,35 +73,68 @@ public class ACMEChallengeProcessor implements Runnable {
         }
     }
 
+    /**
+     * Validates the challenge in the current thread
+     * and waits between the attempts.
+     */
     public void processChallenge() throws Exception {
 
+        ACMEEngine engine = ACMEEngine.getInstance();
+        ACMEChallengeConfig config = engine.getChallengeConfig();
+
+        while (!processAttempt(config.getMaxAttempts())) {
+            Thread.sleep(config.getRetryDelay(attempts + 1) * 1000);
+        }
+    }
+
+    /**
+     * Performs a single validation attempt. If the attempt succeeds or
+     * it is the last attempt the authorization will be finalized.
+     *
+     * @param maxAttempts maximum number of attempts
+     * @return true if the authorization has been finalized,
+     * false if the challenge should be validated again
+     */
+    public boolean processAttempt(int maxAttempts) throws Exception {
+
         String challengeID = challenge.getID();
-        logger.info("Processing challenge " + challengeID);
-
-        // TODO make retry parameters configurable
-        int maxAttempts = 5;
-        int delaySeconds = 5;
-        int attempts = 0;
-        ValidationResult r = null;
-
-        while (attempts++ < maxAttempts) {
-            try {
-                r = validator.validateChallenge(authorization, challenge);
-            } catch (Exception e) {
-                ACMEError error = new ACMEError();
-                error.setType("urn:ietf:params:acme:error:serverInternal");
-                error.setDetail("Internal server error: " + e);
-                r = ValidationResult.fail(error);
-            }
-            if (r.isOK()) break;
-            Thread.sleep(delaySeconds * 1000);
+
+        attempts++;
+        lastAttemptTime = System.currentTimeMillis();
+        logger.info("Processing challenge " + challengeID + " (attempt " + attempts + "/" + maxAttempts + ")");
+
+        ValidationResult r;
+        try {
+            r = validator.validateChallenge(authorization, challenge);
+        } catch (Exception e) {
+            ACMEError error = new ACMEError();
+            error.setType("urn:ietf:params:acme:error:serverInternal");
+            error.setDetail("Internal server error: " + e);
+            r = ValidationResult.fail(error);
         }
 
         if (r.isOK()) {
             finalizeValidAuthorization();
-        } else {
+            return true;
+        }
+
+        if (attempts >= maxAttempts) {
             finalizeInvalidAuthorization(r.getError());
+            return true;
         }
+
+        // RFC 8555 Section 8.2: Retrying Challenges
+        //
+        // The server MUST add an entry to the "error" field in the challenge
+        // after each failed validation query.
+
+        logger.info("Challenge " + challengeID + " failed: " + r.getError().getDetail());
+        challenge.setError(r.getError().toJSON());
+
+        ACMEEngine engine = ACMEEngine.getInstance();
+        engine.updateAuthorization(account, authorization);
+
+        return false;
     }
 
     public void finalizeValidAuthorization() throws Exception {
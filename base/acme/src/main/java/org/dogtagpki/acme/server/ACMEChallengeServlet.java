@@ -17,6 +17,8 @@ import org.apache.http.client.utils.URIBuilder;
 import org.dogtagpki.acme.ACMEAccount;
 import org.dogtagpki.acme.ACMEAuthorization;
 import org.dogtagpki.acme.ACMEChallenge;
+import org.dogtagpki.acme.ACMEError;
+import org.dogtagpki.acme.ACMEException;
 import org.dogtagpki.acme.ACMEHeader;
 import org.dogtagpki.acme.ACMENonce;
 import org.dogtagpki.acme.JWS;
@@ -99,11 +101,24 @@ public class ACMEChallengeServlet extends ACMEServlet {
                     challenge,
                     validator);
 
-            // TODO: use thread pool
-            new Thread(processor).start();
+            ACMEChallengeExecutor executor = engine.getChallengeExecutor();
+
+            if (!executor.submit(processor)) {
+
+                // revert the status so the client can respond to the challenge again
+                challenge.setStatus("pending");
+                engine.updateAuthorization(account, authorization);
+
+                long retryAfter = executor.getConfig().getRetryDelay();
+                response.setHeader("Retry-After", Long.toString(retryAfter));
+
+                ACMEError error = new ACMEError();
+                error.setType("urn:ietf:params:acme:error:rateLimited");
+                error.setDetail("Too many challenges are being validated. Try again in " + retryAfter + " seconds.");
+                throw new ACMEException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, error);
+            }
 
         } else if (challengeStatus.equals("processing")) {
-            // TODO: retry the challenge
 
             // RFC 8555 Section 8.2: Retrying Challenges
             //
@@ -115,6 +130,14 @@ public class ACMEChallengeServlet extends ACMEServlet {
             // avoid denial-of-service attacks via client-initiated retries, servers
             // SHOULD rate-limit such requests.
 
+            ACMEChallengeExecutor executor = engine.getChallengeExecutor();
+            executor.retry(challengeID);
+
+            // The server SHOULD set the Retry-After header field to a time after
+            // the server's next validation query.
+
+            response.setHeader("Retry-After", Long.toString(executor.getRetryAfter(challengeID)));
+
         } else if (challengeStatus.equals("valid")) {
                 logger.info("Challenge is already valid");
 
@@ -100,6 +100,8 @@ public class ACMEEngine extends CMSEngine {
     private ACMEValidatorsConfig validatorsConfig;
     private Map<String, ACMEValidator> validators = new HashMap<>();
 
+    private ACMEChallengeExecutor challengeExecutor;
+
     private ACMEIssuerConfig issuerConfig;
     private ACMEIssuer issuer;
 
@@ -162,6 +164,14 @@ public class ACMEEngine extends CMSEngine {
         validators.put(name, validator);
     }
 
+    public ACMEChallengeConfig getChallengeConfig() {
+        return config.getChallengeConfig();
+    }
+
+    public ACMEChallengeExecutor getChallengeExecutor() {
+        return challengeExecutor;
+    }
+
     public ACMEIssuerConfig getIssuerConfig() {
         return issuerConfig;
     }
@@ -333,6 +343,11 @@ public class ACMEEngine extends CMSEngine {
         }
     }
 
+    public void initChallengeExecutor() throws Exception {
+        challengeExecutor = new ACMEChallengeExecutor(config.getChallengeConfig());
+        challengeExecutor.init();
+    }
+
     public void initIssuer(String filename) throws Exception {
 
         File issuerConfigFile = new File(filename);
@@ -485,6 +500,7 @@ public class ACMEEngine extends CMSEngine {
         initMetadata(acmeConfDir + File.separator + "metadata.conf");
         initDatabase(acmeConfDir + File.separator + "database.conf");
         initValidators(acmeConfDir + File.separator + "validators.conf");
+        initChallengeExecutor();
         initIssuer(acmeConfDir + File.separator + "issuer.conf");
         initScheduler(acmeConfDir + File.separator + "scheduler.conf");
         initMonitors(acmeConfDir + File.separator + "configsources.conf");
@@ -513,6 +529,13 @@ public class ACMEEngine extends CMSEngine {
         validators.clear();
     }
 
+    public void shutdownChallengeExecutor() throws Exception {
+        if (challengeExecutor == null) return;
+
+        challengeExecutor.shutdown();
+        challengeExecutor = null;
+    }
+
     public void shutdownIssuer() throws Exception {
         if (issuer == null) return;
 
@@ -549,6 +572,7 @@ public class ACMEEngine extends CMSEngine {
         shutdownMonitors();
         shutdownScheduler();
         shutdownIssuer();
+        shutdownChallengeExecutor();
         shutdownValidators();
         shutdownDatabase();
 
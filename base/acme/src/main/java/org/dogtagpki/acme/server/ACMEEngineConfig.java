@@ -29,6 +29,9 @@ public class ACMEEngineConfig implements JSONSerializer {
     @JsonProperty("policy")
     private ACMEPolicyConfig policyConfig = new ACMEPolicyConfig();
 
+    @JsonProperty("challenges")
+    private ACMEChallengeConfig challengeConfig = new ACMEChallengeConfig();
+
     public Boolean isEnabled() {
         return enabled;
     }
@@ -61,6 +64,14 @@ public class ACMEEngineConfig implements JSONSerializer {
         this.policyConfig = wildcard;
     }
 
+    public ACMEChallengeConfig getChallengeConfig() {
+        return challengeConfig;
+    }
+
+    public void setChallengeConfig(ACMEChallengeConfig challengeConfig) {
+        this.challengeConfig = challengeConfig;
+    }
+
     public static ACMEEngineConfig fromProperties(Properties props) throws Exception {
 
         ACMEEngineConfig config = new ACMEEngineConfig();
@@ -85,6 +96,13 @@ public class ACMEEngineConfig implements JSONSerializer {
 
                 ACMEPolicyConfig policyConfig = config.getPolicyConfig();
                 policyConfig.setProperty(policyKey, value);
+
+            } else if (key.startsWith("challenges.")) {
+
+                String challengeKey = key.substring(11);
+
+                ACMEChallengeConfig challengeConfig = config.getChallengeConfig();
+                challengeConfig.setProperty(challengeKey, value);
             }
         }
 
@@ -51,6 +51,20 @@ public abstract class ACMEValidator {
         this.config = config;
     }
 
+    /**
+     * Returns the maximum number of concurrent validations
+     * of this validator, or 0 if unlimited.
+     */
+    public int getMaxConcurrency() {
+
+        if (config == null) return 0;
+
+        String maxConcurrency = config.getParameter("maxConcurrency");
+        if (maxConcurrency == null) return 0;
+
+        return Integer.parseInt(maxConcurrency);
+    }
+
     public void init() throws Exception {
     }
 
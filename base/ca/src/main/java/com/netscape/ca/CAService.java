@@ -207,6 +207,21 @@ public class CAService implements IService {
         return mKRAConnector;
     }
 
+    /**
+     * Stops the KRA and CLA connectors, which logs their
+     * statistics and closes their connection pools.
+     */
+    public void shutdown() {
+
+        if (mKRAConnector != null) {
+            mKRAConnector.stop();
+        }
+
+        if (mCLAConnector != null) {
+            mCLAConnector.stop();
+        }
+    }
+
     public void setKRAConnector(Connector c) {
         mKRAConnector = c;
     }
@@ -853,7 +868,7 @@ public class CAService implements IService {
         }
 
         logger.info("CAService: Processing CT for cert 0x" + serialNo.toString(16));
-        CTEngine ctEngine = new CTEngine();
+        CTEngine ctEngine = engine.getCTEngine();
         ctEngine.process(certi, hostCA, aid, algname);
 
         logger.info("CAService: Signing cert 0x" + serialNo.toString(16));
@@ -1096,6 +1111,8 @@ public class CAService implements IService {
             logger.info(CMS.getLogMessage("CMSCORE_CA_CERT_REVOKED",
                     serialno.toString(16)));
 
+            engine.invalidateOCSPResponses(serialno);
+
             // inform all CRLIssuingPoints about revoked certificate
 
             for (CRLIssuingPoint ip : engine.getCRLIssuingPoints()) {
@@ -1185,6 +1202,8 @@ public class CAService implements IService {
 
                 logger.info(CMS.getLogMessage("CMSCORE_CA_CERT_UNREVOKED", serialNo.toString(16)));
 
+                engine.invalidateOCSPResponses(serialNo);
+
                 // inform all CRLIssuingPoints about unrevoked certificate
 
                 for (CRLIssuingPoint ip : engine.getCRLIssuingPoints()) {
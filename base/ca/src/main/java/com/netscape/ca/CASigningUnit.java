@@ -157,6 +157,21 @@ public final class CASigningUnit extends SigningUnit {
     @Override
     public byte[] sign(byte[] data, String algname) throws Exception {
 
+        Signature signer = createSignatureContext(algname);
+        signer.update(data);
+
+        return sign(signer);
+    }
+
+    /**
+     * Creates a signature context initialized with the signing key so
+     * that large data can be fed to the signer incrementally. The
+     * signature is created by calling sign(Signature).
+     *
+     * @param algname is expected to be one of JCA's algorithm names.
+     */
+    public Signature createSignatureContext(String algname) throws Exception {
+
         if (!mInited) {
             throw new EBaseException("CASigningUnit not initialized");
         }
@@ -175,7 +190,15 @@ public final class CASigningUnit extends SigningUnit {
         Signature signer = mToken.getSignatureContext(signAlg);
 
         signer.initSign(mPrivk);
-        signer.update(data);
+
+        return signer;
+    }
+
+    /**
+     * Creates the signature for the data fed to a signature context
+     * created by createSignatureContext().
+     */
+    public byte[] sign(Signature signer) throws Exception {
 
         /* debugging
         boolean testAutoShutdown = false;
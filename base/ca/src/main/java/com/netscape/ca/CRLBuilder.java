@@ -0,0 +1,424 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.ca;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.cert.CRLException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mozilla.jss.crypto.Signature;
+import org.mozilla.jss.netscape.security.util.DerOutputStream;
+import org.mozilla.jss.netscape.security.util.DerValue;
+import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+
+/**
+ * This class generates the DER encoding of a full CRL from the CRL
+ * cache of a CRL issuing point without building an X509CRLImpl.
+ *
+ * The revoked certificates are kept sorted by serial number together
+ * with their DER encoding. The entries are synchronized with the CRL
+ * cache before each CRL generation so only the entries that have been
+ * added or changed since the previous CRL are encoded, and these are
+ * encoded in parallel. The TBSCertList is then written in a single pass
+ * into the signer and into a buffer of the exact size of the encoding.
+ */
+public class CRLBuilder {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CRLBuilder.class);
+
+    // dates from 2050 must be encoded in GeneralizedTime (RFC 5280 section 5.1.2.4)
+    public static final long YEAR_2050 = 2524608000000L;
+
+    private String id;
+    private ForkJoinPool pool;
+
+    private ConcurrentSkipListMap<BigInteger, Entry> entries = new ConcurrentSkipListMap<>();
+
+    // statistics
+    private LongAdder encodedEntries = new LongAdder();
+    private LongAdder encodingTime = new LongAdder();
+    private LongAdder removedEntries = new LongAdder();
+
+    /**
+     * @param id CRL issuing point ID
+     * @param pool pool to encode the entries in parallel
+     */
+    public CRLBuilder(String id, ForkJoinPool pool) {
+        this.id = id;
+        this.pool = pool;
+    }
+
+    /**
+     * Updates the entries to match the CRL cache. An entry is encoded
+     * again only if the cache contains a different RevokedCertificate
+     * object for the serial number.
+     *
+     * The caller must prevent concurrent modification of the cache.
+     */
+    public void update(Map<BigInteger, RevokedCertificate> crlCerts) {
+
+        for (Iterator<Map.Entry<BigInteger, Entry>> i = entries.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<BigInteger, Entry> e = i.next();
+            if (!crlCerts.containsKey(e.getKey())) {
+                i.remove();
+                removedEntries.increment();
+            }
+        }
+
+        for (Map.Entry<BigInteger, RevokedCertificate> e : crlCerts.entrySet()) {
+            RevokedCertificate revokedCert = e.getValue();
+            Entry entry = entries.get(e.getKey());
+            if (entry == null || entry.revokedCert != revokedCert) {
+                entries.put(e.getKey(), new Entry(revokedCert));
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces a revoked certificate.
+     */
+    public void put(BigInteger serialNumber, RevokedCertificate revokedCert) {
+        entries.put(serialNumber, new Entry(revokedCert));
+    }
+
+    /**
+     * Removes a revoked certificate.
+     */
+    public void remove(BigInteger serialNumber) {
+        if (entries.remove(serialNumber) != null) {
+            removedEntries.increment();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Encodes the entries that have not been encoded yet.
+     */
+    public void encodeEntries() throws CRLException {
+
+        long start = System.currentTimeMillis();
+        LongAdder count = new LongAdder();
+
+        try {
+            pool.submit(() -> entries.values().parallelStream()
+                    .filter(entry -> entry.encoding == null)
+                    .forEach(entry -> {
+                        entry.encode();
+                        count.increment();
+                    })).get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CRLException("Unable to encode CRL entries: " + e.getMessage(), e);
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new CRLException("Unable to encode CRL entries: " + cause.getMessage(), cause);
+        }
+
+        long time = System.currentTimeMillis() - start;
+        encodedEntries.add(count.sum());
+        encodingTime.add(time);
+
+        logger.debug("CRLBuilder: Encoded " + count.sum() + " of " + entries.size()
+                + " entries for " + id + " in " + time + " ms");
+    }
+
+    /**
+     * Encodes the TBSCertList. The encoding is also fed to the signer
+     * as it is written.
+     *
+     * @param signer signature context, or null
+     */
+    public byte[] encodeTBSCertList(
+            X500Name issuer,
+            AlgorithmId algorithm,
+            Date thisUpdate,
+            Date nextUpdate,
+            CRLExtensions extensions,
+            Signature signer) throws Exception {
+
+        encodeEntries();
+
+        boolean v2 = extensions != null;
+        long entriesLength = 0;
+
+        for (Entry entry : entries.values()) {
+            entriesLength += entry.encoding.length;
+            v2 |= entry.hasExtensions;
+        }
+
+        byte[] header;
+        try (DerOutputStream tmp = new DerOutputStream()) {
+
+            if (v2) {
+                // version INTEGER v2(1)
+                tmp.write(new byte[] { DerValue.tag_Integer, 1, 1 });
+            }
+
+            algorithm.encode(tmp);
+            issuer.encode(tmp);
+            putTime(tmp, thisUpdate);
+
+            if (nextUpdate != null) {
+                putTime(tmp, nextUpdate);
+            }
+
+            header = tmp.toByteArray();
+        }
+
+        byte[] trailer;
+        try (DerOutputStream tmp = new DerOutputStream()) {
+            if (extensions != null) {
+                extensions.encode(tmp, true);
+            }
+            trailer = tmp.toByteArray();
+        }
+
+        long contentLength = header.length + trailer.length;
+
+        if (!entries.isEmpty()) {
+            contentLength += getEncodedLength(entriesLength);
+        }
+
+        long tbsLength = getEncodedLength(contentLength);
+
+        if (tbsLength > Integer.MAX_VALUE - 1024) {
+            throw new CRLException("CRL too large: " + tbsLength + " bytes");
+        }
+
+        byte[] tbsCertList = new byte[(int) tbsLength];
+
+        try (ArrayOutputStream out = new ArrayOutputStream(tbsCertList, signer)) {
+
+            putHeader(out, DerValue.tag_Sequence, contentLength);
+            out.write(header);
+
+            if (!entries.isEmpty()) {
+                putHeader(out, DerValue.tag_Sequence, entriesLength);
+                for (Entry entry : entries.values()) {
+                    out.write(entry.encoding);
+                }
+            }
+
+            out.write(trailer);
+            out.finish();
+        }
+
+        return tbsCertList;
+    }
+
+    /**
+     * Encodes a signed CRL.
+     */
+    public static byte[] encodeCRL(byte[] tbsCertList, AlgorithmId algorithm, byte[] signature) throws IOException {
+
+        byte[] algorithmID;
+        try (DerOutputStream tmp = new DerOutputStream()) {
+            algorithm.encode(tmp);
+            algorithmID = tmp.toByteArray();
+        }
+
+        // BIT STRING with no unused bits
+        long signatureLength = getEncodedLength(signature.length + 1L);
+        long contentLength = tbsCertList.length + algorithmID.length + signatureLength;
+
+        byte[] crl = new byte[(int) getEncodedLength(contentLength)];
+
+        try (ArrayOutputStream out = new ArrayOutputStream(crl, null)) {
+            putHeader(out, DerValue.tag_Sequence, contentLength);
+            out.write(tbsCertList);
+            out.write(algorithmID);
+            putHeader(out, DerValue.tag_BitString, signature.length + 1L);
+            out.write(0);
+            out.write(signature);
+            out.finish();
+        }
+
+        return crl;
+    }
+
+    static void putTime(DerOutputStream out, Date date) throws IOException {
+        if (date.getTime() < YEAR_2050) {
+            out.putUTCTime(date);
+        } else {
+            out.putGeneralizedTime(date);
+        }
+    }
+
+    /**
+     * Returns the size of a DER value with the given content length.
+     */
+    static long getEncodedLength(long length) {
+        return 1 + getLengthSize(length) + length;
+    }
+
+    static int getLengthSize(long length) {
+        if (length < 0x80) {
+            return 1;
+        }
+        int size = 1;
+        while (length > 0) {
+            size++;
+            length >>>= 8;
+        }
+        return size;
+    }
+
+    static void putHeader(OutputStream out, byte tag, long length) throws IOException {
+
+        out.write(tag);
+
+        if (length < 0x80) {
+            out.write((int) length);
+            return;
+        }
+
+        int bytes = getLengthSize(length) - 1;
+        out.write(0x80 | bytes);
+
+        for (int i = bytes - 1; i >= 0; i--) {
+            out.write((int) (length >>> (i * 8)));
+        }
+    }
+
+    public void shutdown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    public long getEncodedEntries() {
+        return encodedEntries.sum();
+    }
+
+    public long getEncodingTime() {
+        return encodingTime.sum();
+    }
+
+    public long getRemovedEntries() {
+        return removedEntries.sum();
+    }
+
+    public String getStatistics() {
+        return "entries: " + size()
+                + ", encoded: " + getEncodedEntries()
+                + ", removed: " + getRemovedEntries()
+                + ", encoding time: " + getEncodingTime() + " ms";
+    }
+
+    static class Entry {
+
+        final RevokedCertificate revokedCert;
+        final boolean hasExtensions;
+        volatile byte[] encoding;
+
+        Entry(RevokedCertificate revokedCert) {
+            this.revokedCert = revokedCert;
+            this.hasExtensions = revokedCert.hasExtensions();
+        }
+
+        void encode() {
+            try (DerOutputStream out = new DerOutputStream()) {
+                ((RevokedCertImpl) revokedCert).encode(out);
+                encoding = out.toByteArray();
+
+            } catch (CRLException | IOException e) {
+                throw new RuntimeException("Unable to encode CRL entry "
+                        + revokedCert.getSerialNumber() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes into a preallocated array and feeds the data to the signer.
+     */
+    static class ArrayOutputStream extends OutputStream {
+
+        byte[] buffer;
+        int position;
+        Signature signer;
+
+        // end of the data already fed to the signer
+        int flushed;
+
+        ArrayOutputStream(byte[] buffer, Signature signer) {
+            this.buffer = buffer;
+            this.signer = signer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            System.arraycopy(b, off, buffer, position, len);
+            if (signer != null) {
+                try {
+                    // single bytes are fed together with the next array
+                    signer.update(buffer, flushed, position - flushed + len);
+                } catch (Exception e) {
+                    throw new IOException("Unable to sign CRL: " + e.getMessage(), e);
+                }
+                flushed = position + len;
+            }
+            position += len;
+        }
+
+        /**
+         * Feeds the remaining data to the signer and
+         * verifies that the buffer has been filled.
+         */
+        void finish() throws IOException {
+
+            if (signer != null && flushed < position) {
+                try {
+                    signer.update(buffer, flushed, position - flushed);
+                } catch (Exception e) {
+                    throw new IOException("Unable to sign CRL: " + e.getMessage(), e);
+                }
+                flushed = position;
+            }
+
+            if (position != buffer.length) {
+                throw new IOException("Invalid CRL encoding length: " + position + " of " + buffer.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.ca;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class holds an encoded CRL in a temporary file so that the CRL
+ * can be published without keeping additional copies of the encoding
+ * in memory. The file is deleted when the CRLFile is closed.
+ */
+public class CRLFile implements AutoCloseable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CRLFile.class);
+
+    private Path path;
+    private long size;
+
+    CRLFile(Path path, long size) {
+        this.path = path;
+        this.size = size;
+    }
+
+    /**
+     * Writes an encoded CRL into a new temporary file.
+     *
+     * @param prefix prefix of the file name
+     * @param crl encoded CRL
+     */
+    public static CRLFile create(String prefix, byte[] crl) throws IOException {
+
+        Path path = Files.createTempFile(prefix + "-", ".der");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(crl);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+
+        logger.debug("CRLFile: Stored " + crl.length + " bytes in " + path);
+
+        return new CRLFile(path, crl.length);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    /**
+     * Copies the CRL into a file. The data is transferred by the kernel
+     * where possible without going through the Java heap.
+     */
+    public void transferTo(Path destination) throws IOException {
+
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(destination,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            long position = 0;
+            while (position < size) {
+                long count = in.transferTo(position, size - position, out);
+                if (count <= 0) {
+                    throw new IOException("Unable to copy CRL into " + destination
+                            + ": " + position + " of " + size + " bytes copied");
+                }
+                position += count;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("CRLFile: Unable to delete " + path + ": " + e.getMessage(), e);
+        }
+    }
+}
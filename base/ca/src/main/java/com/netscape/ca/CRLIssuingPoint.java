@@ -19,15 +19,18 @@ package com.netscape.ca;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 import org.dogtagpki.server.ca.CAConfig;
 import org.dogtagpki.server.ca.CAEngine;
@@ -64,9 +67,14 @@ import com.netscape.certsrv.logging.event.FullCRLPublishingEvent;
 import com.netscape.certsrv.request.IRequestVirtualList;
 import com.netscape.certsrv.request.RequestId;
 import com.netscape.cmscore.apps.CMS;
+import com.netscape.cmscore.authentication.VerifiedCerts;
 import com.netscape.cmscore.dbs.CRLIssuingPointRecord;
 import com.netscape.cmscore.dbs.CRLRepository;
 import com.netscape.cmscore.dbs.CertRecord;
+import com.netscape.cmscore.dbs.RevocationIndex;
+import com.netscape.cmscore.dbs.RevocationState;
+import com.netscape.cmscore.dbs.RevocationStateConfig;
+import com.netscape.cmscore.dbs.RevokedCertsMapper;
 import com.netscape.cmscore.ldap.CAPublisherProcessor;
 import com.netscape.cmscore.ldap.LdapRule;
 import com.netscape.cmscore.logging.Auditor;
@@ -105,6 +113,7 @@ public class CRLIssuingPoint {
     public static final String SC_ISSUING_POINT_ID = "issuingPointId";
     public static final String SC_IS_DELTA_CRL = "isDeltaCRL";
     public static final String SC_CRL_COUNT = "crlCount";
+    public static final String SC_CRL_FILE = "crlFile";
 
     /**
      * for manual updates - requested by agent
@@ -180,6 +189,11 @@ public class CRLIssuingPoint {
     private String mFirstUnsaved = null;
     private boolean mEnableCacheTesting = false;
 
+    /**
+     * Revocation status for the OCSP responder, or null if disabled.
+     */
+    private RevocationState revocationState;
+
     /**
      * Last CRL cache update
      */
@@ -191,6 +205,19 @@ public class CRLIssuingPoint {
      */
     long mCacheUpdateInterval;
 
+    /**
+     * Max number of incremental CRL cache updates stored
+     * before the full CRL cache is stored again.
+     */
+    int mCacheMaxUpdates;
+
+    /**
+     * Number of incremental updates of the revoked/unrevoked and
+     * expired certificates since the full lists were stored.
+     */
+    private int mRevokedCertUpdates;
+    private int mExpiredCertUpdates;
+
     /**
      * Enable CRL updates.
      */
@@ -342,7 +369,14 @@ public class CRLIssuingPoint {
     String mSignatureAlgorithmForManualUpdate;
 
     private boolean mPublishOnStart = false;
-    private long[] mSplits = new long[10];
+    private long[] mSplits = new long[CRLUpdateStats.PHASES.length];
+    private CRLUpdateStats mUpdateStats = new CRLUpdateStats();
+
+    /**
+     * Encoded CRL entries for incremental CRL generation,
+     * null if the CRL is generated with X509CRLImpl.
+     */
+    private CRLBuilder mCRLBuilder;
 
     private boolean mSaveMemory = false;
 
@@ -600,6 +634,18 @@ public class CRLIssuingPoint {
         // read in config parameters.
         initConfig(mConfigStore);
 
+        RevocationStateConfig revocationStateConfig = caConfig.getRevocationStateConfig();
+        // clones with CRL updates disabled do not receive the
+        // revocations made on other clones, so only the CRL master
+        // can answer OCSP requests from the revocation state
+        if (mId.equals(CertificateAuthority.PROP_MASTER_CRL)
+                && mEnableCRLCache
+                && mEnableCRLUpdates
+                && revocationStateConfig.getEnable()) {
+            revocationState = new RevocationState(mId);
+            revocationState.init(revocationStateConfig);
+        }
+
         // create request listener.
         String lname = RevocationRequestListener.class.getName();
         String crlListName = lname + "_" + mId;
@@ -807,6 +853,7 @@ public class CRLIssuingPoint {
         mEnableCRLCache = config.getEnableCRLCache();
         mCacheUpdateInterval = MINUTE * config.getCacheUpdateInterval();
         mEnableCacheRecovery = config.getEnableCacheRecovery();
+        mCacheMaxUpdates = config.getCacheMaxUpdates();
         mEnableCacheTesting = config.getEnableCacheTesting();
 
         // check if CRL generation is enabled
@@ -884,6 +931,14 @@ public class CRLIssuingPoint {
 
         mSaveMemory = config.getSaveMemory();
 
+        if (config.getIncrementalEncoding()) {
+            int encodingThreads = config.getEncodingThreads();
+            logger.debug("CRLIssuingPoint: - encoding threads: " + encodingThreads);
+
+            ForkJoinPool pool = encodingThreads > 0 ? new ForkJoinPool(encodingThreads) : ForkJoinPool.commonPool();
+            mCRLBuilder = new CRLBuilder(mId, pool);
+        }
+
         mCMSCRLExtensions = new CMSCRLExtensions(this, config);
 
         mExtendedNextUpdate = (
@@ -1045,6 +1100,7 @@ public class CRLIssuingPoint {
                             } else {
                                 mCRLCacheIsCleared = false;
                             }
+                            loadRevocationState();
                             mInitialized = CRLIssuingPointStatus.Initialized;
                         }
                         if (mPublishOnStart) {
@@ -1147,6 +1203,11 @@ public class CRLIssuingPoint {
                     if (value.equals(Constants.FALSE) && mEnableCRLUpdates) {
                         mEnableCRLUpdates = false;
                         modifiedSchedule = true;
+                        if (revocationState != null) {
+                            // reloaded with the next full CRL after
+                            // CRL updates are enabled again
+                            revocationState.clear();
+                        }
                     } else if (value.equals(Constants.TRUE) && (!mEnableCRLUpdates)) {
                         mEnableCRLUpdates = true;
                         modifiedSchedule = true;
@@ -1446,6 +1507,14 @@ public class CRLIssuingPoint {
         mEnable = false;
 
         setAutoUpdates();
+
+        if (mCRLBuilder != null) {
+            mCRLBuilder.shutdown();
+        }
+
+        if (revocationState != null) {
+            logger.info("CRLIssuingPoint: Revocation state: " + revocationState.getStatistics());
+        }
     }
 
     /**
@@ -2038,10 +2107,19 @@ public class CRLIssuingPoint {
 
         mCRLCacheIsCleared = true;
         mCRLCerts.clear();
+
+        if (revocationState != null) {
+            revocationState.clear();
+        }
+
         mRevokedCerts.clear();
         mUnrevokedCerts.clear();
         mExpiredCerts.clear();
         mSchemaCounter = 0;
+
+        if (mCRLBuilder != null) {
+            mCRLBuilder.clear();
+        }
     }
 
     /**
@@ -2135,6 +2213,7 @@ public class CRLIssuingPoint {
             try {
                 mCRLRepository.updateRevokedCerts(mId, mRevokedCerts, mUnrevokedCerts);
                 mFirstUnsaved = CRLIssuingPointRecord.CLEAN_CACHE;
+                mRevokedCertUpdates = 0;
                 mCRLCacheIsCleared = false;
             } catch (EBaseException e) {
                 logger.warn(CMS.getLogMessage("CMSCORE_CA_ISSUING_STORE_CRL_CACHE", e.toString()), e);
@@ -2296,6 +2375,13 @@ public class CRLIssuingPoint {
                     mRevokedCerts.put(serialNumber, newRevokedCert);
                 }
 
+                if (revocationState != null) {
+                    revocationState.revoke(
+                            serialNumber,
+                            revokedCert.getRevocationDate(),
+                            RevocationIndex.getReason(revokedCert));
+                }
+
             } else if (certType == UNREVOKED_CERT) {
                 if (mRevokedCerts.containsKey(serialNumber)) {
                     mRevokedCerts.remove(serialNumber);
@@ -2312,6 +2398,10 @@ public class CRLIssuingPoint {
 
                     mUnrevokedCerts.put(serialNumber, newRevokedCert);
                 }
+
+                if (revocationState != null) {
+                    revocationState.remove(serialNumber);
+                }
             }
         }
 
@@ -2343,6 +2433,8 @@ public class CRLIssuingPoint {
         CertId certID = new CertId(serialNumber);
         logger.info("CRLIssuingPoint: Adding revoked cert " + certID.toHexString());
 
+        invalidateVerifiedCert(serialNumber);
+
         CertRecordProcessor cp = new CertRecordProcessor(mCRLCerts, this, mAllowExtensions);
         boolean includeCert = cp.checkRevokedCertExtensions(revokedCert.getExtensions());
 
@@ -2351,7 +2443,7 @@ public class CRLIssuingPoint {
 
             if (mCacheUpdateInterval == 0) {
                 try {
-                    mCRLRepository.updateRevokedCerts(mId, mRevokedCerts, mUnrevokedCerts);
+                    storeRevokedCert(serialNumber);
                     mFirstUnsaved = CRLIssuingPointRecord.CLEAN_CACHE;
                 } catch (EBaseException e) {
                     logger.warn(CMS.getLogMessage("CMSCORE_CA_ISSUING_STORE_REVOKED_CERT", mId, e.toString()), e);
@@ -2380,12 +2472,14 @@ public class CRLIssuingPoint {
         CertId certID = new CertId(serialNumber);
         logger.info("CRLIssuingPoint: Adding unrevoked cert " + certID.toHexString());
 
+        invalidateVerifiedCert(serialNumber);
+
         if (mEnable && mEnableCRLCache) {
             updateRevokedCert(UNREVOKED_CERT, serialNumber, null, requestId);
 
             if (mCacheUpdateInterval == 0) {
                 try {
-                    mCRLRepository.updateRevokedCerts(mId, mRevokedCerts, mUnrevokedCerts);
+                    storeRevokedCert(serialNumber);
                     mFirstUnsaved = CRLIssuingPointRecord.CLEAN_CACHE;
                 } catch (EBaseException e) {
                     logger.warn(CMS.getLogMessage("CMSCORE_CA_ISSUING_STORE_UNREVOKED_CERT", mId, e.toString()), e);
@@ -2394,6 +2488,21 @@ public class CRLIssuingPoint {
         }
     }
 
+    /**
+     * Removes the cached revocation status of an agent or admin cert
+     * so the new status takes effect on the next authentication.
+     *
+     * This only affects the cache of this server. Clones that do not
+     * update CRLs keep their cached status until it expires.
+     */
+    void invalidateVerifiedCert(BigInteger serialNumber) {
+        CAEngine engine = CAEngine.getInstance();
+        VerifiedCerts verifiedCerts = engine.getVerifiedCerts();
+        if (verifiedCerts != null) {
+            verifiedCerts.invalidate(serialNumber);
+        }
+    }
+
     /**
      * Adds expired and revoked certificate to delta-CRL cache.
      *
@@ -2419,9 +2528,13 @@ public class CRLIssuingPoint {
                 mExpiredCerts.put(serialNumber, newRevokedCert);
             }
 
+            if (revocationState != null) {
+                revocationState.remove(serialNumber);
+            }
+
             if (mCacheUpdateInterval == 0) {
                 try {
-                    mCRLRepository.updateExpiredCerts(mId, mExpiredCerts);
+                    storeExpiredCert(serialNumber);
                 } catch (EBaseException e) {
                     logger.warn(CMS.getLogMessage("CMSCORE_CA_ISSUING_STORE_EXPIRED_CERT", mId, e.toString()), e);
                 }
@@ -2433,6 +2546,66 @@ public class CRLIssuingPoint {
 
     private Object repositoryMonitor = new Object();
 
+    /**
+     * Stores the current state of a certificate in the lists of revoked
+     * and unrevoked certificates. The change is appended to the CRL
+     * issuing point record until the number of appended changes reaches
+     * the limit, then the full lists are stored.
+     */
+    private void storeRevokedCert(BigInteger serialNumber) throws EBaseException {
+
+        synchronized (repositoryMonitor) {
+
+            if (mRevokedCertUpdates >= mCacheMaxUpdates) {
+                mCRLRepository.updateRevokedCerts(mId, mRevokedCerts, mUnrevokedCerts);
+                mRevokedCertUpdates = 0;
+                return;
+            }
+
+            RevokedCertsMapper.Update revokedCerts = new RevokedCertsMapper.Update();
+            RevokedCertificate revokedCert = mRevokedCerts.get(serialNumber);
+            if (revokedCert == null) {
+                revokedCerts.remove(serialNumber);
+            } else {
+                revokedCerts.put(serialNumber, revokedCert);
+            }
+
+            RevokedCertsMapper.Update unrevokedCerts = new RevokedCertsMapper.Update();
+            RevokedCertificate unrevokedCert = mUnrevokedCerts.get(serialNumber);
+            if (unrevokedCert == null) {
+                unrevokedCerts.remove(serialNumber);
+            } else {
+                unrevokedCerts.put(serialNumber, unrevokedCert);
+            }
+
+            mCRLRepository.appendCRLCache(mId, revokedCerts, unrevokedCerts, null);
+            mRevokedCertUpdates++;
+        }
+    }
+
+    /**
+     * Stores an expired certificate in the list of expired certificates.
+     */
+    private void storeExpiredCert(BigInteger serialNumber) throws EBaseException {
+
+        synchronized (repositoryMonitor) {
+
+            RevokedCertificate expiredCert = mExpiredCerts.get(serialNumber);
+
+            if (mExpiredCertUpdates >= mCacheMaxUpdates || expiredCert == null) {
+                mCRLRepository.updateExpiredCerts(mId, mExpiredCerts);
+                mExpiredCertUpdates = 0;
+                return;
+            }
+
+            RevokedCertsMapper.Update expiredCerts = new RevokedCertsMapper.Update();
+            expiredCerts.put(serialNumber, expiredCert);
+
+            mCRLRepository.appendCRLCache(mId, null, null, expiredCerts);
+            mExpiredCertUpdates++;
+        }
+    }
+
     /**
      * Updates CRL cache into local directory.
      */
@@ -2442,6 +2615,8 @@ public class CRLIssuingPoint {
                 mCRLRepository.updateCRLCache(mId, Long.valueOf(mCRLSize),
                         mRevokedCerts, mUnrevokedCerts, mExpiredCerts);
                 mFirstUnsaved = CRLIssuingPointRecord.CLEAN_CACHE;
+                mRevokedCertUpdates = 0;
+                mExpiredCertUpdates = 0;
             } catch (EBaseException e) {
                 logger.warn(CMS.getLogMessage("CMSCORE_CA_ISSUING_STORE_CRL_CACHE", e.toString()), e);
             }
@@ -2515,6 +2690,43 @@ public class CRLIssuingPoint {
         return mCRLCerts == null || mCRLCerts.isEmpty();
     }
 
+    /**
+     * Returns the revocation status maintained for the OCSP responder,
+     * or null if it is not enabled for this issuing point.
+     */
+    public RevocationState getRevocationState() {
+        return revocationState;
+    }
+
+    /**
+     * Loads the revocation state from the CRL cache. Subsequent changes
+     * are applied to the state as they are added to the cache.
+     */
+    void loadRevocationState() {
+
+        if (revocationState == null) {
+            return;
+        }
+
+        synchronized (cacheMonitor) {
+
+            if (mCRLCacheIsCleared) {
+                revocationState.clear();
+                return;
+            }
+
+            // the changes are applied in the same order as in getRevocationDateFromCache()
+            List<RevokedCertificate> changedCerts = new ArrayList<>();
+            changedCerts.addAll(mUnrevokedCerts.values());
+            changedCerts.addAll(mRevokedCerts.values());
+            changedCerts.addAll(mExpiredCerts.values());
+
+            synchronized (mCRLCerts) {
+                revocationState.load(mCRLCerts.values(), changedCerts);
+            }
+        }
+    }
+
     /**
      * Returns true if CRL cache testing is enabled.
      *
@@ -2573,6 +2785,13 @@ public class CRLIssuingPoint {
         return splits;
     }
 
+    /**
+     * Returns the statistics of the CRL updates.
+     */
+    public CRLUpdateStats getUpdateStats() {
+        return mUpdateStats;
+    }
+
     /**
      * Returns status of CRL generation.
      *
@@ -2762,6 +2981,7 @@ public class CRLIssuingPoint {
             }
 
             mCRLCacheIsCleared = false;
+            loadRevocationState();
             mSplits[5] += System.currentTimeMillis();
         } else {
             if (isDeltaCRLEnabled()) {
@@ -2857,6 +3077,13 @@ public class CRLIssuingPoint {
             mSchemaCounter = 0;
         mLastDay = mCurrentDay;
 
+        mUpdateStats.addUpdate(mSplits);
+        logger.debug("CRLIssuingPoint: - update stats: " + mUpdateStats.getStatistics());
+
+        if (mCRLBuilder != null) {
+            logger.debug("CRLIssuingPoint: - builder stats: " + mCRLBuilder.getStatistics());
+        }
+
         mUpdatingCRL = CRL_UPDATE_DONE;
         notifyAll();
     }
@@ -3043,6 +3270,7 @@ public class CRLIssuingPoint {
         mSplits[6] += System.currentTimeMillis();
 
         X509CRLImpl newX509CRL = null;
+        CRLFile crlFile = null;
 
         try {
             logger.debug("CRLIssuingPoint: - signing algorithm: " + signingAlgorithm);
@@ -3064,15 +3292,33 @@ public class CRLIssuingPoint {
             }
 
             logger.info("CRLIssuingPoint: Generating full CRL with " + mCRLCerts.size() + " cert(s)");
-            X509CRLImpl crl = new X509CRLImpl(ca.getCRLX500Name(),
-                    AlgorithmId.get(signingAlgorithm),
-                    thisUpdate, nextUpdate, mCRLCerts, ext);
+            byte[] newCRL;
+
+            if (mCRLBuilder != null) {
+                // only the entries changed since the previous CRL need to be encoded
+                synchronized (mCRLCerts) {
+                    mCRLBuilder.update(mCRLCerts);
+                }
+
+                logger.info("CRLIssuingPoint: Signing full CRL with " + signingAlgorithm);
+                newCRL = engine.sign(ca, mCRLBuilder, thisUpdate, nextUpdate, ext, signingAlgorithm);
+
+                if (isCRLPublishingEnabled()) {
+                    // publishers only need the CRL header and the encoding
+                    newX509CRL = new X509CRLImpl(newCRL, false);
+                }
 
-            logger.info("CRLIssuingPoint: Signing full CRL with " + signingAlgorithm);
-            newX509CRL = engine.sign(ca, crl, signingAlgorithm);
+            } else {
+                X509CRLImpl crl = new X509CRLImpl(ca.getCRLX500Name(),
+                        AlgorithmId.get(signingAlgorithm),
+                        thisUpdate, nextUpdate, mCRLCerts, ext);
+
+                logger.info("CRLIssuingPoint: Signing full CRL with " + signingAlgorithm);
+                newX509CRL = engine.sign(ca, crl, signingAlgorithm);
 
-            logger.info("CRLIssuingPoint: Encoding full CRL");
-            byte[] newCRL = newX509CRL.getEncoded();
+                logger.info("CRLIssuingPoint: Encoding full CRL");
+                newCRL = newX509CRL.getEncoded();
+            }
 
             mSplits[7] += System.currentTimeMillis();
 
@@ -3098,6 +3344,17 @@ public class CRLIssuingPoint {
                         mNextCRLNumber, Long.valueOf(mCRLCerts.size()),
                         mRevokedCerts, mUnrevokedCerts, mExpiredCerts);
                 mFirstUnsaved = CRLIssuingPointRecord.CLEAN_CACHE;
+                mRevokedCertUpdates = 0;
+                mExpiredCertUpdates = 0;
+            }
+
+            if (newX509CRL != null && isCRLPublishingEnabled()) {
+                // let the publishers copy the CRL from a file instead of encoding it again
+                try {
+                    crlFile = CRLFile.create("crl-" + mId, newCRL);
+                } catch (IOException e) {
+                    logger.warn("CRLIssuingPoint: Unable to store CRL in temporary file: " + e.getMessage(), e);
+                }
             }
 
             mSplits[8] += System.currentTimeMillis();
@@ -3163,7 +3420,7 @@ public class CRLIssuingPoint {
         try {
             mSplits[9] -= System.currentTimeMillis();
             mUpdatingCRL = CRL_PUBLISHING_STARTED;
-            publishCRL(newX509CRL);
+            publishCRL(newX509CRL, crlFile, false);
             mSplits[9] += System.currentTimeMillis();
 
             auditor.log(new FullCRLPublishingEvent(getAuditSubjectID(), mCRLNumber));
@@ -3174,6 +3431,11 @@ public class CRLIssuingPoint {
             logger.error(message, e);
             auditor.log(new FullCRLPublishingEvent(getAuditSubjectID(), mCRLNumber, e.getMessage()));
             throw new ECAException(message, e);
+
+        } finally {
+            if (crlFile != null) {
+                crlFile.close();
+            }
         }
     }
 
@@ -3199,6 +3461,15 @@ public class CRLIssuingPoint {
      */
     protected void publishCRL(X509CRLImpl x509crl, boolean isDeltaCRL)
             throws EBaseException {
+        publishCRL(x509crl, null, isDeltaCRL);
+    }
+
+    /**
+     * Publishes a CRL. If the encoded CRL is also available in a file,
+     * the file is made available to the publishers in the session context.
+     */
+    protected void publishCRL(X509CRLImpl x509crl, CRLFile crlFile, boolean isDeltaCRL)
+            throws EBaseException {
         SessionContext sc = SessionContext.getContext();
 
         CAEngine engine = CAEngine.getInstance();
@@ -3219,12 +3490,15 @@ public class CRLIssuingPoint {
         } else {
             sc.put(SC_IS_DELTA_CRL, "false");
         }
+        if (crlFile != null) {
+            sc.put(SC_CRL_FILE, crlFile);
+        }
 
         CRLIssuingPointRecord crlRecord = null;
 
         logger.info("CRLIssuingPoint: Publishing " + mId);
         try {
-            if (x509crl == null) {
+            if (x509crl == null && isCRLPublishingEnabled()) {
                 crlRecord = mCRLRepository.readCRLIssuingPointRecord(mId);
                 if (crlRecord != null) {
                     byte[] crl = (isDeltaCRL) ? crlRecord.getDeltaCRL() : crlRecord.getCRL();
@@ -3234,8 +3508,7 @@ public class CRLIssuingPoint {
                     }
                 }
             }
-            if (x509crl != null &&
-                    mPublisherProcessor != null && mPublisherProcessor.isCRLPublishingEnabled()) {
+            if (x509crl != null && isCRLPublishingEnabled()) {
                 Enumeration<LdapRule> rules = mPublisherProcessor.getRules(CAPublisherProcessor.PROP_LOCAL_CRL);
                 if (rules == null || !rules.hasMoreElements()) {
                     logger.debug("CRLIssuingPoint: CRL publishing is not enabled");
@@ -3254,12 +3527,17 @@ public class CRLIssuingPoint {
             throw new EErrorPublishCRL(
                     CMS.getUserMessage("CMS_CA_ERROR_PUBLISH_CRL", mId, e.toString()));
         } finally {
+            sc.remove(SC_CRL_FILE);
             if (statsSub != null) {
                 statsSub.endTiming("crl_publishing");
             }
         }
     }
 
+    boolean isCRLPublishingEnabled() {
+        return mPublisherProcessor != null && mPublisherProcessor.isCRLPublishingEnabled();
+    }
+
     void setConfigParam(String name, String value) {
         mConfigStore.putString(name, value);
     }
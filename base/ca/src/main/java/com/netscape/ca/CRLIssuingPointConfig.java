@@ -65,6 +65,19 @@ public class CRLIssuingPointConfig extends ConfigStore {
         putInteger("cacheUpdateInterval", cacheUpdateInterval);
     }
 
+    /**
+     * Returns the max number of incremental cache updates stored
+     * before the full cache is rewritten, or 0 to always rewrite
+     * the full cache.
+     */
+    public int getCacheMaxUpdates() throws EBaseException {
+        return getInteger("cacheMaxUpdates", 100);
+    }
+
+    public void setCacheMaxUpdates(int cacheMaxUpdates) {
+        putInteger("cacheMaxUpdates", cacheMaxUpdates);
+    }
+
     public String getClassName() throws EBaseException {
         return getString("class");
     }
@@ -241,6 +254,22 @@ public class CRLIssuingPointConfig extends ConfigStore {
         putInteger("unexpectedExceptionLoopMax", unexpectedExceptionLoopMax);
     }
 
+    public boolean getIncrementalEncoding() throws EBaseException {
+        return getBoolean("incrementalEncoding", false);
+    }
+
+    public void setIncrementalEncoding(boolean incrementalEncoding) {
+        putBoolean("incrementalEncoding", incrementalEncoding);
+    }
+
+    public int getEncodingThreads() throws EBaseException {
+        return getInteger("encodingThreads", 0);
+    }
+
+    public void setEncodingThreads(int encodingThreads) {
+        putInteger("encodingThreads", encodingThreads);
+    }
+
     public int getNextAsThisUpdateExtension() throws EBaseException {
         return getInteger("nextAsThisUpdateExtension", 0);
     }
@@ -0,0 +1,117 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.ca;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.util.OperationStats;
+
+/**
+ * This class collects the time spent in each phase of the CRL updates
+ * of a CRL issuing point. The phases correspond to the split times
+ * returned by CRLIssuingPoint.getSplitTimes().
+ */
+public class CRLUpdateStats {
+
+    public static final String[] PHASES = {
+            "cacheCopy",
+            "deltaCRLPreparation",
+            "deltaCRLGeneration",
+            "deltaCRLStorage",
+            "deltaCRLPublishing",
+            "cacheUpdate",
+            "crlPreparation",
+            "crlGeneration",
+            "crlStorage",
+            "crlPublishing"
+    };
+
+    private LongAdder updates = new LongAdder();
+
+    private long[] lastTimes = new long[PHASES.length];
+    private OperationStats[] phaseStats = new OperationStats[PHASES.length];
+
+    public CRLUpdateStats() {
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseStats[i] = new OperationStats();
+        }
+    }
+
+    /**
+     * Records the split times of a CRL update in milliseconds.
+     */
+    public synchronized void addUpdate(long[] splits) {
+
+        updates.increment();
+
+        for (int i = 0; i < PHASES.length && i < splits.length; i++) {
+            lastTimes[i] = splits[i];
+            phaseStats[i].add(splits[i]);
+        }
+    }
+
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    /**
+     * Returns the index of a phase, or -1 if not found.
+     */
+    public static int getPhase(String name) {
+        for (int i = 0; i < PHASES.length; i++) {
+            if (PHASES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized long getLastTime(int phase) {
+        return lastTimes[phase];
+    }
+
+    public long getTotalTime(int phase) {
+        return phaseStats[phase].getTotalTime();
+    }
+
+    public long getMaxTime(int phase) {
+        return phaseStats[phase].getMaxTime();
+    }
+
+    public long getAverageTime(int phase) {
+        return phaseStats[phase].getAverageTime();
+    }
+
+    /**
+     * Returns the last, average, and maximum time of each phase.
+     */
+    public String getStatistics() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("updates: ").append(getUpdates());
+
+        for (int i = 0; i < PHASES.length; i++) {
+            sb.append(", ").append(PHASES[i]).append(": ");
+            sb.append(getLastTime(i)).append("/");
+            sb.append(getAverageTime(i)).append("/");
+            sb.append(getMaxTime(i)).append(" ms");
+        }
+
+        return sb.toString();
+    }
+}
@@ -68,6 +68,7 @@ import org.mozilla.jss.netscape.security.pkcs.PKCS10;
 import org.mozilla.jss.netscape.security.util.DerOutputStream;
 import org.mozilla.jss.netscape.security.util.DerValue;
 import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
 import org.mozilla.jss.netscape.security.x509.CertificateChain;
 import org.mozilla.jss.netscape.security.x509.CertificateIssuerName;
 import org.mozilla.jss.netscape.security.x509.CertificateSubjectName;
@@ -97,10 +98,13 @@ import com.netscape.certsrv.logging.event.CertSigningInfoEvent;
 import com.netscape.certsrv.logging.event.OCSPSigningInfoEvent;
 import com.netscape.certsrv.ocsp.IOCSPService;
 import com.netscape.certsrv.security.SigningUnitConfig;
+import com.netscape.cms.ocsp.OCSPResponseCache;
+import com.netscape.cms.ocsp.OCSPResponseCacheConfig;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.dbs.CertRecord;
 import com.netscape.cmscore.dbs.CertificateRepository;
+import com.netscape.cmscore.dbs.RevocationState;
 import com.netscape.cmscore.logging.Auditor;
 import com.netscape.cmscore.util.StatsSubsystem;
 import com.netscape.cmsutil.crypto.CryptoUtil;
@@ -225,6 +229,8 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
     private ResponderID mResponderIDByName = null;
     private ResponderID mResponderIDByHash = null;
 
+    protected OCSPResponseCache ocspResponseCache;
+
     /**
      * Internal constants
      */
@@ -528,6 +534,29 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
         setCertRepository(engine.getCertificateRepository());
         setFastSigning(engine.getFastSigning());
         setOCSPResponderByName(engine.getOCSPResponderByName());
+
+        OCSPResponseCacheConfig responseCacheConfig = caConfig.getOCSPResponseCacheConfig();
+        if (responseCacheConfig.getEnable()) {
+            ocspResponseCache = new OCSPResponseCache(ID, this::createOCSPResponse);
+            ocspResponseCache.init(responseCacheConfig);
+        }
+    }
+
+    /**
+     * Returns the OCSP response cache, or null if disabled.
+     */
+    public OCSPResponseCache getOCSPResponseCache() {
+        return ocspResponseCache;
+    }
+
+    /**
+     * Removes cached OCSP responses for a certificate
+     * whose revocation status has changed.
+     */
+    public void invalidateOCSPResponses(BigInteger serialNumber) {
+        if (ocspResponseCache != null) {
+            ocspResponseCache.invalidate(serialNumber);
+        }
     }
 
     /**
@@ -828,6 +857,38 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
         return signedcrl;
     }
 
+    /**
+     * Generates and signs a full CRL from the entries of a CRL builder.
+     *
+     * @return the DER encoding of the signed CRL
+     */
+    public byte[] sign(
+            CRLBuilder builder,
+            Date thisUpdate,
+            Date nextUpdate,
+            CRLExtensions extensions,
+            String algname) throws Exception {
+
+        if (algname == null) {
+            algname = mSigningUnit.getDefaultAlgorithm();
+        }
+
+        AlgorithmId algorithm = AlgorithmId.get(algname);
+        org.mozilla.jss.crypto.Signature signer = mCRLSigningUnit.createSignatureContext(algname);
+
+        byte[] tbsCertList = builder.encodeTBSCertList(
+                getCRLX500Name(),
+                algorithm,
+                thisUpdate,
+                nextUpdate,
+                extensions,
+                signer);
+
+        byte[] signature = mCRLSigningUnit.sign(signer);
+
+        return CRLBuilder.encodeCRL(tbsCertList, algorithm, signature);
+    }
+
     public X509CertImpl sign(X509CertInfo certInfo, String algname) throws Exception {
 
         X509CertImpl signedcert = null;
@@ -1109,111 +1170,148 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
         logger.debug("CertificateAuthority: validating OCSP request");
 
         mNumOCSPRequest++;
-        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
         long startTime = new Date().getTime();
 
+        String cacheKey = null;
+        long cacheGeneration = 0;
+
+        if (ocspResponseCache != null) {
+            cacheKey = ocspResponseCache.getKey(tbsReq);
+        }
+
+        if (cacheKey != null) {
+            cacheGeneration = ocspResponseCache.getGeneration();
+
+            OCSPResponse response = ocspResponseCache.get(cacheKey);
+            if (response != null) {
+                logger.info("CertificateAuthority: Returning cached OCSP response");
+                mTotalTime += new Date().getTime() - startTime;
+                return response;
+            }
+        }
+
         try {
-            //logger.info("start OCSP request");
+            long createStartTime = new Date().getTime();
 
-            // (3) look into database to check the
-            //     certificate's status
-            Vector<SingleResponse> singleResponses = new Vector<>();
+            BasicOCSPResponse basicRes = createOCSPResponse(tbsReq);
 
-            if (statsSub != null) {
-                statsSub.startTiming("lookup");
+            if (cacheKey != null) {
+                ocspResponseCache.addSigningTime(new Date().getTime() - createStartTime);
+                ocspResponseCache.put(cacheKey, tbsReq.getRequestAt(0), basicRes, cacheGeneration);
             }
 
-            long lookupStartTime = new Date().getTime();
+            OCSPResponse response = new OCSPResponse(
+                    OCSPResponseStatus.SUCCESSFUL,
+                    new ResponseBytes(ResponseBytes.OCSP_BASIC,
+                            new OCTET_STRING(ASN1Util.encode(basicRes))));
+
+            //logger.info("done OCSP request");
+            long endTime = new Date().getTime();
+            mTotalTime += endTime - startTime;
+
+            return response;
 
-            for (int i = 0; i < tbsReq.getRequestCount(); i++) {
-                Request req = tbsReq.getRequestAt(i);
+        } catch (EBaseException e) {
+            logger.error(CMS.getLogMessage("CMSCORE_CA_CA_OCSP_REQUEST", e.toString()), e);
+            throw e;
+        }
+    }
 
-                CertID certID = req.getCertID();
-                logger.info("CertificateAuthority: Checking cert 0x{} status", certID.getSerialNumber().toString(16));
+    /**
+     * Looks up the status of the certificates in the request and
+     * creates a signed OCSP response.
+     */
+    public BasicOCSPResponse createOCSPResponse(TBSRequest tbsReq) throws EBaseException {
 
-                SingleResponse sr = processRequest(req);
-                logger.info("CertificateAuthority: - status: {}", sr.getCertStatus());
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
 
-                singleResponses.addElement(sr);
-            }
+        //logger.info("start OCSP request");
 
-            long lookupEndTime = new Date().getTime();
-            mLookupTime += lookupEndTime - lookupStartTime;
+        // (3) look into database to check the
+        //     certificate's status
+        Vector<SingleResponse> singleResponses = new Vector<>();
 
-            if (statsSub != null) {
-                statsSub.endTiming("lookup");
-            }
+        if (statsSub != null) {
+            statsSub.startTiming("lookup");
+        }
 
-            if (statsSub != null) {
-                statsSub.startTiming("build_response");
-            }
+        long lookupStartTime = new Date().getTime();
 
-            SingleResponse res[] = new SingleResponse[singleResponses.size()];
-            singleResponses.copyInto(res);
+        for (int i = 0; i < tbsReq.getRequestCount(); i++) {
+            Request req = tbsReq.getRequestAt(i);
 
-            ResponderID rid = null;
+            CertID certID = req.getCertID();
+            logger.info("CertificateAuthority: Checking cert 0x{} status", certID.getSerialNumber().toString(16));
 
-            if (ocspResponderByName) {
-                if (mResponderIDByName == null) {
-                    mResponderIDByName = getResponderIDByName();
-                }
-                rid = mResponderIDByName;
-            } else {
-                if (mResponderIDByHash == null) {
-                    mResponderIDByHash = getResponderIDByHash();
-                }
-                rid = mResponderIDByHash;
-            }
+            SingleResponse sr = processRequest(req);
+            logger.info("CertificateAuthority: - status: {}", sr.getCertStatus());
 
-            Extension nonce[] = null;
+            singleResponses.addElement(sr);
+        }
 
-            for (int j = 0; j < tbsReq.getExtensionsCount(); j++) {
-                Extension thisExt = tbsReq.getRequestExtensionAt(j);
+        long lookupEndTime = new Date().getTime();
+        mLookupTime += lookupEndTime - lookupStartTime;
 
-                if (thisExt.getExtnId().equals(OCSP_NONCE)) {
-                    nonce = new Extension[1];
-                    nonce[0] = thisExt;
-                }
-            }
+        if (statsSub != null) {
+            statsSub.endTiming("lookup");
+        }
 
-            ResponseData rd = new ResponseData(rid,
-                    new GeneralizedTime(new Date()), res, nonce);
+        if (statsSub != null) {
+            statsSub.startTiming("build_response");
+        }
 
-            if (statsSub != null) {
-                statsSub.endTiming("build_response");
-            }
+        SingleResponse res[] = new SingleResponse[singleResponses.size()];
+        singleResponses.copyInto(res);
 
-            if (statsSub != null) {
-                statsSub.startTiming("signing");
-            }
+        ResponderID rid = null;
 
-            long signStartTime = new Date().getTime();
+        if (ocspResponderByName) {
+            if (mResponderIDByName == null) {
+                mResponderIDByName = getResponderIDByName();
+            }
+            rid = mResponderIDByName;
+        } else {
+            if (mResponderIDByHash == null) {
+                mResponderIDByHash = getResponderIDByHash();
+            }
+            rid = mResponderIDByHash;
+        }
 
-            logger.info("CertificateAuthority: Signing OCSP response");
-            BasicOCSPResponse basicRes = sign(rd);
+        Extension nonce[] = null;
 
-            long signEndTime = new Date().getTime();
-            mSignTime += signEndTime - signStartTime;
+        for (int j = 0; j < tbsReq.getExtensionsCount(); j++) {
+            Extension thisExt = tbsReq.getRequestExtensionAt(j);
 
-            if (statsSub != null) {
-                statsSub.endTiming("signing");
+            if (thisExt.getExtnId().equals(OCSP_NONCE)) {
+                nonce = new Extension[1];
+                nonce[0] = thisExt;
             }
+        }
 
-            OCSPResponse response = new OCSPResponse(
-                    OCSPResponseStatus.SUCCESSFUL,
-                    new ResponseBytes(ResponseBytes.OCSP_BASIC,
-                            new OCTET_STRING(ASN1Util.encode(basicRes))));
+        ResponseData rd = new ResponseData(rid,
+                new GeneralizedTime(new Date()), res, nonce);
 
-            //logger.info("done OCSP request");
-            long endTime = new Date().getTime();
-            mTotalTime += endTime - startTime;
+        if (statsSub != null) {
+            statsSub.endTiming("build_response");
+        }
 
-            return response;
+        if (statsSub != null) {
+            statsSub.startTiming("signing");
+        }
 
-        } catch (EBaseException e) {
-            logger.error(CMS.getLogMessage("CMSCORE_CA_CA_OCSP_REQUEST", e.toString()), e);
-            throw e;
+        long signStartTime = new Date().getTime();
+
+        logger.info("CertificateAuthority: Signing OCSP response");
+        BasicOCSPResponse basicRes = sign(rd);
+
+        long signEndTime = new Date().getTime();
+        mSignTime += signEndTime - signStartTime;
+
+        if (statsSub != null) {
+            statsSub.endTiming("signing");
         }
+
+        return basicRes;
     }
 
     private BasicOCSPResponse sign(ResponseData rd) throws EBaseException {
@@ -1286,6 +1384,12 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
             } else if (status.equals(CertRecord.STATUS_VALID)) {
                 certStatus = new GoodInfo();
 
+                // subsequent requests can be answered from the revocation state
+                RevocationState revocationState = getRevocationState();
+                if (revocationState != null) {
+                    revocationState.addIssuedCert(new BigInteger(serialNumber.toString()), rec.getNotAfter());
+                }
+
             } else if (status.equals(CertRecord.STATUS_INVALID)) {  // not yet valid
                 certStatus = new UnknownInfo();
 
@@ -1318,6 +1422,73 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
         return new SingleResponse(certID, certStatus, thisUpdate, null);
     }
 
+    /**
+     * Returns the revocation state of the master CRL issuing point if it
+     * can answer OCSP requests for this CA, or null otherwise. Only the
+     * host authority is covered by the master CRL, and the state is only
+     * used on the CRL master since clones with CRL updates disabled do not
+     * receive the revocations made on other clones.
+     */
+    RevocationState getRevocationState() {
+
+        if (!isHostAuthority()) {
+            return null;
+        }
+
+        CAEngine engine = CAEngine.getInstance();
+        CRLIssuingPoint crlIssuingPoint = engine.getMasterCRLIssuingPoint();
+
+        if (crlIssuingPoint == null || !crlIssuingPoint.isCRLGenerationEnabled()) {
+            return null;
+        }
+
+        return crlIssuingPoint.getRevocationState();
+    }
+
+    /**
+     * Returns the certificate status from the revocation state of the
+     * master CRL issuing point, or null if the status has to be read
+     * from the database (e.g. the state is not loaded or the certificate
+     * is not known to be issued).
+     */
+    public SingleResponse getCertStatusFromRevocationState(Request request) {
+
+        RevocationState revocationState = getRevocationState();
+
+        if (revocationState == null) {
+            return null;
+        }
+
+        CertID certID = request.getCertID();
+        BigInteger serialNumber = new BigInteger(certID.getSerialNumber().toString());
+
+        RevocationState.Status status = revocationState.lookup(serialNumber);
+
+        if (status == null) {
+            revocationState.addFallback();
+            return null;
+        }
+
+        CertStatus certStatus;
+        if (status.revoked()) {
+            certStatus = new RevokedInfo(new GeneralizedTime(status.getRevocationDate()));
+        } else {
+            certStatus = new GoodInfo();
+        }
+
+        GeneralizedTime thisUpdate = new GeneralizedTime(new Date());
+
+        /* set nextUpdate to the nextUpdate time of the CRL */
+        GeneralizedTime nextUpdate = null;
+        CAEngine engine = CAEngine.getInstance();
+        Date crlNextUpdate = engine.getMasterCRLIssuingPoint().getNextUpdate();
+        if (crlNextUpdate != null) {
+            nextUpdate = new GeneralizedTime(crlNextUpdate);
+        }
+
+        return new SingleResponse(certID, certStatus, thisUpdate, nextUpdate);
+    }
+
     public SingleResponse getCertStatusFromCRL(Request request) throws EBaseException {
 
         boolean ocspUseCache = mConfig.getOCSPUseCache();
@@ -1365,17 +1536,15 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
         return new SingleResponse(certID, certStatus, thisUpdate, nextUpdate);
     }
 
-    public SingleResponse processRequest(Request req) throws EBaseException {
-
-        String name = "CertificateAuthority: processRequest: ";
+    /**
+     * Returns true if the CertID identifies this CA as the issuer,
+     * i.e. both the issuer name hash and the issuer key hash match.
+     */
+    public boolean isIssuerOf(CertID cid) {
 
         X509CertImpl caCert = mSigningUnit.getCertImpl();
         X509Key key = (X509Key) caCert.getPublicKey();
 
-        CertID cid = req.getCertID();
-        INTEGER serialNo = cid.getSerialNumber();
-        logger.debug( name + "for cert 0x" + serialNo.toString(16));
-
         byte[] nameHash = null;
         byte[] keyHash = null;
         String digestName = cid.getDigestName();
@@ -1388,8 +1557,20 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
                 logger.warn("CertificateAuthority: OCSP request hash algorithm " + digestName + " not recognised: " + e.getMessage(), e);
             }
         }
-        if (!Arrays.equals(cid.getIssuerNameHash().toByteArray(), nameHash) ||
-                !Arrays.equals(cid.getIssuerKeyHash().toByteArray(), keyHash)) {
+
+        return Arrays.equals(cid.getIssuerNameHash().toByteArray(), nameHash)
+                && Arrays.equals(cid.getIssuerKeyHash().toByteArray(), keyHash);
+    }
+
+    public SingleResponse processRequest(Request req) throws EBaseException {
+
+        String name = "CertificateAuthority: processRequest: ";
+
+        CertID cid = req.getCertID();
+        INTEGER serialNo = cid.getSerialNumber();
+        logger.debug( name + "for cert 0x" + serialNo.toString(16));
+
+        if (!isIssuerOf(cid)) {
             // issuer of cert is not this CA (or we couldn't work
             // out whether it is or not due to unknown hash alg);
             // do not return status information for this cert
@@ -1398,7 +1579,13 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
             return new SingleResponse(cid, new UnknownInfo(), thisUpdate, null);
         }
 
-        SingleResponse response = getCertStatusFromCRL(req);
+        SingleResponse response = getCertStatusFromRevocationState(req);
+
+        if (response != null) {
+            return response;
+        }
+
+        response = getCertStatusFromCRL(req);
 
         if (response != null) {
             return response;
@@ -1578,5 +1765,8 @@ public class CertificateAuthority extends Subsystem implements IAuthority, IOCSP
      */
     @Override
     public void shutdown() {
+        if (ocspResponseCache != null) {
+            ocspResponseCache.shutdown();
+        }
     }
 }
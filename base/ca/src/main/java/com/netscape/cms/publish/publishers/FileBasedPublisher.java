@@ -17,14 +17,21 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cms.publish.publishers;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509CRL;
@@ -39,11 +46,13 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.filefilter.RegexFileFilter;
-import org.mozilla.jss.netscape.security.util.Utils;
 import org.mozilla.jss.util.Base64OutputStream;
 
+import com.netscape.ca.CRLFile;
+import com.netscape.ca.CRLIssuingPoint;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.IExtendedPluginInfo;
+import com.netscape.certsrv.base.SessionContext;
 import com.netscape.certsrv.dbs.DBException;
 import com.netscape.certsrv.publish.Publisher;
 import com.netscape.cmscore.apps.CMS;
@@ -365,86 +374,7 @@ public class FileBasedPublisher
                     }
                 }
             } else if (object instanceof X509CRL) {
-                X509CRL crl = (X509CRL) object;
-                String[] namePrefix = getCrlNamePrefix(crl, mTimeStamp.equals("GMT"));
-                String baseName = mDir + File.separator + namePrefix[0];
-                String tempFile = baseName + ".temp";
-                ZipOutputStream zos = null;
-                byte[] encodedArray = null;
-                File destFile = null;
-                String destName = null;
-                File renameFile = null;
-
-                if (mDerAttr) {
-                    FileOutputStream fos = null;
-                    try {
-                        fos = new FileOutputStream(tempFile);
-                        encodedArray = crl.getEncoded();
-                        fos.write(encodedArray);
-                    } finally {
-                        if (fos != null)
-                            fos.close();
-                    }
-                    if (mZipCRL) {
-                        try {
-                            zos = new ZipOutputStream(new FileOutputStream(baseName + ".zip"));
-                            zos.setLevel(mZipLevel);
-                            zos.putNextEntry(new ZipEntry(baseName + ".der"));
-                            zos.write(encodedArray, 0, encodedArray.length);
-                            zos.closeEntry();
-                        } finally {
-                            if (zos != null)
-                                zos.close();
-                        }
-                    }
-                    destName = baseName + ".der";
-                    destFile = new File(destName);
-
-                    if (destFile.exists()) {
-                        destFile.delete();
-                    }
-                    renameFile = new File(tempFile);
-                    renameFile.renameTo(destFile);
-
-                    if (mLatestCRL) {
-                        String linkExt = ".";
-                        if (mLinkExt != null && mLinkExt.length() > 0) {
-                            linkExt += mLinkExt;
-                        } else {
-                            linkExt += "der";
-                        }
-                        String linkName = mDir + File.separator + namePrefix[1] + linkExt;
-                        createLink(linkName, destName);
-                        if (mZipCRL) {
-                            linkName = mDir + File.separator + namePrefix[1] + ".zip";
-                            createLink(linkName, baseName + ".zip");
-                        }
-                    }
-                }
-
-                // output base64 file
-                if (mB64Attr == true) {
-                    if (encodedArray == null)
-                        encodedArray = crl.getEncoded();
-                    FileOutputStream fos = null;
-                    try {
-                        fos = new FileOutputStream(tempFile);
-                        fos.write(Utils.base64encode(encodedArray, true).getBytes());
-                    } finally {
-                        if (fos != null)
-                            fos.close();
-                    }
-                    destName = baseName + ".b64";
-                    destFile = new File(destName);
-
-                    if (destFile.exists()) {
-                        destFile.delete();
-                    }
-                    renameFile = new File(tempFile);
-                    renameFile.renameTo(destFile);
-                }
-                purgeExpiredFiles();
-                purgeExcessFiles();
+                publishCRL((X509CRL) object);
             }
         } catch (IOException e) {
             logger.warn(CMS.getLogMessage("PUBLISH_FILE_PUBLISHER_ERROR", e.toString()), e);
@@ -455,6 +385,103 @@ public class FileBasedPublisher
         }
     }
 
+    /**
+     * Writes a CRL into files.
+     *
+     * If the CRL issuing point has stored the encoded CRL in a file,
+     * the DER file is copied from that file, and the compressed and
+     * base-64 files are generated by streaming the DER file, so the
+     * CRL is not encoded or copied in memory again.
+     */
+    protected void publishCRL(X509CRL crl) throws IOException, CRLException {
+
+        String[] namePrefix = getCrlNamePrefix(crl, mTimeStamp.equals("GMT"));
+        String baseName = mDir + File.separator + namePrefix[0];
+        Path tempFile = Paths.get(baseName + ".temp");
+
+        CRLFile crlFile = getCRLFile();
+        byte[] encodedArray = null;
+
+        if (crlFile == null) {
+            encodedArray = crl.getEncoded();
+        }
+
+        if (mDerAttr) {
+            if (crlFile != null) {
+                crlFile.transferTo(tempFile);
+            } else {
+                Files.write(tempFile, encodedArray);
+            }
+
+            String destName = baseName + ".der";
+            Path destFile = Paths.get(destName);
+            Files.move(tempFile, destFile, StandardCopyOption.REPLACE_EXISTING);
+
+            if (mZipCRL) {
+                try (InputStream in = Files.newInputStream(destFile);
+                        ZipOutputStream zos = new ZipOutputStream(
+                                new BufferedOutputStream(new FileOutputStream(baseName + ".zip")))) {
+                    zos.setLevel(mZipLevel);
+                    zos.putNextEntry(new ZipEntry(baseName + ".der"));
+                    in.transferTo(zos);
+                    zos.closeEntry();
+                }
+            }
+
+            if (mLatestCRL) {
+                String linkExt = ".";
+                if (mLinkExt != null && mLinkExt.length() > 0) {
+                    linkExt += mLinkExt;
+                } else {
+                    linkExt += "der";
+                }
+                String linkName = mDir + File.separator + namePrefix[1] + linkExt;
+                createLink(linkName, destName);
+                if (mZipCRL) {
+                    linkName = mDir + File.separator + namePrefix[1] + ".zip";
+                    createLink(linkName, baseName + ".zip");
+                }
+            }
+        }
+
+        // output base64 file
+        if (mB64Attr) {
+            PrintStream ps = new PrintStream(new BufferedOutputStream(Files.newOutputStream(tempFile)));
+
+            try (InputStream in = crlFile != null ? crlFile.openStream() : new ByteArrayInputStream(encodedArray);
+                    Base64OutputStream b64 = new Base64OutputStream(ps)) {
+                in.transferTo(b64);
+            }
+
+            // PrintStream does not throw IOException, so check for write
+            // errors before replacing the previous file with a truncated one
+            if (ps.checkError()) {
+                Files.deleteIfExists(tempFile);
+                throw new IOException("Unable to write " + tempFile);
+            }
+
+            Files.move(tempFile, Paths.get(baseName + ".b64"), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        purgeExpiredFiles();
+        purgeExcessFiles();
+    }
+
+    /**
+     * Returns the encoded CRL stored in a file by the
+     * CRL issuing point, or null if not available.
+     */
+    CRLFile getCRLFile() {
+
+        SessionContext sc = SessionContext.getExistingContext();
+
+        if (sc == null) {
+            return null;
+        }
+
+        return (CRLFile) sc.get(CRLIssuingPoint.SC_CRL_FILE);
+    }
+
     /**
      * Gets all the CRLS (full and delta) in the directory
      * These match <prefix>-<yyyyMMDD>-<HHmmss>.* and <prefix>-<yyyyMMDD>-<HHmmss>-delta.*
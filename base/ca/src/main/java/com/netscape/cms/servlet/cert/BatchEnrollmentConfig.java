@@ -0,0 +1,50 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.servlet.cert;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides ca.batchEnrollment.* parameters.
+ */
+public class BatchEnrollmentConfig extends ConfigStore {
+
+    public BatchEnrollmentConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public BatchEnrollmentConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns batchEnrollment.enable parameter.
+     */
+    public boolean getEnable() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns batchEnrollment.threads parameter, the number of CSRs
+     * processed at the same time. Zero means the number of processors.
+     * If the CA signing key is on an HSM this should not exceed the
+     * number of sessions the HSM can sign with concurrently.
+     */
+    public int getThreads() throws EBaseException {
+        return getInteger("threads", 0);
+    }
+
+    /**
+     * Returns batchEnrollment.maxSize parameter, the max number
+     * of CSRs in a batch.
+     */
+    public int getMaxSize() throws EBaseException {
+        return getInteger("maxSize", 10000);
+    }
+}
@@ -0,0 +1,584 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.servlet.cert;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.dogtagpki.server.authentication.AuthToken;
+import org.dogtagpki.server.ca.CAEngine;
+import org.dogtagpki.util.cert.CRMFUtil;
+import org.dogtagpki.util.cert.CertUtil;
+import org.mozilla.jss.netscape.security.pkcs.PKCS10;
+
+import com.netscape.certsrv.authentication.AuthCredentials;
+import com.netscape.certsrv.base.BadRequestDataException;
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.base.SessionContext;
+import com.netscape.certsrv.ca.AuthorityID;
+import com.netscape.certsrv.cert.CertBatchEnrollmentRequest;
+import com.netscape.certsrv.cert.CertBatchEnrollmentResult;
+import com.netscape.certsrv.cert.CertEnrollmentRequest;
+import com.netscape.certsrv.profile.ProfileAttribute;
+import com.netscape.certsrv.profile.ProfileInput;
+import com.netscape.certsrv.util.JSONSerializer;
+import com.netscape.certsrv.util.OperationStats;
+import com.netscape.cms.servlet.processors.CAProcessor;
+import com.netscape.cmscore.request.Request;
+
+/**
+ * This class enrolls multiple CSRs with the same profile.
+ *
+ * The batch is authenticated once with the profile authenticator in
+ * the request thread. Each CSR then goes through the rest of the regular
+ * enrollment (authorization, profile constraints, serial number
+ * allocation, signing, storage, and audit) as a separate request, but
+ * the CSRs are processed concurrently on a shared worker pool. The
+ * results are returned to the caller as the CSRs are completed so they
+ * can be streamed to the client.
+ *
+ * The servlet request is not thread-safe, so the workers use a copy
+ * of the data needed from it (parameters, attributes such as the client
+ * certificate chain, and the remote host and address), and each CSR
+ * is enrolled with its own copy of the credentials.
+ *
+ * The number of CSRs processed at the same time for a batch is
+ * limited to the number of workers so that a large batch does not
+ * occupy the whole pool or keep all pending CSRs in memory.
+ */
+public class BatchEnrollmentProcessor {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(BatchEnrollmentProcessor.class);
+
+    public static final String PROCESSOR_ID = "caProfileSubmit";
+
+    private CAEngine engine;
+
+    private boolean enable;
+    private int threads;
+    private int maxSize;
+
+    private ExecutorService executor;
+
+    // statistics
+    private LongAdder batches = new LongAdder();
+    private LongAdder certRequests = new LongAdder();
+    private LongAdder failures = new LongAdder();
+    private LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+
+    // nanoseconds
+    private OperationStats validateStats = new OperationStats();
+    private OperationStats enrollStats = new OperationStats();
+
+    public BatchEnrollmentProcessor(CAEngine engine) {
+        this.engine = engine;
+    }
+
+    public boolean isEnabled() {
+        return enable;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void init(BatchEnrollmentConfig config) throws EBaseException {
+
+        enable = config.getEnable();
+        threads = config.getThreads();
+        maxSize = config.getMaxSize();
+
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        logger.info("BatchEnrollmentProcessor: Initializing batch enrollment");
+        logger.info("BatchEnrollmentProcessor: - enable: " + enable);
+        logger.info("BatchEnrollmentProcessor: - threads: " + threads);
+        logger.info("BatchEnrollmentProcessor: - max size: " + maxSize);
+
+        if (!enable) {
+            return;
+        }
+
+        executor = Executors.newFixedThreadPool(
+                threads,
+                Thread.ofPlatform().name("BatchEnrollment-", 1).daemon().factory());
+    }
+
+    public void shutdown() {
+
+        if (executor == null) {
+            return;
+        }
+
+        logger.info("BatchEnrollmentProcessor: " + getStatistics());
+
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * Enrolls the CSRs in a batch and passes the result of each CSR
+     * to the listener in the calling thread in the order of completion.
+     * If the authentication fails no CSR is enrolled. A CSR that cannot
+     * be enrolled does not stop the batch, the error is returned in its
+     * result. If the listener fails (e.g. the client has disconnected)
+     * the remaining CSRs are cancelled. This method does not return until
+     * the CSRs in progress are completed.
+     *
+     * @param batch batch enrollment request
+     * @param request servlet request
+     * @param aid authority ID
+     * @param credentials enrollment credentials
+     * @param listener result listener
+     * @return number of CSRs that could not be enrolled
+     */
+    public int processBatch(
+            CertBatchEnrollmentRequest batch,
+            HttpServletRequest request,
+            AuthorityID aid,
+            AuthCredentials credentials,
+            ResultListener listener) throws Exception {
+
+        if (executor == null) {
+            throw new BadRequestDataException("Batch enrollment not enabled");
+        }
+
+        CertEnrollmentRequest template = batch.getTemplate();
+        if (template == null) {
+            throw new BadRequestDataException("Missing enrollment template");
+        }
+
+        if (template.isRenewal()) {
+            throw new BadRequestDataException("Batch renewal not supported");
+        }
+
+        List<String> csrs = batch.getCertRequests();
+        if (csrs.isEmpty()) {
+            throw new BadRequestDataException("Missing certificate requests");
+        }
+
+        int size = csrs.size();
+        if (size > maxSize) {
+            throw new BadRequestDataException(
+                    "Too many certificate requests: " + size + " (max: " + maxSize + ")");
+        }
+
+        String requestType = batch.getCertRequestType();
+        if (requestType == null) {
+            requestType = "pkcs10";
+        }
+
+        if (!"pkcs10".equals(requestType) && !"crmf".equals(requestType)) {
+            throw new BadRequestDataException("Unsupported request type: " + requestType);
+        }
+
+        logger.info("BatchEnrollmentProcessor: Enrolling " + size + " " + requestType
+                + " request(s) with " + template.getProfileId() + " profile");
+
+        batches.increment();
+        maxBatchSize.accumulate(size);
+
+        // each CSR is enrolled with a copy of the template
+        String templateJSON = template.toJSON();
+
+        Locale locale = request.getLocale();
+
+        // authenticate the batch once instead of for each CSR
+        EnrollmentProcessor processor = new EnrollmentProcessor(PROCESSOR_ID, locale);
+        processor.setCMSEngine(engine);
+        processor.init();
+
+        AuthToken authToken = processor.authenticateEnrollment(template, request, credentials);
+
+        // the workers run with a copy of the session of the request thread
+        SessionContext session = SessionContext.getExistingContext();
+
+        // the workers must not use the servlet request concurrently
+        RequestData requestData = new RequestData(request);
+
+        CompletionService<CertBatchEnrollmentResult> completionService =
+                new ExecutorCompletionService<>(executor);
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        long startTime = System.nanoTime();
+        int next = 0;
+        int pending = 0;
+        int errors = 0;
+
+        try {
+            while (next < size || pending > 0) {
+
+                // keep at most one CSR per worker in progress
+                while (next < size && pending < threads) {
+                    int index = next++;
+                    String csr = csrs.get(index);
+                    String type = requestType;
+
+                    completionService.submit(() -> cancelled.get() ? null : enroll(
+                            index, csr, type, templateJSON, session,
+                            requestData, aid, credentials, authToken, locale));
+                    pending++;
+                }
+
+                Future<CertBatchEnrollmentResult> future = completionService.take();
+                pending--;
+
+                CertBatchEnrollmentResult result;
+                try {
+                    result = future.get();
+
+                } catch (ExecutionException e) {
+                    // enroll() returns errors in the result, this should not happen
+                    throw new EBaseException("Unable to enroll certificate: " + e.getCause().getMessage(), e.getCause());
+                }
+
+                if (result.getError() != null) {
+                    errors++;
+                }
+
+                listener.resultReceived(result);
+            }
+
+        } finally {
+            if (pending > 0) {
+                logger.warn("BatchEnrollmentProcessor: Cancelling " + (size - next + pending) + " request(s)");
+
+                // the CSRs that have not started are skipped, wait for
+                // the CSRs in progress since they use this request's data
+                cancelled.set(true);
+                waitForCompletion(completionService, pending);
+            }
+        }
+
+        long time = System.nanoTime() - startTime;
+        double rate = size * 1e9 / Math.max(time, 1);
+
+        logger.info("BatchEnrollmentProcessor: Enrolled " + size + " request(s) in "
+                + TimeUnit.NANOSECONDS.toMillis(time) + " ms ("
+                + String.format("%.1f", rate) + " requests/s, errors: " + errors + ")");
+
+        return errors;
+    }
+
+    /**
+     * Waits until the pending tasks are completed regardless of interrupts.
+     */
+    void waitForCompletion(CompletionService<?> completionService, int pending) {
+
+        boolean interrupted = false;
+
+        while (pending > 0) {
+            try {
+                completionService.take();
+                pending--;
+
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a copy of the credentials for a single CSR.
+     */
+    AuthCredentials copyCredentials(AuthCredentials credentials) throws EBaseException {
+
+        if (credentials == null) {
+            return null;
+        }
+
+        AuthCredentials copy = new AuthCredentials();
+        copy.setArgBlock(credentials.getArgBlock());
+
+        Enumeration<String> names = credentials.getElements();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            copy.set(name, credentials.get(name));
+        }
+
+        return copy;
+    }
+
+    CertBatchEnrollmentResult enroll(
+            int index,
+            String csr,
+            String requestType,
+            String templateJSON,
+            SessionContext session,
+            HttpServletRequest request,
+            AuthorityID aid,
+            AuthCredentials credentials,
+            AuthToken authToken,
+            Locale locale) {
+
+        CertBatchEnrollmentResult result = new CertBatchEnrollmentResult();
+        result.setIndex(index);
+
+        SessionContext context = new SessionContext();
+        if (session != null) {
+            context.putAll(session);
+        }
+        SessionContext.setContext(context);
+
+        certRequests.increment();
+
+        try {
+            // reject malformed CSRs before creating the enrollment request
+            long startTime = System.nanoTime();
+            validate(csr, requestType);
+            validateStats.add(System.nanoTime() - startTime);
+
+            CertEnrollmentRequest data = JSONSerializer.fromJSON(templateJSON, CertEnrollmentRequest.class);
+
+            for (ProfileInput input : data.getInputs()) {
+
+                ProfileAttribute typeAttr = input.getAttribute("cert_request_type");
+                if (typeAttr != null) {
+                    typeAttr.setValue(requestType);
+                }
+
+                ProfileAttribute csrAttr = input.getAttribute("cert_request");
+                if (csrAttr != null) {
+                    csrAttr.setValue(csr);
+                }
+            }
+
+            startTime = System.nanoTime();
+
+            EnrollmentProcessor processor = new EnrollmentProcessor(PROCESSOR_ID, locale);
+            processor.setCMSEngine(engine);
+            processor.init();
+
+            // the batch has been authenticated already
+            HashMap<String, Object> results = processor.processEnrollment(
+                    data, request, aid, copyCredentials(credentials), authToken);
+
+            enrollStats.add(System.nanoTime() - startTime);
+
+            Request[] reqs = (Request[]) results.get(CAProcessor.ARG_REQUESTS);
+            for (Request req : reqs) {
+                result.addRequest(CertRequestInfoFactory.create(req));
+            }
+
+            if (results.get(CAProcessor.ARG_ERROR_CODE) != null) {
+                result.setError((String) results.get(CAProcessor.ARG_ERROR_REASON));
+                failures.increment();
+            }
+
+        } catch (Exception e) {
+            logger.warn("BatchEnrollmentProcessor: Unable to enroll request " + index + ": " + e.getMessage(), e);
+            result.setError(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+            failures.increment();
+
+        } finally {
+            SessionContext.releaseContext();
+        }
+
+        return result;
+    }
+
+    void validate(String csr, String requestType) throws Exception {
+
+        if (csr == null || csr.isBlank()) {
+            throw new BadRequestDataException("Missing certificate request");
+        }
+
+        if ("crmf".equals(requestType)) {
+            if (CRMFUtil.parseCRMF(csr) == null) {
+                throw new BadRequestDataException("Empty CRMF request");
+            }
+            return;
+        }
+
+        try {
+            new PKCS10(CertUtil.parseCSR(csr));
+        } catch (Exception e) {
+            throw new BadRequestDataException("Invalid PKCS #10 request: " + e.getMessage());
+        }
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getCertRequests() {
+        return certRequests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", getBatches());
+        stats.put("maxBatchSize", maxBatchSize.get());
+        stats.put("requests", getCertRequests());
+        stats.put("failures", getFailures());
+        stats.put("validate", getStageStatisticsMap(validateStats));
+        stats.put("enroll", getStageStatisticsMap(enrollStats));
+
+        return stats;
+    }
+
+    public String getStatistics() {
+        return "batches: " + getBatches()
+                + ", max batch size: " + maxBatchSize.get()
+                + ", requests: " + getCertRequests()
+                + ", failures: " + getFailures()
+                + ", validate: " + getStageStatistics(validateStats)
+                + ", enroll: " + getStageStatistics(enrollStats);
+    }
+
+    Map<String, Object> getStageStatisticsMap(OperationStats stats) {
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", stats.getCalls());
+        values.put("averageTime", getAverageMillis(stats));
+        values.put("maxTime", stats.getMaxTime() / 1e6);
+
+        return values;
+    }
+
+    String getStageStatistics(OperationStats stats) {
+        return stats.getCalls() + " (avg " + String.format("%.2f", getAverageMillis(stats))
+                + " ms, max " + String.format("%.2f", stats.getMaxTime() / 1e6) + " ms)";
+    }
+
+    double getAverageMillis(OperationStats stats) {
+        long count = stats.getCalls();
+        return count == 0 ? 0 : stats.getTotalTime() / 1e6 / count;
+    }
+
+    /**
+     * A copy of the servlet request data used by the enrollment. It is
+     * created in the request thread and can be used by multiple workers.
+     * The other methods are delegated to the original request, which
+     * remains valid until processBatch() returns.
+     */
+    static class RequestData extends HttpServletRequestWrapper {
+
+        private Map<String, String[]> parameters = new LinkedHashMap<>();
+        private Map<String, Object> attributes = new HashMap<>();
+        private String remoteHost;
+        private String remoteAddr;
+        private Locale locale;
+
+        RequestData(HttpServletRequest request) {
+            super(request);
+
+            for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
+                parameters.put(entry.getKey(), entry.getValue().clone());
+            }
+
+            // includes the client certificate chain
+            Enumeration<String> names = request.getAttributeNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                attributes.put(name, request.getAttribute(name));
+            }
+
+            remoteHost = request.getRemoteHost();
+            remoteAddr = request.getRemoteAddr();
+            locale = request.getLocale();
+        }
+
+        @Override
+        public String getParameter(String name) {
+            String[] values = parameters.get(name);
+            return values == null || values.length == 0 ? null : values[0];
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            String[] values = parameters.get(name);
+            return values == null ? null : values.clone();
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return Collections.unmodifiableMap(parameters);
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(parameters.keySet());
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            throw new UnsupportedOperationException("Unable to modify batch enrollment request");
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            throw new UnsupportedOperationException("Unable to modify batch enrollment request");
+        }
+
+        @Override
+        public String getRemoteHost() {
+            return remoteHost;
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return remoteAddr;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return locale;
+        }
+    }
+
+    /**
+     * A function to receive the result of each CSR in a batch.
+     */
+    @FunctionalInterface
+    public interface ResultListener {
+        void resultReceived(CertBatchEnrollmentResult result) throws Exception;
+    }
+}
@@ -86,6 +86,51 @@ public class EnrollmentProcessor extends CertProcessor {
 
     }
 
+    /**
+     * Authenticates an enrollment request with the authenticator of the
+     * profile without creating a request. The returned token can be passed
+     * to processEnrollment() to enroll multiple requests with the same
+     * profile and credentials (e.g. a batch) with a single authentication.
+     *
+     * @return auth token, or null if the profile does not require authentication
+     */
+    public AuthToken authenticateEnrollment(
+            CertEnrollmentRequest data,
+            HttpServletRequest request,
+            AuthCredentials credentials)
+            throws Exception {
+
+        String profileId = (this.profileID == null) ? data.getProfileId() : this.profileID;
+        logger.debug("EnrollmentProcessor: profileId " + profileId);
+
+        Profile profile = ps.getProfile(profileId);
+        if (profile == null) {
+            logger.error(CMS.getUserMessage(locale, "CMS_PROFILE_NOT_FOUND", CMSTemplate.escapeJavaScriptStringHTML(profileId)));
+            throw new BadRequestDataException(CMS.getUserMessage(locale, "CMS_PROFILE_NOT_FOUND", CMSTemplate.escapeJavaScriptStringHTML(profileId)));
+        }
+        if (!ps.isProfileEnable(profileId)) {
+            logger.error("EnrollmentProcessor: Profile " + profileId + " not enabled");
+            throw new BadRequestDataException("Profile " + profileId + " not enabled");
+        }
+
+        AuthManager authenticator = ps.getProfileAuthenticator(profile);
+        if (authenticator == null) {
+            return null;
+        }
+
+        logger.debug("EnrollmentProcessor: authenticator " + authenticator.getName() + " found");
+
+        Map<String, String> ctx = new HashMap<>();
+        setInputsIntoContext(data, profile, ctx);
+        setCredentialsIntoContext(request, credentials, authenticator, ctx);
+
+        SessionContext context = SessionContext.getContext();
+        context.put("profileContext", ctx);
+        context.put("sslClientCertProvider", new SSLClientCertProvider(request));
+
+        return authenticate(request, null, authenticator, context, false, credentials);
+    }
+
     public HashMap<String, Object> processEnrollment(
             CertEnrollmentRequest data,
             HttpServletRequest request,
@@ -417,6 +417,46 @@ public class CRLRepository extends Repository {
         modifyCRLIssuingPointRecord(id, mods);
     }
 
+    /**
+     * Appends recent changes of the CRL cache to CRL issuing point record
+     * without rewriting the full lists of certificates.
+     *
+     * @param id issuing point record id
+     * @param revokedCerts changes to the list of revoked certificates
+     * @param unrevokedCerts changes to the list of released from hold certificates
+     * @param expiredCerts changes to the list of expired certificates
+     * @exception EBaseException failed to update issuing point record
+     */
+    public void appendCRLCache(
+            String id,
+            RevokedCertsMapper.Update revokedCerts,
+            RevokedCertsMapper.Update unrevokedCerts,
+            RevokedCertsMapper.Update expiredCerts)
+            throws EBaseException {
+
+        logger.info("CRLRepository: Appending CRL cache changes");
+
+        ModificationSet mods = new ModificationSet();
+
+        if (revokedCerts != null && !revokedCerts.isEmpty()) {
+            mods.add(CRLIssuingPointRecord.ATTR_REVOKED_CERTS, Modification.MOD_ADD, revokedCerts);
+        }
+
+        if (unrevokedCerts != null && !unrevokedCerts.isEmpty()) {
+            mods.add(CRLIssuingPointRecord.ATTR_UNREVOKED_CERTS, Modification.MOD_ADD, unrevokedCerts);
+        }
+
+        if (expiredCerts != null && !expiredCerts.isEmpty()) {
+            mods.add(CRLIssuingPointRecord.ATTR_EXPIRED_CERTS, Modification.MOD_ADD, expiredCerts);
+        }
+
+        if (revokedCerts != null || unrevokedCerts != null) {
+            mods.add(CRLIssuingPointRecord.ATTR_FIRST_UNSAVED, Modification.MOD_REPLACE, CRLIssuingPointRecord.CLEAN_CACHE);
+        }
+
+        modifyCRLIssuingPointRecord(id, mods);
+    }
+
     /**
      * Updates CRL issuing point record with recently expired certificates info.
      *
@@ -25,7 +25,13 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import org.mozilla.jss.netscape.security.x509.CertificateValidity;
@@ -86,6 +92,15 @@ public class CertificateRepository extends Repository {
     public static final String PROP_CERT_ID_LENGTH = "cert.id.length";
     public static final int DEFAULT_CERT_ID_LENGTH = 128;
 
+    public static final String PROP_CERT_ID_BLOCK_SIZE = "cert.id.blockSize";
+    public static final int DEFAULT_CERT_ID_BLOCK_SIZE = 0;
+
+    public static final String PROP_CERT_ID_CHUNK_SIZE = "cert.id.chunkSize";
+    public static final int DEFAULT_CERT_ID_CHUNK_SIZE = 8;
+
+    // max number of serial numbers checked in a single search
+    private static final int SERIAL_NUMBER_CHECK_SIZE = 100;
+
     private boolean mConsistencyCheck = false;
 
     private boolean mEnableRandomSerialNumbers;
@@ -97,6 +112,10 @@ public class CertificateRepository extends Repository {
     private DatabaseConfig mDBConfig = null;
     private boolean mForceModeChange = false;
 
+    // random serial numbers that have been reserved but might not be stored yet
+    private Set<BigInteger> mReservedSerialNumbers = new LinkedHashSet<>();
+    private int mMaxReservedSerialNumbers;
+
     /**
      * Constructs a certificate repository.
      */
@@ -139,6 +158,18 @@ public class CertificateRepository extends Repository {
         } else {
             initLegacyGenerator();
         }
+
+        int blockSize = mDBConfig.getInteger(PROP_CERT_ID_BLOCK_SIZE, DEFAULT_CERT_ID_BLOCK_SIZE);
+        logger.debug("CertificateRepository: - cert ID block size: " + blockSize);
+
+        if (blockSize > 0) {
+            int chunkSize = mDBConfig.getInteger(PROP_CERT_ID_CHUNK_SIZE, DEFAULT_CERT_ID_CHUNK_SIZE);
+            logger.debug("CertificateRepository: - cert ID chunk size: " + chunkSize);
+
+            // remember enough reserved numbers to cover the unissued blocks
+            mMaxReservedSerialNumbers = blockSize * 4;
+            initBlockAllocator("Certificate", blockSize, chunkSize);
+        }
     }
 
     protected void initLegacy2Generator() throws EBaseException {
@@ -427,18 +458,18 @@ public class CertificateRepository extends Repository {
     }
 
     /**
-     * Retrieves the next certificate serial number, and also increases
+     * Generates the next certificate serial number, and also increases
      * the serial number by one.
      *
      * @return serial number
-     * @exception EBaseException failed to retrieve next serial number
+     * @exception EBaseException failed to generate next serial number
      */
     @Override
-    public synchronized BigInteger getNextSerialNumber()
+    protected synchronized BigInteger generateSerialNumber()
             throws EBaseException {
 
         if (idGenerator == IDGenerator.RANDOM) {
-            return super.getNextSerialNumber();
+            return super.generateSerialNumber();
         }
 
         BigInteger nextSerialNumber = null;
@@ -476,12 +507,138 @@ public class CertificateRepository extends Repository {
 
             super.checkRange();
         } else {
-            nextSerialNumber = super.getNextSerialNumber();
+            nextSerialNumber = super.generateSerialNumber();
         }
 
         return nextSerialNumber;
     }
 
+    /**
+     * Reserves a block of certificate serial numbers.
+     *
+     * In RSNv1 mode the random serial numbers are checked for collisions
+     * in bulk with one search per SERIAL_NUMBER_CHECK_SIZE numbers instead
+     * of reading a certificate record for each number. The numbers that
+     * collide with existing certificates or with previously reserved
+     * numbers are replaced with new random numbers.
+     *
+     * @param count number of serial numbers to reserve
+     * @return reserved serial numbers, possibly less than requested
+     * @exception EBaseException failed to reserve serial numbers
+     */
+    @Override
+    public synchronized List<BigInteger> reserveSerialNumbers(int count) throws EBaseException {
+
+        if (idGenerator == IDGenerator.RANDOM) {
+            return super.reserveSerialNumbers(count);
+        }
+
+        initCache();
+
+        if (!mEnableRandomSerialNumbers) {
+            return super.reserveSerialNumbers(count);
+        }
+
+        List<BigInteger> serialNumbers = new ArrayList<>(count);
+        int maxAttempts = mMaxCollisionRecoveryRegenerations * mMaxCollisionRecoverySteps;
+
+        for (int attempt = 0; serialNumbers.size() < count && attempt < maxAttempts; attempt++) {
+
+            // generate candidates in the current range
+            Map<BigInteger, BigInteger> candidates = new LinkedHashMap<>();
+            for (int i = serialNumbers.size(); i < count; i++) {
+                BigInteger randomNumber = getRandomNumber();
+                BigInteger serialNumber = getRandomSerialNumber(randomNumber);
+                if (!mReservedSerialNumbers.contains(serialNumber)) {
+                    candidates.putIfAbsent(serialNumber, randomNumber);
+                }
+            }
+
+            Set<BigInteger> existingSerialNumbers = findExistingSerialNumbers(candidates.keySet());
+            BigInteger minSerialNo = mMinSerialNo;
+
+            for (BigInteger serialNumber : candidates.keySet()) {
+
+                if (existingSerialNumbers.contains(serialNumber)) {
+                    logger.debug("CertificateRepository: reserveSerialNumbers  collision detected for serialNumber="
+                            + serialNumber);
+                    continue;
+                }
+
+                serialNumbers.add(serialNumber);
+                addReservedSerialNumber(serialNumber);
+
+                if (mCounter.compareTo(BigInteger.ZERO) >= 0 &&
+                    mMinSerialNo != null && mMaxSerialNo != null &&
+                    serialNumber.compareTo(mMinSerialNo) >= 0 &&
+                    serialNumber.compareTo(mMaxSerialNo) <= 0) {
+                    mCounter = mCounter.add(BigInteger.ONE);
+                }
+
+                super.checkRange();
+
+                if (!minSerialNo.equals(mMinSerialNo)) {
+                    // switched to the next range, generate the remaining numbers there
+                    break;
+                }
+            }
+        }
+
+        logger.debug("CertificateRepository: reserveSerialNumbers  reserved " + serialNumbers.size()
+                + " serial numbers  mCounter=" + mCounter);
+
+        return serialNumbers;
+    }
+
+    private void addReservedSerialNumber(BigInteger serialNumber) {
+
+        mReservedSerialNumbers.add(serialNumber);
+
+        Iterator<BigInteger> i = mReservedSerialNumbers.iterator();
+        while (mReservedSerialNumbers.size() > mMaxReservedSerialNumbers && i.hasNext()) {
+            i.next();
+            i.remove();
+        }
+    }
+
+    /**
+     * Returns the serial numbers that already belong to certificates
+     * in this repository. If the search fails, all serial numbers are
+     * considered to be in use.
+     */
+    private Set<BigInteger> findExistingSerialNumbers(Set<BigInteger> serialNumbers) {
+
+        Set<BigInteger> existingSerialNumbers = new HashSet<>();
+        List<BigInteger> list = new ArrayList<>(serialNumbers);
+
+        for (int i = 0; i < list.size(); i += SERIAL_NUMBER_CHECK_SIZE) {
+
+            List<BigInteger> batch = list.subList(i, Math.min(i + SERIAL_NUMBER_CHECK_SIZE, list.size()));
+
+            StringBuilder filter = new StringBuilder("(|");
+            for (BigInteger serialNumber : batch) {
+                filter.append("(").append(CertRecord.ATTR_ID).append("=").append(serialNumber).append(")");
+            }
+            filter.append(")");
+
+            try {
+                DBSearchResults results = findCertRecs(filter.toString(), new String[] {CertRecord.ATTR_ID, "objectclass"});
+                while (results != null && results.hasMoreElements()) {
+                    CertRecord rec = (CertRecord) results.nextElement();
+                    if (rec != null) {
+                        existingSerialNumbers.add(rec.getSerialNumber());
+                    }
+                }
+
+            } catch (Exception e) {
+                logger.warn("CertificateRepository: Unable to check serial numbers: " + e.getMessage(), e);
+                existingSerialNumbers.addAll(batch);
+            }
+        }
+
+        return existingSerialNumbers;
+    }
+
     @Override
     public BigInteger getRangeLength() {
         if (dbSubsystem.getEnableSerialMgmt() && mEnableRandomSerialNumbers) {
@@ -2233,5 +2390,9 @@ public class CertificateRepository extends Repository {
     }
 
     public void shutdown() {
+        if (blockAllocator != null) {
+            logger.info("CertificateRepository: Serial number allocation: " + blockAllocator.getStatistics());
+            blockAllocator.shutdown();
+        }
     }
 }
@@ -119,6 +119,8 @@ public class RetrieveModificationsTask implements Runnable {
             return;
         }
 
+        engine.invalidateOCSPResponses(certRecord.getSerialNumber());
+
         for (CRLIssuingPoint ip : engine.getCRLIssuingPoints()) {
 
             if (ip == null) {
@@ -112,7 +112,15 @@ public class CAPublisherProcessor extends PublisherProcessor {
                 int savePublishingStatus = queueConfig.getSaveStatus();
                 logger.info("CAPublisherProcessor: - save status: " + savePublishingStatus);
 
+                int batchSize = queueConfig.getBatchSize();
+                logger.info("CAPublisherProcessor: - batch size: " + batchSize);
+
+                int maxListenerThreads = queueConfig.getMaxListenerThreads();
+                logger.info("CAPublisherProcessor: - max listener threads: " + maxListenerThreads);
+
                 RequestNotifier requestNotifier = engine.getRequestNotifier();
+                requestNotifier.setBatchSize(batchSize);
+                requestNotifier.setMaxListenerThreads(maxListenerThreads);
                 requestNotifier.setPublishingQueue(
                         isPublishingQueueEnabled,
                         publishingQueuePriorityLevel,
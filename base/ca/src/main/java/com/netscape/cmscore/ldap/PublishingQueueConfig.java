@@ -60,4 +60,18 @@ public class PublishingQueueConfig extends ConfigStore {
     public int getSaveStatus() throws EBaseException {
         return getInteger("saveStatus", 0);
     }
+
+    /**
+     * Returns ca.publish.queue.batchSize parameter.
+     */
+    public int getBatchSize() throws EBaseException {
+        return getInteger("batchSize", 10);
+    }
+
+    /**
+     * Returns ca.publish.queue.maxListenerThreads parameter.
+     */
+    public int getMaxListenerThreads() throws EBaseException {
+        return getInteger("maxListenerThreads", 0);
+    }
 }
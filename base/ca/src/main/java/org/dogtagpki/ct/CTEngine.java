@@ -8,17 +8,35 @@ package org.dogtagpki.ct;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.security.KeyFactory;
 import java.security.MessageDigest;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.security.cert.X509Certificate;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.net.ntp.TimeStamp;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.dogtagpki.ct.sct.SCTProcessor;
 import org.dogtagpki.server.ca.CAEngine;
 import org.mozilla.jss.netscape.security.util.Cert;
@@ -35,17 +53,19 @@ import com.netscape.ca.CertificateAuthority;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.ca.AuthorityID;
 import com.netscape.certsrv.util.JSONSerializer;
+import com.netscape.certsrv.util.OperationStats;
 import com.netscape.cmscore.cert.CertUtils;
 import com.netscape.cmsutil.crypto.CryptoUtil;
-import com.netscape.cmsutil.http.HttpClient;
-import com.netscape.cmsutil.http.HttpRequest;
-import com.netscape.cmsutil.http.HttpResponse;
 
 /**
  * Certificate Transparency (v1) engine for CA
  *   to issue CT certs with Embedded Signed Certificate Timestamp
  *   - https://tools.ietf.org/html/rfc6962
  *
+ * The pre-cert is submitted to all enabled CT logs concurrently over
+ * persistent connections. The engine stops waiting once the quorum
+ * of SCTs has been received or the timeout has expired.
+ *
  * @author Christina Fu
  *
  */
@@ -53,13 +73,98 @@ public class CTEngine {
     public static org.slf4j.Logger logger =
             org.slf4j.LoggerFactory.getLogger(CTEngine.class);
 
-    SCTProcessor ctConfig = null;
-    public void init()  throws Exception {
+    volatile SCTProcessor ctConfig = null;
+
+    List<LogServer> logServers;
+    int quorum;
+    int minSCTs;
+    int timeout; // seconds
+
+    ExecutorService executor;
+    CloseableHttpClient httpClient;
+
+    // statistics per log ID
+    Map<Integer, OperationStats> logStats = new ConcurrentHashMap<>();
+
+    public synchronized void init()  throws Exception {
+
+        if (ctConfig != null) {
+            return;
+        }
+
         // for getting CT config from CS.cfg
-        ctConfig = new SCTProcessor();
+        SCTProcessor sctProcessor = new SCTProcessor();
 
         // Initialize CT configuration
-        ctConfig.init();
+        sctProcessor.init();
+
+        if (sctProcessor.getCTmode() == SCTProcessor.CTmode.disabled) {
+            logger.info("CTEngine: Certificate Transparency is disabled");
+            ctConfig = sctProcessor;
+            return;
+        }
+
+        logServers = sctProcessor.getLogServerConfig();
+        quorum = sctProcessor.getQuorum();
+        minSCTs = sctProcessor.getMinSCTs();
+        timeout = sctProcessor.getTimeout();
+        int threads = sctProcessor.getThreads();
+
+        logger.info("CTEngine: Initializing Certificate Transparency");
+        logger.info("CTEngine: - logs: " + logServers.size());
+        logger.info("CTEngine: - quorum: " + quorum);
+        logger.info("CTEngine: - min SCTs: " + minSCTs);
+        logger.info("CTEngine: - timeout: " + timeout);
+        logger.info("CTEngine: - threads: " + threads);
+
+        // decode the log keys once for all SCT verifications
+        for (LogServer ls : logServers) {
+            try {
+                logger.info("CTEngine: - log " + ls.getId() + ": " + ls.getUrl() + " (" + ls.getLogID() + ")");
+            } catch (Exception e) {
+                logger.warn("CTEngine: Invalid public key for log " + ls.getId() + ": " + e.getMessage(), e);
+            }
+        }
+
+        executor = Executors.newFixedThreadPool(
+                threads,
+                Thread.ofPlatform().name("CTSubmit-", 1).daemon().factory());
+
+        int timeoutMillis = (int) TimeUnit.SECONDS.toMillis(timeout);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeoutMillis)
+                .setConnectionRequestTimeout(timeoutMillis)
+                .setSocketTimeout(timeoutMillis)
+                .build();
+
+        // keep connections to the logs open across submissions
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(threads);
+        connectionManager.setDefaultMaxPerRoute(threads);
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+
+        ctConfig = sctProcessor;
+    }
+
+    public synchronized void shutdown() {
+
+        if (executor == null) {
+            return;
+        }
+
+        logger.info("CTEngine: " + getStatistics());
+
+        executor.shutdownNow();
+
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("CTEngine: Unable to close HTTP client: " + e.getMessage(), e);
+        }
     }
 
     /**
@@ -166,53 +271,7 @@ public class CTEngine {
              */
             byte[] tbsCert = certi.getEncodedInfo(true);
 
-            List<LogServer> logServers = ctConfig.getLogServerConfig();
-            List<String> ctResponses = new ArrayList<>();
-
-            // loop through all CT log servers
-            for (LogServer ls : logServers) {
-                logger.debug(method + "Processing log server ID: " + ls.getId());
-
-                String ct_host = ls.getUrl().getHost();
-                logger.debug(method + "Log server host: " + ct_host);
-
-                int ct_port = ls.getUrl().getPort();
-                logger.debug(method + "Log server port: " + ct_port);
-
-                // TODO: Refactor to form right rest API
-                String ct_uri = ls.getUrl() + "ct/v1/add-pre-chain";
-                logger.debug(method + "Log server URI: " + ct_uri);
-
-                String respS = certTransSendReq(ct_host, ct_port, ct_uri, ctRequest);
-                if (respS == null) {
-                    errMsg = method + "Response from CT log server null";
-                    logger.warn(errMsg);
-                    // allow for CT log to fail to respond
-                    // skip to next CT log server
-                    continue;
-                }
-                logger.debug(method + "Response from CT log server " + respS);
-
-                // verify the sct
-
-                /* TODO this should be a configurable; hardcoded for now */
-                boolean allowFailedSCTVerification = true;
-                final CTResponse response = JSONSerializer.fromJSON(respS, CTResponse.class);
-                boolean verified = verifySCT(response, tbsCert, ls.getPublicKey(), ctCA);
-                if (verified) {
-                    logger.info(method + "verifySCT returned true; SCT is valid");
-                } else {
-                    // log at WARN if !verified, regardless of how we are treating
-                    // failed verifications, because it is indicative of log server
-                    // misbehavoiur
-                    logger.warn(method + "verifySCT returns false; SCT failed to verify");
-                }
-                if (verified || allowFailedSCTVerification) {
-                    ctResponses.add(respS);
-                } else {
-                    throw new EBaseException(errMsg);
-                }
-            }
+            List<String> ctResponses = collectSCTs(ctRequest, tbsCert, ctCA);
 
             /**
              * Now onto turning the precert into a real cert with the SCT list extension
@@ -238,6 +297,166 @@ public class CTEngine {
         }
     }
 
+    /**
+     * Submits the pre-cert to all enabled logs concurrently and waits
+     * until the quorum of SCTs has been received, all logs have
+     * responded, or the timeout has expired.
+     *
+     * @return CT responses containing valid (or allowed) SCTs
+     */
+    List<String> collectSCTs(CTRequest ctRequest, byte[] tbsCert, CertificateAuthority ctCA)
+            throws EBaseException {
+
+        String method = "CTEngine.collectSCTs: ";
+
+        if (executor == null) {
+            throw new EBaseException("Certificate Transparency not initialized");
+        }
+
+        String content = ctRequest.toString();
+        int required = quorum <= 0 ? logServers.size() : Math.min(quorum, logServers.size());
+
+        CompletionService<String> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<String>> futures = new ArrayList<>();
+
+        for (LogServer ls : logServers) {
+            futures.add(completionService.submit(() -> submit(ls, content, tbsCert, ctCA)));
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeout);
+        List<String> ctResponses = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < futures.size() && ctResponses.size() < required; i++) {
+
+                long remaining = deadline - System.nanoTime();
+                Future<String> future = remaining > 0 ?
+                        completionService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+
+                if (future == null) {
+                    logger.warn(method + "Timeout after " + timeout + " s with "
+                            + ctResponses.size() + " of " + required + " SCTs");
+                    break;
+                }
+
+                try {
+                    String respS = future.get();
+                    if (respS != null) {
+                        ctResponses.add(respS);
+                    }
+                } catch (ExecutionException e) {
+                    logger.warn(method + "Unable to obtain SCT: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EBaseException("Interrupted while waiting for SCTs", e);
+
+        } finally {
+            // stop waiting for slower logs
+            for (Future<String> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info(method + "Received " + ctResponses.size() + " SCTs in " + time + " ms");
+
+        if (ctResponses.size() < minSCTs) {
+            throw new EBaseException("Unable to obtain " + minSCTs + " SCTs from CT logs; received "
+                    + ctResponses.size());
+        }
+
+        return ctResponses;
+    }
+
+    /**
+     * Submits the pre-cert to a log and verifies the SCT.
+     *
+     * @return CT response, or null if the log failed to respond
+     * or the SCT failed to verify
+     */
+    String submit(LogServer ls, String content, byte[] tbsCert, CertificateAuthority ctCA) {
+
+        String method = "CTEngine.submit: ";
+
+        // TODO: Refactor to form right rest API
+        String ct_uri = ls.getUrl() + "ct/v1/add-pre-chain";
+        logger.debug(method + "Submitting pre-cert to log " + ls.getId() + ": " + ct_uri);
+
+        long start = System.currentTimeMillis();
+        boolean success = false;
+
+        try {
+            HttpPost post = new HttpPost(ct_uri);
+            post.setEntity(new StringEntity(content, ContentType.APPLICATION_JSON));
+
+            String respS;
+            try (CloseableHttpResponse response = httpClient.execute(post)) {
+                int status = response.getStatusLine().getStatusCode();
+                respS = EntityUtils.toString(response.getEntity());
+
+                if (status != HttpStatus.SC_OK) {
+                    // allow for CT log to fail to respond
+                    logger.warn(method + "Log " + ls.getId() + " returned " + status + ": " + respS);
+                    return null;
+                }
+            }
+
+            logger.debug(method + "Response from log " + ls.getId() + ": " + respS);
+
+            /* TODO this should be a configurable; hardcoded for now */
+            boolean allowFailedSCTVerification = true;
+            final CTResponse response = JSONSerializer.fromJSON(respS, CTResponse.class);
+            boolean verified = verifySCT(response, tbsCert, ls, ctCA);
+            if (verified) {
+                logger.info(method + "SCT from log " + ls.getId() + " is valid");
+            } else {
+                // log at WARN if !verified, regardless of how we are treating
+                // failed verifications, because it is indicative of log server
+                // misbehavoiur
+                logger.warn(method + "SCT from log " + ls.getId() + " failed to verify");
+                if (!allowFailedSCTVerification) {
+                    return null;
+                }
+            }
+
+            success = true;
+            return respS;
+
+        } catch (Exception e) {
+            logger.warn(method + "Unable to submit pre-cert to log " + ls.getId() + ": " + e.getMessage(), e);
+            return null;
+
+        } finally {
+            long time = System.currentTimeMillis() - start;
+            logger.debug(method + "Log " + ls.getId() + " took " + time + " ms");
+            logStats.computeIfAbsent(ls.getId(), id -> new OperationStats()).add(time, success);
+        }
+    }
+
+    /**
+     * Returns the number of submissions, failures, and the average
+     * and maximum latency of each log.
+     */
+    public String getStatistics() {
+
+        StringBuilder sb = new StringBuilder("CT logs:");
+
+        for (Map.Entry<Integer, OperationStats> entry : new TreeMap<>(logStats).entrySet()) {
+            OperationStats stats = entry.getValue();
+            sb.append(" log ").append(entry.getKey()).append(": ");
+            sb.append(stats.getCalls()).append(" submissions/");
+            sb.append(stats.getErrors()).append(" failures/");
+            sb.append(stats.getAverageTime()).append(" ms avg/");
+            sb.append(stats.getMaxTime()).append(" ms max;");
+        }
+
+        return sb.toString();
+    }
+
     /**
      * (Certificate Transparency)
      *
@@ -442,10 +661,10 @@ public class CTEngine {
     *
     * @param response CT log server response
     * @param tbsCert encoded TBSCert
-    * @param logPublicKey public key of log
+    * @param logServer log that issued the SCT
     * @return boolean true for verified; false for not verified
     */
-    boolean verifySCT(CTResponse response, byte[] tbsCert, String logPublicKey, CertificateAuthority ctCA) {
+    boolean verifySCT(CTResponse response, byte[] tbsCert, LogServer logServer, CertificateAuthority ctCA) {
         String method = "CTEngine.:verifySCT: ";
         String errMsg = "";
         logger.debug(method + "begins");
@@ -503,18 +722,11 @@ public class CTEngine {
             byte[] signature_type = new byte[] {0}; // 1 byte; certificate_timestamp(0)
             byte[] entry_type = new byte[] {0, 1}; // 2 bytes; LogEntryType: precert_entry(1)
 
-            logger.debug(method + "using CT log public key: " + logPublicKey);
-            byte logPublicKey_b[] = CryptoUtil.base64Decode(logPublicKey);
-
             // First, verify the log id
-            PublicKey log_pubKey = KeyFactory.getInstance("EC", "Mozilla-JSS").generatePublic(
-                    new X509EncodedKeySpec(logPublicKey_b));
-
-            byte[] log_key_hash = null;
+            PublicKey log_pubKey = logServer.getKey();
             MessageDigest SHA256Digest = MessageDigest.getInstance("SHA256");
 
-            log_key_hash = SHA256Digest.digest(log_pubKey.getEncoded());
-            String log_key_hash_s = CryptoUtil.base64Encode(log_key_hash);
+            String log_key_hash_s = logServer.getLogID();
             logger.debug(method + "CT log signer key hash: " + log_key_hash_s);
             if (log_key_hash_s.compareTo(response.getId()) == 0) {
                 logger.debug(method + "CT log signer key hash matches key id");
@@ -662,45 +874,4 @@ public class CTEngine {
         }
         return ctRequest;
     }
-
-    /**
-     * (Certificate Transparency)
-     * certTransSendReq connects to CT host and send ct request
-     * @param ct_host host name
-     * @param ct_port port #
-     * @param ct_uri uri of the CT log server
-     * @param ctReq CT request
-     * @return response content from CT log server
-     */
-    private String certTransSendReq(String ct_host, int ct_port, String ct_uri, CTRequest ctReq) {
-        String method = "CTEngine.certTransSendReq: ";
-        HttpClient client = new HttpClient();
-        HttpRequest req = new HttpRequest();
-        HttpResponse resp = null;
-
-        logger.debug(method + "begins");
-        try {
-            client.connect(ct_host, ct_port);
-            req.setMethod("POST");
-            req.setURI(ct_uri);
-            req.setHeader("Content-Type", "application/json");
-            req.setContent(ctReq.toString());
-            req.setHeader("Content-Length", Integer.toString(ctReq.toString().length()));
-
-            resp = client.send(req);
-            if (resp == null)
-                return null;
-            logger.debug("version " + resp.getHttpVers());
-            logger.debug("status code " + resp.getStatusCode());
-            logger.debug("reason " + resp.getReasonPhrase());
-            logger.debug("content " + resp.getContent());
-            logger.debug("CAService.certTransSendReq ends");
-        } catch (Exception e) {
-            logger.debug(method + e.toString());
-            return null;
-        }
-
-        return (resp.getContent());
-    }
-
 }
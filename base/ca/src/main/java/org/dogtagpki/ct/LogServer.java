@@ -1,8 +1,14 @@
 package org.dogtagpki.ct;
 
 import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
 
 import com.netscape.certsrv.base.BadRequestException;
+import com.netscape.cmsutil.crypto.CryptoUtil;
 
 public class LogServer {
 
@@ -12,6 +18,10 @@ public class LogServer {
     private boolean enabled;
     private URL url;
 
+    // decoded public key and log ID used to verify SCTs
+    private PublicKey key;
+    private String logID;
+
     public URL getUrl() {
         return url;
     }
@@ -31,8 +41,37 @@ public class LogServer {
         return publicKey;
     }
 
-    public void setPublicKey(String publicKey) {
+    public synchronized void setPublicKey(String publicKey) {
         this.publicKey = publicKey;
+        key = null;
+        logID = null;
+    }
+
+    /**
+     * Returns the decoded public key of the log. The key is decoded
+     * once and reused to verify subsequent SCTs.
+     */
+    public synchronized PublicKey getKey() throws GeneralSecurityException {
+
+        if (key == null) {
+            byte[] encodedKey = CryptoUtil.base64Decode(publicKey);
+            key = KeyFactory.getInstance("EC", "Mozilla-JSS").generatePublic(
+                    new X509EncodedKeySpec(encodedKey));
+
+            // RFC 6962: the log ID is the SHA-256 hash of the log's public key
+            MessageDigest digest = MessageDigest.getInstance("SHA256");
+            logID = CryptoUtil.base64Encode(digest.digest(key.getEncoded()));
+        }
+
+        return key;
+    }
+
+    /**
+     * Returns the base64-encoded log ID.
+     */
+    public synchronized String getLogID() throws GeneralSecurityException {
+        getKey();
+        return logID;
     }
 
     public int getVersion() {
@@ -65,6 +65,40 @@ public class SCTProcessor {
         }
     }
 
+    /**
+     * Returns the number of SCTs after which the CA stops waiting
+     * for the remaining logs (ca.certTransparency.quorum).
+     * The default (0) waits for all enabled logs.
+     */
+    public int getQuorum() throws EBaseException {
+        return mConfig.getInteger("quorum", 0);
+    }
+
+    /**
+     * Returns the minimum number of SCTs required to issue
+     * the cert (ca.certTransparency.minSCTs).
+     * The default (0) issues the cert even if no log responds.
+     */
+    public int getMinSCTs() throws EBaseException {
+        return mConfig.getInteger("minSCTs", 0);
+    }
+
+    /**
+     * Returns the max time in seconds to wait for the logs
+     * (ca.certTransparency.timeout).
+     */
+    public int getTimeout() throws EBaseException {
+        return mConfig.getInteger("timeout", 10);
+    }
+
+    /**
+     * Returns the max number of concurrent log submissions
+     * (ca.certTransparency.threads).
+     */
+    public int getThreads() throws EBaseException {
+        return mConfig.getInteger("threads", 10);
+    }
+
     /**
      * Read log server configuration from CA's CS.cfg
      *
@@ -12,10 +12,14 @@ import com.netscape.ca.CertificateAuthority;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.connector.ConnectorsConfig;
 import com.netscape.certsrv.security.SigningUnitConfig;
+import com.netscape.cms.ocsp.OCSPResponseCacheConfig;
+import com.netscape.cms.request.RequestSchedulerConfig;
+import com.netscape.cms.servlet.cert.BatchEnrollmentConfig;
 import com.netscape.cms.servlet.cert.scep.SCEPConfig;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.base.SimpleProperties;
+import com.netscape.cmscore.dbs.RevocationStateConfig;
 import com.netscape.cmscore.ldap.PublishingConfig;
 
 /**
@@ -84,6 +88,34 @@ public class CAConfig extends ConfigStore {
         return getSubStore("ocsp_signing", SigningUnitConfig.class);
     }
 
+    /**
+     * Returns ca.ocspResponseCache.* parameters.
+     */
+    public OCSPResponseCacheConfig getOCSPResponseCacheConfig() {
+        return getSubStore("ocspResponseCache", OCSPResponseCacheConfig.class);
+    }
+
+    /**
+     * Returns ca.batchEnrollment.* parameters.
+     */
+    public BatchEnrollmentConfig getBatchEnrollmentConfig() {
+        return getSubStore("batchEnrollment", BatchEnrollmentConfig.class);
+    }
+
+    /**
+     * Returns ca.ocspRevocationState.* parameters.
+     */
+    public RevocationStateConfig getRevocationStateConfig() {
+        return getSubStore("ocspRevocationState", RevocationStateConfig.class);
+    }
+
+    /**
+     * Returns ca.requestScheduler.* parameters.
+     */
+    public RequestSchedulerConfig getRequestSchedulerConfig() {
+        return getSubStore("requestScheduler", RequestSchedulerConfig.class);
+    }
+
     /**
      * Returns ca.crl_signing.* parameters.
      */
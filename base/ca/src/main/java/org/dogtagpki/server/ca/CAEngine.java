@@ -32,12 +32,13 @@ import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
@@ -46,6 +47,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.dogtagpki.common.CAInfo;
 import org.dogtagpki.common.KRAInfo;
 import org.dogtagpki.common.KRAInfoClient;
+import org.dogtagpki.ct.CTEngine;
 import org.dogtagpki.legacy.ca.CAPolicy;
 import org.dogtagpki.legacy.ca.CAPolicyConfig;
 import org.dogtagpki.server.authentication.AuthToken;
@@ -59,6 +61,7 @@ import org.mozilla.jss.crypto.EncryptionAlgorithm;
 import org.mozilla.jss.crypto.KeyWrapAlgorithm;
 import org.mozilla.jss.crypto.PrivateKey;
 import org.mozilla.jss.netscape.security.pkcs.PKCS10;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
 import org.mozilla.jss.netscape.security.x509.CertificateChain;
 import org.mozilla.jss.netscape.security.x509.CertificateVersion;
 import org.mozilla.jss.netscape.security.x509.RevocationReason;
@@ -72,6 +75,7 @@ import com.netscape.ca.AuthorityMonitor;
 import com.netscape.ca.CANotify;
 import com.netscape.ca.CAService;
 import com.netscape.ca.CASigningUnit;
+import com.netscape.ca.CRLBuilder;
 import com.netscape.ca.CRLConfig;
 import com.netscape.ca.CRLExtensionConfig;
 import com.netscape.ca.CRLExtensionsConfig;
@@ -111,6 +115,7 @@ import com.netscape.cms.listeners.CertificateIssuedListener;
 import com.netscape.cms.listeners.CertificateRevokedListener;
 import com.netscape.cms.profile.common.Profile;
 import com.netscape.cms.request.RequestScheduler;
+import com.netscape.cms.servlet.cert.BatchEnrollmentProcessor;
 import com.netscape.cms.servlet.admin.KRAConnectorProcessor;
 import com.netscape.cms.servlet.cert.CertEnrollmentRequestFactory;
 import com.netscape.cms.servlet.cert.EnrollmentProcessor;
@@ -205,11 +210,14 @@ public class CAEngine extends CMSEngine {
 
     protected LdapBoundConnFactory connectionFactory;
 
-    protected Map<AuthorityID, CertificateAuthority> authorities = new TreeMap<>();
+    protected Map<AuthorityID, CertificateAuthority> authorities = new ConcurrentSkipListMap<>();
 
     protected AuthorityMonitor authorityMonitor;
     protected boolean enableAuthorityMonitor = true;
 
+    protected CTEngine ctEngine;
+    protected BatchEnrollmentProcessor batchEnrollmentProcessor;
+
     private KeyRetrieverWorker keyRetrieverWorker;
 
     // is the current KRA-related info authoritative?
@@ -290,6 +298,24 @@ public class CAEngine extends CMSEngine {
         return caService;
     }
 
+    /**
+     * Retrieves the Certificate Transparency engine shared by
+     * all cert issuances. The engine is initialized on first use.
+     */
+    public synchronized CTEngine getCTEngine() {
+        if (ctEngine == null) {
+            ctEngine = new CTEngine();
+        }
+        return ctEngine;
+    }
+
+    /**
+     * Retrieves the processor for batch enrollments.
+     */
+    public BatchEnrollmentProcessor getBatchEnrollmentProcessor() {
+        return batchEnrollmentProcessor;
+    }
+
     /**
      * Retrieves the default certificate version.
      *
@@ -817,6 +843,17 @@ public class CAEngine extends CMSEngine {
         issuanceProtectionPrivateKey = cm.findPrivKeyByCert(issuanceProtectionCert);
     }
 
+    public void initCTEngine() throws Exception {
+        logger.info("CAEngine: Initializing CT engine");
+        getCTEngine().init();
+    }
+
+    public void initBatchEnrollmentProcessor() throws Exception {
+        CAConfig caConfig = getConfig().getCAConfig();
+        batchEnrollmentProcessor = new BatchEnrollmentProcessor(this);
+        batchEnrollmentProcessor.init(caConfig.getBatchEnrollmentConfig());
+    }
+
     public void initAuthorityMonitor() throws Exception {
 
         if (!(enableAuthorityMonitor && authorityRepository.containerExists())) {
@@ -1050,7 +1087,7 @@ public class CAEngine extends CMSEngine {
         int increment = caConfig.getInteger("reqdbInc", 5);
         logger.info("CAEngine: - increment: " + increment);
 
-        String schedulerClass = caConfig.getString("requestSchedulerClass", null);
+        String schedulerClass = caConfig.getString("requestSchedulerClass", RequestScheduler.class.getName());
         logger.info("CAEngine: - scheduler: " + schedulerClass);
 
         enableAuthorityMonitor = caConfig.getBoolean("authorityMonitor.enable", enableAuthorityMonitor);
@@ -1070,10 +1107,9 @@ public class CAEngine extends CMSEngine {
                 requestNotifier,
                 pendingNotifier);
 
-        if (schedulerClass != null) {
-            RequestScheduler scheduler = (RequestScheduler) Class.forName(schedulerClass).getDeclaredConstructor().newInstance();
-            requestQueue.setRequestScheduler(scheduler);
-        }
+        RequestScheduler scheduler = (RequestScheduler) Class.forName(schedulerClass).getDeclaredConstructor().newInstance();
+        scheduler.init(caConfig.getRequestSchedulerConfig());
+        requestQueue.setRequestScheduler(scheduler);
 
         if (!isPreOpMode()) {
             logger.info("CAEngine: Starting CA services");
@@ -1107,6 +1143,8 @@ public class CAEngine extends CMSEngine {
 
             initCRLIssuingPoints();
             initIssuanceProtectionCert();
+            initCTEngine();
+            initBatchEnrollmentProcessor();
             initAuthorityMonitor();
         }
 
@@ -1252,6 +1290,26 @@ public class CAEngine extends CMSEngine {
         authorities.remove(aid);
     }
 
+    /**
+     * Removes cached OCSP responses for a certificate from all CAs.
+     *
+     * This method is called for every revocation, so it does not lock
+     * the engine. The CA map and the response caches are concurrent.
+     */
+    public void invalidateOCSPResponses(BigInteger serialNumber) {
+
+        CertificateAuthority hostCA = getCA();
+        if (hostCA != null) {
+            hostCA.invalidateOCSPResponses(serialNumber);
+        }
+
+        for (CertificateAuthority ca : authorities.values()) {
+            if (ca != hostCA) {
+                ca.invalidateOCSPResponses(serialNumber);
+            }
+        }
+    }
+
     public CertificateAuthority getCA(X500Name dn) throws Exception {
 
         Collection<AuthorityRecord> records = authorityRepository.findAuthorityRecords(
@@ -2121,6 +2179,67 @@ public class CAEngine extends CMSEngine {
         }
     }
 
+    /**
+     * Generates and signs a full CRL from the entries of a CRL builder
+     * using the specified signature algorithm. If no algorithm is
+     * specified the CA's default signing algorithm is used.
+     *
+     * @param ca CA to sign the CRL.
+     * @param builder the CRL builder.
+     * @param thisUpdate the thisUpdate of the CRL.
+     * @param nextUpdate the nextUpdate of the CRL, or null.
+     * @param extensions the CRL extensions, or null.
+     * @param algname the algorithm name to use.
+     * @return the DER encoding of the signed CRL
+     * @exception EBaseException failed to sign CRL
+     */
+    public byte[] sign(
+            CertificateAuthority ca,
+            CRLBuilder builder,
+            Date thisUpdate,
+            Date nextUpdate,
+            CRLExtensions extensions,
+            String algname)
+            throws EBaseException {
+
+        ca.ensureReady();
+
+        StatsSubsystem statsSub = (StatsSubsystem) subsystems.get(StatsSubsystem.ID);
+        if (statsSub != null) {
+            statsSub.startTiming("signing");
+        }
+
+        try {
+            return ca.sign(builder, thisUpdate, nextUpdate, extensions, algname);
+
+        } catch (CRLException e) {
+            logger.error(CMS.getLogMessage("CMSCORE_CA_CA_SIGN_CRL", e.toString(), e.getMessage()), e);
+            throw new ECAException(CMS.getUserMessage("CMS_CA_SIGNING_CRL_FAILED", e.getMessage()), e);
+
+        } catch (NoSuchAlgorithmException e) {
+            logger.error(CMS.getLogMessage("CMSCORE_CA_CA_SIGN_CRL", e.toString(), e.getMessage()), e);
+            throw new ECAException(CMS.getUserMessage("CMS_CA_SIGNING_CRL_FAILED", e.getMessage()), e);
+
+        } catch (IOException e) {
+            logger.error(CMS.getLogMessage("CMSCORE_CA_CA_SIGN_CRL", e.toString(), e.getMessage()), e);
+            throw new ECAException(CMS.getUserMessage("CMS_CA_SIGNING_CRL_FAILED", e.getMessage()), e);
+
+        } catch (SignatureException e) {
+            logger.error(CMS.getUserMessage("CMS_CA_SIGNING_OPERATION_FAILED", e.toString()), e);
+            checkForAndAutoShutdown();
+            throw new EBaseException(e);
+
+        } catch (Exception e) {
+            logger.error("Unable to sign data: " + e.getMessage(), e);
+            throw new EBaseException(e);
+
+        } finally {
+            if (statsSub != null) {
+                statsSub.endTiming("signing");
+            }
+        }
+    }
+
     /**
      * Sign a byte array using the specified algorithm.
      * If algorithm is null the CA's default algorithm is used.
@@ -2218,6 +2337,12 @@ public class CAEngine extends CMSEngine {
 
         Request request = tbsRequest.getRequestAt(0);
         CertID certID = request.getCertID();
+
+        if (ca.isIssuerOf(certID)) {
+            // no need to find the issuer in the database
+            return ca.validate(tbsRequest);
+        }
+
         logger.info("CAEngine: Finding cert 0x{} issuer", certID.getSerialNumber().toString(16));
 
         String digestName = certID.getDigestName();
@@ -2444,6 +2569,11 @@ public class CAEngine extends CMSEngine {
     @Override
     protected void shutdownSubsystems() {
 
+        // stop the pending batch enrollments before the subsystems they use
+        if (batchEnrollmentProcessor != null) {
+            batchEnrollmentProcessor.shutdown();
+        }
+
         super.shutdownSubsystems();
 
         for (CRLIssuingPoint crlIssuingPoint : crlIssuingPoints.values()) {
@@ -2461,6 +2591,14 @@ public class CAEngine extends CMSEngine {
             serialNumberUpdateTask.stop();
         }
 
+        if (ctEngine != null) {
+            ctEngine.shutdown();
+        }
+
+        if (caService != null) {
+            caService.shutdown();
+        }
+
         if (certStatusUpdateTask != null) {
             certStatusUpdateTask.stop();
         }
@@ -31,6 +31,7 @@ import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.HTTPGoneException;
 import com.netscape.certsrv.base.PKIException;
 import com.netscape.certsrv.base.ServiceUnavailableException;
+import com.netscape.certsrv.base.UnauthorizedException;
 import com.netscape.certsrv.base.WebAction;
 import com.netscape.certsrv.ca.CADisabledException;
 import com.netscape.certsrv.ca.CAMissingCertException;
@@ -51,6 +52,7 @@ import com.netscape.cms.servlet.cert.CertRequestInfoFactory;
 import com.netscape.cms.servlet.cert.CertReviewResponseFactory;
 import com.netscape.cms.servlet.cert.RequestProcessor;
 import com.netscape.cmscore.apps.CMS;
+import com.netscape.cmscore.dbs.DBSearchCursor;
 import com.netscape.cmscore.profile.ProfileSubsystem;
 import com.netscape.cmscore.request.Request;
 import com.netscape.cmscore.request.RequestRecord;
@@ -86,10 +88,15 @@ public class AgentCertRequestServlet extends CAServlet {
 
         String requestType = request.getParameter("requestType");
         String requestState = request.getParameter("requestState");
+        String cursorID = request.getParameter("cursor");
 
         CertRequestInfos requests = null;
         try {
-            requests =  listRequests(requestState, requestType, start, size, maxTime);
+            if (cursorID == null) {
+                requests = listRequests(requestState, requestType, start, size, maxTime);
+            } else {
+                requests = listRequests(request.getUserPrincipal(), requestState, requestType, cursorID, size);
+            }
             out.println(requests.toJSON());
         } catch (EBaseException e) {
             String message = "Unable to list cert requests: " + e.getMessage();
@@ -274,6 +281,59 @@ public class AgentCertRequestServlet extends CAServlet {
         return reqInfos;
     }
 
+    /**
+     * Lists cert requests with a search cursor. If the cursor ID is empty
+     * a new cursor is opened, otherwise the next page of the cursor is
+     * returned. The total is not returned since counting the requests
+     * would require a full search.
+     */
+    public CertRequestInfos listRequests(Principal principal, String requestState, String requestType,
+            String cursorID, int pageSize) throws EBaseException {
+
+        CAEngine engine = getCAEngine();
+        RequestRepository requestRepository = engine.getRequestRepository();
+        if (principal == null) {
+            // cursors are limited per user
+            throw new UnauthorizedException("Search cursors require authentication");
+        }
+
+        String owner = principal.getName();
+
+        DBSearchCursor<RequestRecord> cursor;
+        if (cursorID.isEmpty()) {
+            String filter = createSearchFilter(requestState, requestType);
+            logger.info("AgentCertRequestServlet: Opening search cursor");
+            logger.info("AgentCertRequestServlet: filter: " + filter);
+
+            cursor = requestRepository.openSearchCursor(owner, RequestRecord.class, filter);
+            if (cursor == null) {
+                throw new ServiceUnavailableException("Too many open search cursors");
+            }
+
+        } else {
+            logger.info("AgentCertRequestServlet: Using search cursor " + cursorID);
+            cursor = requestRepository.getSearchCursor(cursorID, owner, RequestRecord.class);
+            if (cursor == null) {
+                throw new HTTPGoneException("Search cursor not found or expired: " + cursorID);
+            }
+        }
+
+        CertRequestInfos reqInfos = new CertRequestInfos();
+
+        logger.info("AgentCertRequestServlet: results:");
+        for (RequestRecord record : cursor.next(pageSize)) {
+            Request request = record.toRequest();
+            logger.info("AgentCertRequestServlet: - request: {}", request.getRequestId().toHexString());
+            reqInfos.addEntry(CertRequestInfoFactory.create(request));
+        }
+
+        if (!cursor.isClosed()) {
+            reqInfos.setNext(cursor.getID());
+        }
+
+        return reqInfos;
+    }
+
     private String createSearchFilter(String requestState, String requestType) {
         String filter = "";
         int matches = 0;
@@ -38,6 +38,7 @@ import com.netscape.certsrv.base.ResourceNotFoundException;
 import com.netscape.certsrv.base.UnauthorizedException;
 import com.netscape.certsrv.base.WebAction;
 import com.netscape.certsrv.ca.AuthorityID;
+import com.netscape.certsrv.cert.CertBatchEnrollmentRequest;
 import com.netscape.certsrv.cert.CertEnrollmentRequest;
 import com.netscape.certsrv.cert.CertRequestInfo;
 import com.netscape.certsrv.cert.CertRequestInfos;
@@ -54,6 +55,7 @@ import com.netscape.cms.profile.common.Profile;
 import com.netscape.cms.profile.common.ProfileConfig;
 import com.netscape.cms.profile.common.ProfileInputConfig;
 import com.netscape.cms.profile.common.ProfileInputsConfig;
+import com.netscape.cms.servlet.cert.BatchEnrollmentProcessor;
 import com.netscape.cms.servlet.cert.CertRequestInfoFactory;
 import com.netscape.cms.servlet.cert.EnrollmentProcessor;
 import com.netscape.cms.servlet.cert.RenewalProcessor;
@@ -137,6 +139,82 @@ public class CertRequestServlet extends CAServlet {
         out.println(infos.toJSON());
     }
 
+    @WebAction(method = HttpMethod.POST, paths = {"batch"})
+    public void enrollBatch(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        HttpSession session = request.getSession();
+        logger.debug("CertRequestServlet.enrollBatch(): session: {}", session.getId());
+
+        BufferedReader reader = request.getReader();
+        String postMessage = reader.lines().collect(Collectors.joining());
+
+        CertBatchEnrollmentRequest batchRequest = JSONSerializer.fromJSON(postMessage, CertBatchEnrollmentRequest.class);
+        if (batchRequest == null || batchRequest.getTemplate() == null) {
+            String message = "Unable to create batch enrollment request: Missing input data";
+            logger.error(message);
+            throw new BadRequestException(message);
+        }
+
+        String caIDString = request.getParameter("issuer-id");
+        String caDNString = request.getParameter("issuer-dn");
+
+        logger.info("CertRequestServlet: Receiving " + batchRequest.getCertRequests().size() + " certificate request(s)");
+
+        AuthorityID aid = getAuthorityID(caIDString, caDNString);
+
+        CertEnrollmentRequest template = batchRequest.getTemplate();
+        template.setRemoteHost(request.getRemoteHost());
+        template.setRemoteAddr(request.getRemoteAddr());
+
+        BatchEnrollmentProcessor processor = engine.getBatchEnrollmentProcessor();
+
+        response.setContentType("application/json");
+        PrintWriter out = response.getWriter();
+
+        // the results are written as they are completed, so the response
+        // cannot be turned into an error once the first one is sent
+        int[] count = { 0 };
+
+        int errors;
+        try {
+            errors = processor.processBatch(
+                    batchRequest,
+                    request,
+                    aid,
+                    createCredentials(template),
+                    result -> {
+                        out.print(count[0] == 0 ? "{\"entries\":[" : ",");
+                        out.print(result.toJSON());
+                        out.flush();
+                        count[0]++;
+
+                        if (out.checkError()) {
+                            throw new IOException("Unable to send batch enrollment result");
+                        }
+                    });
+
+        } catch (EAuthException e) {
+            String message = "Authentication failed: " + e.getMessage();
+            logger.error(message, e);
+            throw new UnauthorizedException(message, e);
+
+        } catch (BadRequestDataException e) {
+            String message = "Bad request data: " + e.getMessage();
+            logger.error(message, e);
+            throw new BadRequestException(message, e);
+
+        } catch (EBaseException e) {
+            String message = "Unable to process batch enrollment request: " + e.getMessage();
+            logger.error(message, e);
+            throw new PKIException(message, e);
+        }
+
+        if (count[0] == 0) {
+            out.print("{\"entries\":[");
+        }
+
+        out.println("],\"total\":" + count[0] + ",\"errors\":" + errors + "}");
+    }
+
     private CertRequestInfos enrollCert(
             HttpServletRequest servletRequest,
             CertEnrollmentRequest data,
@@ -144,6 +222,46 @@ public class CertRequestServlet extends CAServlet {
             String adnString) throws Exception {
 
         logger.info("CertRequestServlet: Receiving certificate request");
+
+        AuthorityID aid = getAuthorityID(aidString, adnString);
+
+        data.setRemoteHost(servletRequest.getRemoteHost());
+        data.setRemoteAddr(servletRequest.getRemoteAddr());
+
+        CertRequestInfos infos;
+        try {
+            infos = submitRequest(aid, data, servletRequest);
+
+        } catch (EAuthException e) {
+            String message = "Authentication failed: " + e.getMessage();
+            logger.error(message, e);
+            throw new UnauthorizedException(message, e);
+
+        } catch (EAuthzException e) {
+            String message = "Authorization failed: " + e.getMessage();
+            logger.error(message, e);
+            throw new UnauthorizedException(message, e);
+
+        } catch (BadRequestDataException e) {
+            String message = "Bad request data: " + e.getMessage();
+            logger.error(message, e);
+            throw new BadRequestException(message, e);
+
+        } catch (EBaseException e) {
+            String message = "Unable to create enrollment request: " + e.getMessage();
+            logger.error(message, e);
+            throw new PKIException(message, e);
+
+        } catch (Exception e) {
+            String message = "Unable to create enrollment request: " + e.getMessage();
+            logger.error(message, e);
+            throw new PKIException(message, e);
+        }
+        return infos;
+    }
+
+    private AuthorityID getAuthorityID(String aidString, String adnString) {
+
         if (aidString != null && adnString != null) {
             String message = "Cannot provide both issuer ID and issuer DN";
             logger.error(message);
@@ -199,39 +317,7 @@ public class CertRequestServlet extends CAServlet {
             throw new ConflictingOperationException(message);
         }
 
-        data.setRemoteHost(servletRequest.getRemoteHost());
-        data.setRemoteAddr(servletRequest.getRemoteAddr());
-
-        CertRequestInfos infos;
-        try {
-            infos = submitRequest(aid, data, servletRequest);
-
-        } catch (EAuthException e) {
-            String message = "Authentication failed: " + e.getMessage();
-            logger.error(message, e);
-            throw new UnauthorizedException(message, e);
-
-        } catch (EAuthzException e) {
-            String message = "Authorization failed: " + e.getMessage();
-            logger.error(message, e);
-            throw new UnauthorizedException(message, e);
-
-        } catch (BadRequestDataException e) {
-            String message = "Bad request data: " + e.getMessage();
-            logger.error(message, e);
-            throw new BadRequestException(message, e);
-
-        } catch (EBaseException e) {
-            String message = "Unable to create enrollment request: " + e.getMessage();
-            logger.error(message, e);
-            throw new PKIException(message, e);
-
-        } catch (Exception e) {
-            String message = "Unable to create enrollment request: " + e.getMessage();
-            logger.error(message, e);
-            throw new PKIException(message, e);
-        }
-        return infos;
+        return aid;
     }
 
 
@@ -250,19 +336,8 @@ public class CertRequestServlet extends CAServlet {
 
         CertRequestInfos ret = new CertRequestInfos();
 
-        AuthCredentials credentials = new AuthCredentials();
-        String uid = data.getAttribute(DirBasedAuthentication.CRED_UID);
-        if (uid != null) {
-            credentials.set(DirBasedAuthentication.CRED_UID, uid);
-        }
-        String password = data.getAttribute(DirBasedAuthentication.CRED_PWD);
-        if (password != null) {
-            credentials.set(DirBasedAuthentication.CRED_PWD, password);
-        }
-        String pin = data.getAttribute(DirBasedAuthentication.CRED_PIN);
-        if (pin != null) {
-            credentials.set(DirBasedAuthentication.CRED_PIN, pin);
-        }
+        AuthCredentials credentials = createCredentials(data);
+
         HashMap<String, Object> results = null;
         if (data.isRenewal()) {
             RenewalProcessor processor = new RenewalProcessor("caProfileSubmit", request.getLocale());
@@ -292,6 +367,24 @@ public class CertRequestServlet extends CAServlet {
         return ret;
     }
 
+    private AuthCredentials createCredentials(CertEnrollmentRequest data) throws EBaseException {
+
+        AuthCredentials credentials = new AuthCredentials();
+        String uid = data.getAttribute(DirBasedAuthentication.CRED_UID);
+        if (uid != null) {
+            credentials.set(DirBasedAuthentication.CRED_UID, uid);
+        }
+        String password = data.getAttribute(DirBasedAuthentication.CRED_PWD);
+        if (password != null) {
+            credentials.set(DirBasedAuthentication.CRED_PWD, password);
+        }
+        String pin = data.getAttribute(DirBasedAuthentication.CRED_PIN);
+        if (pin != null) {
+            credentials.set(DirBasedAuthentication.CRED_PIN, pin);
+        }
+        return credentials;
+    }
+
     private ProfileDataInfos listEnrollmentTemplates(HttpServletRequest request, Integer start, Integer size) {
 
         CAEngine engine = CAEngine.getInstance();
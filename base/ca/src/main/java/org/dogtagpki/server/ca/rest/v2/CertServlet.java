@@ -42,7 +42,10 @@ import org.slf4j.LoggerFactory;
 
 import com.netscape.certsrv.base.BadRequestException;
 import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.base.HTTPGoneException;
 import com.netscape.certsrv.base.PKIException;
+import com.netscape.certsrv.base.ServiceUnavailableException;
+import com.netscape.certsrv.base.UnauthorizedException;
 import com.netscape.certsrv.base.WebAction;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertDataInfo;
@@ -55,6 +58,7 @@ import com.netscape.certsrv.util.JSONSerializer;
 import com.netscape.cms.servlet.cert.FilterBuilder;
 import com.netscape.cmscore.dbs.CertRecord;
 import com.netscape.cmscore.dbs.CertificateRepository;
+import com.netscape.cmscore.dbs.DBSearchCursor;
 import com.netscape.cmscore.dbs.RevocationInfo;
 
 /**
@@ -77,9 +81,12 @@ public class CertServlet extends CAServlet {
         int size = request.getParameter("size") == null ?
                 DEFAULT_SIZE : Integer.parseInt(request.getParameter("size"));
         int start = request.getParameter("start") == null ? 0 : Integer.parseInt(request.getParameter("start"));
+        String cursorID = request.getParameter("cursor");
 
         CertSearchRequest searchElems = CertSearchRequest.fromMap(request.getParameterMap());
-        CertDataInfos infos = listCerts(searchElems, maxTime, start, size);
+        CertDataInfos infos = cursorID == null ?
+                listCerts(searchElems, maxTime, start, size) :
+                listCerts(request.getUserPrincipal(), searchElems, cursorID, size);
         PrintWriter out = response.getWriter();
         out.println(infos.toJSON());
     }
@@ -119,8 +126,11 @@ public class CertServlet extends CAServlet {
         int size = request.getParameter("size") == null ?
                 DEFAULT_SIZE : Integer.parseInt(request.getParameter("size"));
         int start = request.getParameter("start") == null ? 0 : Integer.parseInt(request.getParameter("start"));
+        String cursorID = request.getParameter("cursor");
 
-        CertDataInfos infos = listCerts(requestFilter, start, size);
+        CertDataInfos infos = cursorID == null ?
+                listCerts(requestFilter, start, size) :
+                listCerts(request.getUserPrincipal(), requestFilter, cursorID, size);
 
         PrintWriter out = response.getWriter();
         out.println(infos.toJSON());
@@ -232,6 +242,69 @@ public class CertServlet extends CAServlet {
         return infos;
     }
 
+    /**
+     * Lists certificates with a search cursor. If the cursor ID is empty
+     * a new cursor is opened, otherwise the next page of the cursor is
+     * returned. The response contains the cursor ID if there are more pages.
+     * Search cursors are only available to authenticated users.
+     */
+    private CertDataInfos listCerts(Principal principal, CertSearchRequest searchReq, String cursorID, int size) {
+        CAEngine engine = getCAEngine();
+        CertificateRepository repo = engine.getCertificateRepository();
+        if (principal == null) {
+            // cursors are limited per user
+            throw new UnauthorizedException("Search cursors require authentication");
+        }
+
+        String owner = principal.getName();
+
+        DBSearchCursor<CertRecord> cursor;
+        CertDataInfos infos = new CertDataInfos();
+        try {
+            if (cursorID.isEmpty()) {
+                logger.info("Listing certificates with search cursor");
+                FilterBuilder builder = new FilterBuilder(searchReq);
+                String filter = builder.buildFilter();
+
+                logger.info("Search filter: {}", filter);
+
+                cursor = repo.openSearchCursor(owner, CertRecord.class, filter);
+                if (cursor == null) {
+                    throw new ServiceUnavailableException("Too many open search cursors");
+                }
+
+            } else {
+                logger.info("Listing certificates with search cursor {}", cursorID);
+                cursor = repo.getSearchCursor(cursorID, owner, CertRecord.class);
+                if (cursor == null) {
+                    throw new HTTPGoneException("Search cursor not found or expired: " + cursorID);
+                }
+            }
+
+            List<CertDataInfo> results = new ArrayList<>();
+            for (CertRecord rec : cursor.next(size)) {
+                if (rec == null) continue;
+                results.add(createCertDataInfo(rec));
+            }
+
+            logger.info("Search results: {}", results.size());
+            infos.setEntries(results);
+
+            if (!cursor.isClosed()) {
+                infos.setNext(cursor.getID());
+            }
+
+        } catch (PKIException e) {
+            throw e;
+
+        } catch (Exception e) {
+            logger.error("Unable to list certificates: " + e.getMessage(), e);
+            throw new PKIException("Unable to list certificates: " + e.getMessage(), e);
+        }
+
+        return infos;
+    }
+
     private CertDataInfo createCertDataInfo(CertRecord certRecord) throws EBaseException, InvalidKeyException {
         CertDataInfo info = new CertDataInfo();
 
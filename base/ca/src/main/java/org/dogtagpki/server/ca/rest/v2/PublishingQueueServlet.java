@@ -0,0 +1,43 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.ca.rest.v2;
+
+import java.io.PrintWriter;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netscape.certsrv.base.WebAction;
+import com.netscape.cmscore.request.RequestNotifier;
+
+/**
+ * Provides the depth, throughput, and latency of the publishing queue.
+ */
+@WebServlet(
+        name = "caPublishingQueue",
+        urlPatterns = "/v2/admin/publishing-queue/*")
+public class PublishingQueueServlet extends CAServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LoggerFactory.getLogger(PublishingQueueServlet.class);
+
+    @WebAction(method = HttpMethod.GET, paths = {""})
+    public void getStatistics(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        HttpSession session = request.getSession();
+        logger.debug("PublishingQueueServlet.getStatistics(): session: {}", session.getId());
+
+        RequestNotifier requestNotifier = engine.getRequestNotifier();
+
+        ObjectMapper mapper = new ObjectMapper();
+        PrintWriter out = response.getWriter();
+        out.println(mapper.writeValueAsString(requestNotifier.getStatisticsMap()));
+    }
+}
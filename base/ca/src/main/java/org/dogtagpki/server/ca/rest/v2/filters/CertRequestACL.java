@@ -0,0 +1,29 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.ca.rest.v2.filters;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebFilter;
+
+import org.dogtagpki.server.rest.v2.filters.ACLFilter;
+
+@WebFilter(servletNames = "caCertRequest")
+public class CertRequestACL extends ACLFilter {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String BATCH = "certrequests.batch";
+
+    @Override
+    public void init() throws ServletException {
+        Map<String, String> aclMap = new HashMap<>();
+        aclMap.put("POST:batch", BATCH);
+        setAclMap(aclMap);
+    }
+}
@@ -0,0 +1,281 @@
+package com.netscape.ca;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.util.DerOutputStream;
+import org.mozilla.jss.netscape.security.util.DerValue;
+import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLNumberExtension;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
+
+public class CRLBuilderTest {
+
+    static final Date THIS_UPDATE = new Date(1700000000000L);
+    static final Date NEXT_UPDATE = new Date(1700086400000L);
+
+    static X500Name issuer;
+    static AlgorithmId algorithm;
+
+    static {
+        try {
+            issuer = new X500Name("CN=CA Signing Certificate,OU=pki-tomcat,O=EXAMPLE");
+            algorithm = AlgorithmId.get("SHA256withRSA");
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Hashtable that enumerates the entries in serial number order like
+     * CRLBuilder so that X509CRLImpl produces the same entry order.
+     */
+    static class SortedHashtable extends Hashtable<BigInteger, RevokedCertificate> {
+
+        private static final long serialVersionUID = 1L;
+
+        TreeMap<BigInteger, RevokedCertificate> sorted() {
+            TreeMap<BigInteger, RevokedCertificate> map = new TreeMap<>();
+            for (Map.Entry<BigInteger, RevokedCertificate> e : super.entrySet()) {
+                map.put(e.getKey(), e.getValue());
+            }
+            return map;
+        }
+
+        @Override
+        public synchronized Enumeration<BigInteger> keys() {
+            return Collections.enumeration(sorted().keySet());
+        }
+
+        @Override
+        public synchronized Enumeration<RevokedCertificate> elements() {
+            return Collections.enumeration(sorted().values());
+        }
+
+        @Override
+        public Set<BigInteger> keySet() {
+            return Collections.unmodifiableSet(sorted().keySet());
+        }
+
+        @Override
+        public Collection<RevokedCertificate> values() {
+            return Collections.unmodifiableCollection(sorted().values());
+        }
+
+        @Override
+        public Set<Map.Entry<BigInteger, RevokedCertificate>> entrySet() {
+            return Collections.unmodifiableSet(sorted().entrySet());
+        }
+    }
+
+    static RevokedCertImpl createEntry(long serialNumber, Date date, RevocationReason reason) throws Exception {
+
+        if (reason == null) {
+            return new RevokedCertImpl(BigInteger.valueOf(serialNumber), date, null);
+        }
+
+        CRLExtensions exts = new CRLExtensions();
+        exts.set(CRLReasonExtension.NAME, new CRLReasonExtension(reason));
+
+        return new RevokedCertImpl(BigInteger.valueOf(serialNumber), date, exts);
+    }
+
+    static SortedHashtable createEntries(int count, boolean reasons) throws Exception {
+
+        SortedHashtable revokedCerts = new SortedHashtable();
+
+        for (int i = 0; i < count; i++) {
+            // spread the serial numbers to get different encoding sizes
+            long serialNumber = 1 + i * 7919L;
+            RevocationReason reason = reasons && i % 3 == 0 ? RevocationReason.KEY_COMPROMISE : null;
+            Date date = new Date(THIS_UPDATE.getTime() - i * 1000L);
+            revokedCerts.put(BigInteger.valueOf(serialNumber), createEntry(serialNumber, date, reason));
+        }
+
+        return revokedCerts;
+    }
+
+    static CRLExtensions createExtensions() throws Exception {
+        CRLExtensions exts = new CRLExtensions();
+        exts.set(CRLNumberExtension.NAME, new CRLNumberExtension(Boolean.FALSE, BigInteger.valueOf(12345)));
+        return exts;
+    }
+
+    static byte[] encodeWithX509CRLImpl(
+            Hashtable<BigInteger, RevokedCertificate> revokedCerts,
+            Date thisUpdate,
+            Date nextUpdate,
+            CRLExtensions extensions) throws Exception {
+
+        X509CRLImpl crl = new X509CRLImpl(issuer, algorithm, thisUpdate, nextUpdate, revokedCerts, extensions);
+
+        try (DerOutputStream tmp = new DerOutputStream()) {
+            crl.encodeInfo(tmp);
+        }
+
+        return crl.getTBSCertList();
+    }
+
+    static byte[] encodeWithCRLBuilder(
+            Map<BigInteger, RevokedCertificate> revokedCerts,
+            Date thisUpdate,
+            Date nextUpdate,
+            CRLExtensions extensions) throws Exception {
+
+        CRLBuilder builder = new CRLBuilder("MasterCRL", ForkJoinPool.commonPool());
+        builder.update(revokedCerts);
+
+        return builder.encodeTBSCertList(issuer, algorithm, thisUpdate, nextUpdate, extensions, null);
+    }
+
+    static void assertSameEncoding(
+            Hashtable<BigInteger, RevokedCertificate> revokedCerts,
+            Date thisUpdate,
+            Date nextUpdate,
+            CRLExtensions extensions) throws Exception {
+
+        byte[] expected = encodeWithX509CRLImpl(revokedCerts, thisUpdate, nextUpdate, extensions);
+        byte[] actual = encodeWithCRLBuilder(revokedCerts, thisUpdate, nextUpdate, extensions);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    /**
+     * Returns the tag of the first element in the TBSCertList.
+     */
+    static byte getFirstTag(byte[] tbsCertList) throws Exception {
+        DerValue value = new DerValue(tbsCertList);
+        return value.data.getDerValue().tag;
+    }
+
+    @Test
+    public void testEmptyCRL() throws Exception {
+
+        SortedHashtable revokedCerts = new SortedHashtable();
+
+        assertSameEncoding(revokedCerts, THIS_UPDATE, NEXT_UPDATE, null);
+        assertSameEncoding(revokedCerts, THIS_UPDATE, null, null);
+        assertSameEncoding(revokedCerts, THIS_UPDATE, NEXT_UPDATE, createExtensions());
+    }
+
+    @Test
+    public void testV1CRL() throws Exception {
+
+        SortedHashtable revokedCerts = createEntries(10, false);
+
+        assertSameEncoding(revokedCerts, THIS_UPDATE, NEXT_UPDATE, null);
+
+        // v1 CRL does not have a version
+        byte[] tbsCertList = encodeWithCRLBuilder(revokedCerts, THIS_UPDATE, NEXT_UPDATE, null);
+        assertEquals(DerValue.tag_Sequence, getFirstTag(tbsCertList));
+    }
+
+    @Test
+    public void testV2CRL() throws Exception {
+
+        // CRL extensions
+        SortedHashtable revokedCerts = createEntries(10, false);
+        assertSameEncoding(revokedCerts, THIS_UPDATE, NEXT_UPDATE, createExtensions());
+
+        byte[] tbsCertList = encodeWithCRLBuilder(revokedCerts, THIS_UPDATE, NEXT_UPDATE, createExtensions());
+        assertEquals(DerValue.tag_Integer, getFirstTag(tbsCertList));
+
+        // entry extensions only
+        revokedCerts = createEntries(10, true);
+        assertSameEncoding(revokedCerts, THIS_UPDATE, NEXT_UPDATE, null);
+
+        tbsCertList = encodeWithCRLBuilder(revokedCerts, THIS_UPDATE, NEXT_UPDATE, null);
+        assertEquals(DerValue.tag_Integer, getFirstTag(tbsCertList));
+
+        // CRL and entry extensions
+        assertSameEncoding(revokedCerts, THIS_UPDATE, NEXT_UPDATE, createExtensions());
+    }
+
+    @Test
+    public void testYear2050() throws Exception {
+
+        Date before2050 = new Date(CRLBuilder.YEAR_2050 - 1000);
+        Date year2050 = new Date(CRLBuilder.YEAR_2050);
+
+        SortedHashtable revokedCerts = createEntries(5, true);
+        revokedCerts.put(BigInteger.valueOf(100001), createEntry(100001, before2050, null));
+        revokedCerts.put(BigInteger.valueOf(100002), createEntry(100002, year2050, null));
+
+        assertSameEncoding(revokedCerts, before2050, year2050, createExtensions());
+        assertSameEncoding(revokedCerts, year2050, new Date(CRLBuilder.YEAR_2050 + 86400000L), null);
+
+        try (DerOutputStream out = new DerOutputStream()) {
+            CRLBuilder.putTime(out, before2050);
+            assertEquals(DerValue.tag_UtcTime, out.toByteArray()[0]);
+        }
+
+        try (DerOutputStream out = new DerOutputStream()) {
+            CRLBuilder.putTime(out, year2050);
+            assertEquals(DerValue.tag_GeneralizedTime, out.toByteArray()[0]);
+        }
+    }
+
+    @Test
+    public void testLongFormLengths() throws Exception {
+
+        // entries longer than 127 bytes
+        SortedHashtable revokedCerts = createEntries(200, true);
+        assertSameEncoding(revokedCerts, THIS_UPDATE, NEXT_UPDATE, createExtensions());
+
+        // entries longer than 65535 bytes
+        revokedCerts = createEntries(70000, true);
+        assertSameEncoding(revokedCerts, THIS_UPDATE, NEXT_UPDATE, createExtensions());
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+
+        SortedHashtable revokedCerts = createEntries(100, true);
+
+        CRLBuilder builder = new CRLBuilder("MasterCRL", ForkJoinPool.commonPool());
+        builder.update(revokedCerts);
+        builder.encodeTBSCertList(issuer, algorithm, THIS_UPDATE, NEXT_UPDATE, createExtensions(), null);
+
+        // remove, replace, and add entries
+        revokedCerts.remove(BigInteger.valueOf(1));
+        revokedCerts.put(BigInteger.valueOf(1 + 7919L), createEntry(1 + 7919L, NEXT_UPDATE, RevocationReason.CA_COMPROMISE));
+        revokedCerts.put(BigInteger.valueOf(5), createEntry(5, NEXT_UPDATE, null));
+
+        builder.update(revokedCerts);
+        assertEquals(revokedCerts.size(), builder.size());
+
+        byte[] expected = encodeWithX509CRLImpl(revokedCerts, THIS_UPDATE, NEXT_UPDATE, createExtensions());
+        byte[] actual = builder.encodeTBSCertList(issuer, algorithm, THIS_UPDATE, NEXT_UPDATE, createExtensions(), null);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testLengths() throws Exception {
+
+        assertEquals(1, CRLBuilder.getLengthSize(0x7f));
+        assertEquals(2, CRLBuilder.getLengthSize(0x80));
+        assertEquals(2, CRLBuilder.getLengthSize(0xff));
+        assertEquals(3, CRLBuilder.getLengthSize(0x100));
+        assertEquals(3, CRLBuilder.getLengthSize(0xffff));
+        assertEquals(4, CRLBuilder.getLengthSize(0x10000));
+    }
+}
@@ -0,0 +1,214 @@
+package com.netscape.cms.servlet.cert;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.authentication.AuthCredentials;
+import com.netscape.certsrv.base.BadRequestDataException;
+import com.netscape.certsrv.cert.CertBatchEnrollmentRequest;
+import com.netscape.certsrv.cert.CertEnrollmentRequest;
+import com.netscape.cmscore.base.ArgBlock;
+import com.netscape.cmscore.base.SimpleProperties;
+
+public class BatchEnrollmentProcessorTest {
+
+    BatchEnrollmentProcessor processor;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+
+        BatchEnrollmentConfig config = new BatchEnrollmentConfig("ca.batchEnrollment", new SimpleProperties());
+        config.putBoolean("enable", true);
+        config.putInteger("threads", 2);
+        config.putInteger("maxSize", 3);
+
+        processor = new BatchEnrollmentProcessor(null);
+        processor.init(config);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        processor.shutdown();
+    }
+
+    static CertBatchEnrollmentRequest createBatch(int size) {
+
+        CertEnrollmentRequest template = new CertEnrollmentRequest();
+        template.setProfileId("caUserCert");
+
+        List<String> csrs = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            csrs.add("csr" + i);
+        }
+
+        CertBatchEnrollmentRequest batch = new CertBatchEnrollmentRequest();
+        batch.setTemplate(template);
+        batch.setCertRequests(csrs);
+
+        return batch;
+    }
+
+    /**
+     * Creates a servlet request that only supports the methods
+     * used to copy the request data.
+     */
+    static HttpServletRequest createRequest(
+            Map<String, String[]> parameters,
+            Map<String, Object> attributes) {
+
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                HttpServletRequest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getParameterMap":
+                        return parameters;
+                    case "getAttributeNames":
+                        return Collections.enumeration(attributes.keySet());
+                    case "getAttribute":
+                        return attributes.get(args[0]);
+                    case "getRemoteHost":
+                        return "client.example.com";
+                    case "getRemoteAddr":
+                        return "192.0.2.1";
+                    case "getLocale":
+                        return Locale.US;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+
+        BatchEnrollmentConfig config = new BatchEnrollmentConfig("ca.batchEnrollment", new SimpleProperties());
+        assertFalse(config.getEnable());
+
+        BatchEnrollmentProcessor disabled = new BatchEnrollmentProcessor(null);
+        disabled.init(config);
+        assertFalse(disabled.isEnabled());
+
+        BadRequestDataException e = assertThrows(BadRequestDataException.class, () ->
+                disabled.processBatch(createBatch(1), null, null, null, result -> {}));
+        assertEquals("Batch enrollment not enabled", e.getMessage());
+    }
+
+    @Test
+    public void testInvalidBatch() throws Exception {
+
+        // too many CSRs
+        BadRequestDataException e = assertThrows(BadRequestDataException.class, () ->
+                processor.processBatch(createBatch(4), null, null, null, result -> {}));
+        assertTrue(e.getMessage().startsWith("Too many certificate requests"));
+
+        // no CSRs
+        e = assertThrows(BadRequestDataException.class, () ->
+                processor.processBatch(createBatch(0), null, null, null, result -> {}));
+        assertEquals("Missing certificate requests", e.getMessage());
+
+        // unsupported request type
+        CertBatchEnrollmentRequest batch = createBatch(1);
+        batch.setCertRequestType("spkac");
+        e = assertThrows(BadRequestDataException.class, () ->
+                processor.processBatch(batch, null, null, null, result -> {}));
+        assertEquals("Unsupported request type: spkac", e.getMessage());
+
+        // renewal
+        CertBatchEnrollmentRequest renewal = createBatch(1);
+        renewal.getTemplate().setRenewal(true);
+        e = assertThrows(BadRequestDataException.class, () ->
+                processor.processBatch(renewal, null, null, null, result -> {}));
+        assertEquals("Batch renewal not supported", e.getMessage());
+
+        // no CSR has been processed
+        assertEquals(0, processor.getBatches());
+        assertEquals(0, processor.getCertRequests());
+    }
+
+    @Test
+    public void testValidate() throws Exception {
+
+        assertThrows(BadRequestDataException.class, () -> processor.validate(null, "pkcs10"));
+        assertThrows(BadRequestDataException.class, () -> processor.validate("  ", "pkcs10"));
+        assertThrows(BadRequestDataException.class, () -> processor.validate("garbage", "pkcs10"));
+        assertThrows(BadRequestDataException.class, () -> processor.validate("", "crmf"));
+    }
+
+    @Test
+    public void testCopyCredentials() throws Exception {
+
+        assertNull(processor.copyCredentials(null));
+
+        ArgBlock argBlock = new ArgBlock();
+
+        AuthCredentials credentials = new AuthCredentials();
+        credentials.setArgBlock(argBlock);
+        credentials.set("uid", "testuser");
+        credentials.set("pwd", "Secret.123");
+
+        AuthCredentials copy = processor.copyCredentials(credentials);
+        assertNotSame(credentials, copy);
+        assertSame(argBlock, copy.getArgBlock());
+        assertEquals("testuser", copy.get("uid"));
+        assertEquals("Secret.123", copy.get("pwd"));
+
+        // changes in the copy do not affect the original
+        copy.set("uid", "otheruser");
+        copy.delete("pwd");
+        assertEquals("testuser", credentials.get("uid"));
+        assertEquals("Secret.123", credentials.get("pwd"));
+    }
+
+    @Test
+    public void testRequestData() throws Exception {
+
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("profileId", new String[] { "caUserCert" });
+
+        Map<String, Object> attributes = new HashMap<>();
+        Object certChain = new Object();
+        attributes.put("javax.servlet.request.X509Certificate", certChain);
+
+        BatchEnrollmentProcessor.RequestData data = new BatchEnrollmentProcessor.RequestData(
+                createRequest(parameters, attributes));
+
+        // changes in the original request after the copy are not visible
+        parameters.put("renewal", new String[] { "true" });
+        attributes.remove("javax.servlet.request.X509Certificate");
+
+        assertEquals("caUserCert", data.getParameter("profileId"));
+        assertArrayEquals(new String[] { "caUserCert" }, data.getParameterValues("profileId"));
+        assertNull(data.getParameter("renewal"));
+        assertEquals(1, data.getParameterMap().size());
+
+        assertSame(certChain, data.getAttribute("javax.servlet.request.X509Certificate"));
+        assertEquals("client.example.com", data.getRemoteHost());
+        assertEquals("192.0.2.1", data.getRemoteAddr());
+        assertEquals(Locale.US, data.getLocale());
+
+        // the copy is shared by the workers so it cannot be modified
+        assertThrows(UnsupportedOperationException.class, () -> data.setAttribute("name", "value"));
+        assertThrows(UnsupportedOperationException.class, () -> data.removeAttribute("name"));
+    }
+}
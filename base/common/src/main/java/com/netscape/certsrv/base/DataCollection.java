@@ -22,6 +22,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 /**
  * @author Endi S. Dewata
  */
@@ -29,6 +32,7 @@ public class DataCollection<E> {
 
     protected Integer total;
     protected Collection<E> entries = new ArrayList<>();
+    protected String next;
 
     public Integer getTotal() {
         return total;
@@ -38,6 +42,19 @@ public class DataCollection<E> {
         this.total = total;
     }
 
+    /**
+     * Returns the token to retrieve the next page of a search cursor,
+     * or null if there are no more pages.
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
     public Collection<E> getEntries() {
         return entries;
     }
@@ -58,7 +75,7 @@ public class DataCollection<E> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(entries, total);
+        return Objects.hash(entries, next, total);
     }
 
     @Override
@@ -70,6 +87,7 @@ public class DataCollection<E> {
         if (getClass() != obj.getClass())
             return false;
         DataCollection other = (DataCollection) obj;
-        return Objects.equals(entries, other.entries) && Objects.equals(total, other.total);
+        return Objects.equals(entries, other.entries) && Objects.equals(next, other.next)
+                && Objects.equals(total, other.total);
     }
 }
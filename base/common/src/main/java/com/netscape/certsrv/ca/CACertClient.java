@@ -33,6 +33,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.netscape.certsrv.authentication.EAuthException;
+import com.netscape.certsrv.cert.CertBatchEnrollmentRequest;
+import com.netscape.certsrv.cert.CertBatchEnrollmentResults;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertDataInfos;
 import com.netscape.certsrv.cert.CertEnrollmentRequest;
@@ -119,6 +121,11 @@ public class CACertClient extends Client {
         return certRequestClient.enrollRequest(data, aid, adn);
     }
 
+    public CertBatchEnrollmentResults enrollBatch(
+            CertBatchEnrollmentRequest data, AuthorityID aid, X500Name adn) throws Exception {
+        return certRequestClient.enrollBatch(data, aid, adn);
+    }
+
     public CertRequestInfo getRequest(RequestId id) throws Exception {
         return certRequestClient.getRequest(id);
     }
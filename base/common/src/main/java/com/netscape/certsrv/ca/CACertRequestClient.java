@@ -25,6 +25,8 @@ import org.mozilla.jss.netscape.security.x509.X500Name;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netscape.certsrv.cert.CertBatchEnrollmentRequest;
+import com.netscape.certsrv.cert.CertBatchEnrollmentResults;
 import com.netscape.certsrv.cert.CertEnrollmentRequest;
 import com.netscape.certsrv.cert.CertRequestInfo;
 import com.netscape.certsrv.cert.CertRequestInfos;
@@ -57,6 +59,15 @@ public class CACertRequestClient extends Client {
         return post(null, params, entity, CertRequestInfos.class);
     }
 
+    public CertBatchEnrollmentResults enrollBatch(
+            CertBatchEnrollmentRequest data, AuthorityID aid, X500Name adn) throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        if (aid != null) params.put("issuer-id", aid.toString());
+        if (adn != null) params.put("issuer-dn", adn.toLdapDNString());
+        HttpEntity entity = client.entity(data);
+        return post("batch", params, entity, CertBatchEnrollmentResults.class);
+    }
+
     public ProfileDataInfos listEnrollmentTemplates(Integer start, Integer size) throws Exception {
         Map<String, Object> params = new HashMap<>();
         if (start != null) params.put("start",start);
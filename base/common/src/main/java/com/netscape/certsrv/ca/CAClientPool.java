@@ -0,0 +1,379 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.ca;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.HttpStatus;
+
+import com.netscape.certsrv.account.AccountClient;
+import com.netscape.certsrv.base.PKIException;
+import com.netscape.certsrv.client.ClientConfig;
+import com.netscape.certsrv.client.PKIClient;
+import com.netscape.certsrv.util.OperationStats;
+
+/**
+ * This class maintains a pool of CA client sessions that can be shared
+ * by multiple threads.
+ *
+ * Each session has its own PKIClient, so the TLS connection of the session
+ * is kept alive and reused by subsequent operations, and the session is
+ * logged in to the CA only once. The session is logged in again when it
+ * is older than the session timeout or when the CA rejects the credentials
+ * of the session. A session is closed if an operation fails without
+ * a response from the CA since the connection might be broken.
+ *
+ * The number of concurrent operations is limited by the max number of
+ * sessions.
+ */
+public class CAClientPool implements AutoCloseable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CAClientPool.class);
+
+    public static final int DEFAULT_MAX_SESSIONS = 10;
+    public static final int DEFAULT_SESSION_TIMEOUT = 900; // seconds
+    public static final int DEFAULT_ACQUIRE_TIMEOUT = 60; // seconds
+
+    private ClientConfig clientConfig;
+
+    private int maxSessions = DEFAULT_MAX_SESSIONS;
+    private int sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+    private int acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT;
+
+    private Semaphore permits;
+    private BlockingDeque<CASession> sessions = new LinkedBlockingDeque<>();
+    private volatile boolean closed;
+
+    // statistics
+    private LongAdder createdSessions = new LongAdder();
+    private LongAdder closedSessions = new LongAdder();
+    private LongAdder logins = new LongAdder();
+    private Map<String, OperationStats> operationStats = new ConcurrentHashMap<>();
+
+    public CAClientPool(ClientConfig clientConfig) {
+        this.clientConfig = clientConfig;
+    }
+
+    public ClientConfig getClientConfig() {
+        return clientConfig;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Returns the max age of a login in seconds.
+     */
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(int sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    /**
+     * Returns the max time to wait for a session in seconds.
+     */
+    public int getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(int acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public void init() {
+
+        logger.info("CAClientPool: Initializing CA client pool");
+        logger.info("CAClientPool: - max sessions: " + maxSessions);
+        logger.info("CAClientPool: - session timeout: " + sessionTimeout);
+        logger.info("CAClientPool: - acquire timeout: " + acquireTimeout);
+
+        permits = new Semaphore(maxSessions, true);
+    }
+
+    /**
+     * Executes an operation with a pooled session.
+     *
+     * If login is true the session is logged in before the operation. If
+     * the operation fails because the login has expired on the CA, the
+     * session is logged in again and the operation is executed once more,
+     * unless the operation has marked the session as not retryable (e.g.
+     * after submitting a request). Such operations should use
+     * CASession.execute() for the subsequent calls.
+     *
+     * @param name operation name for statistics
+     * @param login true if the operation requires a login
+     * @param operation the operation
+     */
+    public <T> T execute(String name, boolean login, CAOperation<T> operation) throws Exception {
+
+        if (closed) {
+            throw new PKIException("CA client pool is closed");
+        }
+
+        if (!permits.tryAcquire(acquireTimeout, TimeUnit.SECONDS)) {
+            throw new PKIException(HttpStatus.SC_SERVICE_UNAVAILABLE, "No CA session available");
+        }
+
+        long start = System.currentTimeMillis();
+        boolean success = false;
+        boolean reusable = false;
+        CASession session = null;
+
+        try {
+            session = getSession();
+            session.setRetryable(true);
+
+            if (login) {
+                session.login(false);
+            }
+
+            T result;
+            try {
+                result = operation.execute(session);
+
+            } catch (PKIException e) {
+
+                if (!login || e.getCode() != HttpStatus.SC_UNAUTHORIZED || !session.isRetryable()) {
+                    throw e;
+                }
+
+                logger.info("CAClientPool: Session expired, logging in again");
+                session.login(true);
+                result = operation.execute(session);
+            }
+
+            success = true;
+            reusable = true;
+            return result;
+
+        } catch (PKIException e) {
+            // the CA has responded so the session is still usable
+            reusable = true;
+            throw e;
+
+        } finally {
+            long time = System.currentTimeMillis() - start;
+            logger.debug("CAClientPool: " + name + " took " + time + " ms");
+            getOperationStats(name).add(time, success);
+
+            if (session != null) {
+                if (reusable && !closed) {
+                    sessions.offerFirst(session);
+                } else {
+                    // the connection might be in an unknown state
+                    closeSession(session, false);
+                }
+            }
+
+            permits.release();
+        }
+    }
+
+    CASession getSession() throws Exception {
+
+        CASession session = sessions.pollFirst();
+        if (session != null) {
+            return session;
+        }
+
+        logger.info("CAClientPool: Creating CA session");
+        session = new CASession(new PKIClient(clientConfig));
+        createdSessions.increment();
+
+        return session;
+    }
+
+    void closeSession(CASession session, boolean logout) {
+        try {
+            session.close(logout);
+        } catch (Exception e) {
+            logger.warn("CAClientPool: Unable to close CA session: " + e.getMessage(), e);
+        }
+        closedSessions.increment();
+    }
+
+    OperationStats getOperationStats(String name) {
+        return operationStats.computeIfAbsent(name, n -> new OperationStats());
+    }
+
+    public long getCreatedSessions() {
+        return createdSessions.sum();
+    }
+
+    public long getClosedSessions() {
+        return closedSessions.sum();
+    }
+
+    public long getLogins() {
+        return logins.sum();
+    }
+
+    public int getIdleSessions() {
+        return sessions.size();
+    }
+
+    public int getActiveSessions() {
+        return permits == null ? 0 : maxSessions - permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of calls, errors, and the average and
+     * maximum latency of each operation.
+     */
+    public String getStatistics() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("sessions: ").append(getCreatedSessions());
+        sb.append(", closed: ").append(getClosedSessions());
+        sb.append(", logins: ").append(getLogins());
+
+        for (Map.Entry<String, OperationStats> entry : new TreeMap<>(operationStats).entrySet()) {
+            OperationStats stats = entry.getValue();
+            sb.append(", ").append(entry.getKey()).append(": ");
+            sb.append(stats.getCalls()).append(" calls/");
+            sb.append(stats.getErrors()).append(" errors/");
+            sb.append(stats.getAverageTime()).append(" ms avg/");
+            sb.append(stats.getMaxTime()).append(" ms max");
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+
+        logger.info("CAClientPool: " + getStatistics());
+
+        CASession session;
+        while ((session = sessions.pollFirst()) != null) {
+            closeSession(session, true);
+        }
+    }
+
+    /**
+     * An operation executed with a CA session.
+     */
+    @FunctionalInterface
+    public interface CAOperation<T> {
+        T execute(CASession session) throws Exception;
+    }
+
+    /**
+     * A CA client session owned by one thread at a time.
+     */
+    public class CASession implements AutoCloseable {
+
+        private PKIClient pkiClient;
+        private CAClient caClient;
+        private AccountClient accountClient;
+        private CACertClient certClient;
+
+        private long loginTime;
+        private boolean retryable = true;
+
+        CASession(PKIClient pkiClient) throws Exception {
+            this.pkiClient = pkiClient;
+            caClient = new CAClient(pkiClient);
+            accountClient = new AccountClient(caClient);
+            certClient = new CACertClient(caClient);
+        }
+
+        public PKIClient getPKIClient() {
+            return pkiClient;
+        }
+
+        public CAClient getCAClient() {
+            return caClient;
+        }
+
+        public CACertClient getCertClient() {
+            return certClient;
+        }
+
+        /**
+         * Logs in to the CA if the session is not logged in,
+         * if the login has expired, or if forced.
+         */
+        public void login(boolean force) throws Exception {
+
+            long now = System.currentTimeMillis();
+
+            if (!force && loginTime > 0 && now - loginTime < TimeUnit.SECONDS.toMillis(sessionTimeout)) {
+                return;
+            }
+
+            accountClient.login();
+            loginTime = now;
+            logins.increment();
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+
+        /**
+         * Sets whether the current operation can be executed again from
+         * the beginning. An operation should set it to false once it has
+         * made a change on the CA, e.g. submitted an enrollment request.
+         */
+        public void setRetryable(boolean retryable) {
+            this.retryable = retryable;
+        }
+
+        /**
+         * Executes a call that can be repeated safely. If the call fails
+         * because the login has expired on the CA, the session is logged
+         * in again and the call is executed once more.
+         */
+        public <T> T execute(CAOperation<T> call) throws Exception {
+            try {
+                return call.execute(this);
+
+            } catch (PKIException e) {
+
+                if (loginTime == 0 || e.getCode() != HttpStatus.SC_UNAUTHORIZED) {
+                    throw e;
+                }
+
+                logger.info("CAClientPool: Session expired, logging in again");
+                login(true);
+                return call.execute(this);
+            }
+        }
+
+        public void close(boolean logout) throws Exception {
+            try {
+                if (logout && loginTime > 0) {
+                    accountClient.logout();
+                }
+            } finally {
+                pkiClient.close();
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            close(true);
+        }
+    }
+}
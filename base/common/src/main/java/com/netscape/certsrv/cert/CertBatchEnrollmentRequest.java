@@ -0,0 +1,97 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.cert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.netscape.certsrv.util.JSONSerializer;
+
+/**
+ * This class contains multiple CSRs to be enrolled with the same
+ * profile. Each CSR is submitted as a separate enrollment request
+ * created from the template.
+ */
+@JsonInclude(Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+public class CertBatchEnrollmentRequest implements JSONSerializer {
+
+    private CertEnrollmentRequest template;
+    private String certRequestType;
+    private List<String> certRequests = new ArrayList<>();
+
+    /**
+     * Returns the enrollment request used for all CSRs. The cert_request
+     * and cert_request_type inputs are set for each CSR.
+     */
+    public CertEnrollmentRequest getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(CertEnrollmentRequest template) {
+        this.template = template;
+    }
+
+    /**
+     * Returns the type of the CSRs: pkcs10 (default) or crmf.
+     */
+    public String getCertRequestType() {
+        return certRequestType;
+    }
+
+    public void setCertRequestType(String certRequestType) {
+        this.certRequestType = certRequestType;
+    }
+
+    /**
+     * Returns the CSRs in PEM format.
+     */
+    public List<String> getCertRequests() {
+        return certRequests;
+    }
+
+    public void setCertRequests(List<String> certRequests) {
+        this.certRequests.clear();
+        if (certRequests == null) return;
+        this.certRequests.addAll(certRequests);
+    }
+
+    public void addCertRequest(String certRequest) {
+        certRequests.add(certRequest);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(certRequestType, certRequests, template);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        CertBatchEnrollmentRequest other = (CertBatchEnrollmentRequest) obj;
+        return Objects.equals(certRequestType, other.certRequestType)
+                && Objects.equals(certRequests, other.certRequests)
+                && Objects.equals(template, other.template);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return toJSON();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.cert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.netscape.certsrv.util.JSONSerializer;
+
+/**
+ * This class contains the result of the enrollment of one CSR
+ * in a batch enrollment.
+ */
+@JsonInclude(Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+public class CertBatchEnrollmentResult implements JSONSerializer {
+
+    private Integer index;
+    private List<CertRequestInfo> requests = new ArrayList<>();
+    private String error;
+
+    /**
+     * Returns the position of the CSR in the batch enrollment request.
+     */
+    public Integer getIndex() {
+        return index;
+    }
+
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+
+    public List<CertRequestInfo> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<CertRequestInfo> requests) {
+        this.requests.clear();
+        if (requests == null) return;
+        this.requests.addAll(requests);
+    }
+
+    public void addRequest(CertRequestInfo request) {
+        requests.add(request);
+    }
+
+    /**
+     * Returns the error message if the CSR could not be submitted.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(error, index, requests);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        CertBatchEnrollmentResult other = (CertBatchEnrollmentResult) obj;
+        return Objects.equals(error, other.error)
+                && Objects.equals(index, other.index)
+                && Objects.equals(requests, other.requests);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return toJSON();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
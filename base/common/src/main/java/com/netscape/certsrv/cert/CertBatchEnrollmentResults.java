@@ -0,0 +1,50 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.cert;
+
+import java.util.Collection;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.netscape.certsrv.base.DataCollection;
+import com.netscape.certsrv.util.JSONSerializer;
+
+/**
+ * This class contains the results of a batch enrollment in the order
+ * in which the CSRs were processed.
+ */
+@JsonInclude(Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+public class CertBatchEnrollmentResults extends DataCollection<CertBatchEnrollmentResult> implements JSONSerializer {
+
+    protected Integer errors;
+
+    @Override
+    public Collection<CertBatchEnrollmentResult> getEntries() {
+        return super.getEntries();
+    }
+
+    /**
+     * Returns the number of CSRs that could not be submitted.
+     */
+    public Integer getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Integer errors) {
+        this.errors = errors;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return toJSON();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
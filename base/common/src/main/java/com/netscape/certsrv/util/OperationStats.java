@@ -0,0 +1,74 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.certsrv.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class keeps the number of calls, the number of errors,
+ * and the total and maximum time of an operation. The time unit
+ * is chosen by the caller. The counters can be updated by multiple
+ * threads without locking.
+ */
+public class OperationStats {
+
+    private LongAdder calls = new LongAdder();
+    private LongAdder errors = new LongAdder();
+    private LongAdder totalTime = new LongAdder();
+    private LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a successful call.
+     */
+    public void add(long time) {
+        add(time, true);
+    }
+
+    /**
+     * Records a call and whether it succeeded.
+     */
+    public void add(long time, boolean success) {
+        calls.increment();
+        if (!success) errors.increment();
+        totalTime.add(time);
+        maxTime.accumulate(time);
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getTotalTime() {
+        return totalTime.sum();
+    }
+
+    public long getAverageTime() {
+        long count = getCalls();
+        return count == 0 ? 0 : getTotalTime() / count;
+    }
+
+    public long getMaxTime() {
+        return maxTime.get();
+    }
+
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", getCalls());
+        stats.put("errors", getErrors());
+        stats.put("averageTime", getAverageTime());
+        stats.put("maxTime", getMaxTime());
+
+        return stats;
+    }
+}
@@ -24,6 +24,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
+import java.net.SocketException;
 
 import org.mozilla.jss.ssl.SSLCertificateApprovalCallback;
 
@@ -46,6 +47,7 @@ public class HttpClient {
     protected BufferedReader mBufferedReader = null;
     protected SSLCertificateApprovalCallback mCertApprovalCallback = null;
     protected boolean mConnected = false;
+    protected boolean mKeepAlive = false;
     // for auditing purposes
     protected String mHost;
     protected String mPort;
@@ -101,6 +103,44 @@ public class HttpClient {
         return mConnected;
     }
 
+    public boolean isKeepAlive() {
+        return mKeepAlive;
+    }
+
+    /**
+     * Keeps the connection open after a response if the server allows it
+     * and the length of the response is known.
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        mKeepAlive = keepAlive;
+    }
+
+    /**
+     * Waits until the first character of the response is available.
+     *
+     * @throws HttpNoResponseException if the server closed or reset
+     * the connection without sending a response
+     */
+    protected void waitForResponse() throws IOException {
+
+        mBufferedReader.mark(1);
+        int c;
+
+        try {
+            c = mBufferedReader.read();
+        } catch (SocketException e) {
+            // a read timeout is not a SocketException, the server
+            // might still be processing the request
+            throw new HttpNoResponseException("Connection reset before response: " + e.getMessage(), e);
+        }
+
+        if (c < 0) {
+            throw new HttpNoResponseException("Connection closed before response");
+        }
+
+        mBufferedReader.reset();
+    }
+
     /**
      * Sends a request to http server.
      * Returns a http response.
@@ -111,18 +151,50 @@ public class HttpClient {
 
         if (mOutputStream == null)
             throw new IOException("Output stream not initialized");
-        request.write(mOutputStreamWriter);
         try {
+            request.write(mOutputStreamWriter);
+        } catch (IOException e) {
+            disconnect();
+            throw new HttpNoResponseException("Unable to send request: " + e.getMessage(), e);
+        }
+
+        try {
+            waitForResponse();
             resp.parse(mBufferedReader);
         } catch (IOException e) {
             // XXX should we disconnect in all cases ?
             disconnect();
             throw e;
         }
-        disconnect();
+        if (!mKeepAlive || !isPersistent(request, resp)) {
+            disconnect();
+        }
         return resp;
     }
 
+    /**
+     * Checks whether the connection can be reused after a response.
+     */
+    protected boolean isPersistent(HttpRequest request, HttpResponse resp) {
+
+        if (!Http.Vers1_1.equals(resp.getHttpVers())) {
+            return false;
+        }
+
+        String connection = resp.getHeader("connection");
+        if (connection != null && connection.equalsIgnoreCase("close")) {
+            return false;
+        }
+
+        connection = request.getHeader("connection");
+        if (connection != null && connection.equalsIgnoreCase("close")) {
+            return false;
+        }
+
+        // without the length the response was read until the end of the stream
+        return resp.getHeader("content-length") != null || resp.isChunked();
+    }
+
     public void disconnect()
             throws IOException {
         mSocket.close();
@@ -132,14 +132,19 @@ public class HttpMessage {
         // won't work if content length is not set.
         String lenstr = mHeaders.get("content-length");
 
-        if (lenstr != null) {
+        if (isChunked()) {
+            mContent = readChunks(reader);
+
+        } else if (lenstr != null) {
             int len = Integer.parseInt(lenstr);
             char[] cbuf = new char[len];
-            int done = reader.read(cbuf, 0, cbuf.length);
-            int total = done;
+            int total = 0;
 
-            while (done >= 0 && total < len) {
-                done = reader.read(cbuf, total, len - total);
+            while (total < len) {
+                int done = reader.read(cbuf, total, len - total);
+                if (done < 0) {
+                    throw new HttpEofException("End of stream reached before end of content");
+                }
                 total += done;
             }
 
@@ -155,6 +160,72 @@ public class HttpMessage {
         }
     }
 
+    /**
+     * Checks whether the content uses chunked transfer encoding.
+     */
+    public boolean isChunked() {
+        if (mHeaders == null) {
+            return false;
+        }
+        String encoding = mHeaders.get("transfer-encoding");
+        return encoding != null && encoding.toLowerCase().contains("chunked");
+    }
+
+    /**
+     * read chunked content.
+     * chunk extensions and trailers are ignored.
+     */
+    protected String readChunks(BufferedReader reader)
+            throws IOException {
+
+        StringBuilder sb = new StringBuilder();
+
+        while (true) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new HttpEofException("End of stream reached");
+            }
+
+            int semicolon = line.indexOf(';');
+            if (semicolon >= 0) {
+                line = line.substring(0, semicolon);
+            }
+
+            int len;
+            try {
+                len = Integer.parseInt(line.trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new HttpProtocolException("Bad chunk size " + line);
+            }
+
+            if (len == 0) {
+                break;
+            }
+
+            char[] cbuf = new char[len];
+            int total = 0;
+            while (total < len) {
+                int done = reader.read(cbuf, total, len - total);
+                if (done < 0) {
+                    throw new HttpEofException("End of stream reached");
+                }
+                total += done;
+            }
+            sb.append(cbuf);
+
+            // CRLF after chunk data
+            reader.readLine();
+        }
+
+        // skip trailers
+        String line = reader.readLine();
+        while (line != null && !line.equals("")) {
+            line = reader.readLine();
+        }
+
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
     public void reset() {
         mLine = null;
         mHeaders = null;
@@ -0,0 +1,28 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmsutil.http;
+
+import java.io.IOException;
+
+/**
+ * Indicates that the connection failed before the server sent any part
+ * of the response, i.e. the request could not be written or the server
+ * closed or reset the connection right away. This typically happens on
+ * a kept-alive connection that the server has already closed, so the
+ * request can be sent again on a new connection.
+ */
+public class HttpNoResponseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public HttpNoResponseException(String msg) {
+        super(msg);
+    }
+
+    public HttpNoResponseException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
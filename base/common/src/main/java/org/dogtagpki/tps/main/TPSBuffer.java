@@ -20,28 +20,50 @@
 
 package org.dogtagpki.tps.main;
 
-import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 
+/**
+ * A growable byte buffer used to build and parse APDUs.
+ *
+ * The content is stored in a backing array that may be larger than the
+ * buffer. Appending reserves extra capacity at the end and prepending
+ * reserves headroom at the beginning so that building a message one
+ * field at a time does not copy the whole buffer for each field.
+ *
+ * The array returned by toBytesArray() is trimmed to the size of the
+ * buffer and remains the backing array until the buffer grows.
+ */
 public class TPSBuffer {
 
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final int MIN_CAPACITY = 16;
+
     private byte[] buf;
 
-    // int res;
+    // offset of the first byte of the buffer in the backing array
+    private int offset;
+
+    // number of bytes in the buffer
+    private int length;
+
+    // true if the backing array is shared with another buffer
+    private boolean shared;
 
     /**
      * Creates an empty Buffer.
      */
     public TPSBuffer() {
-        buf = new byte[0];
+        buf = EMPTY;
     }
 
     public TPSBuffer(String str) {
 
         if (str != null) {
             buf = Util.str2ByteArray(str);
+            length = buf.length;
         } else {
-            buf = new byte[0];
+            buf = EMPTY;
         }
     }
 
@@ -51,6 +73,7 @@ public class TPSBuffer {
     public TPSBuffer(int len, byte b) {
         buf = new byte[len];
         Arrays.fill(buf, b);
+        length = len;
     }
 
     /**
@@ -60,6 +83,7 @@ public class TPSBuffer {
     public TPSBuffer(byte b) {
         buf = new byte[1];
         buf[0] = b;
+        length = 1;
     }
 
     /**
@@ -67,9 +91,7 @@ public class TPSBuffer {
      */
     public TPSBuffer(int len) {
         buf = new byte[len];
-        Arrays.fill(buf, (byte) 0);
-        len = 0;
-
+        length = len;
     }
 
     /**
@@ -79,43 +101,45 @@ public class TPSBuffer {
     public TPSBuffer(byte[] inBuf) {
 
         if (inBuf == null) {
-            buf = new byte[0];
+            buf = EMPTY;
+            return;
         }
 
-        buf = new byte[inBuf.length];
-        System.arraycopy(inBuf, 0, buf, 0, inBuf.length);
+        buf = inBuf.clone();
+        length = buf.length;
     }
 
     public TPSBuffer(TPSBuffer cpy) {
 
         if (cpy == null) {
-            buf = new byte[0];
+            buf = EMPTY;
             return;
         }
 
-        byte[] srcBytes = cpy.toBytesArray();
-
-        int srcLen = srcBytes.length;
-
-        buf = new byte[srcLen];
-
-        System.arraycopy(srcBytes, 0, buf, 0, srcLen);
+        buf = Arrays.copyOfRange(cpy.buf, cpy.offset, cpy.offset + cpy.length);
+        length = buf.length;
+    }
 
+    private TPSBuffer(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.offset = offset;
+        this.length = length;
+        this.shared = true;
     }
 
     public byte at(int i) {
-        if (i < 0 || i >= size()) {
+        if (i < 0 || i >= length) {
             return 0x0;
         }
 
-        return buf[i];
+        return buf[offset + i];
     }
 
     public void setAt(int i, byte value) {
-        if (i < 0 || i >= size())
+        if (i < 0 || i >= length)
             return;
 
-        buf[i] = value;
+        buf[offset + i] = value;
     }
 
     /**
@@ -124,42 +148,44 @@ public class TPSBuffer {
      */
     public boolean equals(TPSBuffer cmp) {
 
-        byte[] cmpBytes = cmp.toBytesArray();
-
-        if (cmpBytes == null)
+        if (cmp == null)
             return false;
 
-        return Arrays.equals(buf, cmpBytes);
-
+        return Arrays.equals(
+                buf, offset, offset + length,
+                cmp.buf, cmp.offset, cmp.offset + cmp.length);
     }
 
     public void prepend(TPSBuffer prepend) {
         if(prepend == null)
             return;
 
-        byte [] preBytes = prepend.toBytesArray();
-        prependBytes(preBytes);
+        prepend(prepend.buf, prepend.offset, prepend.length);
     }
+
     public void add(TPSBuffer addend) {
 
         if (addend == null)
             return;
 
-        byte[] addBytes = addend.toBytesArray();
-        addBytes(addBytes);
+        add(addend.buf, addend.offset, addend.length);
     }
 
     public void set(TPSBuffer newContents) {
         if (newContents == null)
             return;
 
-        buf = newContents.toBytesArray();
+        set(newContents.toBytesArray());
     }
 
     public void set(byte [] newContents) {
         if (newContents == null)
             return;
+
         buf = newContents;
+        offset = 0;
+        length = newContents.length;
+        shared = false;
     }
 
     /**
@@ -167,37 +193,86 @@ public class TPSBuffer {
      */
 
     public void add(byte b) {
-        byte[] addBytes = new byte[1];
-        addBytes[0] = b;
-
-        addBytes(addBytes);
+        ensureCapacity(length + 1);
+        buf[offset + length++] = b;
     }
 
     public void prependBytes(byte [] preBytes) {
         if (preBytes == null)
             return;
 
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        bytes.write(preBytes, 0, preBytes.length);
-        bytes.write(buf, 0, buf.length);
-
-        buf = bytes.toByteArray();
+        prepend(preBytes, 0, preBytes.length);
     }
 
     public void addBytes(byte[] addBytes) {
         if (addBytes == null)
             return;
 
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        add(addBytes, 0, addBytes.length);
+    }
+
+    private void add(byte[] src, int srcOffset, int len) {
+        ensureCapacity(length + len);
+        System.arraycopy(src, srcOffset, buf, offset + length, len);
+        length += len;
+    }
+
+    private void prepend(byte[] src, int srcOffset, int len) {
+        ensureHeadroom(len);
+        offset -= len;
+        length += len;
+        System.arraycopy(src, srcOffset, buf, offset, len);
+    }
+
+    /**
+     * Makes sure the buffer can grow to 'minCapacity' bytes without
+     * reallocating the backing array. The capacity grows by at least
+     * half of the current size to keep appending linear.
+     */
+    public void ensureCapacity(int minCapacity) {
+
+        if (!shared && offset + minCapacity <= buf.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(minCapacity, Math.max(MIN_CAPACITY, length + (length >> 1)));
+        byte[] tmp = new byte[newCapacity];
+        System.arraycopy(buf, offset, tmp, 0, length);
 
-        bytes.write(buf, 0, buf.length);
-        bytes.write(addBytes, 0, addBytes.length);
+        buf = tmp;
+        offset = 0;
+        shared = false;
+    }
+
+    private void ensureHeadroom(int len) {
 
-        buf = bytes.toByteArray();
+        if (!shared && offset >= len) {
+            return;
+        }
 
+        // reserve room for more headers in front
+        int headroom = Math.max(len, Math.max(MIN_CAPACITY, length >> 1));
+        int tailroom = shared ? 0 : buf.length - offset - length;
+        byte[] tmp = new byte[headroom + length + tailroom];
+        System.arraycopy(buf, offset, tmp, headroom, length);
+
+        buf = tmp;
+        offset = headroom;
+        shared = false;
     }
 
+    /**
+     * Returns the content of the buffer. The returned array is the
+     * backing array of the buffer until the buffer grows.
+     */
     public byte[] toBytesArray() {
+
+        if (shared || offset != 0 || buf.length != length) {
+            buf = Arrays.copyOfRange(buf, offset, offset + length);
+            offset = 0;
+            shared = false;
+        }
+
         return buf;
     }
 
@@ -206,15 +281,27 @@ public class TPSBuffer {
      * higher--see capacity().
      */
     public int size() {
-        return buf.length;
+        return length;
     }
 
     /**
-     * Sets all bytes in the buffer to 0.
+     * The number of bytes the buffer can hold without
+     * reallocating the backing array.
      */
-    public void zeroize() {
-        Arrays.fill(buf, (byte) 0);
+    public int capacity() {
+        return shared ? length : buf.length - offset;
+    }
 
+    /**
+     * Sets all bytes in the buffer to 0. This includes the unused
+     * capacity of the backing array unless it is shared.
+     */
+    public void zeroize() {
+        if (shared) {
+            Arrays.fill(buf, offset, offset + length, (byte) 0);
+        } else {
+            Arrays.fill(buf, (byte) 0);
+        }
     }
 
     /**
@@ -224,12 +311,13 @@ public class TPSBuffer {
      * this is a no-op.
      */
     public void resize(int newLen) {
-        byte[] tmp = new byte[buf.length];
 
-        System.arraycopy(buf, 0, tmp, 0, buf.length);
+        if (newLen > length) {
+            ensureCapacity(newLen);
+            Arrays.fill(buf, offset + length, offset + newLen, (byte) 0);
+        }
 
-        buf = new byte[newLen];
-        System.arraycopy(tmp, 0, buf, 0, tmp.length);
+        length = newLen;
     }
 
     /**
@@ -239,15 +327,14 @@ public class TPSBuffer {
      */
     public TPSBuffer substr(int start, int theLen) {
 
-        if (start < 0 || theLen <= 0 || ((start + theLen) > buf.length)) {
+        if (start < 0 || theLen <= 0 || ((start + theLen) > length)) {
             return null;
         }
 
-        byte[] tmp = new byte[theLen];
+        byte[] tmp = Arrays.copyOfRange(buf, offset + start, offset + start + theLen);
 
-        System.arraycopy(buf, start, tmp, 0, theLen);
-
-        TPSBuffer ret = new TPSBuffer(tmp);
+        TPSBuffer ret = new TPSBuffer();
+        ret.set(tmp);
 
         return ret;
     }
@@ -257,7 +344,23 @@ public class TPSBuffer {
      * @param start
      */
     public TPSBuffer substr(int start) {
-        return substr(start,buf.length -2);
+        return substr(start, length -2);
+    }
+
+    /**
+     * Returns a Buffer that shares the bytes of this Buffer starting
+     * from offset 'start' and continuing for 'len' bytes without copying
+     * them. Changes to the bytes with setAt() are visible in both
+     * buffers. The slice copies its bytes before it grows so that it
+     * never modifies the rest of this Buffer.
+     */
+    public TPSBuffer slice(int start, int theLen) {
+
+        if (start < 0 || theLen < 0 || ((start + theLen) > length)) {
+            return null;
+        }
+
+        return new TPSBuffer(buf, offset + start, theLen);
     }
 
     /**
@@ -266,8 +369,8 @@ public class TPSBuffer {
     public void dump() {
         String newLine = System.getProperty("line.separator");
         System.out.println(newLine + "Buffer Contents: " + newLine);
-        for (int i = 0; i < buf.length; i++) {
-            int val = buf[i] & 0xff;
+        for (int i = 0; i < length; i++) {
+            int val = buf[offset + i] & 0xff;
             System.out.print(Util.intToHex(val) + " ");
             if (((i % 8) == 7)) {
                 System.out.print(newLine);
@@ -280,11 +383,11 @@ public class TPSBuffer {
     public String toHexString() {
         final String HEX_DIGITS = "0123456789ABCDEF";
 
-        StringBuffer result = new StringBuffer(buf.length * 2);
+        StringBuffer result = new StringBuffer(length * 3);
 
-        for (int i = 0; i < buf.length; i++)
+        for (int i = 0; i < length; i++)
         {
-            char c = (char) buf[i];
+            char c = (char) buf[offset + i];
 
             result.append(HEX_DIGITS.charAt((c & 0xF0) >> 4));
             result.append(HEX_DIGITS.charAt(c & 0x0F));
@@ -301,11 +404,11 @@ public class TPSBuffer {
     public String toHexStringPlain() {
         final String HEX_DIGITS = "0123456789ABCDEF";
 
-        StringBuffer result = new StringBuffer(buf.length * 2);
+        StringBuffer result = new StringBuffer(length * 2);
 
-        for (int i = 0; i < buf.length; i++)
+        for (int i = 0; i < length; i++)
         {
-            char c = (char) buf[i];
+            char c = (char) buf[offset + i];
 
             result.append(HEX_DIGITS.charAt((c & 0xF0) >> 4));
             result.append(HEX_DIGITS.charAt(c & 0x0F));
@@ -320,15 +423,15 @@ public class TPSBuffer {
      public String toHexStringJavaByteArray() {
          final String HEX_DIGITS = "0123456789ABCDEF";
 
-         StringBuffer result = new StringBuffer(buf.length * 2);
+         StringBuffer result = new StringBuffer(length * 2);
          result.append("{ ");
-         for (int i = 0; i < buf.length; i++)
+         for (int i = 0; i < length; i++)
          {
-             char c = (char) buf[i];
+             char c = (char) buf[offset + i];
              result.append("(byte) 0x");
              result.append(HEX_DIGITS.charAt((c & 0xF0) >> 4));
              result.append(HEX_DIGITS.charAt(c & 0x0F));
-             if(i < buf.length - 1)
+             if(i < length - 1)
                 result.append(",");
          }
          result.append("}");
@@ -360,6 +463,8 @@ public class TPSBuffer {
 
     public void addLong4Bytes(long value) {
 
+        ensureCapacity(length + 4);
+
         this.add((byte) ((value >> 24) & 0xff));
 
         this.add((byte) ((value >> 16) & 0xff));
@@ -368,6 +473,7 @@ public class TPSBuffer {
     }
 
     public void addInt2Bytes(int value) {
+        ensureCapacity(length + 2);
         this.add((byte) ((value >> 8) & 0xff));
         this.add((byte) (value & 0xff));
     }
@@ -388,7 +494,10 @@ public class TPSBuffer {
     }
 
     public void reset() {
-        buf = new byte[0];
+        buf = EMPTY;
+        offset = 0;
+        length = 0;
+        shared = false;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,70 @@
+package com.netscape.certsrv.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class OperationStatsTest {
+
+    @Test
+    public void testEmpty() throws Exception {
+
+        OperationStats stats = new OperationStats();
+
+        assertEquals(0, stats.getCalls());
+        assertEquals(0, stats.getErrors());
+        assertEquals(0, stats.getAverageTime());
+        assertEquals(0, stats.getMaxTime());
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+
+        OperationStats stats = new OperationStats();
+        stats.add(10);
+        stats.add(30, false);
+        stats.add(20, true);
+
+        assertEquals(3, stats.getCalls());
+        assertEquals(1, stats.getErrors());
+        assertEquals(60, stats.getTotalTime());
+        assertEquals(20, stats.getAverageTime());
+        assertEquals(30, stats.getMaxTime());
+
+        Map<String, Object> map = stats.getStatisticsMap();
+        assertEquals(3L, map.get("calls"));
+        assertEquals(1L, map.get("errors"));
+        assertEquals(20L, map.get("averageTime"));
+        assertEquals(30L, map.get("maxTime"));
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+
+        OperationStats stats = new OperationStats();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 1; j <= 1000; j++) {
+                    stats.add(j, j % 10 != 0);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4000, stats.getCalls());
+        assertEquals(400, stats.getErrors());
+        assertEquals(4 * 500500, stats.getTotalTime());
+        assertEquals(1000, stats.getMaxTime());
+    }
+}
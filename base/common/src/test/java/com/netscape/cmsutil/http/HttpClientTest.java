@@ -0,0 +1,143 @@
+package com.netscape.cmsutil.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class HttpClientTest {
+
+    interface Handler {
+        void handle(Socket socket) throws Exception;
+    }
+
+    /**
+     * Accepts a single connection and handles it in a separate thread.
+     */
+    static Thread serve(ServerSocket server, Handler handler) {
+        Thread thread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                handler.handle(socket);
+            } catch (Exception e) {
+                // ignore
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    static void readRequest(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        HttpRequest request = new HttpRequest();
+        request.parse(reader);
+    }
+
+    static void writeResponse(Socket socket, String response) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(response.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    static HttpRequest createRequest() throws Exception {
+        HttpRequest request = new HttpRequest();
+        request.setMethod(HttpRequest.POST);
+        request.setURI("/test");
+        request.setHeader("Content-Length", "5");
+        request.setContent("hello");
+        return request;
+    }
+
+    static HttpClient connect(ServerSocket server, int timeout) throws IOException {
+        HttpClient client = new HttpClient();
+        client.connect("localhost", server.getLocalPort(), timeout);
+        return client;
+    }
+
+    @Test
+    public void testResponse() throws Exception {
+
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread thread = serve(server, socket -> {
+                readRequest(socket);
+                writeResponse(socket, "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nOK");
+            });
+
+            HttpClient client = connect(server, 5000);
+            HttpResponse resp = client.send(createRequest());
+
+            assertEquals("200", resp.getStatusCode());
+            assertEquals("OK", resp.getContent());
+
+            client.disconnect();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testClosedBeforeResponse() throws Exception {
+
+        try (ServerSocket server = new ServerSocket(0)) {
+            // the server closes the connection without responding
+            Thread thread = serve(server, socket -> readRequest(socket));
+
+            HttpClient client = connect(server, 5000);
+
+            // the request can be sent again
+            assertThrows(HttpNoResponseException.class, () -> client.send(createRequest()));
+            assertFalse(client.connected());
+
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testClosedDuringResponse() throws Exception {
+
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread thread = serve(server, socket -> {
+                readRequest(socket);
+                writeResponse(socket, "HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nabc");
+            });
+
+            HttpClient client = connect(server, 5000);
+
+            // the server has started responding, the request must not be sent again
+            IOException e = assertThrows(IOException.class, () -> client.send(createRequest()));
+            assertFalse(e instanceof HttpNoResponseException);
+            assertFalse(client.connected());
+
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread thread = serve(server, socket -> {
+                readRequest(socket);
+                // the server is still processing the request
+                Thread.sleep(1000);
+            });
+
+            HttpClient client = connect(server, 100);
+
+            // the request might be processed, it must not be sent again
+            assertThrows(SocketTimeoutException.class, () -> client.send(createRequest()));
+            assertFalse(client.connected());
+
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.netscape.cmsutil.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+public class HttpResponseTest {
+
+    @Test
+    public void testContentLength() throws Exception {
+
+        BufferedReader reader = new BufferedReader(new StringReader(
+                "HTTP/1.1 200 OK\r\n" +
+                "Content-Length: 5\r\n" +
+                "\r\n" +
+                "hello" +
+                "HTTP/1.1 200 OK\r\n" +
+                "Content-Length: 3\r\n" +
+                "\r\n" +
+                "bye"));
+
+        // both responses can be read from the same connection
+        HttpResponse resp = new HttpResponse();
+        resp.parse(reader);
+        assertEquals("200", resp.getStatusCode());
+        assertEquals("hello", resp.getContent());
+        assertFalse(resp.isChunked());
+
+        resp = new HttpResponse();
+        resp.parse(reader);
+        assertEquals("bye", resp.getContent());
+    }
+
+    @Test
+    public void testChunked() throws Exception {
+
+        BufferedReader reader = new BufferedReader(new StringReader(
+                "HTTP/1.1 200 OK\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "5;ext=1\r\n" +
+                "hello\r\n" +
+                "7\r\n" +
+                ", world\r\n" +
+                "0\r\n" +
+                "Trailer: value\r\n" +
+                "\r\n" +
+                "HTTP/1.1 204 No Content\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "0\r\n" +
+                "\r\n"));
+
+        HttpResponse resp = new HttpResponse();
+        resp.parse(reader);
+        assertTrue(resp.isChunked());
+        assertEquals("hello, world", resp.getContent());
+
+        resp = new HttpResponse();
+        resp.parse(reader);
+        assertEquals("204", resp.getStatusCode());
+        assertNull(resp.getContent());
+    }
+
+    @Test
+    public void testBadChunk() throws Exception {
+
+        BufferedReader reader = new BufferedReader(new StringReader(
+                "HTTP/1.1 200 OK\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "xyz\r\n"));
+
+        HttpResponse resp = new HttpResponse();
+        assertThrows(HttpProtocolException.class, () -> resp.parse(reader));
+    }
+
+    @Test
+    public void testPersistent() throws Exception {
+
+        HttpClient client = new HttpClient();
+        HttpRequest request = new HttpRequest();
+
+        HttpResponse resp = new HttpResponse();
+        resp.parse(new BufferedReader(new StringReader(
+                "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n")));
+        assertTrue(client.isPersistent(request, resp));
+
+        resp = new HttpResponse();
+        resp.parse(new BufferedReader(new StringReader(
+                "HTTP/1.1 200 OK\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")));
+        assertFalse(client.isPersistent(request, resp));
+
+        resp = new HttpResponse();
+        resp.parse(new BufferedReader(new StringReader(
+                "HTTP/1.0 200 OK\r\nContent-Length: 0\r\n\r\n")));
+        assertFalse(client.isPersistent(request, resp));
+
+        // the response was read until the end of the stream
+        resp = new HttpResponse();
+        resp.parse(new BufferedReader(new StringReader(
+                "HTTP/1.1 200 OK\r\n\r\ncontent")));
+        assertFalse(client.isPersistent(request, resp));
+    }
+}
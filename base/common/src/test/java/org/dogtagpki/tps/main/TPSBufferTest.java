@@ -0,0 +1,145 @@
+package org.dogtagpki.tps.main;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TPSBufferTest {
+
+    @Test
+    public void testAdd() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(new byte[] { 0x01, 0x02 });
+        buffer.add((byte) 0x03);
+        buffer.addBytes(new byte[] { 0x04, 0x05 });
+        buffer.add(new TPSBuffer(new byte[] { 0x06 }));
+        buffer.addInt2Bytes(0x0708);
+        buffer.addLong4Bytes(0x090a0b0cL);
+
+        assertArrayEquals(
+                new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0a, 0x0b, 0x0c },
+                buffer.toBytesArray());
+        assertEquals(12, buffer.size());
+    }
+
+    @Test
+    public void testPrepend() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(new byte[] { 0x03, 0x04 });
+        buffer.prependBytes(new byte[] { 0x02 });
+        buffer.prepend(new TPSBuffer(new byte[] { 0x00, 0x01 }));
+        buffer.add((byte) 0x05);
+
+        assertArrayEquals(new byte[] { 0x00, 0x01, 0x02, 0x03, 0x04, 0x05 }, buffer.toBytesArray());
+        assertEquals(0x0001, buffer.getIntFrom2Bytes(0));
+        assertEquals(0x02030405L, buffer.getLongFrom4Bytes(2));
+    }
+
+    @Test
+    public void testAddSelf() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(new byte[] { 0x01, 0x02 });
+        buffer.add(buffer);
+        buffer.prepend(buffer);
+
+        assertArrayEquals(
+                new byte[] { 0x01, 0x02, 0x01, 0x02, 0x01, 0x02, 0x01, 0x02 },
+                buffer.toBytesArray());
+    }
+
+    @Test
+    public void testGrowth() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer();
+        for (int i = 0; i < 10000; i++) {
+            buffer.add((byte) i);
+        }
+
+        assertEquals(10000, buffer.size());
+        assertTrue(buffer.capacity() >= buffer.size());
+
+        for (int i = 0; i < 10000; i++) {
+            assertEquals((byte) i, buffer.at(i));
+        }
+
+        byte[] bytes = buffer.toBytesArray();
+        assertEquals(10000, bytes.length);
+
+        // the trimmed array is kept as the backing array
+        assertSame(bytes, buffer.toBytesArray());
+    }
+
+    @Test
+    public void testResize() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(new byte[] { 0x01, 0x02, 0x03 });
+
+        buffer.resize(1);
+        assertArrayEquals(new byte[] { 0x01 }, buffer.toBytesArray());
+
+        buffer.add((byte) 0x04);
+        buffer.resize(4);
+        assertArrayEquals(new byte[] { 0x01, 0x04, 0x00, 0x00 }, buffer.toBytesArray());
+    }
+
+    @Test
+    public void testSubstr() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(new byte[] { 0x01, 0x02, 0x03, 0x04 });
+        buffer.prependBytes(new byte[] { 0x00 });
+
+        TPSBuffer substr = buffer.substr(1, 2);
+        assertArrayEquals(new byte[] { 0x01, 0x02 }, substr.toBytesArray());
+
+        substr.setAt(0, (byte) 0x7f);
+        assertEquals(0x01, buffer.at(1));
+
+        assertNull(buffer.substr(4, 2));
+    }
+
+    @Test
+    public void testSlice() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer(new byte[] { 0x01, 0x02, 0x03, 0x04 });
+
+        TPSBuffer slice = buffer.slice(1, 2);
+        assertTrue(slice.equals(new TPSBuffer(new byte[] { 0x02, 0x03 })));
+
+        // changes are visible in both buffers
+        slice.setAt(0, (byte) 0x7f);
+        assertEquals(0x7f, buffer.at(1));
+
+        // growing the slice does not overwrite the original buffer
+        slice.add((byte) 0x05);
+        slice.prependBytes(new byte[] { 0x06 });
+
+        assertArrayEquals(new byte[] { 0x06, 0x7f, 0x03, 0x05 }, slice.toBytesArray());
+        assertArrayEquals(new byte[] { 0x01, 0x7f, 0x03, 0x04 }, buffer.toBytesArray());
+    }
+
+    @Test
+    public void testZeroize() throws Exception {
+
+        byte[] bytes = { 0x01, 0x02, 0x03 };
+
+        TPSBuffer buffer = new TPSBuffer();
+        buffer.set(bytes);
+        buffer.zeroize();
+
+        assertArrayEquals(new byte[] { 0x00, 0x00, 0x00 }, bytes);
+    }
+
+    @Test
+    public void testHexString() throws Exception {
+
+        TPSBuffer buffer = new TPSBuffer("A0000000030000");
+        buffer.prependBytes(new byte[] { (byte) 0xff });
+
+        assertEquals("FFA0000000030000", buffer.toHexStringPlain());
+        assertEquals("FF%A0%00%", buffer.substr(0, 3).toHexString());
+    }
+}
@@ -25,13 +25,12 @@ import org.mozilla.jss.netscape.security.util.Utils;
 import org.mozilla.jss.netscape.security.x509.CertificateChain;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
-import com.netscape.certsrv.account.AccountClient;
 import com.netscape.certsrv.authority.AuthorityClient;
 import com.netscape.certsrv.base.BadRequestException;
 import com.netscape.certsrv.base.PKIException;
 import com.netscape.certsrv.ca.AuthorityID;
 import com.netscape.certsrv.ca.CACertClient;
-import com.netscape.certsrv.ca.CAClient;
+import com.netscape.certsrv.ca.CAClientPool;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertEnrollmentRequest;
 import com.netscape.certsrv.cert.CertRequestInfo;
@@ -57,6 +56,7 @@ public class DogtagRABackend extends ESTBackend {
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DogtagRABackend.class);
 
     private ClientConfig clientConfig = new ClientConfig();
+    private CAClientPool clientPool;
 
     private String profile;
     private String fullcmcProfile;
@@ -139,15 +139,42 @@ public class DogtagRABackend extends ESTBackend {
         if (fullcmcProfile != null) {
             logger.info("- /fullcmc profile: " + fullcmcProfile);
         }
+
+        clientPool = new CAClientPool(clientConfig);
+
+        String maxSessions = config.getParameter("pool.maxSessions");
+        if (maxSessions != null) {
+            clientPool.setMaxSessions(Integer.parseInt(maxSessions));
+        }
+
+        String sessionTimeout = config.getParameter("pool.sessionTimeout");
+        if (sessionTimeout != null) {
+            clientPool.setSessionTimeout(Integer.parseInt(sessionTimeout));
+        }
+
+        String acquireTimeout = config.getParameter("pool.acquireTimeout");
+        if (acquireTimeout != null) {
+            clientPool.setAcquireTimeout(Integer.parseInt(acquireTimeout));
+        }
+
+        clientPool.init();
     }
 
     @Override
-    public CertificateChain cacerts(Optional<String> label) throws PKIException {
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
-            AuthorityClient authorityClient = new AuthorityClient(pkiClient, "ca");
+    public void stop() throws Throwable {
+        if (clientPool != null) {
+            clientPool.close();
+        }
+    }
 
+    @Override
+    public CertificateChain cacerts(Optional<String> label) throws PKIException {
+        try {
             String authorityID = label.orElse(HOST_AUTHORITY);
-            String pkcs7pem = authorityClient.getChainPEM(authorityID);
+            String pkcs7pem = clientPool.execute("cacerts", false, session -> {
+                AuthorityClient authorityClient = new AuthorityClient(session.getPKIClient(), "ca");
+                return authorityClient.getChainPEM(authorityID);
+            });
             logger.debug("Cert chain:\n" + pkcs7pem);
 
             PKCS7 pkcs7 = new PKCS7(pkcs7pem);
@@ -195,71 +222,79 @@ public class DogtagRABackend extends ESTBackend {
         // Forward the CMC request to the CA's ProfileSubmitCMCFull endpoint
         // The CMC request data contains the base64-encoded CMC request from the EST client
 
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
-            // The CA's CMC endpoint path (relative to server URL)
-            String cmcPath = "/ca/ee/ca/profileSubmitCMCFull?profileId=" + profileId;
-            logger.debug("Forwarding CMC request to: " + cmcPath);
+        try {
+            return clientPool.execute("fullcmc", false, session -> fullcmc(session.getPKIClient(), profileId, cmcRequest, authzData));
 
-            // Build the URI
-            java.net.URI uri = new java.net.URI(clientConfig.getServerURL() + cmcPath);
-
-            // Create HttpPost manually so we can add custom headers
-            org.apache.http.client.methods.HttpPost httpPost =
-                new org.apache.http.client.methods.HttpPost(uri);
+        } catch (PKIException e) {
+            throw e; // re-raise
+        } catch (Throwable e) {
+            // unexpected; wrap in PKIException, which will result in 500
+            throw new PKIException("Internal error in /fullcmc: " + e, e);
+        }
+    }
 
-            // Set the CMC request as the body
-            org.apache.http.HttpEntity entity = pkiClient.entity(cmcRequest);
-            httpPost.setEntity(entity);
+    private byte[] fullcmc(PKIClient pkiClient, String profileId, byte[] cmcRequest, ESTRequestAuthorizationData authzData)
+            throws Exception {
 
-            // Mark this as an EST request so CA can set appropriate response headers
-            httpPost.setHeader("pki-est-request", "true");
+        // The CA's CMC endpoint path (relative to server URL)
+        String cmcPath = "/ca/ee/ca/profileSubmitCMCFull?profileId=" + profileId;
+        logger.debug("Forwarding CMC request to: " + cmcPath);
 
-           // Add custom header with EST client certificate if available
-           // This allows EST's CMCAuth to verify the CMC signer matches the EST client
-            if (authzData.clientCertChain != null && authzData.clientCertChain.length > 0) {
-                String estClientCertB64 = org.mozilla.jss.netscape.security.util.Utils.base64encodeSingleLine(
-                    authzData.clientCertChain[0].getEncoded());
-                httpPost.setHeader("pki-est-client-cert", estClientCertB64);
-                logger.debug("Added pki-est-client-cert header with EST client certificate");
-            }
+        // Build the URI
+        java.net.URI uri = new java.net.URI(clientConfig.getServerURL() + cmcPath);
 
-            // Execute the request using PKIClient's connection
-            org.apache.http.client.HttpClient httpClient = pkiClient.getConnection().getHttpClient();
-            org.apache.http.HttpResponse httpResp = httpClient.execute(httpPost);
+        // Create HttpPost manually so we can add custom headers
+        org.apache.http.client.methods.HttpPost httpPost =
+            new org.apache.http.client.methods.HttpPost(uri);
 
-            // Check response status
-            int statusCode = httpResp.getStatusLine().getStatusCode();
-            logger.debug("CMC response status code: " + statusCode);
+        // Set the CMC request as the body
+        org.apache.http.HttpEntity entity = pkiClient.entity(cmcRequest);
+        httpPost.setEntity(entity);
 
-            if (statusCode != 200) {
-                throw new PKIException("CMC request failed with status: " + statusCode);
-            }
+        // Mark this as an EST request so CA can set appropriate response headers
+        httpPost.setHeader("pki-est-request", "true");
 
-            // Read pki-cmc-status header for HTTP status mapping (RFC 7030/8951)
-            org.apache.http.Header cmcStatusHeader = httpResp.getFirstHeader("pki-cmc-status");
-            if (cmcStatusHeader != null) {
-                int status = Integer.parseInt(cmcStatusHeader.getValue());
-                cmcStatus.set(status);
-                logger.debug("pki-cmc-status header: " + status);
-            } else {
-                logger.warn("pki-cmc-status header not found in CA response");
-                cmcStatus.set(null);
-            }
+       // Add custom header with EST client certificate if available
+       // This allows EST's CMCAuth to verify the CMC signer matches the EST client
+        if (authzData.clientCertChain != null && authzData.clientCertChain.length > 0) {
+            String estClientCertB64 = org.mozilla.jss.netscape.security.util.Utils.base64encodeSingleLine(
+                authzData.clientCertChain[0].getEncoded());
+            httpPost.setHeader("pki-est-client-cert", estClientCertB64);
+            logger.debug("Added pki-est-client-cert header with EST client certificate");
+        }
 
-            // Read response body (CMC response)
-            org.apache.http.HttpEntity responseEntity = httpResp.getEntity();
-            byte[] cmcResponse = org.apache.http.util.EntityUtils.toByteArray(responseEntity);
+        // Execute the request using PKIClient's connection
+        org.apache.http.client.HttpClient httpClient = pkiClient.getConnection().getHttpClient();
+        org.apache.http.HttpResponse httpResp = httpClient.execute(httpPost);
 
-            logger.debug("Received CMC response, length: " + (cmcResponse != null ? cmcResponse.length : 0));
+        // Check response status
+        int statusCode = httpResp.getStatusLine().getStatusCode();
+        logger.debug("CMC response status code: " + statusCode);
 
-            return cmcResponse;
+        if (statusCode != 200) {
+            // release the pooled connection
+            EntityUtils.consumeQuietly(httpResp.getEntity());
+            throw new PKIException("CMC request failed with status: " + statusCode);
+        }
 
-        } catch (PKIException e) {
-            throw e; // re-raise
-        } catch (Throwable e) {
-            // unexpected; wrap in PKIException, which will result in 500
-            throw new PKIException("Internal error in /fullcmc: " + e, e);
+        // Read pki-cmc-status header for HTTP status mapping (RFC 7030/8951)
+        org.apache.http.Header cmcStatusHeader = httpResp.getFirstHeader("pki-cmc-status");
+        if (cmcStatusHeader != null) {
+            int status = Integer.parseInt(cmcStatusHeader.getValue());
+            cmcStatus.set(status);
+            logger.debug("pki-cmc-status header: " + status);
+        } else {
+            logger.warn("pki-cmc-status header not found in CA response");
+            cmcStatus.set(null);
         }
+
+        // Read response body (CMC response)
+        org.apache.http.HttpEntity responseEntity = httpResp.getEntity();
+        byte[] cmcResponse = org.apache.http.util.EntityUtils.toByteArray(responseEntity);
+
+        logger.debug("Received CMC response, length: " + (cmcResponse != null ? cmcResponse.length : 0));
+
+        return cmcResponse;
     }
 
     private X509CertImpl issueCertificate(Optional<String> label, PKCS10 pkcs10, ESTRequestAuthorizationData authzData)
@@ -276,111 +311,125 @@ public class DogtagRABackend extends ESTBackend {
             }
         }
 
-        try (PKIClient pkiClient = new PKIClient(clientConfig)) {
-            CAClient caClient = new CAClient(pkiClient);
-            AccountClient accountClient = new AccountClient(caClient);
-
-            // Here the agent credentials are stored in the ClientConfig and will
-            // be sent to the CA automatically if any of the methods being called
-            // requires REST authentication. However, the methods being called
-            // depend on the cert profile being used.
-            //
-            // If the profile has an authenticator, the request can be completed
-            // with the following methods:
-            // - CACertClient.getEnrollmentTemplate()
-            // - CACertClient.enrollRequest()
-            //
-            // The above methods do not require REST authentication, but the
-            // profile still requires authentication, so the credentials must be
-            // provided either through the request itself (i.e. using profile
-            // authentication) or by calling CAClient.login() (i.e. using REST
-            // authentication).
-            //
-            // If the profile does not have an authenticator, the request must
-            // be reviewed and approved with the following additional methods:
-            // - CACertClient.reviewRequest()
-            // - CACertClient.approveRequest()
-            //
-            // The above methods do require REST authentication so in this case
-            // it's not actually necessary to call CAClient.login(). However, to
-            // support both types of profiles the CAClient.login() needs to be
-            // called explicitly.
-            accountClient.login();
-
-            CACertClient certClient = new CACertClient(caClient);
-            CertEnrollmentRequest certEnrollmentRequest = certClient.getEnrollmentTemplate(profile);
-
-            for (ProfileInput input : certEnrollmentRequest.getInputs()) {
-                logger.debug("Check input: {}", input.getClassId());
-                if (input.getClassId().equals("certReqInputImpl")) {
-                    ProfileAttribute typeAttr = input.getAttribute("cert_request_type");
-                    if (typeAttr != null) {
-                        typeAttr.setValue("pkcs10");
+        AuthorityID authorityID = aid;
+
+        try {
+            return clientPool.execute("enroll", true, session -> {
+
+                // Here the agent credentials are stored in the ClientConfig and will
+                // be sent to the CA automatically if any of the methods being called
+                // requires REST authentication. However, the methods being called
+                // depend on the cert profile being used.
+                //
+                // If the profile has an authenticator, the request can be completed
+                // with the following methods:
+                // - CACertClient.getEnrollmentTemplate()
+                // - CACertClient.enrollRequest()
+                //
+                // The above methods do not require REST authentication, but the
+                // profile still requires authentication, so the credentials must be
+                // provided either through the request itself (i.e. using profile
+                // authentication) or by calling CAClient.login() (i.e. using REST
+                // authentication).
+                //
+                // If the profile does not have an authenticator, the request must
+                // be reviewed and approved with the following additional methods:
+                // - CACertClient.reviewRequest()
+                // - CACertClient.approveRequest()
+                //
+                // The above methods do require REST authentication so in this case
+                // it's not actually necessary to call CAClient.login(). However, to
+                // support both types of profiles the CAClient.login() needs to be
+                // called explicitly. The pooled session is logged in once and
+                // reused until the login expires.
+
+                CACertClient certClient = session.getCertClient();
+                CertEnrollmentRequest certEnrollmentRequest = certClient.getEnrollmentTemplate(profile);
+
+                for (ProfileInput input : certEnrollmentRequest.getInputs()) {
+                    logger.debug("Check input: {}", input.getClassId());
+                    if (input.getClassId().equals("certReqInputImpl")) {
+                        ProfileAttribute typeAttr = input.getAttribute("cert_request_type");
+                        if (typeAttr != null) {
+                            typeAttr.setValue("pkcs10");
+                        }
+
+                        ProfileAttribute csrAttr = input.getAttribute("cert_request");
+                        if (csrAttr != null) {
+                            csrAttr.setValue(Utils.base64encodeSingleLine(pkcs10.toByteArray()));
+                        }
+                    } else if (input.getClassId().equals("raClientAuthInfoInputImpl")) {
+                        ProfileAttribute uidAttr = input.getAttribute("ra_client_uid");
+                        if (uidAttr != null && authzData.principal != null) {
+                            uidAttr.setValue(authzData.principal.getName());
+                        }
+
+                        ProfileAttribute nameAttr = input.getAttribute("ra_client_name");
+                        if (nameAttr != null && authzData.principal instanceof PKIPrincipal pkiPrincipal) {
+                            nameAttr.setValue(pkiPrincipal.getUser().getFullName());
+                        }
+
+                        ProfileAttribute certAttr = input.getAttribute("ra_client_certificate");
+                        if (certAttr != null && authzData.clientCertChain != null) {
+                            certAttr.setValue(Utils.base64encodeSingleLine(authzData.clientCertChain[0].getEncoded()));
+                        }
                     }
+                }
 
-                    ProfileAttribute csrAttr = input.getAttribute("cert_request");
-                    if (csrAttr != null) {
-                        csrAttr.setValue(Utils.base64encodeSingleLine(pkcs10.toByteArray()));
-                    }
-                } else if (input.getClassId().equals("raClientAuthInfoInputImpl")) {
-                    ProfileAttribute uidAttr = input.getAttribute("ra_client_uid");
-                    if (uidAttr != null && authzData.principal != null) {
-                        uidAttr.setValue(authzData.principal.getName());
-                    }
+                logger.info("Request:\n" + certEnrollmentRequest);
+                CertRequestInfos infos = certClient.enrollRequest(certEnrollmentRequest, authorityID, null);
 
-                    ProfileAttribute nameAttr = input.getAttribute("ra_client_name");
-                    if (nameAttr != null && authzData.principal instanceof PKIPrincipal pkiPrincipal) {
-                        nameAttr.setValue(pkiPrincipal.getUser().getFullName());
-                    }
+                // the request has been submitted, do not submit it again after a login failure
+                session.setRetryable(false);
 
-                    ProfileAttribute certAttr = input.getAttribute("ra_client_certificate");
-                    if (certAttr != null && authzData.clientCertChain != null) {
-                        certAttr.setValue(Utils.base64encodeSingleLine(authzData.clientCertChain[0].getEncoded()));
+                logger.info("Responses:");
+                CertRequestInfo info = infos.getEntries().iterator().next();
+
+                RequestId requestId = info.getRequestID();
+                if (requestId == null) {
+                    // Older versions of Dogtag lack the RequestID field.
+                    // In that case, call .getRequestId() which derives the
+                    // ID from the request URL field.
+                    requestId = info.getRequestId();
+                }
+                logger.info("- Request ID: " + requestId.toHexString());
+                logger.info("  Type: " + info.getRequestType());
+                logger.info("  Request Status: " + info.getRequestStatus());
+                logger.info("  Operation Result: " + info.getOperationResult());
+
+                String error = info.getErrorMessage();
+                if (error != null) {
+                    if (info.getRequestStatus().equals(RequestStatus.REJECTED)) {
+                        throw new BadRequestException("Certificate request rejected: " + error);
+                    } else {
+                        throw new PKIException("Unable to generate certificate: " + error);
                     }
                 }
-            }
 
-            logger.info("Request:\n" + certEnrollmentRequest);
-            CertRequestInfos infos = certClient.enrollRequest(certEnrollmentRequest, aid, null);
-
-            logger.info("Responses:");
-            CertRequestInfo info = infos.getEntries().iterator().next();
-
-            RequestId requestId = info.getRequestID();
-            if (requestId == null) {
-                // Older versions of Dogtag lack the RequestID field.
-                // In that case, call .getRequestId() which derives the
-                // ID from the request URL field.
-                requestId = info.getRequestId();
-            }
-            logger.info("- Request ID: " + requestId.toHexString());
-            logger.info("  Type: " + info.getRequestType());
-            logger.info("  Request Status: " + info.getRequestStatus());
-            logger.info("  Operation Result: " + info.getOperationResult());
-
-            String error = info.getErrorMessage();
-            if (error != null) {
-                if (info.getRequestStatus().equals(RequestStatus.REJECTED)) {
-                    throw new BadRequestException("Certificate request rejected: " + error);
+                CertId id = null;
+                if (info.getRequestStatus() == RequestStatus.COMPLETE) {
+                    id = info.getCertId();
                 } else {
-                    throw new PKIException("Unable to generate certificate: " + error);
+                    // review again after a new login since the nonce belongs to the login session
+                    RequestId reqId = requestId;
+                    session.execute(s -> {
+                        CACertClient client = s.getCertClient();
+                        CertReviewResponse reviewInfo = client.reviewRequest(reqId);
+                        client.approveRequest(reqId, reviewInfo);
+                        return null;
+                    });
+
+                    info = session.execute(s -> s.getCertClient().getRequest(reqId));
+                    id = info.getCertId();
                 }
-            }
 
-            CertId id = null;
-            if (info.getRequestStatus() == RequestStatus.COMPLETE) {
-                id = info.getCertId();
-            } else {
-                CertReviewResponse reviewInfo = certClient.reviewRequest(requestId);
-                certClient.approveRequest(requestId, reviewInfo);
-                info = certClient.getRequest(requestId);
-                id = info.getCertId();
-            }
+                logger.info("Serial number: " + id.toHexString());
+                CertId certId = id;
+                CertData certData = session.execute(s -> s.getCertClient().getCert(certId));
+                String certPem = certData.getEncoded();
+                return Cert.mapCert(certPem);
+            });
 
-            logger.info("Serial number: " + id.toHexString());
-            CertData certData = certClient.getCert(id);
-            String certPem = certData.getEncoded();
-            return Cert.mapCert(certPem);
         } catch (PKIException e) {
             if (
                 e.getCode() == HttpStatus.SC_UNAUTHORIZED
@@ -431,18 +431,19 @@ public class KeyRecoveryAuthority extends Subsystem implements IAuthority {
 
         startKeyStatusUpdate();
 
-        // init request scheduler if configured
+        // init request scheduler
         String schedulerClass =
-                mConfig.getString("requestSchedulerClass", null);
+                mConfig.getString("requestSchedulerClass", RequestScheduler.class.getName());
 
-        if (schedulerClass != null) {
-            try {
-                RequestScheduler scheduler = (RequestScheduler) Class.forName(schedulerClass).getDeclaredConstructor().newInstance();
+        try {
+            RequestScheduler scheduler = (RequestScheduler) Class.forName(schedulerClass).getDeclaredConstructor().newInstance();
+            scheduler.init(mConfig.getRequestSchedulerConfig());
 
-                requestQueue.setRequestScheduler(scheduler);
-            } catch (Exception e) {
-                // do nothing here
-            }
+            requestQueue.setRequestScheduler(scheduler);
+        } catch (EBaseException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.warn("KeyRecoveryAuthority: Unable to create request scheduler " + schedulerClass + ": " + e.getMessage(), e);
         }
         initNotificationListeners();
     }
@@ -7,6 +7,7 @@ package org.dogtagpki.server.kra;
 
 import org.dogtagpki.legacy.kra.KRAPolicyConfig;
 
+import com.netscape.cms.request.RequestSchedulerConfig;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.base.SimpleProperties;
@@ -28,4 +29,11 @@ public class KRAConfig extends ConfigStore {
     public KRAPolicyConfig getPolicyConfig() {
         return getSubStore(KeyRecoveryAuthority.PROP_POLICY, KRAPolicyConfig.class);
     }
+
+    /**
+     * Returns kra.requestScheduler.* parameters.
+     */
+    public RequestSchedulerConfig getRequestSchedulerConfig() {
+        return getSubStore("requestScheduler", RequestSchedulerConfig.class);
+    }
 }
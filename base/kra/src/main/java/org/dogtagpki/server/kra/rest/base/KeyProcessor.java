@@ -31,6 +31,7 @@ import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.HTTPGoneException;
 import com.netscape.certsrv.base.PKIException;
 import com.netscape.certsrv.base.ResourceNotFoundException;
+import com.netscape.certsrv.base.ServiceUnavailableException;
 import com.netscape.certsrv.base.UnauthorizedException;
 import com.netscape.certsrv.dbs.DBRecordNotFoundException;
 import com.netscape.certsrv.dbs.Modification;
@@ -52,6 +53,7 @@ import com.netscape.certsrv.request.RequestId;
 import com.netscape.certsrv.request.RequestStatus;
 import com.netscape.cms.realm.PKIPrincipal;
 import com.netscape.cmscore.authorization.AuthzSubsystem;
+import com.netscape.cmscore.dbs.DBSearchCursor;
 import com.netscape.cmscore.dbs.KeyRecord;
 import com.netscape.cmscore.dbs.KeyRepository;
 import com.netscape.cmscore.logging.Auditor;
@@ -100,21 +102,7 @@ public class KeyProcessor {
 
         String auditInfo = "KeyProcessor.listKeyInfos; status =" + status;
 
-        if (realm != null) {
-            try {
-                authz.checkRealm(realm, getAuthToken(principal), null, "certServer.kra.keys", "list");
-
-            } catch (EAuthzAccessDenied e) {
-                throw new UnauthorizedException("Unauthorized: " + e.getMessage(), e);
-
-            } catch (EAuthzUnknownRealm e) {
-                throw new BadRequestException("Unknown realm: " + e.getMessage(), e);
-
-            } catch (EBaseException e) {
-                logger.error("Unable to access realm: " + e.getMessage(), e);
-                throw new PKIException("Unable to access realm: " + e.getMessage(), e);
-            }
-        }
+        checkListRealm(principal, realm);
 
         // get ldap filter
         String filter = createSearchFilter(status, clientKeyID, realm, owner);
@@ -156,6 +144,94 @@ public class KeyProcessor {
         return infos;
     }
 
+    /**
+     * Lists keys with a search cursor. If the cursor ID is empty a new
+     * cursor is opened, otherwise the next page of the cursor is returned.
+     * The response contains the cursor ID if there are more pages.
+     */
+    public KeyInfoCollection listKeys(Principal principal, String baseUrl, String clientKeyID, String status,
+            String cursorID, int size, String realm, String owner) {
+
+        String auditInfo = "KeyProcessor.listKeyInfos; status =" + status;
+
+        if (principal == null) {
+            // cursors are limited per user
+            throw new UnauthorizedException("Search cursors require authentication");
+        }
+
+        String cursorOwner = principal.getName();
+
+        KeyInfoCollection infos = new KeyInfoCollection();
+        try {
+            DBSearchCursor<KeyRecord> cursor;
+
+            if (cursorID.isEmpty()) {
+                logger.info("KeyProcessor: Searching for keys with search cursor");
+                logger.info("KeyProcessor: - client key ID: {}", clientKeyID);
+                logger.info("KeyProcessor: - status: {}", status);
+
+                // the realm is checked once when the cursor is opened
+                checkListRealm(principal, realm);
+
+                String filter = createSearchFilter(status, clientKeyID, realm, owner);
+                logger.info("KeyProcessor: - filter: {}", filter);
+
+                cursor = repo.openSearchCursor(cursorOwner, KeyRecord.class, filter);
+                if (cursor == null) {
+                    throw new ServiceUnavailableException("Too many open search cursors");
+                }
+
+            } else {
+                logger.info("KeyProcessor: Searching for keys with search cursor {}", cursorID);
+                cursor = repo.getSearchCursor(cursorID, cursorOwner, KeyRecord.class);
+                if (cursor == null) {
+                    throw new HTTPGoneException("Search cursor not found or expired: " + cursorID);
+                }
+            }
+
+            logger.info("KeyProcessor: Results:");
+
+            for (KeyRecord rec : cursor.next(size)) {
+                if (rec == null) continue;
+
+                KeyInfo info = createKeyDataInfo(rec, baseUrl, false);
+                logger.info("KeyProcessor: - key: {}", info.getKeyId());
+                infos.addEntry(info);
+
+                auditKeyInfoSuccess(principal, info.getKeyId(), null, auditInfo);
+            }
+
+            if (!cursor.isClosed()) {
+                infos.setNext(cursor.getID());
+            }
+
+        } catch (EBaseException e) {
+            throw new PKIException("Unable to list keys: " + e.getMessage(), e);
+        }
+        return infos;
+    }
+
+    private void checkListRealm(Principal principal, String realm) {
+
+        if (realm == null) {
+            return;
+        }
+
+        try {
+            authz.checkRealm(realm, getAuthToken(principal), null, "certServer.kra.keys", "list");
+
+        } catch (EAuthzAccessDenied e) {
+            throw new UnauthorizedException("Unauthorized: " + e.getMessage(), e);
+
+        } catch (EAuthzUnknownRealm e) {
+            throw new BadRequestException("Unknown realm: " + e.getMessage(), e);
+
+        } catch (EBaseException e) {
+            logger.error("Unable to access realm: " + e.getMessage(), e);
+            throw new PKIException("Unable to access realm: " + e.getMessage(), e);
+        }
+    }
+
     public KeyInfo getKeyInfo(Principal principal, String baseUrl, KeyId keyId) {
         String auditInfo = "KeyProcessor.getKeyInfo";
         logger.debug("KeyProcessor.getKeyInfo: begins.");
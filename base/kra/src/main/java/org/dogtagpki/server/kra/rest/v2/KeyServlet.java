@@ -60,7 +60,10 @@ public class KeyServlet extends KRAServlet {
         int start = request.getParameter("start") == null ? 0 : Integer.parseInt(request.getParameter("start"));
         String realm = request.getParameter("realm");
         String owner = request.getParameter("owner");
-        KeyInfoCollection keys = keyProcessor.listKeys(request.getUserPrincipal(), request.getRequestURL().toString(), clientKeyID, status, maxResults, maxTime, start, size, realm, owner);
+        String cursorID = request.getParameter("cursor");
+        KeyInfoCollection keys = cursorID == null ?
+                keyProcessor.listKeys(request.getUserPrincipal(), request.getRequestURL().toString(), clientKeyID, status, maxResults, maxTime, start, size, realm, owner) :
+                keyProcessor.listKeys(request.getUserPrincipal(), request.getRequestURL().toString(), clientKeyID, status, cursorID, size, realm, owner);
         PrintWriter out = response.getWriter();
         out.println(keys.toJSON());
     }
@@ -17,7 +17,11 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cms.ocsp;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
@@ -27,7 +31,9 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.codec.binary.Hex;
 import org.mozilla.jss.asn1.GeneralizedTime;
@@ -52,6 +58,7 @@ import com.netscape.cmscore.dbs.DBSSession;
 import com.netscape.cmscore.dbs.DBSearchResults;
 import com.netscape.cmscore.dbs.DBSubsystem;
 import com.netscape.cmscore.dbs.RepositoryRecord;
+import com.netscape.cmscore.dbs.RevocationIndex;
 import com.netscape.cmsutil.ocsp.CertID;
 import com.netscape.cmsutil.ocsp.CertStatus;
 import com.netscape.cmsutil.ocsp.GoodInfo;
@@ -75,6 +82,13 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
     // the master (by default no refresh)
     private static final String PROP_USE_CACHE = "useCache";
 
+    // Revocation status is looked up in a compact index built from
+    // the CRL. If indexDir is set the index is also stored in that
+    // directory and memory-mapped, so it does not have to be rebuilt
+    // from the CRL after a restart.
+    private static final String PROP_USE_INDEX = "useIndex";
+    private static final String PROP_INDEX_DIR = "indexDir";
+
     private static final String PROP_REFRESH_IN_SEC = "refreshInSec";
     private static final int DEF_REFRESH_IN_SEC = 0;
 
@@ -95,6 +109,10 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
     protected boolean mByName = false;
     protected boolean mIncludeNextUpdate = false;
     protected Hashtable<String, CRLIPContainer> mCacheCRLIssuingPoints = new Hashtable<>();
+    protected boolean mUseIndex = true;
+    protected Path mIndexDir;
+    protected Map<String, RevocationIndex> mRevocationIndexes = new ConcurrentHashMap<>();
+    private OCSPResponseCache responseCache;
     private ConfigStore mConfig;
     private String mId = null;
     private DBSubsystem dbSubsystem;
@@ -149,6 +167,18 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
 
         mUseCache = mConfig.getBoolean(PROP_USE_CACHE, true);
 
+        mUseIndex = mConfig.getBoolean(PROP_USE_INDEX, true);
+
+        String indexDir = mConfig.getString(PROP_INDEX_DIR, null);
+        if (mUseIndex && indexDir != null && !indexDir.isEmpty()) {
+            mIndexDir = Paths.get(indexDir);
+            try {
+                Files.createDirectories(mIndexDir);
+            } catch (IOException e) {
+                throw new EBaseException("Unable to create revocation index directory " + indexDir + ": " + e.getMessage(), e);
+            }
+        }
+
         mByName = mConfig.getBoolean(PROP_BY_NAME, false);
 
         // To include next update in the OCSP response. If included,
@@ -293,6 +323,13 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
         return mConfig;
     }
 
+    /**
+     * Sets the response cache to refresh when a new CRL is received.
+     */
+    public void setResponseCache(OCSPResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
     public void setId(String id) throws EBaseException {
         mId = id;
     }
@@ -315,6 +352,7 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
         // cache result to speed up the performance
         X509CertImpl theCert = null;
         X509CRLImpl theCRL = null;
+        RevocationIndex theIndex = null;
         CRLIssuingPointRecord theRec = null;
         byte[] keyhsh = cid.getIssuerKeyHash().toByteArray();
         byte[] namehash = cid.getIssuerNameHash().toByteArray();
@@ -366,7 +404,14 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
                     throw new Exception("Missing CRL data");
                 }
 
-                if (rec.getCRLCache() == null) {
+                if (mUseIndex) {
+                    theIndex = getRevocationIndex(rec);
+                }
+
+                if (theIndex != null) {
+                    logger.info("DefStore: Revocation index available");
+
+                } else if (rec.getCRLCache() == null) {
                     logger.info("DefStore: CRL cache not available -> parsing CRL data");
                     try {
                         theCRL = new X509CRLImpl(crldata);
@@ -380,7 +425,7 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
                 }
 
                 logger.info("DefStore: Adding CRL issuing point container for {}", new String(Hex.encodeHex(digest)));
-                mCacheCRLIssuingPoints.put(new String(digest), new CRLIPContainer(theRec, theCert, theCRL));
+                mCacheCRLIssuingPoints.put(new String(digest), new CRLIPContainer(theRec, theCert, theCRL, theIndex));
                 break;
             }
 
@@ -388,6 +433,7 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
             theCert = matched.getX509CertImpl();
             theRec = matched.getCRLIssuingPointRecord();
             theCRL = matched.getX509CRLImpl();
+            theIndex = matched.getRevocationIndex();
             incReqCount(theRec.getId());
         }
 
@@ -434,6 +480,26 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
 
         CertStatus certStatus;
 
+        if (theIndex != null) {
+
+            RevocationIndex.Entry entry = theIndex.get(new BigInteger(serialNo.toString()));
+
+            if (entry != null) {
+                logger.info("DefStore: Cert found in revocation index -> Revoked");
+                certStatus = new RevokedInfo(new GeneralizedTime(entry.getRevocationDate()));
+
+            } else if (isNotFoundGood()) {
+                logger.info("DefStore: Cert not found in revocation index -> Good");
+                certStatus = new GoodInfo();
+
+            } else {
+                logger.info("DefStore: Cert not found in revocation index -> Unknown");
+                certStatus = new UnknownInfo();
+            }
+
+            return new SingleResponse(cid, certStatus, thisUpdate, nextUpdate);
+        }
+
         if (theCRL == null) {
 
             certStatus = new UnknownInfo();
@@ -493,6 +559,100 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
                 nextUpdate);
     }
 
+    /**
+     * Returns the revocation index of an issuing point. The index is
+     * reused as long as it was built from the CRL in the record,
+     * otherwise it is loaded from the index directory or rebuilt from
+     * the CRL cache or the CRL in the record.
+     *
+     * @return revocation index, or null if it cannot be created
+     */
+    public RevocationIndex getRevocationIndex(CRLIssuingPointRecord rec) {
+
+        String id = rec.getId();
+
+        RevocationIndex index = mRevocationIndexes.get(id);
+        if (index != null && isCurrent(index, rec)) {
+            return index;
+        }
+
+        if (mIndexDir != null) {
+            Path path = getRevocationIndexPath(id);
+
+            if (Files.exists(path)) {
+                try {
+                    index = RevocationIndex.load(path, true);
+
+                    if (isCurrent(index, rec)) {
+                        logger.info("DefStore: Loaded revocation index for " + id + ": " + index.size() + " entries");
+                        mRevocationIndexes.put(id, index);
+                        return index;
+                    }
+
+                    logger.info("DefStore: Revocation index for " + id + " is outdated");
+
+                } catch (IOException e) {
+                    logger.warn("DefStore: Unable to load revocation index " + path + ": " + e.getMessage(), e);
+                }
+            }
+        }
+
+        try {
+            Hashtable<BigInteger, RevokedCertificate> cache = rec.getCRLCacheNoClone();
+
+            if (cache != null) {
+                logger.info("DefStore: Creating revocation index from CRL cache");
+                index = RevocationIndex.create(cache.values(), rec.getThisUpdate(), rec.getCRLNumber());
+
+            } else {
+                byte[] crldata = rec.getCRL();
+                if (crldata == null) {
+                    return null;
+                }
+
+                logger.info("DefStore: Creating revocation index from CRL data");
+                X509CRLImpl crl = new X509CRLImpl(crldata);
+                index = RevocationIndex.create(crl.getRevokedCertificates(), rec.getThisUpdate(), crl.getCRLNumber());
+            }
+
+        } catch (Exception e) {
+            logger.warn("DefStore: Unable to create revocation index for " + id + ": " + e.getMessage(), e);
+            return null;
+        }
+
+        updateRevocationIndex(id, index);
+        return index;
+    }
+
+    private boolean isCurrent(RevocationIndex index, CRLIssuingPointRecord rec) {
+        Date thisUpdate = rec.getThisUpdate();
+        return thisUpdate != null && thisUpdate.equals(index.getThisUpdate());
+    }
+
+    private Path getRevocationIndexPath(String id) {
+        return mIndexDir.resolve(transformDN(id) + ".idx");
+    }
+
+    private void updateRevocationIndex(String id, RevocationIndex index) {
+
+        logger.info("DefStore: Revocation index for " + id + ": " + index.size()
+                + " entries, " + index.getMemoryUsage() + " bytes");
+
+        if (mIndexDir != null) {
+            Path path = getRevocationIndexPath(id);
+            try {
+                index.store(path);
+                // use the mapped index instead of the copy in the heap
+                index = RevocationIndex.load(path, true);
+
+            } catch (IOException e) {
+                logger.warn("DefStore: Unable to store revocation index " + path + ": " + e.getMessage(), e);
+            }
+        }
+
+        mRevocationIndexes.put(id, index);
+    }
+
     private String transformDN(String dn) {
         String newdn = dn;
 
@@ -768,9 +928,29 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
             logger.debug("DefStore: done CRL update " +
                     crl.getIssuerDN().getName());
 
+            if (mUseIndex) {
+                // build the index from the parsed CRL so it does not have to be
+                // parsed again by the next request
+                try {
+                    X509CRLImpl crlImpl = (X509CRLImpl) crl;
+                    RevocationIndex index = RevocationIndex.create(
+                            crlImpl.getRevokedCertificates(),
+                            crl.getThisUpdate(),
+                            crlImpl.getCRLNumber());
+                    updateRevocationIndex(crl.getIssuerDN().getName(), index);
+
+                } catch (Exception e) {
+                    logger.warn("DefStore: Unable to update revocation index: " + e.getMessage(), e);
+                }
+            }
+
             // update cache
             mCacheCRLIssuingPoints.clear();
 
+            if (responseCache != null) {
+                responseCache.refresh();
+            }
+
             logger.info("DefStore: Finish Committing CRL." +
                     " thisUpdate=" + crl.getThisUpdate() +
                     " nextUpdate=" + crl.getNextUpdate());
@@ -807,11 +987,17 @@ class CRLIPContainer {
     private CRLIssuingPointRecord mRec = null;
     private X509CertImpl mCert = null;
     private X509CRLImpl mCRL = null;
+    private RevocationIndex mIndex = null;
 
     public CRLIPContainer(CRLIssuingPointRecord rec, X509CertImpl cert, X509CRLImpl crl) {
+        this(rec, cert, crl, null);
+    }
+
+    public CRLIPContainer(CRLIssuingPointRecord rec, X509CertImpl cert, X509CRLImpl crl, RevocationIndex index) {
         mRec = rec;
         mCert = cert;
         mCRL = crl;
+        mIndex = index;
     }
 
     public CRLIssuingPointRecord getCRLIssuingPointRecord() {
@@ -825,6 +1011,10 @@ class CRLIPContainer {
     public X509CRLImpl getX509CRLImpl() {
         return mCRL;
     }
+
+    public RevocationIndex getRevocationIndex() {
+        return mIndex;
+    }
 }
 
 class DefStoreCRLUpdater extends Thread {
@@ -57,6 +57,9 @@ import com.netscape.certsrv.ocsp.IOCSPService;
 import com.netscape.certsrv.ocsp.IOCSPStore;
 import com.netscape.certsrv.security.SigningUnit;
 import com.netscape.certsrv.security.SigningUnitConfig;
+import com.netscape.cms.ocsp.DefStore;
+import com.netscape.cms.ocsp.OCSPResponseCache;
+import com.netscape.cms.ocsp.OCSPResponseCacheConfig;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.dbs.DBSubsystem;
@@ -105,6 +108,7 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
 
     private String[] mOCSPSigningAlgorithms = null;
     private IOCSPStore mDefStore = null;
+    private OCSPResponseCache responseCache;
 
     public long mNumOCSPRequest = 0;
     public long mTotalTime = 0;
@@ -182,6 +186,17 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
             throw e;
         }
 
+        OCSPResponseCacheConfig responseCacheConfig = mConfig.getResponseCacheConfig();
+        if (responseCacheConfig.getEnable()) {
+            responseCache = new OCSPResponseCache(mId, this::createResponse);
+            responseCache.init(responseCacheConfig);
+
+            // refresh the cache when a new CRL is received
+            if (mDefStore instanceof DefStore defStore) {
+                defStore.setResponseCache(responseCache);
+            }
+        }
+
         try {
             String ocspSigningSKI = CryptoUtil.getSKIString(mSigningUnit.getCertImpl());
             auditor.log(OCSPSigningInfoEvent.createSuccessEvent(ILogger.SYSTEM_UID, ocspSigningSKI));
@@ -317,6 +332,13 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
         return (IDefStore) mDefStore;
     }
 
+    /**
+     * Returns the OCSP response cache, or null if disabled.
+     */
+    public OCSPResponseCache getResponseCache() {
+        return responseCache;
+    }
+
     private void initSigUnit() throws EBaseException {
 
         logger.info("OCSPAuthority: Initializing OCSP signing unit");
@@ -387,113 +409,153 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
             }
         }
 
-        OCSPEngine engine = OCSPEngine.getInstance();
-        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
-
         incNumOCSPRequest(1);
         long startTime = new Date().getTime();
 
+        String cacheKey = null;
+        long cacheGeneration = 0;
+
+        if (responseCache != null) {
+            cacheKey = responseCache.getKey(tbsReq);
+        }
+
+        if (cacheKey != null) {
+            cacheGeneration = responseCache.getGeneration();
+
+            OCSPResponse response = responseCache.get(cacheKey);
+            if (response != null) {
+                logger.info("OCSPAuthority: Returning cached OCSP response");
+
+                long endTime = new Date().getTime();
+                incTotalTime(endTime - startTime);
+                mServedTime = mServedTime + (endTime - startTime);
+
+                return response;
+            }
+        }
+
         OCSPResponse response;
 
         try {
-            // (3) look into database to check the certificate's status
-            Vector<SingleResponse> singleResponses = new Vector<>();
+            long createStartTime = new Date().getTime();
+
+            BasicOCSPResponse basicRes = createResponse(tbsReq);
 
-            if (statsSub != null) {
-                statsSub.startTiming("lookup");
+            if (cacheKey != null) {
+                responseCache.addSigningTime(new Date().getTime() - createStartTime);
+                responseCache.put(cacheKey, tbsReq.getRequestAt(0), basicRes, cacheGeneration);
             }
 
-            long lookupStartTime = new Date().getTime();
+            response = new OCSPResponse(
+                    OCSPResponseStatus.SUCCESSFUL,
+                    new ResponseBytes(ResponseBytes.OCSP_BASIC,
+                            new OCTET_STRING(ASN1Util.encode(basicRes))));
 
-            for (int i = 0; i < tbsReq.getRequestCount(); i++) {
-                Request req = tbsReq.getRequestAt(i);
+        } catch (EBaseException e) {
+            logger.error(CMS.getLogMessage("OCSP_REQUEST_FAILURE", e.toString()), e);
+            throw e;
 
-                CertID certID = req.getCertID();
-                logger.info("OCSPAuthority: Checking cert 0x{} status", certID.getSerialNumber().toString(16));
+        } catch (Exception e) {
+            logger.error(CMS.getLogMessage("OCSP_REQUEST_FAILURE", e.toString()), e);
+            throw new EBaseException(e);
+        }
 
-                SingleResponse sr = mDefStore.processRequest(req);
-                logger.info("CertificateAuthority: - status: {}", sr.getCertStatus());
+        logger.info("OCSPAuthority: Done validating OCSP request");
 
-                singleResponses.addElement(sr);
-            }
+        long endTime = new Date().getTime();
+        incTotalTime(endTime - startTime);
 
-            long lookupEndTime = new Date().getTime();
-            incLookupTime(lookupEndTime - lookupStartTime);
+        mServedTime = mServedTime + (endTime - startTime);
 
-            if (statsSub != null) {
-                statsSub.endTiming("lookup");
-            }
+        return response;
+    }
 
-            if (statsSub != null) {
-                statsSub.startTiming("build_response");
-            }
+    /**
+     * Looks up the status of the certificates in the request and
+     * creates a signed response.
+     */
+    public BasicOCSPResponse createResponse(TBSRequest tbsReq) throws Exception {
 
-            SingleResponse res[] = new SingleResponse[singleResponses.size()];
-            singleResponses.copyInto(res);
+        OCSPEngine engine = OCSPEngine.getInstance();
+        StatsSubsystem statsSub = (StatsSubsystem) engine.getSubsystem(StatsSubsystem.ID);
 
-            ResponderID rid = null;
+        // (3) look into database to check the certificate's status
+        Vector<SingleResponse> singleResponses = new Vector<>();
 
-            if (mDefStore.isByName()) {
-                rid = getResponderIDByName();
-            } else {
-                rid = getResponderIDByHash();
-            }
+        if (statsSub != null) {
+            statsSub.startTiming("lookup");
+        }
 
-            Extension nonce[] = null;
+        long lookupStartTime = new Date().getTime();
 
-            for (int j = 0; j < tbsReq.getExtensionsCount(); j++) {
-                Extension thisExt = tbsReq.getRequestExtensionAt(j);
+        for (int i = 0; i < tbsReq.getRequestCount(); i++) {
+            Request req = tbsReq.getRequestAt(i);
 
-                if (thisExt.getExtnId().equals(OCSPAuthority.OCSP_NONCE)) {
-                    nonce = new Extension[1];
-                    nonce[0] = thisExt;
-                }
-            }
+            CertID certID = req.getCertID();
+            logger.info("OCSPAuthority: Checking cert 0x{} status", certID.getSerialNumber().toString(16));
 
-            ResponseData rd = new ResponseData(rid,
-                    new GeneralizedTime(new Date()), res, nonce);
+            SingleResponse sr = mDefStore.processRequest(req);
+            logger.info("CertificateAuthority: - status: {}", sr.getCertStatus());
 
-            if (statsSub != null) {
-                statsSub.endTiming("build_response");
-            }
+            singleResponses.addElement(sr);
+        }
 
-            if (statsSub != null) {
-                statsSub.startTiming("signing");
-            }
+        long lookupEndTime = new Date().getTime();
+        incLookupTime(lookupEndTime - lookupStartTime);
+
+        if (statsSub != null) {
+            statsSub.endTiming("lookup");
+        }
+
+        if (statsSub != null) {
+            statsSub.startTiming("build_response");
+        }
+
+        SingleResponse res[] = new SingleResponse[singleResponses.size()];
+        singleResponses.copyInto(res);
+
+        ResponderID rid = null;
 
-            long signStartTime = new Date().getTime();
+        if (mDefStore.isByName()) {
+            rid = getResponderIDByName();
+        } else {
+            rid = getResponderIDByHash();
+        }
 
-            BasicOCSPResponse basicRes = sign(rd);
+        Extension nonce[] = null;
 
-            long signEndTime = new Date().getTime();
-            incSignTime(signEndTime - signStartTime);
+        for (int j = 0; j < tbsReq.getExtensionsCount(); j++) {
+            Extension thisExt = tbsReq.getRequestExtensionAt(j);
 
-            if (statsSub != null) {
-                statsSub.endTiming("signing");
+            if (thisExt.getExtnId().equals(OCSPAuthority.OCSP_NONCE)) {
+                nonce = new Extension[1];
+                nonce[0] = thisExt;
             }
+        }
 
-            response = new OCSPResponse(
-                    OCSPResponseStatus.SUCCESSFUL,
-                    new ResponseBytes(ResponseBytes.OCSP_BASIC,
-                            new OCTET_STRING(ASN1Util.encode(basicRes))));
+        ResponseData rd = new ResponseData(rid,
+                new GeneralizedTime(new Date()), res, nonce);
 
-        } catch (EBaseException e) {
-            logger.error(CMS.getLogMessage("OCSP_REQUEST_FAILURE", e.toString()), e);
-            throw e;
+        if (statsSub != null) {
+            statsSub.endTiming("build_response");
+        }
 
-        } catch (Exception e) {
-            logger.error(CMS.getLogMessage("OCSP_REQUEST_FAILURE", e.toString()), e);
-            throw new EBaseException(e);
+        if (statsSub != null) {
+            statsSub.startTiming("signing");
         }
 
-        logger.info("OCSPAuthority: Done validating OCSP request");
+        long signStartTime = new Date().getTime();
 
-        long endTime = new Date().getTime();
-        incTotalTime(endTime - startTime);
+        BasicOCSPResponse basicRes = sign(rd);
 
-        mServedTime = mServedTime + (endTime - startTime);
+        long signEndTime = new Date().getTime();
+        incSignTime(signEndTime - signStartTime);
 
-        return response;
+        if (statsSub != null) {
+            statsSub.endTiming("signing");
+        }
+
+        return basicRes;
     }
 
     /**
@@ -503,6 +565,9 @@ public class OCSPAuthority extends Subsystem implements IAuthority, IOCSPService
      */
     @Override
     public void shutdown() {
+        if (responseCache != null) {
+            responseCache.shutdown();
+        }
     }
 
     /**
@@ -7,6 +7,7 @@ package org.dogtagpki.server.ocsp;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.security.SigningUnitConfig;
+import com.netscape.cms.ocsp.OCSPResponseCacheConfig;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.base.SimpleProperties;
@@ -31,6 +32,13 @@ public class OCSPConfig extends ConfigStore {
         return getSubStore("signing", SigningUnitConfig.class);
     }
 
+    /**
+     * Returns ocsp.responseCache.* parameters.
+     */
+    public OCSPResponseCacheConfig getResponseCacheConfig() {
+        return getSubStore("responseCache", OCSPResponseCacheConfig.class);
+    }
+
     /**
      * Returns the comma-separated list of digest algorithms to reject in OCSP requests.
      * If not configured or empty, all algorithms are accepted.
@@ -78,4 +78,12 @@ public class ConnectorConfig extends ConfigStore {
     public int getMaxHttpConns() throws EBaseException {
         return getInteger("maxHttpConns", 15);
     }
+
+    public boolean getKeepAlive() throws EBaseException {
+        return getBoolean("keepAlive", true);
+    }
+
+    public int getIdleTimeout() throws EBaseException {
+        return getInteger("idleTimeout", 30);
+    }
 }
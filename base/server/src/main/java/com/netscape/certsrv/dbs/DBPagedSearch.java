@@ -32,4 +32,17 @@ public abstract class DBPagedSearch<E extends IDBObj> {
 
     public abstract List<E> getPage(int size) throws EBaseException;
 
+    /**
+     * Returns false if the last page has been retrieved.
+     */
+    public boolean hasMorePages() {
+        return true;
+    }
+
+    /**
+     * Releases the resources held by the search.
+     */
+    public void close() {
+    }
+
 }
@@ -17,14 +17,21 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cms.authorization;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.dogtagpki.server.authentication.AuthToken;
 import org.dogtagpki.server.authorization.AuthorizationConfig;
@@ -42,6 +49,7 @@ import com.netscape.certsrv.evaluators.AccessEvaluator;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.EngineConfig;
 import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.usrgrp.UGSubsystem;
 
 /**
  * An abstract class represents an authorization manager that governs the
@@ -65,6 +73,17 @@ import com.netscape.cmscore.base.ConfigStore;
  *
  * Default "evaluators" are used to evaluate the "group=.." or "user=.." rules. See evaluator for more info.
  *
+ * The ACL expressions are parsed when the ACLs are added or updated, and the
+ * parsed ACLs are published as an immutable snapshot, so permission checks do
+ * not need to hold a lock. Optionally the decisions for ACLs that only depend
+ * on the user and group evaluators can be cached:
+ *
+ * <PRE>
+ *   authz.instance.&lt;name&gt;.cache.enable=true
+ *   authz.instance.&lt;name&gt;.cache.size=10000
+ *   authz.instance.&lt;name&gt;.cache.ttl=60
+ * </PRE>
+ *
  * @see <A HREF="http://developer.netscape.com/library/documentation/enterprise/admnunix/aclfiles.htm">ACL Files</A>
  */
 public abstract class AAclAuthz extends AuthzManager {
@@ -79,9 +98,37 @@ public abstract class AAclAuthz extends AuthzManager {
 
     protected static final String ACLS_ATTR = "aclResources";
 
-    private Map<String, ACL> mACLs = new HashMap<>();
+    /**
+     * Evaluator types whose result only depends on the user and
+     * its group memberships, so the decision can be cached.
+     */
+    protected static final Set<String> CACHEABLE_TYPES = Set.of("user", "group");
+
+    /**
+     * Maximum number of parsed expressions kept for evaluateACLs().
+     */
+    protected static final int MAX_EXPRESSIONS = 1000;
+
+    private Map<String, ACL> mACLs = new ConcurrentHashMap<>();
     private Hashtable<String, AccessEvaluator> mEvaluators = new Hashtable<>();
 
+    // lock for updating ACLs and evaluators
+    private final Object updateLock = new Object();
+
+    // immutable snapshots used by permission checks
+    private volatile Map<String, CompiledACLEntry[]> compiledACLs = Collections.emptyMap();
+    private volatile Map<String, AccessEvaluator> evaluators = Collections.emptyMap();
+
+    private Map<String, ACLExpression> expressions = new ConcurrentHashMap<>();
+
+    // decision cache
+    private boolean cacheEnabled;
+    private int cacheSize;
+    private long cacheTTL;
+    private Map<String, CachedDecision> decisions = new ConcurrentHashMap<>();
+    private LongAdder cacheHits = new LongAdder();
+    private LongAdder cacheMisses = new LongAdder();
+
     /* Vector of extendedPluginInfo strings */
     protected static Vector<String> mExtendedPluginInfo = null;
 
@@ -150,6 +197,11 @@ public abstract class AAclAuthz extends AuthzManager {
             }
         }
 
+        cacheEnabled = config.getCacheEnabled();
+        cacheSize = config.getCacheSize();
+        cacheTTL = TimeUnit.SECONDS.toMillis(config.getCacheTTL());
+        logger.debug("AAclAuthz: decision cache enabled: " + cacheEnabled);
+
         logger.info("AAclAuthz: initialization done");
     }
 
@@ -179,15 +231,47 @@ public abstract class AAclAuthz extends AuthzManager {
 
     public void addACLs(ACL acl) throws EACLsException {
 
-        ACL curACL = mACLs.get(acl.getName());
+        synchronized (updateLock) {
+            ACL curACL = mACLs.get(acl.getName());
 
-        if (curACL == null) {
-            mACLs.put(acl.getName(), acl);
-        } else {
-            curACL.merge(acl);
+            if (curACL == null) {
+                mACLs.put(acl.getName(), acl);
+                publishACL(acl);
+            } else {
+                curACL.merge(acl);
+                publishACL(curACL);
+            }
         }
     }
 
+    /**
+     * Parses the expressions of the given ACL and publishes a new
+     * snapshot of the parsed ACLs. Must be called with updateLock held.
+     */
+    private void publishACL(ACL acl) {
+
+        List<CompiledACLEntry> entries = new ArrayList<>();
+        Enumeration<ACLEntry> e = acl.entries();
+        while (e != null && e.hasMoreElements()) {
+            ACLEntry entry = e.nextElement();
+            entries.add(new CompiledACLEntry(entry, ACLExpression.parse(entry.getAttributeExpressions())));
+        }
+
+        Map<String, CompiledACLEntry[]> acls = new HashMap<>(compiledACLs);
+        acls.put(acl.getName(), entries.toArray(new CompiledACLEntry[entries.size()]));
+        compiledACLs = Collections.unmodifiableMap(acls);
+
+        decisions.clear();
+    }
+
+    /**
+     * Returns the snapshot of parsed ACLs. Subclasses that load
+     * the ACLs lazily should load them before returning the snapshot.
+     */
+    protected Map<String, CompiledACLEntry[]> getCompiledACLs() throws EACLsException {
+        return compiledACLs;
+    }
+
     @Override
     public void accessInit(String accessInfo) throws EBaseException {
         addACLs(accessInfo);
@@ -229,7 +313,17 @@ public abstract class AAclAuthz extends AuthzManager {
      */
     @Override
     public void registerEvaluator(String type, AccessEvaluator evaluator) {
-        mEvaluators.put(type, evaluator);
+
+        synchronized (updateLock) {
+            mEvaluators.put(type, evaluator);
+
+            Map<String, AccessEvaluator> map = new HashMap<>(evaluators);
+            map.put(type, evaluator);
+            evaluators = Collections.unmodifiableMap(map);
+
+            decisions.clear();
+        }
+
         logger.info("AAclAuthz: " + type + " evaluator registered");
     }
 
@@ -261,7 +355,7 @@ public abstract class AAclAuthz extends AuthzManager {
      * @param perm permission requested
      * @exception EACLsException access permission denied
      */
-    protected synchronized void checkPermission(String name, String perm)
+    protected void checkPermission(String name, String perm)
             throws EACLsException {
 
         String resource = "";
@@ -318,10 +412,10 @@ public abstract class AAclAuthz extends AuthzManager {
      */
     protected boolean checkACLs(String name, String perm) throws EACLsException {
 
-        ACL acl = mACLs.get(name);
+        CompiledACLEntry[] entries = getCompiledACLs().get(name);
 
         // no such resource, pass it down
-        if (acl == null) {
+        if (entries == null) {
             String infoMsg = "checkACLs(): no acl for" +
                     name + "...pass down to next node";
 
@@ -330,9 +424,7 @@ public abstract class AAclAuthz extends AuthzManager {
             return false;
         }
 
-        Enumeration<ACLEntry> e = acl.entries();
-
-        if (e == null || !e.hasMoreElements()) {
+        if (entries.length == 0) {
             // no acis for node, pass down to next node
             String infoMsg = " AAclAuthz.checkACLs(): no acis for " +
                     name + " acl entry...pass down to next node";
@@ -345,12 +437,13 @@ public abstract class AAclAuthz extends AuthzManager {
         /**
          * must pass all ACLEntry
          */
-        while (e.hasMoreElements()) {
-            ACLEntry entry = e.nextElement();
+        for (CompiledACLEntry compiledEntry : entries) {
+            ACLEntry entry = compiledEntry.entry;
 
             // if permission not pertinent, move on to next ACLEntry
             if (entry.containPermission(perm)) {
-                if (evaluateExpressions(entry.getAttributeExpressions())) {
+                logger.debug("evaluating expressions: " + compiledEntry.expression);
+                if (compiledEntry.expression.evaluate(evaluators)) {
                     if (!entry.checkPermission(perm)) {
                         logger.error("AAclAuthz: checkACLs(): permission denied");
                         throw new EACLsException(CMS.getUserMessage("CMS_ACL_PERMISSION_DENIED"));
@@ -366,88 +459,6 @@ public abstract class AAclAuthz extends AuthzManager {
         return true;
     }
 
-    /**
-     * Resolves the given expressions.
-     * expression || expression || ...
-     * example:
-     * group="Administrators" || group="Operators"
-     */
-    private boolean evaluateExpressions(String s) {
-        // XXX - just handle "||" (or) among multiple expressions for now
-        // XXX - could use some optimization ... later
-
-        logger.debug("evaluating expressions: " + s);
-
-        Vector<Object> v = new Vector<>();
-
-        while (s.length() > 0) {
-            int orIndex = s.indexOf("||");
-            int andIndex = s.indexOf("&&");
-
-            // this is the last expression
-            if (orIndex == -1 && andIndex == -1) {
-                boolean passed = evaluateExpression(s.trim());
-
-                v.addElement(Boolean.valueOf(passed));
-                break;
-
-                // || first
-            } else if (andIndex == -1 || (orIndex != -1 && orIndex < andIndex)) {
-                String s1 = s.substring(0, orIndex);
-                boolean passed = evaluateExpression(s1.trim());
-
-                v.addElement(Boolean.valueOf(passed));
-                v.addElement("||");
-                s = s.substring(orIndex + 2);
-                // && first
-            } else {
-                String s1 = s.substring(0, andIndex);
-                boolean passed = evaluateExpression(s1.trim());
-
-                v.addElement(Boolean.valueOf(passed));
-                v.addElement("&&");
-                s = s.substring(andIndex + 2);
-            }
-        }
-
-        if (v.size() == 1) {
-            Boolean bool = (Boolean) v.remove(0);
-
-            return bool.booleanValue();
-        }
-        boolean left = false;
-        String op = "";
-        boolean right = false;
-
-        while (!v.isEmpty()) {
-            if (op.equals(""))
-                left = ((Boolean) v.remove(0)).booleanValue();
-            op = (String) v.remove(0);
-            right = ((Boolean) v.remove(0)).booleanValue();
-            left = evaluateExp(left, op, right);
-        }
-
-        return left;
-    }
-
-    /**
-     * Resolves the given expression.
-     */
-    private boolean evaluateExpression(String expression) {
-        // XXX - just recognize "=" for now!!
-        int i = expression.indexOf("=");
-        String type = expression.substring(0, i);
-        String value = expression.substring(i + 1);
-        AccessEvaluator evaluator = mEvaluators.get(type);
-
-        if (evaluator == null) {
-            logger.warn("AAclAuthz: " + CMS.getLogMessage("AUTHZ_EVALUATOR_NOT_FOUND", type));
-            return false;
-        }
-
-        return evaluator.evaluate(type, "=", value);
-    }
-
     /*******************************************************
      * with authToken
      *******************************************************/
@@ -477,22 +488,43 @@ public abstract class AAclAuthz extends AuthzManager {
      * @param perm permission requested
      * @exception EACLsException access permission denied
      */
-    public synchronized void checkPermission(AuthToken authToken, String name,
+    public void checkPermission(AuthToken authToken, String name,
             String perm)
             throws EACLsException {
 
         logger.debug("AAclAuthz.checkPermission(" + name + ", " + perm + ")");
 
+        Map<String, CompiledACLEntry[]> acls = getCompiledACLs();
         Vector<String> nodes = getNodes(name);
         EvaluationOrder order = getOrder();
 
-        boolean permitted = false;
-        if (order == EvaluationOrder.DENY_ALLOW) {
-            checkDenyEntries(authToken, nodes, perm);
-            permitted = checkAllowEntries(authToken, nodes, perm);
-        } else if (order == EvaluationOrder.ALLOW_DENY) {
-            permitted = checkAllowEntries(authToken, nodes, perm);
-            checkDenyEntries(authToken, nodes, perm);
+        String key = null;
+        long groupsVersion = 0;
+        Boolean permitted = null;
+
+        if (cacheEnabled) {
+            key = getCacheKey(authToken, name, perm);
+            groupsVersion = getGroupsVersion();
+            permitted = getCachedDecision(key, groupsVersion);
+        }
+
+        if (permitted == null) {
+            permitted = false;
+            try {
+                if (order == EvaluationOrder.DENY_ALLOW) {
+                    checkDenyEntries(acls, authToken, nodes, perm);
+                    permitted = checkAllowEntries(acls, authToken, nodes, perm);
+                } else if (order == EvaluationOrder.ALLOW_DENY) {
+                    permitted = checkAllowEntries(acls, authToken, nodes, perm);
+                    checkDenyEntries(acls, authToken, nodes, perm);
+                }
+
+            } catch (EACLsException e) {
+                if (key != null) cacheDecision(acls, key, nodes, perm, false, groupsVersion);
+                throw e;
+            }
+
+            if (key != null) cacheDecision(acls, key, nodes, perm, permitted, groupsVersion);
         }
 
         if (!permitted) {
@@ -512,9 +544,17 @@ public abstract class AAclAuthz extends AuthzManager {
             AuthToken authToken,
             Iterable<String> nodes,
             String perm) throws EACLsException {
-        for (ACLEntry entry : getEntries(ACLEntry.Type.ALLOW, nodes, perm)) {
-            logger.debug("checkAllowEntries(): expressions: " + entry.getAttributeExpressions());
-            if (evaluateExpressions(authToken, entry.getAttributeExpressions())) {
+        return checkAllowEntries(getCompiledACLs(), authToken, nodes, perm);
+    }
+
+    private boolean checkAllowEntries(
+            Map<String, CompiledACLEntry[]> acls,
+            AuthToken authToken,
+            Iterable<String> nodes,
+            String perm) throws EACLsException {
+        for (CompiledACLEntry entry : getEntries(acls, ACLEntry.Type.ALLOW, nodes, perm)) {
+            logger.debug("checkAllowEntries(): expressions: " + entry.expression);
+            if (entry.expression.evaluate(authToken, evaluators)) {
                 return true;
             }
         }
@@ -527,9 +567,18 @@ public abstract class AAclAuthz extends AuthzManager {
             Iterable<String> nodes,
             String perm)
             throws EACLsException {
-        for (ACLEntry entry : getEntries(ACLEntry.Type.DENY, nodes, perm)) {
-            logger.debug("checkDenyEntries(): expressions: " + entry.getAttributeExpressions());
-            if (evaluateExpressions(authToken, entry.getAttributeExpressions())) {
+        checkDenyEntries(getCompiledACLs(), authToken, nodes, perm);
+    }
+
+    private void checkDenyEntries(
+            Map<String, CompiledACLEntry[]> acls,
+            AuthToken authToken,
+            Iterable<String> nodes,
+            String perm)
+            throws EACLsException {
+        for (CompiledACLEntry entry : getEntries(acls, ACLEntry.Type.DENY, nodes, perm)) {
+            logger.debug("checkDenyEntries(): expressions: " + entry.expression);
+            if (entry.expression.evaluate(authToken, evaluators)) {
                 logger.error("AAclAuthz: checkPermission(): permission denied");
                 throw new EACLsException(CMS.getUserMessage("CMS_ACL_PERMISSION_DENIED"));
             }
@@ -544,22 +593,35 @@ public abstract class AAclAuthz extends AuthzManager {
 
         Vector<ACLEntry> v = new Vector<>();
 
+        for (CompiledACLEntry entry : getEntries(getCompiledACLs(), entryType, nodes, operation)) {
+            v.addElement(entry.entry);
+        }
+
+        return v;
+    }
+
+    private List<CompiledACLEntry> getEntries(
+            Map<String, CompiledACLEntry[]> acls,
+            ACLEntry.Type entryType,
+            Iterable<String> nodes,
+            String operation) {
+
+        List<CompiledACLEntry> list = new ArrayList<>();
+
         for (String name : nodes) {
-            ACL acl = mACLs.get(name);
-            if (acl == null)
+            CompiledACLEntry[] entries = acls.get(name);
+            if (entries == null)
                 continue;
-            Enumeration<ACLEntry> e = acl.entries();
-            while (e.hasMoreElements()) {
-                ACLEntry entry = e.nextElement();
 
-                if (entry.getType() == entryType &&
-                        entry.containPermission(operation)) {
-                    v.addElement(entry);
+            for (CompiledACLEntry entry : entries) {
+                if (entry.entry.getType() == entryType &&
+                        entry.entry.containPermission(operation)) {
+                    list.add(entry);
                 }
             }
         }
 
-        return v;
+        return list;
     }
 
     /**
@@ -569,148 +631,137 @@ public abstract class AAclAuthz extends AuthzManager {
      * group="Administrators" || group="Operators"
      */
     private boolean evaluateExpressions(AuthToken authToken, String s) {
-        // XXX - just handle "||" (or) among multiple expressions for now
-        // XXX - could use some optimization ... later
+
         logger.debug("evaluating expressions: " + s);
 
-        Vector<Object> v = new Vector<>();
+        ACLExpression expression = expressions.get(s);
 
-        while (s.length() > 0) {
-            int orIndex = s.indexOf("||");
-            int andIndex = s.indexOf("&&");
+        if (expression == null) {
+            expression = ACLExpression.parse(s);
+            if (expressions.size() < MAX_EXPRESSIONS) {
+                expressions.put(s, expression);
+            }
+        }
 
-            // this is the last expression
-            if (orIndex == -1 && andIndex == -1) {
-                boolean passed = evaluateExpression(authToken, s.trim());
+        return expression.evaluate(authToken, evaluators);
+    }
 
-                logger.debug("evaluated expression: " + s.trim() + " to be " + passed);
-                v.addElement(Boolean.valueOf(passed));
-                break;
+    private String getCacheKey(AuthToken authToken, String resource, String operation) {
 
-                // || first
-            } else if (andIndex == -1 || (orIndex != -1 && orIndex < andIndex)) {
-                String s1 = s.substring(0, orIndex);
-                boolean passed = evaluateExpression(authToken, s1.trim());
+        String uid = authToken.getInString(AuthToken.USER_ID);
+        if (uid == null) {
+            uid = authToken.getInString(AuthToken.UID);
+        }
 
-                logger.debug("evaluated expression: " + s1.trim() + " to be " + passed);
-                v.addElement(Boolean.valueOf(passed));
-                v.addElement("||");
-                s = s.substring(orIndex + 2);
-                // && first
-            } else {
-                String s1 = s.substring(0, andIndex);
-                boolean passed = evaluateExpression(authToken, s1.trim());
+        StringBuilder sb = new StringBuilder();
+        sb.append(uid).append('\0');
 
-                logger.debug("evaluated expression: " + s1.trim() + " to be " + passed);
-                v.addElement(Boolean.valueOf(passed));
-                v.addElement("&&");
-                s = s.substring(andIndex + 2);
+        String[] groups = authToken.getInStringArray(AuthToken.GROUPS);
+        if (groups != null) {
+            String[] sorted = groups.clone();
+            Arrays.sort(sorted);
+            for (String group : sorted) {
+                sb.append(group).append(',');
             }
         }
 
-        if (v.isEmpty()) {
-            return false;
-        }
+        sb.append('\0').append(resource).append('\0').append(operation);
+        return sb.toString();
+    }
 
-        if (v.size() == 1) {
-            Boolean bool = (Boolean) v.remove(0);
+    private long getGroupsVersion() {
+        UGSubsystem ug = engine.getUGSubsystem();
+        return ug == null ? 0 : ug.getGroupsVersion();
+    }
 
-            return bool.booleanValue();
-        }
+    private Boolean getCachedDecision(String key, long groupsVersion) {
 
-        boolean left = false;
-        String op = "";
-        boolean right = false;
+        CachedDecision decision = decisions.get(key);
 
-        while (!v.isEmpty()) {
-            if (op.equals(""))
-                left = ((Boolean) v.remove(0)).booleanValue();
-            op = (String) v.remove(0);
-            right = ((Boolean) v.remove(0)).booleanValue();
-            left = evaluateExp(left, op, right);
+        if (decision == null
+                || decision.groupsVersion != groupsVersion
+                || decision.expirationTime < System.currentTimeMillis()) {
+            cacheMisses.increment();
+            return null;
         }
 
-        return left;
+        cacheHits.increment();
+        return decision.permitted;
     }
 
-    public Vector<String> getNodes(String resourceID) {
-        Vector<String> v = new Vector<>();
+    /**
+     * Caches the decision if all the applicable ACL entries only
+     * depend on the user and its groups.
+     */
+    private void cacheDecision(
+            Map<String, CompiledACLEntry[]> acls,
+            String key,
+            Iterable<String> nodes,
+            String perm,
+            boolean permitted,
+            long groupsVersion) {
 
-        if (resourceID != null && !resourceID.equals("")) {
-            v.addElement(resourceID);
-        } else {
-            return v;
+        for (String node : nodes) {
+            CompiledACLEntry[] entries = acls.get(node);
+            if (entries == null) continue;
+
+            for (CompiledACLEntry entry : entries) {
+                if (entry.entry.containPermission(perm) && !entry.expression.usesOnly(CACHEABLE_TYPES)) {
+                    return;
+                }
+            }
         }
-        int index = resourceID.lastIndexOf(".");
-        String name = resourceID;
 
-        while (index != -1) {
-            name = name.substring(0, index);
-            v.addElement(name);
-            index = name.lastIndexOf(".");
+        if (decisions.size() >= cacheSize) {
+            // keep it simple: start over when the cache is full
+            decisions.clear();
         }
 
-        return v;
+        decisions.put(key, new CachedDecision(
+                permitted,
+                groupsVersion,
+                System.currentTimeMillis() + cacheTTL));
     }
 
     /**
-     * Resolves the given expression.
+     * Removes all cached decisions.
      */
-    private boolean evaluateExpression(AuthToken authToken, String expression) {
-        String op = getOp(expression);
-        String type = "";
-        String value = "";
-
-        if (!op.equals("")) {
-            int len = op.length();
-            int i = expression.indexOf(op);
+    public void clearCache() {
+        decisions.clear();
+    }
 
-            type = expression.substring(0, i).trim();
-            value = expression.substring(i + len).trim();
-        }
-        AccessEvaluator evaluator = mEvaluators.get(type);
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
 
-        if (evaluator == null) {
-            logger.warn("AAclAuthz: " + CMS.getLogMessage("AUTHZ_EVALUATOR_NOT_FOUND", type));
-            return false;
-        }
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
 
-        return evaluator.evaluate(authToken, type, op, value);
+    public int getCacheHitRate() {
+        long hits = getCacheHits();
+        long total = hits + getCacheMisses();
+        return total == 0 ? 0 : (int) (hits * 100 / total);
     }
 
-    private String getOp(String exp) {
-        int i = exp.indexOf("!=");
+    public Vector<String> getNodes(String resourceID) {
+        Vector<String> v = new Vector<>();
 
-        if (i == -1) {
-            i = exp.indexOf("=");
-            if (i == -1) {
-                i = exp.indexOf(">");
-                if (i == -1) {
-                    i = exp.indexOf("<");
-                    if (i == -1) {
-                        logger.warn("AAclAuthz: " + CMS.getLogMessage("AUTHZ_OP_NOT_SUPPORTED", exp));
-                    } else {
-                        return "<";
-                    }
-                } else {
-                    return ">";
-                }
-            } else {
-                return "=";
-            }
+        if (resourceID != null && !resourceID.equals("")) {
+            v.addElement(resourceID);
         } else {
-            return "!=";
+            return v;
         }
-        return "";
-    }
+        int index = resourceID.lastIndexOf(".");
+        String name = resourceID;
 
-    private boolean evaluateExp(boolean left, String op, boolean right) {
-        if (op.equals("||")) {
-            return left || right;
-        } else if (op.equals("&&")) {
-            return left && right;
+        while (index != -1) {
+            name = name.substring(0, index);
+            v.addElement(name);
+            index = name.lastIndexOf(".");
         }
-        return false;
+
+        return v;
     }
 
     /*******************************************************
@@ -738,7 +789,10 @@ public abstract class AAclAuthz extends AuthzManager {
             throw new EACLsException(CMS.getUserMessage("CMS_ACL_PARSING_ERROR_0"));
         }
 
-        mACLs.put(ac.getName(), ac);
+        synchronized (updateLock) {
+            mACLs.put(ac.getName(), ac);
+            publishACL(ac);
+        }
     }
 
     /**
@@ -844,4 +898,31 @@ public abstract class AAclAuthz extends AuthzManager {
     public boolean evaluateACLs(AuthToken authToken, String exp) {
         return evaluateExpressions(authToken, exp);
     }
+
+    /**
+     * An ACL entry with its attribute expressions parsed.
+     */
+    protected static class CompiledACLEntry {
+
+        final ACLEntry entry;
+        final ACLExpression expression;
+
+        CompiledACLEntry(ACLEntry entry, ACLExpression expression) {
+            this.entry = entry;
+            this.expression = expression;
+        }
+    }
+
+    static class CachedDecision {
+
+        final boolean permitted;
+        final long groupsVersion;
+        final long expirationTime;
+
+        CachedDecision(boolean permitted, long groupsVersion, long expirationTime) {
+            this.permitted = permitted;
+            this.groupsVersion = groupsVersion;
+            this.expirationTime = expirationTime;
+        }
+    }
 }
@@ -0,0 +1,292 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cms.authorization;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.dogtagpki.server.authentication.AuthToken;
+
+import com.netscape.certsrv.evaluators.AccessEvaluator;
+import com.netscape.cmscore.apps.CMS;
+
+/**
+ * An immutable, pre-parsed ACL attribute expression such as:
+ *
+ * <pre>
+ * group="Administrators" || group="Operators" &amp;&amp; user!="tempAdmin"
+ * </pre>
+ *
+ * The expressions are combined from left to right without operator
+ * precedence, which is how AAclAuthz has always evaluated them.
+ */
+public abstract class ACLExpression {
+
+    public static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACLExpression.class);
+
+    /**
+     * Evaluates the expression with the given authentication token.
+     */
+    public abstract boolean evaluate(AuthToken authToken, Map<String, AccessEvaluator> evaluators);
+
+    /**
+     * Evaluates the expression with the current session context.
+     */
+    public abstract boolean evaluate(Map<String, AccessEvaluator> evaluators);
+
+    /**
+     * Returns true if the expression only uses the given evaluator types.
+     */
+    public abstract boolean usesOnly(Set<String> types);
+
+    /**
+     * Parses an expression.
+     * expression || expression &amp;&amp; ...
+     */
+    public static ACLExpression parse(String s) {
+
+        ACLExpression left = null;
+        String op = null;
+
+        while (s.length() > 0) {
+            int orIndex = s.indexOf("||");
+            int andIndex = s.indexOf("&&");
+
+            String s1;
+            String nextOp;
+
+            // this is the last expression
+            if (orIndex == -1 && andIndex == -1) {
+                s1 = s;
+                nextOp = null;
+                s = "";
+
+                // || first
+            } else if (andIndex == -1 || (orIndex != -1 && orIndex < andIndex)) {
+                s1 = s.substring(0, orIndex);
+                nextOp = "||";
+                s = s.substring(orIndex + 2);
+
+                // && first
+            } else {
+                s1 = s.substring(0, andIndex);
+                nextOp = "&&";
+                s = s.substring(andIndex + 2);
+            }
+
+            ACLExpression right = new Term(s1.trim());
+
+            if (left == null) {
+                left = right;
+            } else if (op.equals("||")) {
+                left = new Or(left, right);
+            } else {
+                left = new And(left, right);
+            }
+
+            op = nextOp;
+        }
+
+        return left == null ? FALSE : left;
+    }
+
+    static final ACLExpression FALSE = new ACLExpression() {
+
+        @Override
+        public boolean evaluate(AuthToken authToken, Map<String, AccessEvaluator> evaluators) {
+            return false;
+        }
+
+        @Override
+        public boolean evaluate(Map<String, AccessEvaluator> evaluators) {
+            return false;
+        }
+
+        @Override
+        public boolean usesOnly(Set<String> types) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "";
+        }
+    };
+
+    /**
+     * A single type/operator/value comparison.
+     */
+    static class Term extends ACLExpression {
+
+        final String expression;
+
+        // parsed for evaluation with authentication token
+        final String type;
+        final String op;
+        final String value;
+
+        // parsed for evaluation with session context
+        final String sessionType;
+        final String sessionValue;
+
+        Term(String expression) {
+
+            this.expression = expression;
+
+            String op = getOp(expression);
+            String type = "";
+            String value = "";
+
+            if (!op.equals("")) {
+                int i = expression.indexOf(op);
+                type = expression.substring(0, i).trim();
+                value = expression.substring(i + op.length()).trim();
+            }
+
+            this.type = type;
+            this.op = op;
+            this.value = value;
+
+            // XXX - just recognize "=" for now!!
+            int i = expression.indexOf("=");
+            if (i == -1) {
+                sessionType = null;
+                sessionValue = null;
+            } else {
+                sessionType = expression.substring(0, i);
+                sessionValue = expression.substring(i + 1);
+            }
+        }
+
+        static String getOp(String exp) {
+
+            if (exp.indexOf("!=") != -1) return "!=";
+            if (exp.indexOf("=") != -1) return "=";
+            if (exp.indexOf(">") != -1) return ">";
+            if (exp.indexOf("<") != -1) return "<";
+
+            logger.warn("ACLExpression: " + CMS.getLogMessage("AUTHZ_OP_NOT_SUPPORTED", exp));
+            return "";
+        }
+
+        @Override
+        public boolean evaluate(AuthToken authToken, Map<String, AccessEvaluator> evaluators) {
+
+            AccessEvaluator evaluator = evaluators.get(type);
+
+            if (evaluator == null) {
+                logger.warn("ACLExpression: " + CMS.getLogMessage("AUTHZ_EVALUATOR_NOT_FOUND", type));
+                return false;
+            }
+
+            boolean passed = evaluator.evaluate(authToken, type, op, value);
+            logger.debug("evaluated expression: " + expression + " to be " + passed);
+
+            return passed;
+        }
+
+        @Override
+        public boolean evaluate(Map<String, AccessEvaluator> evaluators) {
+
+            if (sessionType == null) {
+                return false;
+            }
+
+            AccessEvaluator evaluator = evaluators.get(sessionType);
+
+            if (evaluator == null) {
+                logger.warn("ACLExpression: " + CMS.getLogMessage("AUTHZ_EVALUATOR_NOT_FOUND", sessionType));
+                return false;
+            }
+
+            return evaluator.evaluate(sessionType, "=", sessionValue);
+        }
+
+        @Override
+        public boolean usesOnly(Set<String> types) {
+            return types.contains(type);
+        }
+
+        @Override
+        public String toString() {
+            return expression;
+        }
+    }
+
+    static class And extends ACLExpression {
+
+        final ACLExpression left;
+        final ACLExpression right;
+
+        And(ACLExpression left, ACLExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean evaluate(AuthToken authToken, Map<String, AccessEvaluator> evaluators) {
+            return left.evaluate(authToken, evaluators) && right.evaluate(authToken, evaluators);
+        }
+
+        @Override
+        public boolean evaluate(Map<String, AccessEvaluator> evaluators) {
+            return left.evaluate(evaluators) && right.evaluate(evaluators);
+        }
+
+        @Override
+        public boolean usesOnly(Set<String> types) {
+            return left.usesOnly(types) && right.usesOnly(types);
+        }
+
+        @Override
+        public String toString() {
+            return left + " && " + right;
+        }
+    }
+
+    static class Or extends ACLExpression {
+
+        final ACLExpression left;
+        final ACLExpression right;
+
+        Or(ACLExpression left, ACLExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean evaluate(AuthToken authToken, Map<String, AccessEvaluator> evaluators) {
+            return left.evaluate(authToken, evaluators) || right.evaluate(authToken, evaluators);
+        }
+
+        @Override
+        public boolean evaluate(Map<String, AccessEvaluator> evaluators) {
+            return left.evaluate(evaluators) || right.evaluate(evaluators);
+        }
+
+        @Override
+        public boolean usesOnly(Set<String> types) {
+            return left.usesOnly(types) && right.usesOnly(types);
+        }
+
+        @Override
+        public String toString() {
+            return left + " || " + right;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.netscape.cms.authorization;
 
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.Map;
 import java.util.Set;
 
 import org.dogtagpki.server.authorization.AuthzManagerConfig;
@@ -55,7 +56,7 @@ public class DirAclAuthz extends AAclAuthz
 
     private LdapBoundConnFactory mLdapConnFactory;
     private String mBaseDN = null;
-    private boolean loaded;
+    private volatile boolean loaded;
     private static boolean needsFlush = false;
 
     /**
@@ -243,6 +244,12 @@ public class DirAclAuthz extends AAclAuthz
         return super.checkACLs(name, perm);
     }
 
+    @Override
+    protected Map<String, CompiledACLEntry[]> getCompiledACLs() throws EACLsException {
+        if (!loaded) loadACLs();
+        return super.getCompiledACLs();
+    }
+
     @Override
     protected Iterable<ACLEntry> getEntries(
             ACLEntry.Type entryType,
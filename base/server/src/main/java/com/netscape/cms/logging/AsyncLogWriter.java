@@ -0,0 +1,239 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cms.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.logging.LogEvent;
+
+/**
+ * A single writer thread for a LogFile.
+ *
+ * Logging threads put events into a bounded queue, and the writer
+ * thread writes them to the log file in batches, updating the log
+ * signature in the same order as the entries appear in the file.
+ * Each batch is committed with a single flush (and optionally fsync).
+ *
+ * When the queue is full the logging threads wait for the writer,
+ * so events are never dropped.
+ */
+public class AsyncLogWriter implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AsyncLogWriter.class);
+
+    private static final QueuedLogEvent STOP = new QueuedLogEvent(null, null);
+
+    private LogFile logFile;
+    private BlockingQueue<QueuedLogEvent> queue;
+    private int batchSize;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    // statistics
+    private LongAdder submitted = new LongAdder();
+    private LongAdder written = new LongAdder();
+    private LongAdder batches = new LongAdder();
+    private LongAdder waits = new LongAdder();
+    private LongAdder writeTime = new LongAdder();
+
+    public AsyncLogWriter(LogFile logFile, int queueSize, int batchSize) {
+        this.logFile = logFile;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, logFile.getName() + ".writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues an event to be written by the writer thread.
+     *
+     * @return false if the event was not queued and should be
+     *         written by the caller
+     */
+    public boolean submit(LogEvent event) {
+
+        if (!running) {
+            return false;
+        }
+
+        QueuedLogEvent entry = new QueuedLogEvent(event, Thread.currentThread().getName());
+
+        if (!queue.offer(entry)) {
+            // queue is full, wait for the writer instead of dropping the event
+            waits.increment();
+            try {
+                queue.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        // the writer might have stopped while the event was queued
+        if (!running && queue.remove(entry)) {
+            return false;
+        }
+
+        submitted.increment();
+        return true;
+    }
+
+    @Override
+    public void run() {
+
+        List<QueuedLogEvent> batch = new ArrayList<>(batchSize);
+
+        while (true) {
+            QueuedLogEvent first;
+            try {
+                first = queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+
+            boolean stop = batch.remove(STOP);
+
+            if (!batch.isEmpty()) {
+                long start = System.nanoTime();
+                logFile.write(batch);
+                writeTime.add(System.nanoTime() - start);
+
+                written.add(batch.size());
+                batches.increment();
+            }
+
+            batch.clear();
+
+            if (stop) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Stops the writer thread after all queued events have been written.
+     */
+    public void stop() {
+
+        if (!running) {
+            return;
+        }
+
+        running = false;
+
+        try {
+            queue.put(STOP);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // write events queued after the writer has stopped
+        List<QueuedLogEvent> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        batch.remove(STOP);
+
+        if (!batch.isEmpty()) {
+            logFile.write(batch);
+            written.add(batch.size());
+            batches.increment();
+        }
+
+        logger.info("AsyncLogWriter: " + logFile.getName() + ": " + getStatistics());
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Returns the number of times a logging thread had to wait
+     * because the queue was full.
+     */
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    /**
+     * Returns the total time spent writing batches in milliseconds.
+     */
+    public long getWriteTime() {
+        return TimeUnit.NANOSECONDS.toMillis(writeTime.sum());
+    }
+
+    /**
+     * Returns the number of events written per second of write time.
+     */
+    public long getThroughput() {
+        long nanos = writeTime.sum();
+        return nanos == 0 ? 0 : written.sum() * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    public String getStatistics() {
+        long count = getBatches();
+        return "queued: " + getQueueSize()
+                + ", submitted: " + getSubmitted()
+                + ", written: " + getWritten()
+                + ", batches: " + count
+                + ", average batch: " + (count == 0 ? 0 : getWritten() / count)
+                + ", waits: " + getWaits()
+                + ", write time: " + getWriteTime() + " ms"
+                + ", throughput: " + getThroughput() + " events/s";
+    }
+
+    /**
+     * A log event with the name of the thread that logged it,
+     * since the entry is formatted on the writer thread.
+     */
+    static class QueuedLogEvent {
+
+        final LogEvent event;
+        final String threadName;
+
+        QueuedLogEvent(LogEvent event, String threadName) {
+            this.event = event;
+            this.threadName = threadName;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.CharArrayReader;
 import java.io.CharArrayWriter;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -49,6 +50,7 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
@@ -130,6 +132,22 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
      */
     protected BufferedWriter mLogWriter;
 
+    /**
+     * The log file descriptor, used to synchronize the file to disk
+     */
+    protected FileDescriptor mFileDescriptor;
+
+    /**
+     * Synchronize the file to disk when committing a batch of entries
+     */
+    protected boolean mFsync;
+
+    /**
+     * The asynchronous writer, or null if entries are written
+     * on the logging thread
+     */
+    protected AsyncLogWriter mAsyncWriter;
+
     /**
      * The log date entry format pattern
      */
@@ -464,6 +482,22 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
         if (mOn) {
             init(fileName, config.getBufferSize(), config.getFlushInterval());
         }
+
+        mFsync = config.getFsync();
+
+        if (mOn && config.getAsync()) {
+            if (mTrace) {
+                // the stack trace has to be captured on the logging thread
+                logger.warn("LogFile: asynchronous logging is not supported with trace, ignoring");
+            } else if (mAsyncWriter == null) {
+                int queueSize = config.getAsyncQueueSize();
+                int batchSize = config.getAsyncBatchSize();
+                logger.debug("LogFile: Enabling asynchronous logging for " + mFileName
+                        + " (queue size: " + queueSize + ", batch size: " + batchSize + ", fsync: " + mFsync + ")");
+                mAsyncWriter = new AsyncLogWriter(this, queueSize, batchSize);
+                mAsyncWriter.start();
+            }
+        }
     }
 
     /**
@@ -706,6 +740,7 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
             out.seek(out.length());
             //XXX int or long?
             mBytesWritten = (int) out.length();
+            mFileDescriptor = out.getFD();
             if (!Utils.isNT()) {
                 try {
                     Utils.exec("chmod 00640 " + mFile.getCanonicalPath());
@@ -775,6 +810,34 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
         mBytesUnflushed = 0;
     }
 
+    /**
+     * Write buffered entries to the log file, and synchronize
+     * the file to disk if fsync is enabled. This is called once
+     * for each batch of entries written asynchronously.
+     */
+    protected synchronized void commit() {
+        try {
+            if (mLogWriter == null) {
+                return;
+            }
+
+            mLogWriter.flush();
+
+            if (mFsync && mFileDescriptor != null) {
+                mFileDescriptor.sync();
+            }
+
+        } catch (IOException e) {
+            String message = CMS.getUserMessage("CMS_LOG_FLUSH_LOG_FAILED", mFileName, e.getMessage());
+            logger.error("LogFile: " + message, e);
+            System.err.println(message);
+            if (mLogSigning) {
+                // Failed to write to audit log, shut down CMS
+                shutdownCMS();
+            }
+        }
+    }
+
     /**
      * Close the log file
      *
@@ -800,7 +863,7 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
      * </ul>
      */
     @Override
-    public synchronized void shutdown() {
+    public void shutdown() {
 
         logger.info("Destroying LogFile(" + mFileName + ")");
 
@@ -817,9 +880,23 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
 
         auditor.log(auditMessage);
 
+        // write pending entries before closing the file
+        if (mAsyncWriter != null) {
+            mAsyncWriter.stop();
+            mAsyncWriter = null;
+        }
+
         close();
     }
 
+    /**
+     * Returns the asynchronous writer, or null if
+     * asynchronous logging is disabled.
+     */
+    public AsyncLogWriter getAsyncWriter() {
+        return mAsyncWriter;
+    }
+
     /**
      * Set the flush interval
      * <P>
@@ -881,13 +958,51 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
         }
     }
 
+    /**
+     * Write an event to the log file, or queue it for the writer
+     * thread if asynchronous logging is enabled.
+     *
+     * @param event The log event
+     */
+    protected void doLog(LogEvent event) throws ELogException {
+
+        AsyncLogWriter asyncWriter = mAsyncWriter;
+
+        // write directly if called while holding the lock (e.g. from
+        // the writer thread itself) to avoid waiting on a full queue
+        if (asyncWriter != null && !Thread.holdsLock(this) && asyncWriter.submit(event)) {
+            return;
+        }
+
+        write(event, Thread.currentThread().getName());
+    }
+
     /**
      * Synchronized method to write an event to the log file.
      *
      * @param event The log event
+     * @param threadName The name of the thread that logged the event
+     */
+    protected synchronized void write(LogEvent event, String threadName) throws ELogException {
+        doLog(event, false, threadName);
+    }
+
+    /**
+     * Write a batch of queued events to the log file and commit them.
      */
-    protected synchronized void doLog(LogEvent event) throws ELogException {
-        doLog(event, false);
+    synchronized void write(List<AsyncLogWriter.QueuedLogEvent> batch) {
+
+        for (AsyncLogWriter.QueuedLogEvent entry : batch) {
+            try {
+                write(entry.event, entry.threadName);
+
+            } catch (ELogException e) {
+                // doLog() has already handled the failure
+                logger.error("LogFile: Unable to write log event: " + e.getMessage(), e);
+            }
+        }
+
+        commit();
     }
 
     // Standard line separator byte. We always sign this line separator,
@@ -902,8 +1017,13 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
      */
     private synchronized void doLog(LogEvent event, boolean noFlush)
             throws ELogException {
+        doLog(event, noFlush, Thread.currentThread().getName());
+    }
+
+    private synchronized void doLog(LogEvent event, boolean noFlush, String threadName)
+            throws ELogException {
 
-        String entry = logEvt2String(event);
+        String entry = logEvt2String(event, threadName);
 
         if (mLogWriter == null) {
             String[] params = { mFileName, entry };
@@ -1204,6 +1324,10 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
     }
 
     public String logEvt2String(LogEvent ev) {
+        return logEvt2String(ev, Thread.currentThread().getName());
+    }
+
+    public String logEvt2String(LogEvent ev, String threadName) {
         String entry = null;
 
         // Hmm.. multiple threads could hit this and reset the time.
@@ -1214,12 +1338,12 @@ public class LogFile extends LogEventListener implements IExtendedPluginInfo {
         // This should follow the Common Log Format which still needs
         // some work.
         if (ev.getMultiline() == ILogger.L_MULTILINE) {
-            entry = engine.getPID() + "." + Thread.currentThread().getName() + " - ["
+            entry = engine.getPID() + "." + threadName + " - ["
                     + mLogDateFormat.format(mDate) + "] [" +
                     ev.getSource().value() + "] [" + Integer.toString(ev.getLevel())
                     + "] " + prepareMultiline(ev.toString());
         } else {
-            entry = engine.getPID() + "." + Thread.currentThread().getName() + " - ["
+            entry = engine.getPID() + "." + threadName + " - ["
                     + mLogDateFormat.format(mDate) + "] [" +
                     ev.getSource().value() + "] [" + Integer.toString(ev.getLevel())
                     + "] " + ev.toString();
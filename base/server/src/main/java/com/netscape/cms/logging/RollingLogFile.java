@@ -137,7 +137,7 @@ public class RollingLogFile extends LogFile {
      * Shutdown this log file.
      */
     @Override
-    public synchronized void shutdown() {
+    public void shutdown() {
         logger.debug("Destroying RollingLogFile(" + mFileName + ")");
         setRolloverTime("0");
         setExpirationTime("0");
@@ -489,14 +489,16 @@ public class RollingLogFile extends LogFile {
     }
 
     /**
-     * Write an event to the log file
+     * Write an event to the log file and rotate the log file
+     * if it exceeds the maximum size.
      *
      * @param ev The event to be logged.
+     * @param threadName The name of the thread that logged the event
      **/
     @Override
-    public synchronized void log(LogEvent ev) throws ELogException {
+    protected synchronized void write(LogEvent ev, String threadName) throws ELogException {
         //xxx, Shall we log first without checking if it exceed the maximum?
-        super.log(ev); // Will increment mBytesWritten
+        super.write(ev, threadName); // Will increment mBytesWritten
 
         if ((0 != mMaxFileSize) && (mBytesWritten > mMaxFileSize)) {
             flush();
@@ -0,0 +1,409 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cms.ocsp;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mozilla.jss.asn1.ASN1Util;
+import org.mozilla.jss.asn1.GeneralizedTime;
+import org.mozilla.jss.asn1.OBJECT_IDENTIFIER;
+import org.mozilla.jss.asn1.OCTET_STRING;
+import org.mozilla.jss.asn1.SEQUENCE;
+import org.mozilla.jss.pkix.cert.Extension;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmsutil.ocsp.BasicOCSPResponse;
+import com.netscape.cmsutil.ocsp.OCSPResponse;
+import com.netscape.cmsutil.ocsp.OCSPResponseStatus;
+import com.netscape.cmsutil.ocsp.Request;
+import com.netscape.cmsutil.ocsp.ResponseBytes;
+import com.netscape.cmsutil.ocsp.ResponseData;
+import com.netscape.cmsutil.ocsp.SingleResponse;
+import com.netscape.cmsutil.ocsp.TBSRequest;
+
+/**
+ * A cache of signed OCSP responses.
+ *
+ * Only requests for a single certificate without a nonce are cached,
+ * since the response for such a request is the same for every client
+ * until the revocation information changes. The responses are stored
+ * encoded, so a cache hit does not use the signing token at all.
+ *
+ * A cached response expires after the configured maximum age or at
+ * the nextUpdate of the response, whichever comes first. When the
+ * revocation information changes the cache is refreshed: all responses
+ * are dropped, and the most frequently requested ones are signed again
+ * in the background so they are ready before the clients ask for them.
+ */
+public class OCSPResponseCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(OCSPResponseCache.class);
+
+    public static final OBJECT_IDENTIFIER OCSP_NONCE = new OBJECT_IDENTIFIER("1.3.6.1.5.5.7.48.1.2");
+
+    /**
+     * Creates signed responses for the background refresh.
+     */
+    public interface ResponseGenerator {
+
+        /**
+         * Looks up the status and signs a response for a request
+         * without a nonce. The response is not cached by the caller.
+         */
+        BasicOCSPResponse generate(TBSRequest tbsRequest) throws Exception;
+    }
+
+    private String name;
+    private ResponseGenerator generator;
+
+    private int size;
+    private long maxAge;
+    private int preSignSize;
+
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    // incremented when the revocation information changes so that
+    // responses created from the previous information are not cached
+    private AtomicLong generation = new AtomicLong();
+
+    // statistics
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder signings = new LongAdder();
+    private LongAdder signingTime = new LongAdder();
+    private LongAdder preSigned = new LongAdder();
+    private LongAdder refreshes = new LongAdder();
+
+    public OCSPResponseCache(String name, ResponseGenerator generator) {
+        this.name = name;
+        this.generator = generator;
+    }
+
+    public void init(OCSPResponseCacheConfig config) throws EBaseException {
+
+        size = config.getSize();
+        maxAge = TimeUnit.SECONDS.toMillis(config.getMaxAge());
+        preSignSize = config.getPreSignSize();
+        int preSignThreads = config.getPreSignThreads();
+
+        logger.info("OCSPResponseCache: Initializing " + name + " response cache");
+        logger.info("OCSPResponseCache: - size: " + size);
+        logger.info("OCSPResponseCache: - max age: " + config.getMaxAge() + " s");
+        logger.info("OCSPResponseCache: - pre-sign size: " + preSignSize);
+        logger.info("OCSPResponseCache: - pre-sign threads: " + preSignThreads);
+
+        if (preSignSize > 0 && preSignThreads > 0) {
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(preSignThreads, r -> {
+                Thread thread = new Thread(r, name + "-OCSPResponseCache-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Returns the cache key for an OCSP request,
+     * or null if the response cannot be cached.
+     */
+    public String getKey(TBSRequest tbsRequest) {
+
+        if (tbsRequest.getRequestCount() != 1) {
+            return null;
+        }
+
+        for (int i = 0; i < tbsRequest.getExtensionsCount(); i++) {
+            Extension ext = tbsRequest.getRequestExtensionAt(i);
+            if (ext.getExtnId().equals(OCSP_NONCE)) {
+                return null;
+            }
+        }
+
+        Request request = tbsRequest.getRequestAt(0);
+        return HexFormat.of().formatHex(ASN1Util.encode(request.getCertID()));
+    }
+
+    /**
+     * Returns the current generation of the cache. The generation must be
+     * obtained before looking up the certificate status and passed to put().
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns the cached response, or null if not found or expired.
+     */
+    public OCSPResponse get(String key) {
+
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.expirationTime <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        entry.hits.incrementAndGet();
+
+        return createResponse(entry.response);
+    }
+
+    /**
+     * Stores a signed response in the cache.
+     *
+     * @param generation the generation of the cache before the status was looked up
+     */
+    public void put(String key, Request request, BasicOCSPResponse response, long generation) {
+
+        if (generation != this.generation.get()) {
+            // revocation information has changed since the status was looked up
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expirationTime = now + maxAge;
+
+        ResponseData rd = response.getResponseData();
+        SingleResponse sr = rd.getResponseAt(0);
+        GeneralizedTime nextUpdate = sr.getNextUpdate();
+
+        if (nextUpdate != null) {
+            expirationTime = Math.min(expirationTime, nextUpdate.toDate().getTime());
+        }
+
+        if (expirationTime <= now) {
+            return;
+        }
+
+        if (entries.size() >= size && !entries.containsKey(key)) {
+            removeExpiredEntries();
+
+            if (entries.size() >= size) {
+                // keep the existing entries, they expire soon enough
+                return;
+            }
+        }
+
+        BigInteger serialNumber = request.getCertID().getSerialNumber();
+        Entry entry = new Entry(request, serialNumber, ASN1Util.encode(response), expirationTime);
+
+        Entry oldEntry = entries.put(key, entry);
+        if (oldEntry != null) {
+            // keep the popularity of the response
+            entry.hits.addAndGet(oldEntry.hits.get());
+        }
+
+        if (generation != this.generation.get()) {
+            // revocation information has changed while the response was stored
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * Records the time it took to sign a response.
+     */
+    public void addSigningTime(long millis) {
+        signings.increment();
+        signingTime.add(millis);
+    }
+
+    /**
+     * Creates an OCSP response from an encoded BasicOCSPResponse.
+     */
+    public static OCSPResponse createResponse(byte[] basicResponse) {
+        return new OCSPResponse(
+                OCSPResponseStatus.SUCCESSFUL,
+                new ResponseBytes(ResponseBytes.OCSP_BASIC, new OCTET_STRING(basicResponse)));
+    }
+
+    /**
+     * Removes the cached responses for a certificate.
+     */
+    public void invalidate(BigInteger serialNumber) {
+        generation.incrementAndGet();
+        entries.values().removeIf(entry -> entry.serialNumber.equals(serialNumber));
+    }
+
+    /**
+     * Removes all cached responses, then signs the most frequently
+     * requested responses again in the background.
+     */
+    public void refresh() {
+
+        refreshes.increment();
+        long currentGeneration = generation.incrementAndGet();
+
+        List<Entry> hotEntries = new ArrayList<>();
+
+        if (executor != null) {
+            for (Entry entry : entries.values()) {
+                if (entry.hits.get() > 0) {
+                    hotEntries.add(entry);
+                }
+            }
+
+            hotEntries.sort(Comparator.comparingLong((Entry entry) -> entry.hits.get()).reversed());
+
+            if (hotEntries.size() > preSignSize) {
+                hotEntries = new ArrayList<>(hotEntries.subList(0, preSignSize));
+            }
+        }
+
+        entries.clear();
+
+        logger.info("OCSPResponseCache: Refreshing " + name + " response cache, pre-signing "
+                + hotEntries.size() + " responses");
+
+        for (Entry entry : hotEntries) {
+            executor.submit(() -> preSign(entry.request, currentGeneration));
+        }
+    }
+
+    private void preSign(Request request, long generation) {
+
+        if (generation != this.generation.get()) {
+            // refreshed again before this response was signed
+            return;
+        }
+
+        SEQUENCE requestList = new SEQUENCE();
+        requestList.addElement(request);
+        TBSRequest tbsRequest = new TBSRequest(null, null, requestList, null);
+
+        try {
+            long start = System.currentTimeMillis();
+            BasicOCSPResponse response = generator.generate(tbsRequest);
+            addSigningTime(System.currentTimeMillis() - start);
+
+            put(getKey(tbsRequest), request, response, generation);
+            preSigned.increment();
+
+        } catch (Exception e) {
+            logger.warn("OCSPResponseCache: Unable to pre-sign response for cert 0x"
+                    + request.getCertID().getSerialNumber().toString(16) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void removeExpiredEntries() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expirationTime <= now);
+    }
+
+    public void shutdown() {
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        logger.info("OCSPResponseCache: " + name + ": " + getStatistics());
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Returns the number of responses signed after a cache miss or refresh.
+     */
+    public long getSignings() {
+        return signings.sum();
+    }
+
+    /**
+     * Returns the total time spent signing responses in milliseconds.
+     */
+    public long getSigningTime() {
+        return signingTime.sum();
+    }
+
+    public long getPreSigned() {
+        return preSigned.sum();
+    }
+
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    public String getStatistics() {
+        long count = getSignings();
+        return "size: " + getSize()
+                + ", hits: " + getHits()
+                + ", misses: " + getMisses()
+                + ", hit rate: " + String.format("%.2f", getHitRate())
+                + ", signings: " + count
+                + ", average signing time: " + (count == 0 ? 0 : getSigningTime() / count) + " ms"
+                + ", pre-signed: " + getPreSigned()
+                + ", refreshes: " + getRefreshes();
+    }
+
+    static class Entry {
+
+        final Request request;
+        final BigInteger serialNumber;
+        final byte[] response;
+        final long expirationTime;
+        final AtomicLong hits = new AtomicLong();
+
+        Entry(Request request, BigInteger serialNumber, byte[] response, long expirationTime) {
+            this.request = request;
+            this.serialNumber = serialNumber;
+            this.response = response;
+            this.expirationTime = expirationTime;
+        }
+
+        @Override
+        public String toString() {
+            return "0x" + serialNumber.toString(16) + " expires " + new Date(expirationTime);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.ocsp;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides ocsp.responseCache.* and ca.ocspResponseCache.* parameters.
+ */
+public class OCSPResponseCacheConfig extends ConfigStore {
+
+    public OCSPResponseCacheConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public OCSPResponseCacheConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns responseCache.enable parameter.
+     */
+    public boolean getEnable() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns responseCache.size parameter.
+     */
+    public int getSize() throws EBaseException {
+        return getInteger("size", 10000);
+    }
+
+    /**
+     * Returns responseCache.maxAge parameter (in seconds).
+     * Cached responses also expire at the nextUpdate of the response.
+     */
+    public int getMaxAge() throws EBaseException {
+        return getInteger("maxAge", 300);
+    }
+
+    /**
+     * Returns responseCache.preSignSize parameter, the maximum number of
+     * frequently requested responses to sign again after a CRL update.
+     */
+    public int getPreSignSize() throws EBaseException {
+        return getInteger("preSignSize", 1000);
+    }
+
+    /**
+     * Returns responseCache.preSignThreads parameter.
+     */
+    public int getPreSignThreads() throws EBaseException {
+        return getInteger("preSignThreads", 2);
+    }
+}
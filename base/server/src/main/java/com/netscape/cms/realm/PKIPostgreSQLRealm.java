@@ -12,11 +12,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
 import java.security.cert.X509Certificate;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -28,6 +26,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.mozilla.jss.netscape.security.util.Cert;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
+import com.netscape.cmscore.dbs.JDBCConnectionPool;
 import com.netscape.cmscore.usrgrp.User;
 
 /**
@@ -41,7 +40,8 @@ public class PKIPostgreSQLRealm extends RealmCommon {
     String url;
 
     Properties statements;
-    Connection connection;
+    JDBCConnectionPool connectionPool;
+    volatile boolean initialized;
 
     MessageDigestCredentialHandler handler;
 
@@ -63,6 +63,13 @@ public class PKIPostgreSQLRealm extends RealmCommon {
 
         url = (String) info.remove("url");
 
+        connectionPool = new JDBCConnectionPool("PKIPostgreSQLRealm", url, info);
+        try {
+            connectionPool.init();
+        } catch (Exception e) {
+            throw new LifecycleException("Cannot initialize connection pool: " + e.getMessage(), e);
+        }
+
         String statementsFilename = info.getProperty(
                 "statements");
 
@@ -124,7 +131,7 @@ public class PKIPostgreSQLRealm extends RealmCommon {
     /**
      * This method will create the tables if they do not exist.
      */
-    public void setup() throws Exception {
+    public void setup(Connection connection) throws Exception {
 
         logger.info("Setting up PostgreSQL realm");
         String createFile = info.getProperty("dbcreate.file");
@@ -160,40 +167,35 @@ public class PKIPostgreSQLRealm extends RealmCommon {
     }
 
     /**
-     * This method will create the initial connection, validate
-     * the current connection, or reestablish the connection if
-     * it's closed.
-     *
-     * TODO: Use connection pool.
+     * This method will get a connection from the connection pool and
+     * create the tables on the first connection. The connection must
+     * be closed to return it into the pool.
      */
-    public void connect() throws Exception {
+    public Connection connect() throws Exception {
 
-        if (connection == null) { // create the initial connection
-            logger.info("Connecting to " + url);
-            connection = DriverManager.getConnection(url, info);
-            setup();
-            return;
-        }
+        Connection connection = connectionPool.getConnection();
 
-        // validate the current connection
-        try (Statement st = connection.createStatement();
-            ResultSet rs = st.executeQuery("SELECT 1")) {
+        if (initialized) {
+            return connection;
+        }
 
-        } catch (SQLException e) {
+        synchronized (this) {
 
-            if (connection.isClosed()) { // reestablish the connection
-                logger.info("Reconnecting to " + url);
-                connection = DriverManager.getConnection(url, info);
-                return;
+            if (initialized) {
+                return connection;
             }
 
-            logger.error("Unable to access database: " + e.getMessage());
-
-            // https://www.postgresql.org/docs/current/errcodes-appendix.html
-            logger.error("SQL state: " + e.getSQLState());
+            try {
+                setup(connection);
+                initialized = true;
 
-            throw e;
+            } catch (Exception e) {
+                connection.close();
+                throw e;
+            }
         }
+
+        return connection;
     }
 
     public User createUser(ResultSet rs) throws Exception {
@@ -211,7 +213,7 @@ public class PKIPostgreSQLRealm extends RealmCommon {
         return user;
     }
 
-    public User getUserByID(String userID) throws Exception {
+    public User getUserByID(Connection connection, String userID) throws Exception {
 
         logger.info("Getting user " + userID);
 
@@ -239,7 +241,7 @@ public class PKIPostgreSQLRealm extends RealmCommon {
                 + cert.getSubjectDN();
     }
 
-    public User getUserByCertID(String certID) throws Exception {
+    public User getUserByCertID(Connection connection, String certID) throws Exception {
 
         logger.info("Getting user for cert " + certID);
 
@@ -260,7 +262,7 @@ public class PKIPostgreSQLRealm extends RealmCommon {
         }
     }
 
-    public List<X509Certificate> getUserCerts(String userID) throws Exception {
+    public List<X509Certificate> getUserCerts(Connection connection, String userID) throws Exception {
 
         logger.info("Getting certs for user " + userID);
 
@@ -283,7 +285,7 @@ public class PKIPostgreSQLRealm extends RealmCommon {
         return results;
     }
 
-    public List<String> getUserRoles(String userID) throws Exception {
+    public List<String> getUserRoles(Connection connection, String userID) throws Exception {
 
         logger.info("Getting roles for user " + userID);
 
@@ -312,11 +314,10 @@ public class PKIPostgreSQLRealm extends RealmCommon {
 
         logger.info("Authenticating user " + username + " with password");
 
-        try {
-            connect();
+        try (Connection connection = connect()) {
 
             logger.info("Searching for user " + username);
-            User user = getUserByID(username);
+            User user = getUserByID(connection, username);
 
             if (user == null) {
                 logger.warn("Unable to authenticate user " + username + ": User not found");
@@ -333,7 +334,7 @@ public class PKIPostgreSQLRealm extends RealmCommon {
 
             logger.info("User " + username + " authenticated");
 
-            List<String> roles = getUserRoles(username);
+            List<String> roles = getUserRoles(connection, username);
             return new PKIPrincipal(user, null, roles);
         } catch (Exception e) {
             logger.error("Problem to verify user credentials: "+ e.getMessage(), e);
@@ -353,45 +354,46 @@ public class PKIPostgreSQLRealm extends RealmCommon {
 
             logger.info("Authenticating user with certificate " + certID);
 
-            connect();
+            try (Connection connection = connect()) {
 
-            // cert already validated during SSL handshake
+                // cert already validated during SSL handshake
 
-            logger.info("Searching for user with certificate " + certID);
-            User user = getUserByCertID(certID);
+                logger.info("Searching for user with certificate " + certID);
+                User user = getUserByCertID(connection, certID);
 
-            if (user == null) {
-                logger.warn("Unable to authenticate user with certificate " + certID + ": User not found");
-                return null;
-            }
+                if (user == null) {
+                    logger.warn("Unable to authenticate user with certificate " + certID + ": User not found");
+                    return null;
+                }
 
-            logger.info("Searching for matching certificates in user " + user.getUserID());
-            List<X509Certificate> certs = getUserCerts(user.getUserID());
+                logger.info("Searching for matching certificates in user " + user.getUserID());
+                List<X509Certificate> certs = getUserCerts(connection, user.getUserID());
 
-            if (certs == null || certs.isEmpty()) {
-                logger.warn("Unable to authenticate user " + user.getUserID() + ": User has no certificates");
-                return null;
-            }
+                if (certs == null || certs.isEmpty()) {
+                    logger.warn("Unable to authenticate user " + user.getUserID() + ": User has no certificates");
+                    return null;
+                }
 
-            boolean found = false;
-            byte[] data = cert.getEncoded();
+                boolean found = false;
+                byte[] data = cert.getEncoded();
 
-            for (X509Certificate c : certs) {
-                if (Arrays.equals(data, c.getEncoded())) {
-                    found = true;
-                    break;
+                for (X509Certificate c : certs) {
+                    if (Arrays.equals(data, c.getEncoded())) {
+                        found = true;
+                        break;
+                    }
                 }
-            }
 
-            if (!found) {
-                logger.warn("Unable to authenticate user " + user.getUserID() + ": No matching certificate");
-                return null;
-            }
+                if (!found) {
+                    logger.warn("Unable to authenticate user " + user.getUserID() + ": No matching certificate");
+                    return null;
+                }
 
-            logger.info("User " + user.getUserID() + " authenticated");
+                logger.info("User " + user.getUserID() + " authenticated");
 
-            List<String> roles = getUserRoles(user.getUserID());
-            return new PKIPrincipal(user, null, roles);
+                List<String> roles = getUserRoles(connection, user.getUserID());
+                return new PKIPrincipal(user, null, roles);
+            }
         } catch(Exception e) {
             logger.error("Problem to verify the certificate", e);
             throw new RuntimeException(e);
@@ -403,12 +405,8 @@ public class PKIPostgreSQLRealm extends RealmCommon {
 
         logger.info("Shutting down PostgreSQL realm");
 
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch(Exception e) {
-                throw new LifecycleException("Cannot close the DB connection: " + e.getMessage(), e);
-            }
+        if (connectionPool != null) {
+            connectionPool.close();
         }
     }
 }
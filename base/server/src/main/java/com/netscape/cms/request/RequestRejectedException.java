@@ -0,0 +1,21 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.request;
+
+import com.netscape.certsrv.base.EBaseException;
+
+/**
+ * This exception is thrown when the request scheduler does not admit
+ * a request because too many requests are waiting to be processed.
+ */
+public class RequestRejectedException extends EBaseException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RequestRejectedException(String message) {
+        super(message);
+    }
+}
@@ -17,31 +17,210 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cms.request;
 
-import java.util.Vector;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.util.OperationStats;
 import com.netscape.cmscore.request.Request;
 
 /**
- * This class represents a request scheduler that prioritizes
- * the threads based on the request processing order.
- * The request that enters the request queue first should
- * be processed first.
+ * This class represents a request scheduler that limits the number
+ * of requests processed at the same time.
+ *
+ * The requests are grouped by type (enrollment, renewal, revocation,
+ * recovery, and other), and each type can have its own concurrency limit
+ * in addition to the total limit. When a request cannot be processed
+ * right away it waits in the queue of its type. The waiting requests are
+ * admitted either in the order they arrived (fifo), or by weighted fair
+ * queuing across the types (fair) so that a burst of requests of one type
+ * cannot starve the other types. A request that cannot be admitted within
+ * the timeout is rejected.
+ *
+ * If no limits are configured the scheduler does not do anything.
  */
 public class RequestScheduler {
-    private Vector<Thread> mRequestThreads = new Vector<>();
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RequestScheduler.class);
+
+    public static final String ENROLLMENT = "enrollment";
+    public static final String RENEWAL = "renewal";
+    public static final String REVOCATION = "revocation";
+    public static final String RECOVERY = "recovery";
+    public static final String OTHER = "other";
+
+    public static final String[] TYPES = { ENROLLMENT, RENEWAL, REVOCATION, RECOVERY, OTHER };
+
+    public static final String FIFO = "fifo";
+    public static final String FAIR = "fair";
+
+    private boolean enabled;
+    private boolean fair;
+    private int maxConcurrent;
+    private int maxQueueSize;
+    private long timeout = TimeUnit.SECONDS.toMillis(60);
+
+    private Map<String, RequestType> types = new LinkedHashMap<>();
+
+    private ReentrantLock lock = new ReentrantLock();
+    private int active;
+    private int waiting;
+    private long sequence;
+
+    public RequestScheduler() {
+        for (String name : TYPES) {
+            types.put(name, new RequestType(name));
+        }
+    }
+
+    public void init(RequestSchedulerConfig config) throws EBaseException {
+
+        maxConcurrent = config.getMaxConcurrent();
+        maxQueueSize = config.getMaxQueueSize();
+        timeout = TimeUnit.SECONDS.toMillis(config.getTimeout());
+
+        String ordering = config.getOrdering();
+        if (FAIR.equalsIgnoreCase(ordering)) {
+            fair = true;
+        } else if (FIFO.equalsIgnoreCase(ordering)) {
+            fair = false;
+        } else {
+            throw new EBaseException("Invalid request scheduler ordering: " + ordering);
+        }
+
+        logger.info("RequestScheduler: Initializing request scheduler");
+        logger.info("RequestScheduler: - max concurrent: " + maxConcurrent);
+        logger.info("RequestScheduler: - max queue size: " + maxQueueSize);
+        logger.info("RequestScheduler: - timeout: " + config.getTimeout());
+        logger.info("RequestScheduler: - ordering: " + (fair ? FAIR : FIFO));
+
+        enabled = maxConcurrent > 0;
+
+        for (RequestType type : types.values()) {
+            type.maxConcurrent = config.getMaxConcurrent(type.name);
+            type.weight = Math.max(1, config.getWeight(type.name));
+            logger.info("RequestScheduler: - " + type.name + ": max concurrent: " + type.maxConcurrent + ", weight: " + type.weight);
+
+            if (type.maxConcurrent > 0) {
+                enabled = true;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the type of a request for scheduling purposes.
+     */
+    public static String getType(Request r) {
+
+        String requestType = r.getRequestType();
+
+        if (requestType == null) {
+            return OTHER;
+        }
+
+        switch (requestType) {
+        case Request.ENROLLMENT_REQUEST:
+            return ENROLLMENT;
+        case Request.RENEWAL_REQUEST:
+            return RENEWAL;
+        case Request.REVOCATION_REQUEST:
+        case Request.CMCREVOKE_REQUEST:
+        case Request.UNREVOCATION_REQUEST:
+            return REVOCATION;
+        case Request.KEYRECOVERY_REQUEST:
+        case Request.SECURITY_DATA_RECOVERY_REQUEST:
+            return RECOVERY;
+        default:
+            return OTHER;
+        }
+    }
 
     /**
-     * Request entered the request queue processing.
+     * Request entered the request queue processing. Waits until the
+     * request can be processed.
      *
      * @param r request
+     * @exception RequestRejectedException the request cannot be processed
      */
-    public synchronized void requestIn(Request r) {
-        Thread current = Thread.currentThread();
+    public void requestIn(Request r) throws EBaseException {
 
-        if (mRequestThreads.size() == 0) {
-            current.setPriority(Thread.MAX_PRIORITY);
+        if (!enabled) {
+            return;
         }
-        mRequestThreads.addElement(current);
+
+        RequestType type = types.get(getType(r));
+        long start = System.nanoTime();
+
+        lock.lock();
+        try {
+            if (waiting == 0 && canAdmit(type)) {
+                admit(type);
+                type.waitTime.add(0);
+                return;
+            }
+
+            if (maxQueueSize > 0 && waiting >= maxQueueSize) {
+                type.rejected.increment();
+                logger.warn("RequestScheduler: Rejecting " + type.name + " request " + r.getRequestId() + ": queue is full");
+                throw new RequestRejectedException("Too many requests waiting to be processed");
+            }
+
+            Waiter waiter = new Waiter(lock.newCondition());
+            if (type.queue.isEmpty()) {
+                // do not let an idle type catch up on the time it did not use
+                type.virtualTime = Math.max(type.virtualTime, getVirtualTime());
+            }
+            type.queue.addLast(waiter);
+            waiting++;
+
+            logger.debug("RequestScheduler: Queuing " + type.name + " request " + r.getRequestId() + ", waiting: " + waiting);
+
+            // the request might be admitted right away if only
+            // the other types have reached their limits
+            dispatch();
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (!waiter.admitted && (timeout <= 0 || remaining > 0)) {
+                try {
+                    if (timeout <= 0) {
+                        waiter.condition.await();
+                    } else {
+                        remaining = waiter.condition.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            if (!waiter.admitted) {
+                type.queue.remove(waiter);
+                waiting--;
+                type.timeouts.increment();
+                // the head of the queue might have changed
+                dispatch();
+
+                logger.warn("RequestScheduler: Rejecting " + type.name + " request " + r.getRequestId() + ": timed out");
+                throw new RequestRejectedException("Request timed out waiting to be processed");
+            }
+
+        } finally {
+            lock.unlock();
+        }
+
+        long waitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.debug("RequestScheduler: Processing " + type.name + " request " + r.getRequestId() + " after " + waitTime + " ms");
+        type.waitTime.add(waitTime);
     }
 
     /**
@@ -49,20 +228,175 @@ public class RequestScheduler {
      *
      * @param r request
      */
-    public synchronized void requestOut(Request r) {
-        Thread current = Thread.currentThread();
-        Thread first = mRequestThreads.elementAt(0);
-
-        if (current.equals(first)) {
-            // reprioritize
-            try {
-                Thread second = mRequestThreads.elementAt(1);
-
-                second.setPriority(Thread.MAX_PRIORITY);
-            } catch (Exception e) {
-                // no second element; nothing to do
+    public void requestOut(Request r) {
+
+        if (!enabled) {
+            return;
+        }
+
+        RequestType type = types.get(getType(r));
+
+        lock.lock();
+        try {
+            active--;
+            type.active--;
+            dispatch();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean canAdmit(RequestType type) {
+        return (maxConcurrent <= 0 || active < maxConcurrent)
+                && (type.maxConcurrent <= 0 || type.active < type.maxConcurrent);
+    }
+
+    void admit(RequestType type) {
+        active++;
+        type.active++;
+        type.admitted.increment();
+        type.virtualTime += 1.0 / type.weight;
+    }
+
+    /**
+     * Returns the smallest virtual time of the types with waiting requests.
+     */
+    double getVirtualTime() {
+        double min = Double.MAX_VALUE;
+        for (RequestType type : types.values()) {
+            if (!type.queue.isEmpty()) {
+                min = Math.min(min, type.virtualTime);
+            }
+        }
+        return min == Double.MAX_VALUE ? 0 : min;
+    }
+
+    /**
+     * Admits the waiting requests while there is capacity. Must be
+     * called with the lock held.
+     */
+    void dispatch() {
+
+        while (waiting > 0) {
+
+            RequestType next = null;
+
+            for (RequestType type : types.values()) {
+
+                Waiter head = type.queue.peekFirst();
+                if (head == null || !canAdmit(type)) {
+                    continue;
+                }
+
+                if (next == null) {
+                    next = type;
+                    continue;
+                }
+
+                if (fair) {
+                    if (type.virtualTime < next.virtualTime) {
+                        next = type;
+                    }
+                } else if (head.sequence < next.queue.peekFirst().sequence) {
+                    next = type;
+                }
+            }
+
+            if (next == null) {
+                return;
+            }
+
+            Waiter waiter = next.queue.removeFirst();
+            waiting--;
+            admit(next);
+
+            waiter.admitted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    /**
+     * Returns the number of requests being processed and waiting, and the
+     * number of requests admitted, rejected, timed out, and the average and
+     * maximum wait time of each request type.
+     */
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ordering", fair ? FAIR : FIFO);
+
+        lock.lock();
+        try {
+            stats.put("active", active);
+            stats.put("waiting", waiting);
+
+            for (RequestType type : types.values()) {
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("active", type.active);
+                values.put("waiting", type.queue.size());
+                values.put("admitted", type.admitted.sum());
+                values.put("rejected", type.rejected.sum());
+                values.put("timeouts", type.timeouts.sum());
+                values.put("averageWaitTime", type.waitTime.getAverageTime());
+                values.put("maxWaitTime", type.waitTime.getMaxTime());
+                stats.put(type.name, values);
             }
+
+        } finally {
+            lock.unlock();
+        }
+
+        return stats;
+    }
+
+    public String getStatistics() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("ordering: ").append(fair ? FAIR : FIFO);
+
+        for (RequestType type : types.values()) {
+            sb.append(", ").append(type.name).append(": ");
+            sb.append(type.admitted.sum()).append(" admitted/");
+            sb.append(type.rejected.sum()).append(" rejected/");
+            sb.append(type.timeouts.sum()).append(" timeouts/");
+            sb.append(type.waitTime.getAverageTime()).append(" ms avg wait/");
+            sb.append(type.waitTime.getMaxTime()).append(" ms max wait");
+        }
+
+        return sb.toString();
+    }
+
+    class Waiter {
+
+        Condition condition;
+        long sequence = RequestScheduler.this.sequence++;
+        boolean admitted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    static class RequestType {
+
+        String name;
+        int maxConcurrent;
+        int weight = 1;
+
+        // guarded by the scheduler lock
+        int active;
+        double virtualTime;
+        Deque<Waiter> queue = new ArrayDeque<>();
+
+        LongAdder admitted = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder timeouts = new LongAdder();
+        OperationStats waitTime = new OperationStats(); // milliseconds
+
+        RequestType(String name) {
+            this.name = name;
         }
-        mRequestThreads.removeElement(current);
     }
 }
@@ -0,0 +1,72 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cms.request;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides ca.requestScheduler.* and kra.requestScheduler.* parameters.
+ */
+public class RequestSchedulerConfig extends ConfigStore {
+
+    public RequestSchedulerConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public RequestSchedulerConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns requestScheduler.maxConcurrent parameter, the max number
+     * of requests processed at the same time. Zero means no limit.
+     */
+    public int getMaxConcurrent() throws EBaseException {
+        return getInteger("maxConcurrent", 0);
+    }
+
+    /**
+     * Returns requestScheduler.ordering parameter (fifo or fair).
+     */
+    public String getOrdering() throws EBaseException {
+        return getString("ordering", "fifo");
+    }
+
+    /**
+     * Returns requestScheduler.timeout parameter, the max time
+     * a request can wait to be processed (in seconds).
+     * Zero means no limit.
+     */
+    public int getTimeout() throws EBaseException {
+        return getInteger("timeout", 60);
+    }
+
+    /**
+     * Returns requestScheduler.maxQueueSize parameter, the max number
+     * of requests waiting to be processed. Zero means no limit.
+     */
+    public int getMaxQueueSize() throws EBaseException {
+        return getInteger("maxQueueSize", 0);
+    }
+
+    /**
+     * Returns requestScheduler.&lt;type&gt;.maxConcurrent parameter.
+     * Zero means no limit.
+     */
+    public int getMaxConcurrent(String type) throws EBaseException {
+        return getInteger(type + ".maxConcurrent", 0);
+    }
+
+    /**
+     * Returns requestScheduler.&lt;type&gt;.weight parameter.
+     */
+    public int getWeight(String type) throws EBaseException {
+        return getInteger(type + ".weight", 1);
+    }
+}
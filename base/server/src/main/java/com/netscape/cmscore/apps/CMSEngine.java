@@ -782,6 +782,7 @@ public class CMSEngine {
         PasswordStore passwordStore = getPasswordStore();
 
         ugSubsystem.init(ldapConfig, socketConfig, passwordStore);
+        ugSubsystem.initGroupMembershipCache(ugConfig.getGroupMembershipCacheConfig());
     }
 
     public void initOIDLoaderSubsystem() throws Exception {
@@ -1387,7 +1388,7 @@ public class CMSEngine {
         }
         socketFactory.init(socketConfig);
 
-        LdapBoundConnFactory connFactory = new LdapBoundConnFactory(id);
+        LdapBoundConnFactory connFactory = LdapBoundConnFactory.create(id, false, ldapConfig);
         connFactory.setSocketFactory(socketFactory);
         connFactory.setPasswordStore(getPasswordStore());
         connFactory.init(ldapConfig);
@@ -1534,11 +1535,26 @@ public class CMSEngine {
     }
 
     public void shutdownAuthSubsystem() {
+        if (mVCList != null) {
+            logger.info("CMSEngine: Verified certs: " + mVCList.getStatistics());
+        }
         if (authSubsystem == null) return;
         authSubsystem.shutdown();
     }
 
+    public void shutdownRequestNotifiers() {
+        if (requestNotifier != null) {
+            requestNotifier.shutdown();
+        }
+        if (pendingNotifier != null) {
+            pendingNotifier.shutdown();
+        }
+    }
+
     public void shutdownRequestSubsystem() {
+        if (requestQueue != null && requestQueue.getRequestScheduler() != null) {
+            logger.info("CMSEngine: Request scheduler: " + requestQueue.getRequestScheduler().getStatistics());
+        }
         if (requestSubsystem == null) return;
         requestSubsystem.shutdown();
     }
@@ -1622,6 +1638,9 @@ public class CMSEngine {
         shutdownAuthzSubsystem();
         shutdownAuthSubsystem();
 
+        // finish the notifications before the listeners are shut down
+        shutdownRequestNotifiers();
+
         shutdownSubsystems();
 
         if (mSDTimer != null) {
@@ -1832,12 +1851,20 @@ public class CMSEngine {
     private int mVCListSize = 0;
 
     public void setListOfVerifiedCerts(int size, long interval, long unknownStateInterval) {
+        setListOfVerifiedCerts(size, interval, interval, unknownStateInterval);
+    }
+
+    public void setListOfVerifiedCerts(int size, long interval, long revokedInterval, long unknownStateInterval) {
         if (size > 0 && mVCListSize == 0) {
             mVCListSize = size;
-            mVCList = new VerifiedCerts(size, interval, unknownStateInterval);
+            mVCList = new VerifiedCerts(size, interval, revokedInterval, unknownStateInterval);
         }
     }
 
+    public VerifiedCerts getVerifiedCerts() {
+        return mVCList;
+    }
+
     public boolean isRevoked(X509Certificate[] certificates) {
 
         if (certificates == null) {
@@ -9,6 +9,7 @@ import com.netscape.certsrv.base.EBaseException;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.base.SimpleProperties;
+import com.netscape.cmscore.dbs.DBSearchCursors;
 import com.netscape.cmscore.ldapconn.LDAPConfig;
 
 /**
@@ -342,6 +343,27 @@ public class DatabaseConfig extends ConfigStore {
         putString(REPLICA_INCREMENT, replicaIncrement);
     }
 
+    /**
+     * Returns dbs.maxSearchCursors parameter.
+     */
+    public int getMaxSearchCursors() throws EBaseException {
+        return getInteger("maxSearchCursors", DBSearchCursors.DEFAULT_MAX_CURSORS);
+    }
+
+    /**
+     * Returns dbs.maxSearchCursorsPerUser parameter.
+     */
+    public int getMaxSearchCursorsPerUser() throws EBaseException {
+        return getInteger("maxSearchCursorsPerUser", DBSearchCursors.DEFAULT_MAX_CURSORS_PER_USER);
+    }
+
+    /**
+     * Returns dbs.searchCursorTimeout parameter in seconds.
+     */
+    public int getSearchCursorTimeout() throws EBaseException {
+        return getInteger("searchCursorTimeout", DBSearchCursors.DEFAULT_TIMEOUT);
+    }
+
     public LDAPConfig getLDAPConfig() throws EBaseException {
         return getSubStore("ldap", LDAPConfig.class);
     }
@@ -101,10 +101,11 @@ public class CertUserDBAuthentication extends AuthManager {
             if (mRevocationCheckingEnabled) {
                 int size = mRevocationChecking.getBufferSize();
                 long interval = mRevocationChecking.getValidityInterval();
+                long revokedInterval = mRevocationChecking.getRevokedInterval();
                 long unknownStateInterval = mRevocationChecking.getUnknownStateInterval();
 
                 if (size > 0)
-                    engine.setListOfVerifiedCerts(size, interval, unknownStateInterval);
+                    engine.setListOfVerifiedCerts(size, interval, revokedInterval, unknownStateInterval);
             }
         }
 
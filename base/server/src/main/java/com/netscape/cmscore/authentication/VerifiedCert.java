@@ -18,6 +18,7 @@
 package com.netscape.cmscore.authentication;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Date;
 
 /**
@@ -34,10 +35,13 @@ public class VerifiedCert {
     public static final int UNKNOWN = 0;
 
     private int mStatus = UNKNOWN;
-    private Date mCreated = null;
+    private long mCreated;
     private BigInteger mSerialNumber = null;
     private byte[] mCertEncoded = null;
 
+    // last time the record was used, for LRU eviction
+    private volatile long mLastAccess;
+
     /**
      * Constructs verified certiificate record
      */
@@ -47,42 +51,43 @@ public class VerifiedCert {
         mStatus = status;
         mSerialNumber = serialNumber;
         mCertEncoded = certEncoded;
-        mCreated = new Date();
+        mCreated = System.currentTimeMillis();
+        mLastAccess = mCreated;
+    }
+
+    public int getStatus() {
+        return mStatus;
     }
 
-    public int check(BigInteger serialNumber, byte[] certEncoded,
-            long interval, long unknownStateInterval) {
-        int status = UNKNOWN;
+    public BigInteger getSerialNumber() {
+        return mSerialNumber;
+    }
 
-        if (mSerialNumber.equals(serialNumber)) {
-            if (mCertEncoded != null) {
-                if (certEncoded != null &&
-                        mCertEncoded.length == certEncoded.length) {
-                    int i;
+    public Date getCreated() {
+        return new Date(mCreated);
+    }
 
-                    for (i = 0; i < mCertEncoded.length; i++) {
-                        if (mCertEncoded[i] != certEncoded[i])
-                            break;
-                    }
-                    if (i >= mCertEncoded.length) {
-                        Date expires = new Date(mCreated.getTime() + (interval * 1000));
-                        Date now = new Date();
+    public long getLastAccess() {
+        return mLastAccess;
+    }
 
-                        if (now.after(expires))
-                            mStatus = EXPIRED;
-                        status = mStatus;
-                    }
-                }
-            } else if (unknownStateInterval > 0) {
-                Date expires = new Date(mCreated.getTime() + (unknownStateInterval * 1000));
-                Date now = new Date();
+    public void setLastAccess(long lastAccess) {
+        mLastAccess = lastAccess;
+    }
 
-                if (now.after(expires))
-                    mStatus = EXPIRED;
-                status = mStatus; // CHECKED
-            }
-        }
+    /**
+     * Returns true if the record was created for the given certificate.
+     * A record without certificate encoding (i.e. CHECKED) matches
+     * any certificate with the same issuer and serial number.
+     */
+    public boolean matches(byte[] certEncoded) {
+        return mCertEncoded == null || Arrays.equals(mCertEncoded, certEncoded);
+    }
 
-        return status;
+    /**
+     * Returns true if the record is older than the interval in seconds.
+     */
+    public boolean isExpired(long now, long interval) {
+        return now - mCreated >= interval * 1000;
     }
 }
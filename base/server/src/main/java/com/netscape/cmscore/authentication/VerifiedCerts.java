@@ -18,42 +18,75 @@
 package com.netscape.cmscore.authentication;
 
 import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
 /**
  * class storing verified certificates.
  *
+ * The records are indexed by the issuer and serial number of the
+ * certificate so a lookup does not need to scan the list. A record
+ * is only used if the certificate encoding matches the encoding of
+ * the verified certificate. Revoked, not revoked, and unknown (CHECKED)
+ * records expire after their own intervals. When the list is full the
+ * expired records and then the least recently used record are evicted.
+ *
+ * The records of a certificate can be invalidated when the certificate
+ * is revoked or unrevoked so the new status is used immediately. This
+ * is only done by the CRL issuing points of the server that processes
+ * the revocation (i.e. the CRL master). Other clones do not see the
+ * revocations replicated from it, so a certificate revoked elsewhere
+ * remains cached as not revoked on those clones until the record
+ * expires after auths.revocationChecking.validityInterval.
+ *
  * @version $Revision$, $Date$
  */
 
 public class VerifiedCerts {
 
-    /* the value type of the dn component */
-    private int mFirst = 0;
-    private int mLast = 0;
-    private int mNext = 0;
-    private VerifiedCert[] mVCerts = null;
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(VerifiedCerts.class);
+
+    private int mSize;
+    private Map<Key, VerifiedCert> mVCerts = new ConcurrentHashMap<>();
     private long mInterval = 0;
+    private long mRevokedInterval = 0;
     private long mUnknownStateInterval = 0;
 
+    // statistics
+    private LongAdder mHits = new LongAdder();
+    private LongAdder mMisses = new LongAdder();
+    private LongAdder mExpirations = new LongAdder();
+    private LongAdder mEvictions = new LongAdder();
+    private LongAdder mInvalidations = new LongAdder();
+
     /**
      * Constructs verified certiificates list
      */
 
     public VerifiedCerts(int size, long interval) {
-        mVCerts = new VerifiedCert[size];
-        mInterval = interval;
-        mUnknownStateInterval = interval;
+        this(size, interval, interval);
     }
 
     public VerifiedCerts(int size, long interval, long unknownStateInterval) {
-        mVCerts = new VerifiedCert[size];
+        this(size, interval, interval, unknownStateInterval);
+    }
+
+    public VerifiedCerts(int size, long interval, long revokedInterval, long unknownStateInterval) {
+        mSize = size;
         mInterval = interval;
+        mRevokedInterval = revokedInterval;
         mUnknownStateInterval = unknownStateInterval;
     }
 
-    public synchronized void update(X509CertImpl cert, int status) {
+    public int getSize() {
+        return mSize;
+    }
+
+    public void update(X509CertImpl cert, int status) {
         if (cert != null) {
             byte[] certEncoded = null;
 
@@ -64,36 +97,29 @@ public class VerifiedCerts {
             if ((certEncoded != null ||
                     (status == VerifiedCert.CHECKED && mUnknownStateInterval > 0))
                     && mInterval > 0) {
-                update(cert.getSerialNumber(), certEncoded, status);
+                update(getIssuer(cert), cert.getSerialNumber(), certEncoded, status);
             }
         }
     }
 
-    public synchronized void update(BigInteger serialNumber, byte[] certEncoded, int status) {
+    public void update(String issuer, BigInteger serialNumber, byte[] certEncoded, int status) {
         if ((status == VerifiedCert.NOT_REVOKED ||
                 status == VerifiedCert.REVOKED ||
                 (status == VerifiedCert.CHECKED && mUnknownStateInterval > 0))
-                && mInterval > 0) {
-            if (mLast == mNext && mFirst == mNext) { // empty
-                mVCerts[mNext] = new VerifiedCert(serialNumber, certEncoded, status);
-                mNext = next(mNext);
-            } else if (mFirst == mNext) { // full
-                mFirst = next(mFirst);
-                mVCerts[mNext] = new VerifiedCert(serialNumber, certEncoded, status);
-                mLast = mNext;
-                mNext = next(mNext);
-            } else {
-                mVCerts[mNext] = new VerifiedCert(serialNumber, certEncoded, status);
-                mLast = mNext;
-                mNext = next(mNext);
+                && mInterval > 0 && mSize > 0) {
+
+            Key key = new Key(issuer, serialNumber);
+            if (mVCerts.put(key, new VerifiedCert(serialNumber, certEncoded, status)) == null
+                    && mVCerts.size() > mSize) {
+                evict(key);
             }
         }
     }
 
-    public synchronized int check(X509CertImpl cert) {
+    public int check(X509CertImpl cert) {
         int status = VerifiedCert.UNKNOWN;
 
-        if (mLast != mNext && mInterval > 0) { // if not empty and
+        if (!mVCerts.isEmpty() && mInterval > 0) { // if not empty and
             if (cert != null) {
                 byte[] certEncoded = null;
 
@@ -102,7 +128,7 @@ public class VerifiedCerts {
                 } catch (Exception e) {
                 }
                 if (certEncoded != null) {
-                    status = check(cert.getSerialNumber(), certEncoded);
+                    status = check(getIssuer(cert), cert.getSerialNumber(), certEncoded);
                 }
             }
         }
@@ -110,49 +136,146 @@ public class VerifiedCerts {
         return status;
     }
 
-    public synchronized int check(BigInteger serialNumber, byte[] certEncoded) {
-        int status = VerifiedCert.UNKNOWN;
-        int i = mLast;
-
-        if (mVCerts != null && mLast != mNext && mInterval > 0) { // if not empty and
-            while (status == VerifiedCert.UNKNOWN) {
-                if (mVCerts[i] == null)
-                    return status;
-                status = mVCerts[i].check(serialNumber, certEncoded,
-                            mInterval, mUnknownStateInterval);
-                if (status == VerifiedCert.EXPIRED) {
-                    if (mFirst == mLast)
-                        mNext = mLast;
-                    else
-                        mFirst = next(i);
-                    break;
-                } else if (mFirst == i) {
-                    break;
-                } else {
-                    i = previous(i);
-                }
+    public int check(String issuer, BigInteger serialNumber, byte[] certEncoded) {
+
+        Key key = new Key(issuer, serialNumber);
+        VerifiedCert vCert = mVCerts.get(key);
+
+        if (vCert == null || !vCert.matches(certEncoded)) {
+            mMisses.increment();
+            return VerifiedCert.UNKNOWN;
+        }
+
+        long now = System.currentTimeMillis();
+        if (vCert.isExpired(now, getInterval(vCert.getStatus()))) {
+            mVCerts.remove(key, vCert);
+            mExpirations.increment();
+            mMisses.increment();
+            return VerifiedCert.UNKNOWN;
+        }
+
+        vCert.setLastAccess(now);
+        mHits.increment();
+
+        return vCert.getStatus();
+    }
+
+    /**
+     * Removes the records of a certificate from all issuers.
+     * This is called when the certificate is revoked or unrevoked
+     * by a CRL issuing point on this server. It is not called for
+     * revocations replicated from other clones.
+     */
+    public void invalidate(BigInteger serialNumber) {
+        if (mVCerts.values().removeIf(vCert -> vCert.getSerialNumber().equals(serialNumber))) {
+            logger.debug("VerifiedCerts: Invalidated cert 0x" + serialNumber.toString(16));
+            mInvalidations.increment();
+        }
+    }
+
+    /**
+     * Removes all records.
+     */
+    public void invalidate() {
+        mVCerts.clear();
+    }
+
+    private long getInterval(int status) {
+        switch (status) {
+        case VerifiedCert.REVOKED:
+            return mRevokedInterval;
+        case VerifiedCert.CHECKED:
+            return mUnknownStateInterval;
+        default:
+            return mInterval;
+        }
+    }
+
+    /**
+     * Removes the expired records, or the least recently used record
+     * if none has expired. The list only fills up after a revocation
+     * check which is much slower than a scan of the records.
+     */
+    private void evict(Key newKey) {
+
+        long now = System.currentTimeMillis();
+        Key lruKey = null;
+        long lruAccess = Long.MAX_VALUE;
+        boolean expired = false;
+
+        Iterator<Map.Entry<Key, VerifiedCert>> i = mVCerts.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<Key, VerifiedCert> entry = i.next();
+            VerifiedCert vCert = entry.getValue();
+
+            if (vCert.isExpired(now, getInterval(vCert.getStatus()))) {
+                i.remove();
+                mExpirations.increment();
+                expired = true;
+                continue;
+            }
+
+            if (!entry.getKey().equals(newKey) && vCert.getLastAccess() < lruAccess) {
+                lruKey = entry.getKey();
+                lruAccess = vCert.getLastAccess();
             }
-            if (status == VerifiedCert.UNKNOWN)
-                status = mVCerts[i].check(serialNumber, certEncoded,
-                            mInterval, mUnknownStateInterval);
         }
 
-        return status;
+        if (!expired && lruKey != null && mVCerts.remove(lruKey) != null) {
+            mEvictions.increment();
+        }
+    }
+
+    private String getIssuer(X509CertImpl cert) {
+        return cert.getIssuerDN().toString();
+    }
+
+    public int getCount() {
+        return mVCerts.size();
+    }
+
+    public long getHits() {
+        return mHits.sum();
+    }
+
+    public long getMisses() {
+        return mMisses.sum();
     }
 
-    private int next(int i) {
-        i++;
-        if (i >= mVCerts.length)
-            i = 0;
+    public long getExpirations() {
+        return mExpirations.sum();
+    }
 
-        return i;
+    public long getEvictions() {
+        return mEvictions.sum();
     }
 
-    private int previous(int i) {
-        if (i <= 0)
-            i = mVCerts.length;
-        i--;
+    public long getInvalidations() {
+        return mInvalidations.sum();
+    }
 
-        return i;
+    /**
+     * Returns the ratio of lookups that did not require a revocation check.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public String getStatistics() {
+        return "size: " + getCount() + "/" + mSize
+                + ", hits: " + getHits()
+                + ", misses: " + getMisses()
+                + ", hit rate: " + String.format("%.1f%%", getHitRate() * 100)
+                + ", expirations: " + getExpirations()
+                + ", evictions: " + getEvictions()
+                + ", invalidations: " + getInvalidations();
+    }
+
+    /**
+     * Identifies a certificate by its issuer and serial number.
+     */
+    record Key(String issuer, BigInteger serialNumber) {
     }
 }
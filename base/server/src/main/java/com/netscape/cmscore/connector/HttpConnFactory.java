@@ -17,6 +17,16 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.connector;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmsutil.http.JssSSLSocketFactory;
@@ -24,22 +34,41 @@ import com.netscape.cmsutil.net.ISocketFactory;
 
 /**
  * Factory for getting HTTP Connections to a HTTPO server
+ *
+ * The connections are pooled. The number of connections in use is
+ * limited by the maximum number of connections. The most recently
+ * returned connection is reused first so its keep-alive connection is
+ * still likely to be open. Idle connections beyond the minimum number
+ * of connections are closed after the idle timeout.
+ *
+ * The connections share the hosts of the remote authority, so a host
+ * that is down is skipped by all connections.
  */
 public class HttpConnFactory {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HttpConnFactory.class);
 
+    public static final int DEFAULT_IDLE_TIMEOUT = 30; // seconds
+
     protected CMSEngine engine;
     protected int mMinConns = 1;
     protected int mMaxConns = 30;
 
-    private int mNumConns = 0; // number of available conns in array
-    private int mTotal = 0; // total num conns
-    private HttpConnection mConns[];
     private RemoteAuthority mDest;
     private String mNickname = "";
     private String mClientCiphers = null;
     private int mTimeout = 0;
+    private boolean mKeepAlive = true;
+    private int mIdleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    private Semaphore mPermits;
+    private BlockingDeque<HttpConnection> mConns = new LinkedBlockingDeque<>();
+    private List<HttpTarget> mTargets;
+
+    // statistics
+    private LongAdder createdConns = new LongAdder();
+    private LongAdder closedConns = new LongAdder();
+    private LongAdder waits = new LongAdder();
 
     /**
      * Constructor for initializing from the config store.
@@ -86,6 +115,25 @@ public class HttpConnFactory {
         this.engine = engine;
     }
 
+    public boolean isKeepAlive() {
+        return mKeepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        mKeepAlive = keepAlive;
+    }
+
+    /**
+     * Returns the max time an idle connection is kept in seconds.
+     */
+    public int getIdleTimeout() {
+        return mIdleTimeout;
+    }
+
+    public void setIdleTimeout(int idleTimeout) {
+        mIdleTimeout = idleTimeout;
+    }
+
     /**
      * initialize parameters obtained from either constructor or
      * config store
@@ -106,22 +154,16 @@ public class HttpConnFactory {
             throw new EBaseException("HttpConnFactory: Invalid minimum and maximum connections");
         }
 
-        logger.debug("before creating httpconn array");
+        logger.debug("HttpConnFactory: keep alive: " + mKeepAlive);
+        logger.debug("HttpConnFactory: idle timeout: " + mIdleTimeout);
 
-        mConns = new HttpConnection[mMaxConns];
+        mPermits = new Semaphore(mMaxConns, true);
+        mTargets = HttpTarget.parse(mDest.getHost(), mDest.getPort());
 
-        // Create connection handle and make initial connection
+        logger.debug("HttpConnFactory: targets: " + mTargets);
 
-        logger.debug("before makeConnection");
-
-        logger.debug(
-                "initializing HttpConnFactory with mininum " + mMinConns + " and maximum " + mMaxConns +
-                        " connections to ");
-
-        // initalize minimum number of connection handles available.
-        //makeMinimum();
-
-        logger.debug("leaving HttpConnFactory init.");
+        // the connections are created when needed since
+        // the remote authority might not be available yet
     }
 
     private HttpConnection createConnection() throws EBaseException {
@@ -142,6 +184,9 @@ public class HttpConnFactory {
             }
 
             retConn.setCMSEngine(engine);
+            retConn.setTargets(mTargets);
+            retConn.setKeepAlive(mKeepAlive);
+            retConn.setIdleTimeout(mIdleTimeout);
             retConn.init();
 
         } catch (Exception e) {
@@ -150,32 +195,34 @@ public class HttpConnFactory {
             throw new EBaseException(message, e);
         }
 
+        createdConns.increment();
         return retConn;
     }
 
     /**
-     * makes the minumum number of connections
+     * Closes the connections that have been idle longer than the
+     * idle timeout while keeping the minimum number of connections.
      */
-    private void makeMinimum() throws EBaseException {
-
-        logger.debug("In HttpConnFactory.makeMinimum.");
-        int increment;
+    private void closeIdleConnections() {
 
-        if (mNumConns < mMinConns && mTotal <= mMaxConns) {
+        if (mIdleTimeout <= 0) {
+            return;
+        }
 
-            increment = Math.min(mMinConns - mNumConns, mMaxConns - mTotal);
+        long expiration = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(mIdleTimeout);
 
-            if (increment == 0)
+        // the least recently used connections are at the end
+        while (mConns.size() > mMinConns) {
+            HttpConnection conn = mConns.peekLast();
+            if (conn == null || conn.getLastUsed() > expiration) {
                 return;
+            }
 
-            logger.debug("increasing minimum connections by " + increment);
-            for (int i = increment - 1; i >= 0; i--) {
-                mConns[i] = createConnection();
+            if (mConns.removeLastOccurrence(conn)) {
+                logger.debug("HttpConnFactory: Closing idle connection " + conn);
+                conn.close();
+                closedConns.increment();
             }
-            mTotal += increment;
-            mNumConns += increment;
-            logger.debug("new total available http connections " + mTotal);
-            logger.debug("new number of http connections " + mNumConns);
         }
     }
 
@@ -225,39 +272,46 @@ public class HttpConnFactory {
      * }
      * </pre>
      */
-    public synchronized HttpConnection getConn(boolean waitForConn)
+    public HttpConnection getConn(boolean waitForConn)
             throws EBaseException {
-        boolean waited = false;
 
         logger.debug("In HttpConnFactory.getConn");
-        if (mNumConns == 0)
-            makeMinimum();
-        if (mNumConns == 0) {
+
+        if (!mPermits.tryAcquire()) {
+
             if (!waitForConn)
                 return null;
-            try {
-                logger.warn("HttpConnFactory: Ran out of HTTP connections");
-                waited = true;
-                logger.debug("HttpConn:about to wait for a new http connection");
-                while (mNumConns == 0)
-                    wait();
 
-                logger.debug("HttpConn:done waiting for new http connection");
+            logger.warn("HttpConnFactory: Ran out of HTTP connections");
+            waits.increment();
+
+            try {
+                mPermits.acquire();
             } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EBaseException("HttpConnFactory: Interrupted while waiting for a connection", e);
             }
+
+            logger.warn("Http connections are available again in http connection pool");
         }
-        mNumConns--;
-        HttpConnection conn = mConns[mNumConns];
 
-        mConns[mNumConns] = null;
+        closeIdleConnections();
 
-        if (waited) {
-            logger.warn("HttpConn:had to wait for an available connection from pool");
-            logger.warn("Http connections are available again in http connection pool");
+        HttpConnection conn = mConns.pollFirst();
+        if (conn != null) {
+            logger.debug("HttpgetConn: idle connections now " + mConns.size());
+            return conn;
         }
-        logger.debug("HttpgetConn: mNumConns now " + mNumConns);
 
-        return conn;
+        // create the connection outside of any lock
+        // since connecting to the remote authority might take a while
+        try {
+            return createConnection();
+
+        } catch (EBaseException | RuntimeException e) {
+            mPermits.release();
+            throw e;
+        }
     }
 
     /**
@@ -278,22 +332,88 @@ public class HttpConnFactory {
      * }
      * </pre>
      */
-    public synchronized void returnConn(HttpConnection conn) {
+    public void returnConn(HttpConnection conn) {
 
         logger.debug("In HttpConnFactory.returnConn");
         if (conn == null) {
             return;
         }
-        HttpConnection boundconn = conn;
 
-        for (int i = 0; i < mNumConns; i++) {
-            if (mConns[i] == conn) {
-                logger.debug("returnConn: previously returned connection. " + conn);
+        if (mConns.contains(conn)) {
+            logger.debug("returnConn: previously returned connection. " + conn);
+            return;
+        }
+
+        mConns.offerFirst(conn);
+        mPermits.release();
+        logger.debug("HttpreturnConn: idle connections now " + mConns.size());
+    }
+
+    public int getIdleConnections() {
+        return mConns.size();
+    }
+
+    public int getActiveConnections() {
+        return mPermits == null ? 0 : mMaxConns - mPermits.availablePermits();
+    }
+
+    /**
+     * Returns the number of connections and the connection, request,
+     * error counts, and request latency of each host.
+     */
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", getActiveConnections());
+        stats.put("idle", getIdleConnections());
+        stats.put("created", createdConns.sum());
+        stats.put("closed", closedConns.sum());
+        stats.put("waits", waits.sum());
+
+        Map<String, Object> targets = new LinkedHashMap<>();
+        if (mTargets != null) {
+            for (HttpTarget target : mTargets) {
+                targets.put(target.toString(), target.getStatisticsMap());
+            }
+        }
+        stats.put("targets", targets);
+
+        return stats;
+    }
 
+    public String getStatistics() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("connections: ").append(createdConns.sum());
+        sb.append(", closed: ").append(closedConns.sum());
+        sb.append(", waits: ").append(waits.sum());
+
+        if (mTargets != null) {
+            for (HttpTarget target : mTargets) {
+                sb.append(", ").append(target).append(": ");
+                sb.append(target.getConnects()).append(" connects/");
+                sb.append(target.getConnectFailures()).append(" connect failures/");
+                sb.append(target.getRequests()).append(" requests/");
+                sb.append(target.getErrors()).append(" errors/");
+                sb.append(target.getAverageTime()).append(" ms avg/");
+                sb.append(target.getMaxTime()).append(" ms max");
             }
         }
-        mConns[mNumConns++] = boundconn;
-        logger.debug("HttpreturnConn: mNumConns now " + mNumConns);
-        notify();
+
+        return sb.toString();
+    }
+
+    /**
+     * Closes the idle connections.
+     */
+    public void shutdown() {
+
+        Iterator<HttpConnection> i = mConns.iterator();
+        while (i.hasNext()) {
+            HttpConnection conn = i.next();
+            i.remove();
+            conn.close();
+            closedConns.increment();
+        }
     }
 }
@@ -19,10 +19,9 @@ package com.netscape.cmscore.connector;
 
 import java.io.IOException;
 import java.net.InetAddress;
-import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +34,7 @@ import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.logging.Auditor;
 import com.netscape.cmsutil.http.HttpClient;
+import com.netscape.cmsutil.http.HttpNoResponseException;
 import com.netscape.cmsutil.http.HttpRequest;
 import com.netscape.cmsutil.http.HttpResponse;
 import com.netscape.cmsutil.net.ISocketFactory;
@@ -45,6 +45,10 @@ import com.netscape.cmsutil.net.ISocketFactory;
  * PKI messages to a remote authority. The remote authority
  * will reply with a PKI message as well. An example would
  * be the communication between a CA and a KRA.
+ *
+ * If keep-alive is enabled the connection to the remote authority
+ * is reused for subsequent requests until it has been idle longer
+ * than the idle timeout.
  */
 public class HttpConnection {
 
@@ -58,9 +62,14 @@ public class HttpConnection {
     protected HttpClient mHttpClient = null;
 
     int timeout = 0;
-    List<InetSocketAddress> targets;
+    List<HttpTarget> targets;
+    HttpTarget currentTarget;
     String localIP = "localhost";
 
+    boolean keepAlive;
+    int idleTimeout; // seconds
+    long lastUsed;
+
     public HttpConnection(RemoteAuthority dest, ISocketFactory factory) {
         this(dest, factory, 0);
     }
@@ -82,6 +91,41 @@ public class HttpConnection {
         this.engine = engine;
     }
 
+    /**
+     * Sets the hosts of the remote authority. If not set,
+     * the hosts will be parsed from the remote authority.
+     */
+    public void setTargets(List<HttpTarget> targets) {
+        this.targets = targets;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Returns the max time an idle connection is reused in seconds.
+     * Zero means no limit.
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Returns the time the connection was last used.
+     */
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
     public void init() {
 
         logger.debug("HttpConnection: Creating HttpConnection with timeout=" + timeout);
@@ -94,8 +138,11 @@ public class HttpConnection {
 
         mReqEncoder = new HttpRequestEncoder();
         mHttpClient = new HttpClient(factory);
+        mHttpClient.setKeepAlive(keepAlive);
 
-        targets = parseTarget(dest.getHost(), dest.getPort());
+        if (targets == null) {
+            targets = HttpTarget.parse(dest.getHost(), dest.getPort());
+        }
 
         try {
             mHttpreq.setMethod("POST");
@@ -123,57 +170,32 @@ public class HttpConnection {
         }
     }
 
-    List<InetSocketAddress> parseTarget(String target, int port) {
-
-        List<InetSocketAddress> results = new ArrayList<>();
-
-        if (target == null || target.indexOf(' ') < 0) {
-            // target is a single hostname
-
-            // add hostname and the global port to the results
-            results.add(new InetSocketAddress(target, port));
-            return results;
-        }
-
-        // target is a list of hostname:port, for example:
-        // "server1.example.com:8443 server2.example.com:8443"
-
-        for (String hostnamePort : target.split(" ")) {
-
-            // parse hostname and port, and ignore the global port
-            String[] parts = hostnamePort.split(":");
-            String hostname = parts[0];
-            port = Integer.parseInt(parts[1]);
-
-            // add hostname and port to the results
-            results.add(new InetSocketAddress(hostname, port));
-        }
-
-        return results;
-    }
-
     void connect() throws IOException {
 
         IOException exception = null;
         Auditor auditor = engine.getAuditor();
         SignedAuditEvent auditEvent;
 
-        // try all targets
-        for (InetSocketAddress target : targets) {
+        // try all targets, the ones that failed recently are tried last
+        for (HttpTarget target : HttpTarget.order(targets)) {
 
-            String hostname = target.getHostString();
+            String hostname = target.getHostname();
             int port = target.getPort();
 
             try {
                 logger.debug("HttpConnection: Connecting to " + hostname + ":" + port + " with timeout " + timeout + "s");
 
                 mHttpClient.connect(hostname, port, timeout * 1000);
+                target.connected();
+                currentTarget = target;
+                lastUsed = System.currentTimeMillis();
 
                 logger.debug("HttpConnection: Connected to " + hostname + ":" + port);
                 return;
 
             } catch (IOException e) {
                 exception = e;
+                target.failed();
                 logger.warn("HttpConnection: Unable to connect to " + hostname + ":" + port + ": " + e.getMessage(), e);
                 auditEvent = ClientAccessSessionEstablishEvent.createFailureEvent(
                         localIP,
@@ -309,6 +331,14 @@ public class HttpConnection {
         mHttpreq.setContent(content);
 
         try {
+            long now = System.currentTimeMillis();
+            if (mHttpClient.connected() && idleTimeout > 0
+                    && now - lastUsed > TimeUnit.SECONDS.toMillis(idleTimeout)) {
+                // the server might have closed the idle connection
+                logger.debug("HttpConnection.doSend: closing idle connection");
+                close();
+            }
+
             if (!mHttpClient.connected()) {
                 connect();
                 reconnected = true;
@@ -330,12 +360,33 @@ public class HttpConnection {
 
         // if remote closed connection want to reconnect and resend.
         while (resp == null) {
+            HttpTarget target = currentTarget;
+            long start = System.currentTimeMillis();
             try {
                 logger.debug("HttpConnection.doSend: sending request");
                 resp = mHttpClient.send(mHttpreq);
+                lastUsed = System.currentTimeMillis();
+
+                if (target != null) {
+                    target.addRequest(lastUsed - start, "200".equals(resp.getStatusCode()));
+                }
 
             } catch (IOException e) {
-                logger.error("Unable to send HTTP request: " + e.getMessage(), e);
+
+                // resend only if the server did not receive the request or
+                // did not respond at all, e.g. a kept-alive connection that
+                // the server has closed, otherwise the request might have
+                // been processed already
+                boolean resend = !reconnected && e instanceof HttpNoResponseException;
+
+                if (resend) {
+                    logger.warn("HttpConnection.doSend: Unable to send HTTP request: " + e.getMessage());
+                } else {
+                    logger.error("Unable to send HTTP request: " + e.getMessage(), e);
+                    if (target != null) {
+                        target.addRequest(System.currentTimeMillis() - start, false);
+                    }
+                }
 
                 auditEvent = ClientAccessSessionEstablishEvent.createFailureEvent(
                         localIP,
@@ -351,6 +402,11 @@ public class HttpConnection {
                             CMS.getUserMessage("CMS_BASE_CONN_FAILED", "resend failed again: " + e), e);
                 }
 
+                if (!resend) {
+                    throw new EBaseException(
+                            CMS.getUserMessage("CMS_BASE_CONN_FAILED", "send failed: " + e), e);
+                }
+
                 try {
                     logger.warn("HttpConnection.doSend: trying a reconnect ");
                     connect();
@@ -398,4 +454,20 @@ public class HttpConnection {
 
         return resp;
     }
+
+    /**
+     * Closes the connection to the remote authority.
+     */
+    public void close() {
+
+        if (mHttpClient == null || !mHttpClient.connected()) {
+            return;
+        }
+
+        try {
+            mHttpClient.disconnect();
+        } catch (IOException e) {
+            logger.warn("HttpConnection: Unable to close connection: " + e.getMessage(), e);
+        }
+    }
 }
@@ -17,6 +17,8 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.connector;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Vector;
 
 import com.netscape.certsrv.base.EBaseException;
@@ -41,9 +43,7 @@ public class HttpConnector extends Connector {
     protected ConnectorConfig config;
     protected ISocketFactory mFactory = null;
 
-    // XXX todo make this a pool.
     // XXX use CMMF in the future.
-    protected HttpConnection mConn;
     private Resender mResender;
     @SuppressWarnings("unused")
     private int mTimeout;
@@ -92,9 +92,17 @@ public class HttpConnector extends Connector {
         int maxConns = config.getMaxHttpConns();
         logger.debug("HttpConnector: maxHttpConns: " + maxConns);
 
+        boolean keepAlive = config.getKeepAlive();
+        logger.debug("HttpConnector: keepAlive: " + keepAlive);
+
+        int idleTimeout = config.getIdleTimeout();
+        logger.debug("HttpConnector: idleTimeout: " + idleTimeout);
+
         try {
             mConnFactory = new HttpConnFactory(minConns, maxConns, mDest, nickname, clientCiphers, mTimeout);
             mConnFactory.setCMSEngine(engine);
+            mConnFactory.setKeepAlive(keepAlive);
+            mConnFactory.setIdleTimeout(idleTimeout);
             mConnFactory.init();
 
         } catch (EBaseException e) {
@@ -259,6 +267,19 @@ public class HttpConnector extends Connector {
         logger.debug("Stopping HttpConnector resender thread");
         if (mResender != null)
             mResender.stop();
+
+        if (mConnFactory != null) {
+            logger.info("HttpConnector: " + mDest.getHost() + ": " + mConnFactory.getStatistics());
+            mConnFactory.shutdown();
+        }
+    }
+
+    /**
+     * Returns the connection pool statistics and the
+     * request latency and errors of each host.
+     */
+    public Map<String, Object> getStatisticsMap() {
+        return mConnFactory == null ? new LinkedHashMap<>() : mConnFactory.getStatisticsMap();
     }
 
 }
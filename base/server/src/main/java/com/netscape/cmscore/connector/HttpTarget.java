@@ -0,0 +1,167 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.connector;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.util.OperationStats;
+
+/**
+ * This class represents one of the hosts of a remote authority.
+ *
+ * The targets are shared by all connections to the remote authority,
+ * so a host that has failed is skipped by the other connections until
+ * the retry interval has elapsed. This class also keeps the number of
+ * connections, requests, errors, and the request latency of the host.
+ */
+public class HttpTarget {
+
+    public static final int DEFAULT_RETRY_INTERVAL = 30; // seconds
+
+    private InetSocketAddress address;
+    private volatile long failedUntil;
+
+    // statistics
+    private LongAdder connects = new LongAdder();
+    private LongAdder connectFailures = new LongAdder();
+    private OperationStats requestStats = new OperationStats();
+
+    public HttpTarget(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Parses the host of a remote authority which can be a single
+     * hostname, or a list of hostname:port separated by spaces, for example:
+     * "server1.example.com:8443 server2.example.com:8443"
+     */
+    public static List<HttpTarget> parse(String target, int port) {
+
+        List<HttpTarget> results = new ArrayList<>();
+
+        if (target == null || target.indexOf(' ') < 0) {
+            // target is a single hostname
+
+            // add hostname and the global port to the results
+            results.add(new HttpTarget(new InetSocketAddress(target, port)));
+            return results;
+        }
+
+        for (String hostnamePort : target.split(" ")) {
+
+            // parse hostname and port, and ignore the global port
+            String[] parts = hostnamePort.split(":");
+            String hostname = parts[0];
+            port = Integer.parseInt(parts[1]);
+
+            // add hostname and port to the results
+            results.add(new HttpTarget(new InetSocketAddress(hostname, port)));
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the targets in the order they should be tried: the
+     * available targets in the configured order, then the failed ones.
+     */
+    public static List<HttpTarget> order(List<HttpTarget> targets) {
+
+        long now = System.currentTimeMillis();
+        List<HttpTarget> results = new ArrayList<>(targets.size());
+        List<HttpTarget> failed = new ArrayList<>();
+
+        for (HttpTarget target : targets) {
+            if (target.failedUntil > now) {
+                failed.add(target);
+            } else {
+                results.add(target);
+            }
+        }
+
+        results.addAll(failed);
+        return results;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public String getHostname() {
+        return address.getHostString();
+    }
+
+    public int getPort() {
+        return address.getPort();
+    }
+
+    public boolean isAvailable() {
+        return failedUntil <= System.currentTimeMillis();
+    }
+
+    public void connected() {
+        connects.increment();
+        failedUntil = 0;
+    }
+
+    public void failed() {
+        connectFailures.increment();
+        failedUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(DEFAULT_RETRY_INTERVAL);
+    }
+
+    public void addRequest(long time, boolean success) {
+        requestStats.add(time, success);
+    }
+
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    public long getConnectFailures() {
+        return connectFailures.sum();
+    }
+
+    public long getRequests() {
+        return requestStats.getCalls();
+    }
+
+    public long getErrors() {
+        return requestStats.getErrors();
+    }
+
+    public long getAverageTime() {
+        return requestStats.getAverageTime();
+    }
+
+    public long getMaxTime() {
+        return requestStats.getMaxTime();
+    }
+
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("available", isAvailable());
+        stats.put("connects", getConnects());
+        stats.put("connectFailures", getConnectFailures());
+        stats.put("requests", getRequests());
+        stats.put("errors", getErrors());
+        stats.put("averageTime", getAverageTime());
+        stats.put("maxTime", getMaxTime());
+
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return getHostname() + ":" + getPort();
+    }
+}
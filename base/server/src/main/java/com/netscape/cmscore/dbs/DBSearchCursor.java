@@ -0,0 +1,107 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.dbs;
+
+import java.util.List;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.dbs.DBPagedSearch;
+import com.netscape.certsrv.dbs.IDBObj;
+
+/**
+ * This class represents a paged search that can be resumed by
+ * subsequent requests using the cursor ID.
+ *
+ * The paged search keeps the LDAP paged results cookie, so each page
+ * is retrieved from where the previous page ended instead of skipping
+ * the previous entries.
+ */
+public class DBSearchCursor<E extends IDBObj> {
+
+    private DBSearchCursors cursors;
+
+    private String id;
+    private String owner;
+    private Class<E> type;
+    private DBPagedSearch<E> search;
+
+    private volatile long lastAccess;
+    private boolean closed;
+
+    DBSearchCursor(
+            DBSearchCursors cursors,
+            String id,
+            String owner,
+            Class<E> type,
+            DBPagedSearch<E> search) {
+
+        this.cursors = cursors;
+        this.id = id;
+        this.owner = owner;
+        this.type = type;
+        this.search = search;
+
+        lastAccess = System.currentTimeMillis();
+    }
+
+    public String getID() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Class<E> getType() {
+        return type;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Retrieves the next page. The cursor is closed after
+     * the last page has been retrieved.
+     *
+     * @param size max number of entries in the page
+     * @return entries in the page
+     */
+    public synchronized List<E> next(int size) throws EBaseException {
+
+        if (closed) {
+            return List.of();
+        }
+
+        lastAccess = System.currentTimeMillis();
+
+        try {
+            List<E> entries = search.getPage(size);
+
+            if (!search.hasMorePages()) {
+                close();
+            }
+
+            return entries;
+
+        } catch (EBaseException e) {
+            // the paged search cannot be resumed
+            close();
+            throw e;
+        }
+    }
+
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        cursors.remove(this);
+        search.close();
+    }
+}
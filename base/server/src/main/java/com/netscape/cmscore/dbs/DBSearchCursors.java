@@ -0,0 +1,218 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.dbs;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.dbs.DBPagedSearch;
+import com.netscape.certsrv.dbs.IDBObj;
+
+/**
+ * This class keeps the search cursors that are still open.
+ *
+ * A cursor is identified by a random ID which is returned to the
+ * client as an opaque continuation token. A cursor can only be used
+ * by the user that opened it. Cursors that have not been used for
+ * longer than the timeout are removed, and the number of open cursors
+ * is limited in total and per user since each cursor holds a paged
+ * search and a connection in the directory server.
+ */
+public class DBSearchCursors {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DBSearchCursors.class);
+
+    public static final int DEFAULT_MAX_CURSORS = 20;
+    public static final int DEFAULT_MAX_CURSORS_PER_USER = 5;
+    public static final int DEFAULT_TIMEOUT = 300; // seconds
+
+    private int maxCursors = DEFAULT_MAX_CURSORS;
+    private int maxCursorsPerUser = DEFAULT_MAX_CURSORS_PER_USER;
+    private int timeout = DEFAULT_TIMEOUT;
+
+    private SecureRandom random = new SecureRandom();
+    private Map<String, DBSearchCursor<?>> cursors = new ConcurrentHashMap<>();
+
+    // statistics
+    private LongAdder openedCursors = new LongAdder();
+    private LongAdder expiredCursors = new LongAdder();
+    private LongAdder rejectedCursors = new LongAdder();
+
+    public int getMaxCursors() {
+        return maxCursors;
+    }
+
+    public void setMaxCursors(int maxCursors) {
+        this.maxCursors = maxCursors;
+    }
+
+    public int getMaxCursorsPerUser() {
+        return maxCursorsPerUser;
+    }
+
+    public void setMaxCursorsPerUser(int maxCursorsPerUser) {
+        this.maxCursorsPerUser = maxCursorsPerUser;
+    }
+
+    /**
+     * Returns the max idle time of a cursor in seconds.
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Opens a cursor for a paged search.
+     *
+     * @param owner name of the user opening the cursor
+     * @param type type of the records
+     * @param search the paged search
+     * @return the cursor, or null if there are too many open cursors
+     * in total or for the user
+     */
+    public synchronized <E extends IDBObj> DBSearchCursor<E> open(
+            String owner,
+            Class<E> type,
+            DBPagedSearch<E> search) {
+
+        if (cursors.size() >= maxCursors || countCursors(owner) >= maxCursorsPerUser) {
+            removeExpiredCursors();
+        }
+
+        if (cursors.size() >= maxCursors) {
+            logger.warn("DBSearchCursors: Too many open search cursors: " + cursors.size());
+            rejectedCursors.increment();
+            search.close();
+            return null;
+        }
+
+        int userCursors = countCursors(owner);
+        if (userCursors >= maxCursorsPerUser) {
+            logger.warn("DBSearchCursors: Too many open search cursors for " + owner + ": " + userCursors);
+            rejectedCursors.increment();
+            search.close();
+            return null;
+        }
+
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        String id = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        DBSearchCursor<E> cursor = new DBSearchCursor<>(this, id, owner, type, search);
+        cursors.put(id, cursor);
+        openedCursors.increment();
+
+        logger.debug("DBSearchCursors: Opened search cursor " + id + " for " + owner);
+        return cursor;
+    }
+
+    /**
+     * Returns an open cursor.
+     *
+     * @param id cursor ID
+     * @param owner name of the user using the cursor
+     * @param type type of the records
+     * @return the cursor, or null if the cursor does not exist, has expired,
+     * or belongs to another user
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends IDBObj> DBSearchCursor<E> get(
+            String id,
+            String owner,
+            Class<E> type) {
+
+        DBSearchCursor<?> cursor = cursors.get(id);
+
+        if (cursor == null) {
+            return null;
+        }
+
+        if (isExpired(cursor, System.currentTimeMillis())) {
+            expiredCursors.increment();
+            cursor.close();
+            return null;
+        }
+
+        if (!Objects.equals(cursor.getOwner(), owner) || cursor.getType() != type) {
+            logger.warn("DBSearchCursors: Search cursor " + id + " does not belong to " + owner);
+            return null;
+        }
+
+        return (DBSearchCursor<E>) cursor;
+    }
+
+    int countCursors(String owner) {
+        int count = 0;
+        for (DBSearchCursor<?> cursor : cursors.values()) {
+            if (Objects.equals(cursor.getOwner(), owner)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    void remove(DBSearchCursor<?> cursor) {
+        cursors.remove(cursor.getID(), cursor);
+    }
+
+    boolean isExpired(DBSearchCursor<?> cursor, long now) {
+        return now - cursor.getLastAccess() > TimeUnit.SECONDS.toMillis(timeout);
+    }
+
+    void removeExpiredCursors() {
+
+        long now = System.currentTimeMillis();
+
+        for (DBSearchCursor<?> cursor : cursors.values()) {
+            if (isExpired(cursor, now)) {
+                logger.debug("DBSearchCursors: Search cursor " + cursor.getID() + " has expired");
+                expiredCursors.increment();
+                cursor.close();
+            }
+        }
+    }
+
+    public int getOpenCursors() {
+        return cursors.size();
+    }
+
+    public long getOpenedCursors() {
+        return openedCursors.sum();
+    }
+
+    public long getExpiredCursors() {
+        return expiredCursors.sum();
+    }
+
+    public long getRejectedCursors() {
+        return rejectedCursors.sum();
+    }
+
+    public String getStatistics() {
+        return "open: " + getOpenCursors()
+                + ", opened: " + getOpenedCursors()
+                + ", expired: " + getExpiredCursors()
+                + ", rejected: " + getRejectedCursors();
+    }
+
+    public void close() {
+
+        logger.info("DBSearchCursors: " + getStatistics());
+
+        for (DBSearchCursor<?> cursor : cursors.values()) {
+            cursor.close();
+        }
+    }
+}
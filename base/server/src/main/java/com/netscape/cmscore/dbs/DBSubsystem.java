@@ -19,6 +19,9 @@ package com.netscape.cmscore.dbs;
 
 import java.math.BigInteger;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.mozilla.jss.netscape.security.x509.CertificateValidity;
 
@@ -76,6 +79,8 @@ public class DBSubsystem {
     private LDAPSocketFactory socketFactory;
     private LdapBoundConnFactory mLdapConnFactory;
     private DBRegistry mRegistry;
+    private DBSearchCursors searchCursors = new DBSearchCursors();
+    private ScheduledExecutorService searchCursorReaper;
     private String mBaseDN;
 
     private boolean mEnableSerialMgmt;
@@ -204,17 +209,23 @@ public class DBSubsystem {
             mEnableSerialMgmt = mDBConfig.getEnableSerialManagement();
             logger.debug("DBSubsystem: init()  mEnableSerialMgmt="+mEnableSerialMgmt);
 
+            searchCursors.setMaxCursors(mDBConfig.getMaxSearchCursors());
+            searchCursors.setMaxCursorsPerUser(mDBConfig.getMaxSearchCursorsPerUser());
+            searchCursors.setTimeout(mDBConfig.getSearchCursorTimeout());
+
             // initialize registry
             mRegistry = new LDAPRegistry();
             mRegistry.init(null);
 
             // initialize LDAP connection factory
             // by default return error if server is down at startup time.
-            mLdapConnFactory = new LdapBoundConnFactory("DBSubsystem", true);
+            mLdapConnFactory = LdapBoundConnFactory.create("DBSubsystem", true, ldapConfig);
             mLdapConnFactory.setSocketFactory(socketFactory);
             mLdapConnFactory.setPasswordStore(passwordStore);
             mLdapConnFactory.init(ldapConfig);
 
+            startSearchCursorReaper();
+
         } catch (EPropertyNotDefined e) {
             logger.error("DBSubsystem: initialization failed: " + e.getMessage(), e);
             throw e;
@@ -330,13 +341,13 @@ public class DBSubsystem {
             reg.registerAttribute(CRLIssuingPointRecord.ATTR_CA_CERT, new
                     ByteArrayMapper(CRLDBSchema.LDAP_ATTR_CA_CERT));
             reg.registerAttribute(CRLIssuingPointRecord.ATTR_CRL_CACHE, new
-                    ObjectStreamMapper(CRLDBSchema.LDAP_ATTR_CRL_CACHE));
+                    RevokedCertsMapper(CRLDBSchema.LDAP_ATTR_CRL_CACHE));
             reg.registerAttribute(CRLIssuingPointRecord.ATTR_REVOKED_CERTS, new
-                    ObjectStreamMapper(CRLDBSchema.LDAP_ATTR_REVOKED_CERTS));
+                    RevokedCertsMapper(CRLDBSchema.LDAP_ATTR_REVOKED_CERTS));
             reg.registerAttribute(CRLIssuingPointRecord.ATTR_UNREVOKED_CERTS, new
-                    ObjectStreamMapper(CRLDBSchema.LDAP_ATTR_UNREVOKED_CERTS));
+                    RevokedCertsMapper(CRLDBSchema.LDAP_ATTR_UNREVOKED_CERTS));
             reg.registerAttribute(CRLIssuingPointRecord.ATTR_EXPIRED_CERTS, new
-                    ObjectStreamMapper(CRLDBSchema.LDAP_ATTR_EXPIRED_CERTS));
+                    RevokedCertsMapper(CRLDBSchema.LDAP_ATTR_EXPIRED_CERTS));
 
             boolean registered = reg.isObjectClassRegistered(RepositoryRecord.class.getName());
             logger.debug("registered: " + registered);
@@ -440,10 +451,51 @@ public class DBSubsystem {
         return null;
     }
 
+    /**
+     * Starts a background task that closes expired search cursors so that
+     * abandoned cursors release their LDAP connections and paged searches
+     * even if no new cursors are opened.
+     */
+    synchronized void startSearchCursorReaper() {
+
+        if (searchCursorReaper != null) {
+            return;
+        }
+
+        long interval = Math.max(1, Math.min(60, searchCursors.getTimeout()));
+        logger.info("DBSubsystem: Checking expired search cursors every " + interval + " seconds");
+
+        searchCursorReaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "DBSearchCursorReaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        searchCursorReaper.scheduleWithFixedDelay(() -> {
+            try {
+                searchCursors.removeExpiredCursors();
+            } catch (Exception e) {
+                logger.warn("DBSubsystem: Unable to remove expired search cursors: " + e.getMessage(), e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    synchronized void stopSearchCursorReaper() {
+
+        if (searchCursorReaper == null) {
+            return;
+        }
+
+        searchCursorReaper.shutdownNow();
+        searchCursorReaper = null;
+    }
+
     /**
      * Shutdowns this subsystem gracefully.
      */
     public void shutdown() {
+        stopSearchCursorReaper();
+        searchCursors.close();
         try {
             if (mLdapConnFactory != null) {
                 mLdapConnFactory.shutdown();
@@ -462,6 +514,13 @@ public class DBSubsystem {
             mRegistry.shutdown();
     }
 
+    /**
+     * Retrieves the open search cursors.
+     */
+    public DBSearchCursors getSearchCursors() {
+        return searchCursors;
+    }
+
     /**
      * Retrieves the registry.
      */
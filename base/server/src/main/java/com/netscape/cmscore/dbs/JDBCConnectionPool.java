@@ -0,0 +1,719 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.dbs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.util.OperationStats;
+
+/**
+ * This class maintains a bounded pool of JDBC connections.
+ *
+ * Connections are borrowed with getConnection() and returned to the pool
+ * by calling close() on the borrowed connection. A connection that has
+ * been idle longer than the validation interval is validated before it
+ * is handed out, so busy connections are not validated on every use.
+ * Connections that fail with a connection error are discarded when they
+ * are returned.
+ *
+ * Each connection keeps a cache of prepared statements. Closing a cached
+ * statement only clears its parameters so the statement (and the
+ * server-side prepared statement, if any) is reused by the next caller
+ * preparing the same SQL on that connection.
+ *
+ * The pool parameters are read from the pool.* properties which are
+ * removed from the connection properties:
+ * - pool.minConnections: min number of idle connections kept open (default: 0)
+ * - pool.maxConnections: max number of connections (default: 10)
+ * - pool.acquireTimeout: max time to wait for a connection in seconds (default: 30)
+ * - pool.validationInterval: idle time before validation in seconds (default: 30)
+ * - pool.validationTimeout: validation timeout in seconds (default: 5)
+ * - pool.maxIdleTime: idle time before closing extra connections in seconds (default: 600)
+ * - pool.statementCacheSize: max cached statements per connection (default: 32)
+ */
+public class JDBCConnectionPool implements AutoCloseable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(JDBCConnectionPool.class);
+
+    public static final String PREFIX = "pool.";
+
+    public static final int DEFAULT_MIN_CONNECTIONS = 0;
+    public static final int DEFAULT_MAX_CONNECTIONS = 10;
+    public static final int DEFAULT_ACQUIRE_TIMEOUT = 30;
+    public static final int DEFAULT_VALIDATION_INTERVAL = 30;
+    public static final int DEFAULT_VALIDATION_TIMEOUT = 5;
+    public static final int DEFAULT_MAX_IDLE_TIME = 600;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    private String name;
+    private String url;
+    private Properties info;
+
+    private int minConnections = DEFAULT_MIN_CONNECTIONS;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT;
+    private int validationInterval = DEFAULT_VALIDATION_INTERVAL;
+    private int validationTimeout = DEFAULT_VALIDATION_TIMEOUT;
+    private int maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+
+    // most recently used connection first
+    private LinkedList<PooledConnection> idleConnections = new LinkedList<>();
+    private int totalConnections;
+    private boolean closed;
+
+    // statistics
+    private LongAdder createdConnections = new LongAdder();
+    private LongAdder destroyedConnections = new LongAdder();
+    private LongAdder validations = new LongAdder();
+    private LongAdder failedValidations = new LongAdder();
+    private LongAdder timeouts = new LongAdder();
+    private OperationStats waitTimeStats = new OperationStats(); // milliseconds
+    private LongAdder statementCacheHits = new LongAdder();
+    private LongAdder statementCacheMisses = new LongAdder();
+
+    /**
+     * @param name name of the pool for logging
+     * @param url JDBC URL
+     * @param info connection properties, the pool.* properties will be
+     * removed and used to configure the pool
+     */
+    public JDBCConnectionPool(String name, String url, Properties info) {
+
+        this.name = name;
+        this.url = url;
+        this.info = info;
+
+        for (String key : info.stringPropertyNames()) {
+            if (!key.startsWith(PREFIX)) continue;
+            String value = (String) info.remove(key);
+            setProperty(key.substring(PREFIX.length()), value);
+        }
+    }
+
+    public void setProperty(String key, String value) {
+
+        if (key.equals("minConnections")) {
+            minConnections = Integer.parseInt(value);
+
+        } else if (key.equals("maxConnections")) {
+            maxConnections = Integer.parseInt(value);
+
+        } else if (key.equals("acquireTimeout")) {
+            acquireTimeout = Integer.parseInt(value);
+
+        } else if (key.equals("validationInterval")) {
+            validationInterval = Integer.parseInt(value);
+
+        } else if (key.equals("validationTimeout")) {
+            validationTimeout = Integer.parseInt(value);
+
+        } else if (key.equals("maxIdleTime")) {
+            maxIdleTime = Integer.parseInt(value);
+
+        } else if (key.equals("statementCacheSize")) {
+            statementCacheSize = Integer.parseInt(value);
+
+        } else {
+            logger.warn(name + ": Unknown pool parameter: " + key);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getURL() {
+        return url;
+    }
+
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public int getValidationInterval() {
+        return validationInterval;
+    }
+
+    public int getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public int getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void init() throws SQLException {
+
+        logger.info(name + ": Initializing connection pool for " + url);
+        logger.info(name + ": - min connections: " + minConnections);
+        logger.info(name + ": - max connections: " + maxConnections);
+        logger.info(name + ": - acquire timeout: " + acquireTimeout);
+        logger.info(name + ": - validation interval: " + validationInterval);
+        logger.info(name + ": - validation timeout: " + validationTimeout);
+        logger.info(name + ": - max idle time: " + maxIdleTime);
+        logger.info(name + ": - statement cache size: " + statementCacheSize);
+
+        if (minConnections < 0) {
+            throw new SQLException("Invalid minimum number of connections: " + minConnections);
+        }
+
+        if (maxConnections <= 0) {
+            throw new SQLException("Invalid maximum number of connections: " + maxConnections);
+        }
+
+        if (minConnections > maxConnections) {
+            throw new SQLException("Minimum number of connections is bigger than maximum: "
+                    + minConnections + " > " + maxConnections);
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool. The connection must be
+     * closed to return it into the pool.
+     */
+    public Connection getConnection() throws SQLException {
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(acquireTimeout);
+
+        while (true) {
+
+            PooledConnection pc = null;
+            boolean create = false;
+
+            synchronized (this) {
+
+                while (true) {
+
+                    if (closed) {
+                        throw new SQLException("Connection pool " + name + " is closed");
+                    }
+
+                    if (!idleConnections.isEmpty()) {
+                        pc = idleConnections.removeFirst();
+                        break;
+                    }
+
+                    if (totalConnections < maxConnections) {
+                        // reserve a slot, the connection is created outside the lock
+                        totalConnections++;
+                        create = true;
+                        break;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.increment();
+                        throw new SQLException("Unable to get connection from " + name
+                                + ": All " + maxConnections + " connections are in use");
+                    }
+
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for connection from " + name, e);
+                    }
+                }
+            }
+
+            if (create) {
+                try {
+                    pc = createConnection();
+                } catch (SQLException | RuntimeException e) {
+                    synchronized (this) {
+                        totalConnections--;
+                        notifyAll();
+                    }
+                    throw e;
+                }
+
+            } else if (!validate(pc)) {
+                destroy(pc);
+                continue;
+            }
+
+            long waitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            waitTimeStats.add(waitTime);
+
+            return pc.borrow();
+        }
+    }
+
+    PooledConnection createConnection() throws SQLException {
+
+        logger.info(name + ": Connecting to " + url);
+        Connection connection = DriverManager.getConnection(url, info);
+        createdConnections.increment();
+
+        return new PooledConnection(connection);
+    }
+
+    /**
+     * Validates a connection that has been idle longer than
+     * the validation interval.
+     */
+    boolean validate(PooledConnection pc) {
+
+        long idleTime = System.currentTimeMillis() - pc.lastUsed;
+        if (idleTime < TimeUnit.SECONDS.toMillis(validationInterval)) {
+            return true;
+        }
+
+        validations.increment();
+
+        try {
+            if (pc.connection.isValid(validationTimeout)) {
+                return true;
+            }
+
+            logger.info(name + ": Connection is no longer valid");
+
+        } catch (SQLException e) {
+            logger.info(name + ": Unable to validate connection: " + e.getMessage());
+        }
+
+        failedValidations.increment();
+        return false;
+    }
+
+    /**
+     * Puts a borrowed connection back into the pool, or destroys it
+     * if it is broken or no longer needed.
+     */
+    void release(PooledConnection pc) {
+
+        boolean reusable = !pc.broken;
+
+        if (reusable) {
+            try {
+                if (pc.connection.isClosed()) {
+                    reusable = false;
+
+                } else if (!pc.connection.getAutoCommit()) {
+                    // discard incomplete transaction
+                    pc.connection.rollback();
+                    pc.connection.setAutoCommit(true);
+                }
+
+            } catch (SQLException e) {
+                logger.warn(name + ": Unable to reset connection: " + e.getMessage());
+                reusable = false;
+            }
+        }
+
+        pc.lastUsed = System.currentTimeMillis();
+        List<PooledConnection> expired = new ArrayList<>();
+
+        synchronized (this) {
+
+            if (reusable && !closed) {
+                idleConnections.addFirst(pc);
+                pc = null;
+            }
+
+            // close least recently used connections idle for too long
+            long minTime = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(maxIdleTime);
+            Iterator<PooledConnection> i = idleConnections.descendingIterator();
+            while (i.hasNext() && totalConnections - expired.size() > minConnections) {
+                PooledConnection idle = i.next();
+                if (idle.lastUsed > minTime) break;
+                i.remove();
+                expired.add(idle);
+            }
+
+            notifyAll();
+        }
+
+        if (pc != null) {
+            destroy(pc);
+        }
+
+        for (PooledConnection idle : expired) {
+            destroy(idle);
+        }
+    }
+
+    void destroy(PooledConnection pc) {
+
+        pc.closeStatements();
+
+        try {
+            pc.connection.close();
+        } catch (SQLException e) {
+            logger.warn(name + ": Unable to close connection: " + e.getMessage());
+        }
+
+        destroyedConnections.increment();
+
+        synchronized (this) {
+            totalConnections--;
+            notifyAll();
+        }
+    }
+
+    public synchronized int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public synchronized int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public synchronized int getActiveConnections() {
+        return totalConnections - idleConnections.size();
+    }
+
+    public long getCreatedConnections() {
+        return createdConnections.sum();
+    }
+
+    public long getDestroyedConnections() {
+        return destroyedConnections.sum();
+    }
+
+    public long getBorrowedConnections() {
+        return waitTimeStats.getCalls();
+    }
+
+    public long getValidations() {
+        return validations.sum();
+    }
+
+    public long getFailedValidations() {
+        return failedValidations.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getAverageWaitTime() {
+        return waitTimeStats.getAverageTime();
+    }
+
+    public long getMaxWaitTime() {
+        return waitTimeStats.getMaxTime();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    public String getStatistics() {
+        return "total: " + getTotalConnections()
+                + ", active: " + getActiveConnections()
+                + ", idle: " + getIdleConnections()
+                + ", created: " + getCreatedConnections()
+                + ", destroyed: " + getDestroyedConnections()
+                + ", borrowed: " + getBorrowedConnections()
+                + ", validations: " + getValidations()
+                + ", failed validations: " + getFailedValidations()
+                + ", timeouts: " + getTimeouts()
+                + ", avg wait: " + getAverageWaitTime() + " ms"
+                + ", max wait: " + getMaxWaitTime() + " ms"
+                + ", statement cache hits: " + getStatementCacheHits()
+                + ", statement cache misses: " + getStatementCacheMisses();
+    }
+
+    /**
+     * Closes idle connections. Borrowed connections are closed
+     * when they are returned.
+     */
+    @Override
+    public void close() {
+
+        logger.info(name + ": Closing connection pool");
+        logger.info(name + ": " + getStatistics());
+
+        List<PooledConnection> connections;
+
+        synchronized (this) {
+            closed = true;
+            connections = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+            notifyAll();
+        }
+
+        for (PooledConnection pc : connections) {
+            destroy(pc);
+        }
+    }
+
+    /**
+     * Returns true if the exception indicates that the connection
+     * can no longer be used.
+     *
+     * https://www.postgresql.org/docs/current/errcodes-appendix.html
+     */
+    static boolean isConnectionError(Throwable t) {
+
+        if (!(t instanceof SQLException e)) {
+            return false;
+        }
+
+        String sqlState = e.getSQLState();
+        return sqlState != null && sqlState.startsWith("08");
+    }
+
+    static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    class PooledConnection {
+
+        final Connection connection;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile boolean broken;
+
+        // accessed only by the thread borrowing the connection
+        final Map<String, CachedStatement> statements;
+
+        PooledConnection(Connection connection) {
+
+            this.connection = connection;
+
+            statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+
+                    if (size() <= statementCacheSize) return false;
+
+                    CachedStatement cs = eldest.getValue();
+                    if (!cs.inUse) {
+                        cs.closeQuietly();
+                    } else {
+                        // close the statement when the caller closes it
+                        cs.evicted = true;
+                    }
+                    return true;
+                }
+            };
+        }
+
+        Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new ConnectionHandler(this));
+        }
+
+        PreparedStatement prepareStatement(String sql) throws SQLException {
+
+            if (statementCacheSize <= 0) {
+                return connection.prepareStatement(sql);
+            }
+
+            CachedStatement cs = statements.get(sql);
+
+            if (cs != null && cs.inUse) {
+                // the same SQL is already in use on this connection
+                statementCacheMisses.increment();
+                return connection.prepareStatement(sql);
+            }
+
+            if (cs == null) {
+                statementCacheMisses.increment();
+                cs = new CachedStatement(this, sql, connection.prepareStatement(sql));
+                statements.put(sql, cs);
+
+            } else {
+                statementCacheHits.increment();
+            }
+
+            cs.inUse = true;
+            return cs.proxy;
+        }
+
+        void closeStatements() {
+            for (CachedStatement cs : statements.values()) {
+                cs.closeQuietly();
+            }
+            statements.clear();
+        }
+    }
+
+    /**
+     * Returns the connection into the pool instead of closing it.
+     */
+    class ConnectionHandler implements InvocationHandler {
+
+        PooledConnection pc;
+
+        ConnectionHandler(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String methodName = method.getName();
+
+            if (methodName.equals("close")) {
+                if (pc != null) {
+                    PooledConnection released = pc;
+                    pc = null;
+                    release(released);
+                }
+                return null;
+            }
+
+            if (methodName.equals("isClosed")) {
+                return pc == null || pc.connection.isClosed();
+            }
+
+            if (methodName.equals("equals")) {
+                return proxy == args[0];
+            }
+
+            if (methodName.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+
+            if (pc == null) {
+                throw new SQLException("Connection has been returned to " + name);
+            }
+
+            try {
+                if (methodName.equals("prepareStatement") && args.length == 1) {
+                    return pc.prepareStatement((String) args[0]);
+                }
+
+                return JDBCConnectionPool.invoke(pc.connection, method, args);
+
+            } catch (Throwable e) {
+                if (isConnectionError(e)) {
+                    pc.broken = true;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * A prepared statement that stays open when the caller closes it.
+     */
+    class CachedStatement implements InvocationHandler {
+
+        final PooledConnection pc;
+        final String sql;
+        final PreparedStatement statement;
+        final PreparedStatement proxy;
+
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PooledConnection pc, String sql, PreparedStatement statement) {
+            this.pc = pc;
+            this.sql = sql;
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String methodName = method.getName();
+
+            if (methodName.equals("close")) {
+                if (!inUse) return null;
+                inUse = false;
+
+                if (evicted) {
+                    statement.close();
+                    return null;
+                }
+
+                try {
+                    statement.clearParameters();
+                    statement.clearBatch();
+                } catch (SQLException e) {
+                    // do not reuse the statement
+                    pc.statements.remove(sql, this);
+                    closeQuietly();
+                }
+                return null;
+            }
+
+            if (methodName.equals("isClosed")) {
+                return !inUse || statement.isClosed();
+            }
+
+            if (methodName.equals("getConnection")) {
+                throw new SQLException("Connection not available from cached statement");
+            }
+
+            if (methodName.equals("equals")) {
+                return proxy == args[0];
+            }
+
+            if (methodName.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+
+            try {
+                return JDBCConnectionPool.invoke(statement, method, args);
+
+            } catch (Throwable e) {
+                if (isConnectionError(e)) {
+                    pc.broken = true;
+                }
+                throw e;
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug(name + ": Unable to close statement: " + e.getMessage());
+            }
+        }
+    }
+}
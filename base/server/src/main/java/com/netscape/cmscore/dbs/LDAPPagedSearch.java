@@ -116,11 +116,7 @@ public class LDAPPagedSearch<E extends IDBObj>  extends DBPagedSearch<E> {
             byte[] cookie = null;
             ArrayList<E> entries = new ArrayList<>();
             if (res != null) {
-                for (LDAPControl c: res.getResponseControls()){
-                    if(c instanceof LDAPPagedResultsControl resC){
-                        cookie = resC.getCookie();
-                    }
-                }
+                cookie = getCookie();
                 if (cookie == null) {
                     return entries;
                 }
@@ -149,6 +145,72 @@ public class LDAPPagedSearch<E extends IDBObj>  extends DBPagedSearch<E> {
         }
     }
 
+    @Override
+    public boolean hasMorePages() {
+        return res == null || getCookie() != null;
+    }
+
+    /**
+     * Ends the paged search and disconnects the cloned connection.
+     * If there are more pages, a search with page size 0 and the
+     * current cookie is sent so the server can release the paged
+     * results state (RFC 2696).
+     */
+    @Override
+    public void close() {
+
+        try {
+            byte[] cookie = res == null ? null : getCookie();
+
+            if (cookie != null) {
+                logger.debug("LDAPPagedSearch: Abandoning paged search in {}", base);
+
+                // the search must match the original search
+                LDAPSearchConstraints cons = new LDAPSearchConstraints();
+                LDAPPagedResultsControl pageCtrl = new LDAPPagedResultsControl(false, 0, cookie);
+                LDAPSortControl sortCtrl = generateSortControl(sortKeys);
+                if (sortCtrl != null) {
+                    LDAPControl[] controls = {sortCtrl, pageCtrl};
+                    cons.setServerControls(controls);
+                } else {
+                    cons.setServerControls(pageCtrl);
+                }
+
+                LDAPSearchResults results = conn.search(base,
+                        LDAPv3.SCOPE_ONE, registry.getFilter(filter), new String[] { LDAPv3.NO_ATTRS }, false, cons);
+                conn.abandon(results);
+            }
+
+        } catch (Exception e) {
+            logger.warn("LDAPPagedSearch: Unable to abandon paged search: " + e.getMessage(), e);
+        }
+
+        try {
+            conn.disconnect();
+        } catch (LDAPException e) {
+            logger.warn("LDAPPagedSearch: Unable to disconnect: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the cookie to retrieve the next page, or null if
+     * the last page has been retrieved. The server returns an
+     * empty cookie with the last page.
+     */
+    private byte[] getCookie() {
+        LDAPControl[] controls = res.getResponseControls();
+        if (controls == null) {
+            return null;
+        }
+        for (LDAPControl c : controls) {
+            if (c instanceof LDAPPagedResultsControl resC) {
+                byte[] cookie = resC.getCookie();
+                return cookie == null || cookie.length == 0 ? null : cookie;
+            }
+        }
+        return null;
+    }
+
     private LDAPSortControl generateSortControl(String[] sortKeys) throws EBaseException {
 
         if (sortKeys == null || sortKeys.length == 0)
@@ -19,10 +19,14 @@ package com.netscape.cmscore.dbs;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.dbs.DBException;
+import com.netscape.certsrv.dbs.DBPagedSearch;
+import com.netscape.certsrv.dbs.IDBObj;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.apps.EngineConfig;
@@ -106,6 +110,8 @@ public abstract class Repository {
 
     protected SecureRandom secureRandom;
 
+    protected SerialNumberBlockAllocator blockAllocator;
+
     /**
      * Constructs a repository.
      * <P>
@@ -142,6 +148,42 @@ public abstract class Repository {
         return mRadix;
     }
 
+    /**
+     * Opens a search cursor to page through the records that
+     * satisfy the filter.
+     *
+     * @param owner name of the user opening the cursor
+     * @param type type of the records
+     * @param filter search filter
+     * @return the cursor, or null if there are too many open cursors
+     * @exception EBaseException failed to search
+     */
+    public <T extends IDBObj> DBSearchCursor<T> openSearchCursor(
+            String owner,
+            Class<T> type,
+            String filter) throws EBaseException {
+
+        try (DBSSession session = dbSubsystem.createSession()) {
+            DBPagedSearch<T> search = session.createPagedSearch(type, mBaseDN, filter, null, (String) null);
+            return dbSubsystem.getSearchCursors().open(owner, type, search);
+        }
+    }
+
+    /**
+     * Returns an open search cursor.
+     *
+     * @param id cursor ID
+     * @param owner name of the user using the cursor
+     * @param type type of the records
+     * @return the cursor, or null if the cursor has expired
+     */
+    public <T extends IDBObj> DBSearchCursor<T> getSearchCursor(
+            String id,
+            String owner,
+            Class<T> type) {
+        return dbSubsystem.getSearchCursors().get(id, owner, type);
+    }
+
     /**
      * Get the maximum serial number.
      *
@@ -160,6 +202,11 @@ public abstract class Repository {
     public synchronized void setMaxSerial(BigInteger serial) throws EBaseException {
         logger.debug("Repository: Setting max serial to " + serial);
         mMaxSerialNo = serial;
+
+        if (blockAllocator != null) {
+            // reserved numbers might be beyond the new max serial
+            blockAllocator.reset();
+        }
     }
 
     /**
@@ -304,14 +351,69 @@ public abstract class Repository {
         mSerialNo = num.subtract(BigInteger.ONE);
     }
 
+    public SerialNumberBlockAllocator getBlockAllocator() {
+        return blockAllocator;
+    }
+
+    /**
+     * Enables block allocation of serial numbers.
+     *
+     * @param name name of the repository
+     * @param blockSize number of serial numbers reserved at a time
+     * @param chunkSize number of serial numbers taken by a thread at a time
+     */
+    protected void initBlockAllocator(String name, int blockSize, int chunkSize) {
+        logger.info("Repository: Reserving " + name + " serial numbers in blocks of " + blockSize);
+        blockAllocator = new SerialNumberBlockAllocator(name, this, blockSize, chunkSize);
+    }
+
     /**
      * Retrieves the next serial number, and also increase the
      * serial number by one.
      *
+     * If block allocation is enabled the number is taken from the
+     * reserved serial numbers without locking the repository.
+     *
      * @return serial number
      * @exception EBaseException failed to retrieve next serial number
      */
-    public synchronized BigInteger getNextSerialNumber() throws
+    public BigInteger getNextSerialNumber() throws EBaseException {
+
+        if (blockAllocator != null) {
+            return blockAllocator.getNextSerialNumber();
+        }
+
+        return generateSerialNumber();
+    }
+
+    /**
+     * Reserves a block of serial numbers. The numbers are consumed from
+     * the current range, so they will not be returned by subsequent calls
+     * to generateSerialNumber() or peekNextSerialNumber().
+     *
+     * @param count number of serial numbers to reserve
+     * @return reserved serial numbers, possibly less than requested
+     * @exception EBaseException failed to reserve serial numbers
+     */
+    public synchronized List<BigInteger> reserveSerialNumbers(int count) throws EBaseException {
+
+        List<BigInteger> serialNumbers = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            serialNumbers.add(generateSerialNumber());
+        }
+
+        return serialNumbers;
+    }
+
+    /**
+     * Generates the next serial number, and also increase the
+     * serial number by one.
+     *
+     * @return serial number
+     * @exception EBaseException failed to generate next serial number
+     */
+    protected synchronized BigInteger generateSerialNumber() throws
             EBaseException {
 
         if (idGenerator == IDGenerator.RANDOM) {
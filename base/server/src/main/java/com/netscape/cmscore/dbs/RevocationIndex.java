@@ -0,0 +1,649 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.dbs;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+
+/**
+ * A compact, immutable index of revoked certificates.
+ *
+ * The entries are stored in a single buffer sorted by serial number,
+ * so a lookup is a binary search without any per-entry objects.
+ * Each record consists of the serial number encoded in a fixed number
+ * of bytes, the revocation date, and the revocation reason:
+ *
+ * <pre>
+ * header: magic (4), version (4), width (4), count (4),
+ *         thisUpdate (8), crlNumber (8)
+ * record: serial number (width), revocation date (8), reason (1)
+ * </pre>
+ *
+ * Serial numbers are stored as sign-extended two's complement values
+ * with the sign bit inverted so that unsigned byte comparison matches
+ * the numeric order.
+ *
+ * The same layout is used in memory and on disk, so an index stored
+ * with store() can be memory-mapped with load() without parsing.
+ */
+public class RevocationIndex {
+
+    public static final int MAGIC = 0x52564958; // RVIX
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+
+    public static final int NO_REASON = -1;
+
+    // minimum number of entries to build the fanout table
+    static final int FANOUT_THRESHOLD = 65536;
+
+    private static final VarHandle LONG_ARRAY_VIEW =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final ByteBuffer buffer;
+    private final int width;
+    private final int recordSize;
+    private final int count;
+    private final long thisUpdate;
+    private final long crlNumber;
+
+    // Start positions of the entries by the 16 bits following the
+    // prefix shared by all serial numbers, used to narrow down the
+    // binary search for large indexes.
+    private final int prefix;
+    private final int[] fanout;
+
+    RevocationIndex(ByteBuffer buffer) throws IOException {
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Invalid revocation index");
+        }
+
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported revocation index version: " + version);
+        }
+
+        this.buffer = buffer;
+        this.width = buffer.getInt(8);
+        this.recordSize = width + 9;
+        this.count = buffer.getInt(12);
+        this.thisUpdate = buffer.getLong(16);
+        this.crlNumber = buffer.getLong(24);
+
+        if (width < 0 || count < 0 || buffer.limit() < HEADER_SIZE + (long) count * recordSize) {
+            throw new IOException("Truncated revocation index");
+        }
+
+        prefix = count == 0 ? 0 : commonPrefix(0, count - 1);
+
+        if (count < FANOUT_THRESHOLD || prefix + 2 > width) {
+            fanout = null;
+            return;
+        }
+
+        fanout = new int[65537];
+        int bucket = 0;
+
+        for (int i = 0; i < count; i++) {
+            int b = bucket(HEADER_SIZE + i * recordSize);
+            while (bucket <= b) {
+                fanout[bucket++] = i;
+            }
+        }
+
+        while (bucket <= 65536) {
+            fanout[bucket++] = count;
+        }
+    }
+
+    private int commonPrefix(int first, int last) {
+
+        int offset1 = HEADER_SIZE + first * recordSize;
+        int offset2 = HEADER_SIZE + last * recordSize;
+
+        int i = 0;
+        while (i < width && buffer.get(offset1 + i) == buffer.get(offset2 + i)) {
+            i++;
+        }
+
+        return i;
+    }
+
+    private int bucket(int offset) {
+        return (buffer.get(offset + prefix) & 0xff) << 8 | buffer.get(offset + prefix + 1) & 0xff;
+    }
+
+    /**
+     * Returns the number of revoked certificates.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes used by the index.
+     */
+    public long getMemoryUsage() {
+        return HEADER_SIZE + (long) count * recordSize;
+    }
+
+    /**
+     * Returns the thisUpdate of the CRL the index was built from.
+     */
+    public Date getThisUpdate() {
+        return thisUpdate < 0 ? null : new Date(thisUpdate);
+    }
+
+    /**
+     * Returns the number of the full CRL the index was built from.
+     * Delta CRLs merged into the index do not change this number.
+     */
+    public BigInteger getCRLNumber() {
+        return crlNumber < 0 ? null : BigInteger.valueOf(crlNumber);
+    }
+
+    public boolean isMapped() {
+        return buffer.isDirect();
+    }
+
+    public boolean contains(BigInteger serialNumber) {
+        return find(serialNumber) >= 0;
+    }
+
+    /**
+     * Returns the revocation entry for a serial number,
+     * or null if the certificate is not revoked.
+     */
+    public Entry get(BigInteger serialNumber) {
+
+        int index = find(serialNumber);
+        if (index < 0) {
+            return null;
+        }
+
+        int offset = HEADER_SIZE + index * recordSize + width;
+        return new Entry(serialNumber, buffer.getLong(offset), buffer.get(offset + 8));
+    }
+
+    /**
+     * Calls the consumer for each entry in serial number order.
+     */
+    public void forEach(Consumer<Entry> consumer) {
+
+        byte[] key = new byte[width];
+
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + i * recordSize;
+            buffer.get(offset, key);
+            consumer.accept(new Entry(decode(key), buffer.getLong(offset + width), buffer.get(offset + width + 8)));
+        }
+    }
+
+    int find(BigInteger serialNumber) {
+
+        byte[] key = encode(serialNumber, width);
+        if (key == null) {
+            // longer than any serial number in the index
+            return -1;
+        }
+
+        int low = 0;
+        int high = count - 1;
+
+        if (fanout != null) {
+
+            // all entries share the prefix
+            for (int i = 0; i < prefix; i++) {
+                if (key[i] != buffer.get(HEADER_SIZE + i)) {
+                    return -1;
+                }
+            }
+
+            int bucket = (key[prefix] & 0xff) << 8 | key[prefix + 1] & 0xff;
+            low = fanout[bucket];
+            high = fanout[bucket + 1] - 1;
+        }
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(HEADER_SIZE + mid * recordSize, key);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    private int compare(int offset, byte[] key) {
+
+        int i = 0;
+
+        // compare 8 bytes at a time, both are big-endian
+        for (; i + 8 <= width; i += 8) {
+            long a = buffer.getLong(offset + i);
+            long b = (long) LONG_ARRAY_VIEW.get(key, i);
+            if (a != b) {
+                return Long.compareUnsigned(a, b);
+            }
+        }
+
+        for (; i < width; i++) {
+            int a = buffer.get(offset + i) & 0xff;
+            int b = key[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the index into a file. The file is replaced atomically
+     * so existing mappings of the previous index remain valid.
+     */
+    public void store(Path path) throws IOException {
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer data = buffer.duplicate();
+            data.position(0);
+            data.limit((int) getMemoryUsage());
+
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index from a file.
+     *
+     * @param mapped true to memory-map the file instead of reading it into the heap
+     */
+    public static RevocationIndex load(Path path, boolean mapped) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Revocation index too large: " + path);
+            }
+
+            ByteBuffer buffer;
+
+            if (mapped) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // keep reading
+                }
+                buffer.clear();
+            }
+
+            return new RevocationIndex(buffer);
+        }
+    }
+
+    static byte[] encode(BigInteger serialNumber, int width) {
+
+        byte[] bytes = serialNumber.toByteArray();
+        if (bytes.length > width) {
+            return null;
+        }
+
+        byte[] key = new byte[width];
+        Arrays.fill(key, 0, width - bytes.length, serialNumber.signum() < 0 ? (byte) 0xff : 0);
+        System.arraycopy(bytes, 0, key, width - bytes.length, bytes.length);
+
+        key[0] ^= (byte) 0x80;
+        return key;
+    }
+
+    static BigInteger decode(byte[] key) {
+        byte[] bytes = key.clone();
+        bytes[0] ^= (byte) 0x80;
+        return new BigInteger(bytes);
+    }
+
+    /**
+     * Returns the revocation reason code of a CRL entry,
+     * or NO_REASON if the entry does not have a reason.
+     */
+    public static int getReason(RevokedCertificate revokedCert) {
+
+        CRLExtensions exts = revokedCert.getExtensions();
+        if (exts == null) {
+            return NO_REASON;
+        }
+
+        for (int i = 0; i < exts.size(); i++) {
+            if (exts.elementAt(i) instanceof CRLReasonExtension reasonExt) {
+                return reasonExt.getReason().getCode();
+            }
+        }
+
+        return NO_REASON;
+    }
+
+    /**
+     * Creates an index from a list of revoked certificates.
+     */
+    public static RevocationIndex create(
+            Collection<? extends RevokedCertificate> revokedCerts,
+            Date thisUpdate,
+            BigInteger crlNumber) {
+
+        Builder builder = new Builder();
+        builder.setThisUpdate(thisUpdate);
+        builder.setCRLNumber(crlNumber);
+
+        if (revokedCerts != null) {
+            builder.addAll(revokedCerts);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Creates a new index by applying the entries of a delta CRL to this index.
+     * Entries with the removeFromCRL reason are removed from the index.
+     */
+    public RevocationIndex merge(
+            Collection<? extends RevokedCertificate> revokedCerts,
+            Date thisUpdate) {
+
+        Builder builder = new Builder(this);
+        builder.setThisUpdate(thisUpdate);
+
+        if (revokedCerts != null) {
+            builder.addAll(revokedCerts);
+        }
+
+        return builder.build();
+    }
+
+    public static class Entry {
+
+        private final BigInteger serialNumber;
+        private final long revocationDate;
+        private final int reason;
+
+        Entry(BigInteger serialNumber, long revocationDate, int reason) {
+            this.serialNumber = serialNumber;
+            this.revocationDate = revocationDate;
+            this.reason = reason;
+        }
+
+        public BigInteger getSerialNumber() {
+            return serialNumber;
+        }
+
+        public Date getRevocationDate() {
+            return new Date(revocationDate);
+        }
+
+        /**
+         * Returns the revocation reason code, or NO_REASON.
+         */
+        public int getReasonCode() {
+            return reason;
+        }
+
+        /**
+         * Returns the revocation reason, or null if not specified.
+         */
+        public RevocationReason getReason() {
+            return reason == NO_REASON ? null : RevocationReason.valueOf(reason);
+        }
+
+        @Override
+        public String toString() {
+            return "0x" + serialNumber.toString(16) + " revoked " + getRevocationDate() + " reason " + reason;
+        }
+    }
+
+    /**
+     * Builds an index from an optional base index and a list of changes.
+     * The changes are sorted and merged with the base index in a single
+     * pass, so the base index is never copied into objects.
+     */
+    public static class Builder {
+
+        private final RevocationIndex base;
+        private final List<Change> changes = new ArrayList<>();
+        private long thisUpdate = -1;
+        private long crlNumber = -1;
+
+        public Builder() {
+            this(null);
+        }
+
+        public Builder(RevocationIndex base) {
+            this.base = base;
+            if (base != null) {
+                thisUpdate = base.thisUpdate;
+                crlNumber = base.crlNumber;
+            }
+        }
+
+        public Builder setThisUpdate(Date thisUpdate) {
+            this.thisUpdate = thisUpdate == null ? -1 : thisUpdate.getTime();
+            return this;
+        }
+
+        public Builder setCRLNumber(BigInteger crlNumber) {
+            this.crlNumber = crlNumber == null || crlNumber.bitLength() > 63 ? -1 : crlNumber.longValue();
+            return this;
+        }
+
+        public Builder add(BigInteger serialNumber, Date revocationDate, int reason) {
+            changes.add(new Change(serialNumber, revocationDate.getTime(), reason, false));
+            return this;
+        }
+
+        public Builder remove(BigInteger serialNumber) {
+            changes.add(new Change(serialNumber, 0, NO_REASON, true));
+            return this;
+        }
+
+        public Builder add(RevokedCertificate revokedCert) {
+
+            int reason = getReason(revokedCert);
+
+            if (reason == RevocationReason.REMOVE_FROM_CRL.getCode()) {
+                return remove(revokedCert.getSerialNumber());
+            }
+
+            return add(revokedCert.getSerialNumber(), revokedCert.getRevocationDate(), reason);
+        }
+
+        public Builder addAll(Collection<? extends RevokedCertificate> revokedCerts) {
+            for (RevokedCertificate revokedCert : revokedCerts) {
+                add(revokedCert);
+            }
+            return this;
+        }
+
+        public RevocationIndex build() {
+
+            // stable sort so the last change for a serial number wins
+            changes.sort(Comparator.comparing(change -> change.serialNumber));
+
+            int width = base == null ? 1 : Math.max(base.width, 1);
+            for (Change change : changes) {
+                width = Math.max(width, change.serialNumber.toByteArray().length);
+            }
+
+            int baseCount = base == null ? 0 : base.count;
+            int recordSize = width + 9;
+            long capacity = HEADER_SIZE + (long) (baseCount + changes.size()) * recordSize;
+
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Revocation index too large: " + capacity + " bytes");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) capacity);
+            buffer.position(HEADER_SIZE);
+
+            byte[] baseKey = new byte[width];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+
+            while (i < baseCount || j < changes.size()) {
+
+                if (i < baseCount) {
+                    base.readKey(i, baseKey);
+                }
+
+                // skip to the last change for the same serial number
+                Change change = null;
+                byte[] changeKey = null;
+                if (j < changes.size()) {
+                    change = changes.get(j);
+                    while (j + 1 < changes.size() && changes.get(j + 1).serialNumber.equals(change.serialNumber)) {
+                        change = changes.get(++j);
+                    }
+                    changeKey = encode(change.serialNumber, width);
+                }
+
+                int cmp;
+                if (i >= baseCount) {
+                    cmp = 1;
+                } else if (change == null) {
+                    cmp = -1;
+                } else {
+                    cmp = Arrays.compareUnsigned(baseKey, changeKey);
+                }
+
+                if (cmp < 0) {
+                    // keep base entry
+                    int offset = HEADER_SIZE + i * base.recordSize + base.width;
+                    buffer.put(baseKey);
+                    buffer.putLong(base.buffer.getLong(offset));
+                    buffer.put(base.buffer.get(offset + 8));
+                    count++;
+                    i++;
+                    continue;
+                }
+
+                if (cmp == 0) {
+                    // replace or remove base entry
+                    i++;
+                }
+
+                if (!change.removed) {
+                    buffer.put(changeKey);
+                    buffer.putLong(change.revocationDate);
+                    buffer.put((byte) change.reason);
+                    count++;
+                }
+
+                j++;
+            }
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, width);
+            buffer.putInt(12, count);
+            buffer.putLong(16, thisUpdate);
+            buffer.putLong(24, crlNumber);
+
+            buffer.clear();
+
+            try {
+                return new RevocationIndex(buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads the key of a record, sign-extended to the length of the array.
+     */
+    void readKey(int index, byte[] key) {
+
+        int offset = HEADER_SIZE + index * recordSize;
+        int pad = key.length - width;
+
+        // the first stored byte has the sign bit inverted
+        byte first = (byte) (buffer.get(offset) ^ 0x80);
+        byte fill = first < 0 ? (byte) 0xff : 0;
+
+        Arrays.fill(key, 0, pad, fill);
+        key[pad] = first;
+        buffer.get(offset + 1, key, pad + 1, width - 1);
+
+        key[0] ^= (byte) 0x80;
+    }
+
+    static class Change {
+
+        final BigInteger serialNumber;
+        final long revocationDate;
+        final int reason;
+        final boolean removed;
+
+        Change(BigInteger serialNumber, long revocationDate, int reason, boolean removed) {
+            this.serialNumber = serialNumber;
+            this.revocationDate = revocationDate;
+            this.reason = reason;
+            this.removed = removed;
+        }
+    }
+}
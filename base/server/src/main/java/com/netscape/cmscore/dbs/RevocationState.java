@@ -0,0 +1,410 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.dbs;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.util.OperationStats;
+
+/**
+ * This class keeps the current revocation status of the certificates
+ * covered by a CRL issuing point so that OCSP requests can be answered
+ * without reading the certificate records.
+ *
+ * The revoked certificates are stored in a RevocationIndex built when
+ * the state is loaded. Revocations, unrevocations, and expirations are
+ * applied as they happen to a map of changes which takes precedence over
+ * the index. Once the map reaches the max number of changes it is merged
+ * into a new index.
+ *
+ * A certificate that is not revoked is only reported as not revoked if
+ * it is known to have been issued, i.e. its record has been read from
+ * the database before and it has not expired since. Otherwise the caller
+ * has to read the certificate record so that unknown serial numbers are
+ * not reported as good. The issued certificates are kept in a map that
+ * is cleared when it reaches the max size.
+ *
+ * Lookups do not take any locks. Updates are serialized.
+ */
+public class RevocationState {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RevocationState.class);
+
+    public static final int DEFAULT_MAX_CHANGES = 10000;
+    public static final int DEFAULT_MAX_ISSUED_CERTS = 100000;
+
+    public static final Status NOT_REVOKED = new Status(false, 0, RevocationIndex.NO_REASON);
+
+    private String id;
+    private int maxChanges = DEFAULT_MAX_CHANGES;
+    private int maxIssuedCerts = DEFAULT_MAX_ISSUED_CERTS;
+
+    // null if the state is not loaded
+    private volatile RevocationIndex index;
+    private Map<BigInteger, Status> changes = new ConcurrentHashMap<>();
+
+    // expiration time of issued certificates
+    private Map<BigInteger, Long> issuedCerts = new ConcurrentHashMap<>();
+
+    // statistics
+    private LongAdder revokedLookups = new LongAdder();
+    private LongAdder unknownLookups = new LongAdder();
+    private LongAdder fallbacks = new LongAdder();
+    private OperationStats lookupStats = new OperationStats(); // nanoseconds
+    private LongAdder updates = new LongAdder();
+    private LongAdder merges = new LongAdder();
+
+    public RevocationState(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getMaxChanges() {
+        return maxChanges;
+    }
+
+    public void setMaxChanges(int maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    public int getMaxIssuedCerts() {
+        return maxIssuedCerts;
+    }
+
+    public void setMaxIssuedCerts(int maxIssuedCerts) {
+        this.maxIssuedCerts = maxIssuedCerts;
+    }
+
+    public void init(RevocationStateConfig config) throws EBaseException {
+
+        maxChanges = config.getMaxChanges();
+        maxIssuedCerts = config.getMaxIssuedCerts();
+
+        logger.info("RevocationState: Initializing revocation state for " + id);
+        logger.info("RevocationState: - max changes: " + maxChanges);
+        logger.info("RevocationState: - max issued certs: " + maxIssuedCerts);
+    }
+
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    /**
+     * Replaces the state with the revoked certificates of the last CRL
+     * followed by the changes since that CRL. Entries with the
+     * removeFromCRL reason remove the certificate from the state.
+     */
+    public synchronized void load(
+            Collection<? extends RevokedCertificate> crlCerts,
+            Collection<? extends RevokedCertificate> changedCerts) {
+
+        long startTime = System.currentTimeMillis();
+
+        RevocationIndex.Builder builder = new RevocationIndex.Builder();
+
+        if (crlCerts != null) {
+            builder.addAll(crlCerts);
+        }
+
+        if (changedCerts != null) {
+            builder.addAll(changedCerts);
+        }
+
+        index = builder.build();
+        changes.clear();
+
+        logger.info("RevocationState: Loaded " + index.size() + " revoked cert(s) for " + id
+                + " in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * Discards the state. Lookups will return null until the state is loaded again.
+     */
+    public synchronized void clear() {
+        logger.info("RevocationState: Clearing revocation state for " + id);
+        index = null;
+        changes.clear();
+        issuedCerts.clear();
+    }
+
+    public synchronized void revoke(BigInteger serialNumber, Date revocationDate, int reason) {
+        update(serialNumber, new Status(true, revocationDate.getTime(), reason));
+    }
+
+    /**
+     * Removes a certificate from the state after it has been unrevoked
+     * or after it has expired.
+     */
+    public synchronized void remove(BigInteger serialNumber) {
+        update(serialNumber, NOT_REVOKED);
+    }
+
+    private void update(BigInteger serialNumber, Status status) {
+
+        if (index == null) {
+            // the changes will be included when the state is loaded
+            return;
+        }
+
+        changes.put(serialNumber, status);
+        updates.increment();
+
+        if (changes.size() >= maxChanges) {
+            merge();
+        }
+    }
+
+    /**
+     * Records a certificate that has been found valid in the database
+     * so that subsequent lookups do not need to read its record.
+     */
+    public void addIssuedCert(BigInteger serialNumber, Date notAfter) {
+
+        if (notAfter == null || maxIssuedCerts <= 0) {
+            return;
+        }
+
+        if (issuedCerts.size() >= maxIssuedCerts) {
+            logger.debug("RevocationState: Clearing issued certs for " + id);
+            issuedCerts.clear();
+        }
+
+        issuedCerts.put(serialNumber, notAfter.getTime());
+    }
+
+    /**
+     * Merges the changes into a new index.
+     */
+    synchronized void merge() {
+
+        RevocationIndex base = index;
+        if (base == null || changes.isEmpty()) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        List<Map.Entry<BigInteger, Status>> entries = new ArrayList<>(changes.entrySet());
+        RevocationIndex.Builder builder = new RevocationIndex.Builder(base);
+
+        for (Map.Entry<BigInteger, Status> entry : entries) {
+            Status status = entry.getValue();
+            if (status.revoked()) {
+                builder.add(entry.getKey(), status.getRevocationDate(), status.reason());
+            } else {
+                builder.remove(entry.getKey());
+            }
+        }
+
+        index = builder.build();
+
+        // the new index contains the changes, lookups may use either
+        for (Map.Entry<BigInteger, Status> entry : entries) {
+            changes.remove(entry.getKey(), entry.getValue());
+        }
+
+        merges.increment();
+
+        logger.info("RevocationState: Merged " + entries.size() + " change(s) into revocation index for " + id
+                + " in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * Returns the revocation status of a certificate, or null if the
+     * state is not loaded or the certificate is not revoked and not
+     * known to be issued.
+     */
+    public Status lookup(BigInteger serialNumber) {
+
+        long startTime = System.nanoTime();
+
+        RevocationIndex currentIndex = index;
+        if (currentIndex == null) {
+            return null;
+        }
+
+        Status status = changes.get(serialNumber);
+
+        if (status == null) {
+            RevocationIndex.Entry entry = currentIndex.get(serialNumber);
+            status = entry == null
+                    ? NOT_REVOKED
+                    : new Status(true, entry.getRevocationDate().getTime(), entry.getReasonCode());
+        }
+
+        if (!status.revoked() && !isIssued(serialNumber)) {
+            status = null;
+        }
+
+        long time = System.nanoTime() - startTime;
+
+        lookupStats.add(time);
+
+        if (status == null) {
+            unknownLookups.increment();
+        } else if (status.revoked()) {
+            revokedLookups.increment();
+        }
+
+        return status;
+    }
+
+    boolean isIssued(BigInteger serialNumber) {
+
+        Long notAfter = issuedCerts.get(serialNumber);
+        if (notAfter == null) {
+            return false;
+        }
+
+        if (notAfter <= System.currentTimeMillis()) {
+            // expired certificates are not reported as good
+            issuedCerts.remove(serialNumber, notAfter);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Counts a request that had to be answered from the database.
+     */
+    public void addFallback() {
+        fallbacks.increment();
+    }
+
+    /**
+     * Returns the number of revoked certificates.
+     */
+    public int getSize() {
+
+        RevocationIndex currentIndex = index;
+        if (currentIndex == null) {
+            return 0;
+        }
+
+        int size = currentIndex.size();
+        for (Map.Entry<BigInteger, Status> entry : changes.entrySet()) {
+            boolean indexed = currentIndex.contains(entry.getKey());
+            if (entry.getValue().revoked() && !indexed) {
+                size++;
+            } else if (!entry.getValue().revoked() && indexed) {
+                size--;
+            }
+        }
+
+        return size;
+    }
+
+    public int getChanges() {
+        return changes.size();
+    }
+
+    public int getIssuedCerts() {
+        return issuedCerts.size();
+    }
+
+    public long getLookups() {
+        return lookupStats.getCalls();
+    }
+
+    public long getRevokedLookups() {
+        return revokedLookups.sum();
+    }
+
+    public long getUnknownLookups() {
+        return unknownLookups.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    public long getMerges() {
+        return merges.sum();
+    }
+
+    /**
+     * Returns the average lookup time in microseconds.
+     */
+    public double getAverageLookupTime() {
+        long n = lookupStats.getCalls();
+        return n == 0 ? 0 : lookupStats.getTotalTime() / 1e3 / n;
+    }
+
+    /**
+     * Returns the max lookup time in microseconds.
+     */
+    public double getMaxLookupTime() {
+        return lookupStats.getMaxTime() / 1e3;
+    }
+
+    public Map<String, Object> getStatisticsMap() {
+
+        RevocationIndex currentIndex = index;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", currentIndex != null);
+        stats.put("indexSize", currentIndex == null ? 0 : currentIndex.size());
+        stats.put("memoryUsage", currentIndex == null ? 0 : currentIndex.getMemoryUsage());
+        stats.put("changes", getChanges());
+        stats.put("issuedCerts", getIssuedCerts());
+        stats.put("lookups", getLookups());
+        stats.put("revokedLookups", getRevokedLookups());
+        stats.put("unknownLookups", getUnknownLookups());
+        stats.put("fallbacks", getFallbacks());
+        stats.put("averageLookupTime", getAverageLookupTime());
+        stats.put("maxLookupTime", getMaxLookupTime());
+        stats.put("updates", getUpdates());
+        stats.put("merges", getMerges());
+
+        return stats;
+    }
+
+    public String getStatistics() {
+
+        RevocationIndex currentIndex = index;
+
+        return "index size: " + (currentIndex == null ? "not loaded" : currentIndex.size())
+                + ", changes: " + getChanges()
+                + ", issued certs: " + getIssuedCerts()
+                + ", lookups: " + getLookups()
+                + ", revoked: " + getRevokedLookups()
+                + ", unknown: " + getUnknownLookups()
+                + ", fallbacks: " + getFallbacks()
+                + ", avg lookup time: " + String.format("%.1f", getAverageLookupTime()) + " us"
+                + ", max lookup time: " + String.format("%.1f", getMaxLookupTime()) + " us"
+                + ", updates: " + getUpdates()
+                + ", merges: " + getMerges();
+    }
+
+    /**
+     * The revocation status of a certificate.
+     */
+    public record Status(boolean revoked, long revocationDate, int reason) {
+
+        public Date getRevocationDate() {
+            return revoked ? new Date(revocationDate) : null;
+        }
+    }
+}
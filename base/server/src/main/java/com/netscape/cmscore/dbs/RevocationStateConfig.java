@@ -0,0 +1,48 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.dbs;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides ca.ocspRevocationState.* parameters.
+ */
+public class RevocationStateConfig extends ConfigStore {
+
+    public RevocationStateConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public RevocationStateConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns ocspRevocationState.enable parameter.
+     */
+    public boolean getEnable() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns ocspRevocationState.maxChanges parameter, the number
+     * of changes kept in a map before they are merged into the index.
+     */
+    public int getMaxChanges() throws EBaseException {
+        return getInteger("maxChanges", RevocationState.DEFAULT_MAX_CHANGES);
+    }
+
+    /**
+     * Returns ocspRevocationState.maxIssuedCerts parameter, the number
+     * of certificates known to be issued that are kept in memory.
+     */
+    public int getMaxIssuedCerts() throws EBaseException {
+        return getInteger("maxIssuedCerts", RevocationState.DEFAULT_MAX_ISSUED_CERTS);
+    }
+}
@@ -0,0 +1,508 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.dbs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.Extension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.dbs.DBAttrMapper;
+import com.netscape.certsrv.dbs.DBException;
+import com.netscape.certsrv.dbs.IDBObj;
+import com.netscape.cmscore.apps.CMS;
+
+import netscape.ldap.LDAPAttribute;
+import netscape.ldap.LDAPAttributeSet;
+
+/**
+ * A class represents an attribute mapper that maps a list of revoked
+ * certificates (Hashtable&lt;BigInteger, RevokedCertificate&gt;) into
+ * a compact binary LDAP attribute, and vice versa.
+ *
+ * The entries are sorted by serial number. Each serial number is stored
+ * as the difference from the previous serial number, the revocation date
+ * is stored as the difference from the previous date, and an entry that
+ * only has a non-critical reason extension is stored with a single reason
+ * byte. Other entries are stored in DER. Large values are compressed.
+ *
+ * <pre>
+ * value:  magic (4), version (1), flags (1), sequence (8), body
+ * body:   count (varint), entry (count)
+ * entry:  serial delta (varint length, bytes), type (1), data
+ * data:   type REMOVED: none
+ *         type DATE:    date delta (zigzag varint)
+ *         type REASON:  date delta (zigzag varint), reason (1)
+ *         type DER:     length (varint), encoded entry
+ * </pre>
+ *
+ * The attribute may have multiple values. The first value contains the
+ * full list, and each additional value contains an update which is
+ * created by adding a RevokedCertsMapper.Update object with MOD_ADD.
+ * The updates are applied in sequence order when the attribute is read.
+ * Replacing the attribute removes the updates.
+ *
+ * Values stored with Java serialization by ObjectStreamMapper are still
+ * read transparently.
+ */
+public class RevokedCertsMapper extends DBAttrMapper {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RevokedCertsMapper.class);
+
+    public static final int MAGIC = 0x52564b43; // RVKC
+    public static final int VERSION = 1;
+
+    public static final int FLAG_COMPRESSED = 0x01;
+    public static final int FLAG_UPDATE = 0x02;
+
+    public static final int TYPE_REMOVED = 0;
+    public static final int TYPE_DATE = 1;
+    public static final int TYPE_REASON = 2;
+    public static final int TYPE_DER = 3;
+
+    // minimum body size to try compression
+    public static final int COMPRESSION_THRESHOLD = 1024;
+
+    // Java serialization stream magic
+    static final int STREAM_MAGIC = 0xaced;
+
+    // keeps the values of the attribute unique
+    static final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() << 16);
+
+    private String mLdapName;
+    private Vector<String> v = new Vector<>();
+
+    public RevokedCertsMapper(String ldapName) {
+        mLdapName = ldapName;
+        v.addElement(mLdapName);
+    }
+
+    @Override
+    public Enumeration<String> getSupportedLDAPAttributeNames() {
+        return v.elements();
+    }
+
+    @Override
+    public void mapObjectToLDAPAttributeSet(IDBObj parent, String name,
+            Object obj, LDAPAttributeSet attrs)
+            throws EBaseException {
+
+        try {
+            byte[] data;
+
+            if (obj instanceof Update update) {
+                data = encode(update.getChanges(), true);
+                logger.debug("RevokedCertsMapper: Mapping " + update.size() + " updates for " + name
+                        + " to " + mLdapName + ": " + data.length + " bytes");
+
+            } else if (obj == null) {
+                data = encode(new TreeMap<>(), false);
+
+            } else {
+                @SuppressWarnings("unchecked")
+                Map<BigInteger, RevokedCertificate> revokedCerts = (Map<BigInteger, RevokedCertificate>) obj;
+                data = encode(revokedCerts, false);
+                logger.debug("RevokedCertsMapper: Mapping " + revokedCerts.size() + " entries for " + name
+                        + " to " + mLdapName + ": " + data.length + " bytes");
+            }
+
+            attrs.add(new LDAPAttribute(mLdapName, data));
+
+        } catch (Exception e) {
+            logger.error(CMS.getLogMessage("CMSCORE_DBS_OBJECTSTREAM_MAPPER_ERROR", e.toString()), e);
+            throw new DBException(CMS.getUserMessage("CMS_DBS_SERIALIZE_FAILED", name), e);
+        }
+    }
+
+    @Override
+    public void mapLDAPAttributeSetToObject(LDAPAttributeSet attrs,
+            String name, IDBObj parent) throws EBaseException {
+
+        LDAPAttribute attr = attrs.getAttribute(mLdapName);
+
+        if (attr == null) {
+            return;
+        }
+
+        try {
+            List<byte[]> values = new ArrayList<>();
+            Enumeration<byte[]> e = attr.getByteValues();
+            while (e.hasMoreElements()) {
+                values.add(e.nextElement());
+            }
+
+            parent.set(name, decode(values));
+
+        } catch (Exception e) {
+            throw new DBException(CMS.getUserMessage("CMS_DBS_DESERIALIZE_FAILED", name), e);
+        }
+    }
+
+    @Override
+    public String mapSearchFilter(String name, String op,
+            String value) throws EBaseException {
+        return mLdapName + op + value;
+    }
+
+    /**
+     * Encodes a list of revoked certificates. In an update a null value
+     * indicates that the entry has been removed.
+     */
+    public static byte[] encode(Map<BigInteger, ? extends RevokedCertificate> revokedCerts, boolean update)
+            throws Exception {
+
+        TreeMap<BigInteger, RevokedCertificate> sortedCerts = new TreeMap<>();
+        for (Map.Entry<BigInteger, ? extends RevokedCertificate> entry : revokedCerts.entrySet()) {
+            sortedCerts.put(entry.getKey(), entry.getValue());
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+
+        writeVarLong(out, sortedCerts.size());
+
+        BigInteger prevSerialNumber = null;
+        long prevDate = 0;
+
+        for (Map.Entry<BigInteger, RevokedCertificate> entry : sortedCerts.entrySet()) {
+
+            BigInteger serialNumber = entry.getKey();
+            RevokedCertificate revokedCert = entry.getValue();
+
+            // the first serial number is stored as is, the rest as positive differences
+            BigInteger value = prevSerialNumber == null ? serialNumber : serialNumber.subtract(prevSerialNumber);
+            writeBytes(out, value.toByteArray());
+            prevSerialNumber = serialNumber;
+
+            if (revokedCert == null) {
+                out.writeByte(TYPE_REMOVED);
+                continue;
+            }
+
+            CRLExtensions exts = revokedCert.getExtensions();
+            Date revocationDate = revokedCert.getRevocationDate();
+
+            if (revocationDate == null || !serialNumber.equals(revokedCert.getSerialNumber())) {
+                out.writeByte(TYPE_DER);
+                writeBytes(out, revokedCert.getEncoded());
+                continue;
+            }
+
+            if (exts == null || exts.isEmpty()) {
+                out.writeByte(TYPE_DATE);
+                writeVarLong(out, zigzag(revocationDate.getTime() - prevDate));
+                prevDate = revocationDate.getTime();
+                continue;
+            }
+
+            Extension ext = exts.elementAt(0);
+            if (exts.size() == 1 && ext instanceof CRLReasonExtension reasonExt && !ext.isCritical()) {
+                out.writeByte(TYPE_REASON);
+                writeVarLong(out, zigzag(revocationDate.getTime() - prevDate));
+                out.writeByte(reasonExt.getReason().getCode());
+                prevDate = revocationDate.getTime();
+                continue;
+            }
+
+            out.writeByte(TYPE_DER);
+            writeBytes(out, revokedCert.getEncoded());
+        }
+
+        out.flush();
+        byte[] data = body.toByteArray();
+
+        int flags = update ? FLAG_UPDATE : 0;
+
+        if (data.length >= COMPRESSION_THRESHOLD) {
+            byte[] compressed = compress(data);
+            if (compressed.length < data.length) {
+                data = compressed;
+                flags |= FLAG_COMPRESSED;
+            }
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length + 14);
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeInt(MAGIC);
+        dos.writeByte(VERSION);
+        dos.writeByte(flags);
+        dos.writeLong(sequence.incrementAndGet());
+        dos.write(data);
+        dos.flush();
+
+        return bos.toByteArray();
+    }
+
+    /**
+     * Decodes the values of the attribute. The updates are applied
+     * to the full list in sequence order.
+     */
+    public static Hashtable<BigInteger, RevokedCertificate> decode(List<byte[]> values) throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> revokedCerts = null;
+        TreeMap<Long, Map<BigInteger, RevokedCertificate>> updates = new TreeMap<>();
+
+        for (byte[] value : values) {
+
+            if (isLegacy(value)) {
+                revokedCerts = decodeLegacy(value);
+                continue;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+
+            int magic = in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Invalid revoked certificates magic: " + Integer.toHexString(magic));
+            }
+
+            int version = in.readUnsignedByte();
+            if (version > VERSION) {
+                throw new IOException("Unsupported revoked certificates version: " + version);
+            }
+
+            int flags = in.readUnsignedByte();
+            long seq = in.readLong();
+
+            InputStream body = in;
+            if ((flags & FLAG_COMPRESSED) != 0) {
+                body = new InflaterInputStream(in);
+            }
+
+            Map<BigInteger, RevokedCertificate> entries = decodeBody(new DataInputStream(body));
+
+            if ((flags & FLAG_UPDATE) != 0) {
+                updates.put(seq, entries);
+                continue;
+            }
+
+            revokedCerts = new Hashtable<>();
+            revokedCerts.putAll(entries);
+        }
+
+        if (revokedCerts == null) {
+            revokedCerts = new Hashtable<>();
+        }
+
+        for (Map<BigInteger, RevokedCertificate> update : updates.values()) {
+            for (Map.Entry<BigInteger, RevokedCertificate> entry : update.entrySet()) {
+                if (entry.getValue() == null) {
+                    revokedCerts.remove(entry.getKey());
+                } else {
+                    revokedCerts.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        return revokedCerts;
+    }
+
+    static Map<BigInteger, RevokedCertificate> decodeBody(DataInputStream in) throws Exception {
+
+        int count = (int) readVarLong(in);
+        Map<BigInteger, RevokedCertificate> entries = new TreeMap<>();
+
+        BigInteger prevSerialNumber = null;
+        long prevDate = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            BigInteger value = new BigInteger(readBytes(in));
+            BigInteger serialNumber = prevSerialNumber == null ? value : prevSerialNumber.add(value);
+            prevSerialNumber = serialNumber;
+
+            int type = in.readUnsignedByte();
+
+            switch (type) {
+
+            case TYPE_REMOVED:
+                entries.put(serialNumber, null);
+                break;
+
+            case TYPE_DATE: {
+                long date = prevDate + unzigzag(readVarLong(in));
+                prevDate = date;
+                entries.put(serialNumber, new RevokedCertImpl(serialNumber, new Date(date), null));
+                break;
+            }
+
+            case TYPE_REASON: {
+                long date = prevDate + unzigzag(readVarLong(in));
+                prevDate = date;
+
+                int code = in.readUnsignedByte();
+                CRLExtensions exts = new CRLExtensions();
+                exts.set(CRLReasonExtension.NAME, new CRLReasonExtension(RevocationReason.valueOf(code)));
+
+                entries.put(serialNumber, new RevokedCertImpl(serialNumber, new Date(date), exts));
+                break;
+            }
+
+            case TYPE_DER:
+                entries.put(serialNumber, new RevokedCertImpl(readBytes(in)));
+                break;
+
+            default:
+                throw new IOException("Invalid revoked certificate type: " + type);
+            }
+        }
+
+        return entries;
+    }
+
+    static boolean isLegacy(byte[] value) {
+        return value.length >= 2 && ((value[0] & 0xff) << 8 | (value[1] & 0xff)) == STREAM_MAGIC;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Hashtable<BigInteger, RevokedCertificate> decodeLegacy(byte[] value) throws Exception {
+
+        logger.debug("RevokedCertsMapper: Reading serialized revoked certificates");
+
+        try (ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(value))) {
+            Object obj = is.readObject();
+            if (obj == null) {
+                return new Hashtable<>();
+            }
+            return (Hashtable<BigInteger, RevokedCertificate>) obj;
+        }
+    }
+
+    static byte[] compress(byte[] data) throws IOException {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try (OutputStream os = new DeflaterOutputStream(bos, deflater)) {
+            os.write(data);
+        } finally {
+            deflater.end();
+        }
+
+        return bos.toByteArray();
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Invalid variable-length integer");
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Changes to a list of revoked certificates that will be appended
+     * to the attribute with MOD_ADD.
+     */
+    public static class Update {
+
+        private Map<BigInteger, RevokedCertificate> changes = new TreeMap<>();
+
+        /**
+         * Adds or replaces an entry.
+         */
+        public Update put(BigInteger serialNumber, RevokedCertificate revokedCert) {
+            changes.put(serialNumber, revokedCert);
+            return this;
+        }
+
+        /**
+         * Removes an entry.
+         */
+        public Update remove(BigInteger serialNumber) {
+            changes.put(serialNumber, null);
+            return this;
+        }
+
+        public Map<BigInteger, RevokedCertificate> getChanges() {
+            return changes;
+        }
+
+        public int size() {
+            return changes.size();
+        }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+    }
+}
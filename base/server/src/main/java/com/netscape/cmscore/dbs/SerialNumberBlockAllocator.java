@@ -0,0 +1,282 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.dbs;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.base.EBaseException;
+
+/**
+ * This class hands out serial numbers that have been reserved in blocks
+ * from a repository.
+ *
+ * A block is reserved with a single call to Repository.reserveSerialNumbers()
+ * which goes through the regular range management of the repository, so the
+ * reserved numbers are consumed from the current range (or the next range)
+ * just like numbers generated one at a time. The block is split into chunks
+ * which are placed in a shared queue. Each thread takes a whole chunk from
+ * the queue and hands out the numbers in the chunk without any locking.
+ * The queue is refilled in the background when it falls below half a block.
+ *
+ * Reserved numbers that have not been handed out are discarded when the
+ * range of the repository is reduced (e.g. transferred to a clone) or when
+ * the server is shut down, which leaves gaps in the serial numbers.
+ */
+public class SerialNumberBlockAllocator {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SerialNumberBlockAllocator.class);
+
+    private Repository repository;
+    private int blockSize;
+    private int chunkSize;
+    private int lowWaterMark;
+
+    private ConcurrentLinkedQueue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    private AtomicInteger available = new AtomicInteger();
+
+    // incremented under the repository lock to invalidate reserved numbers
+    private volatile long generation;
+
+    private ThreadLocal<Chunk> currentChunk = new ThreadLocal<>();
+
+    private AtomicBoolean refilling = new AtomicBoolean();
+    private ExecutorService executor;
+
+    // statistics
+    private LongAdder issuedSerialNumbers = new LongAdder();
+    private LongAdder reservedSerialNumbers = new LongAdder();
+    private LongAdder discardedSerialNumbers = new LongAdder();
+    private LongAdder backgroundRefills = new LongAdder();
+    private LongAdder foregroundRefills = new LongAdder();
+
+    /**
+     * @param name name of the repository
+     * @param repository repository providing the serial numbers
+     * @param blockSize number of serial numbers reserved at a time
+     * @param chunkSize number of serial numbers taken by a thread at a time
+     */
+    public SerialNumberBlockAllocator(String name, Repository repository, int blockSize, int chunkSize) {
+
+        this.repository = repository;
+        this.blockSize = blockSize;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, blockSize));
+        this.lowWaterMark = Math.max(1, blockSize / this.chunkSize / 2);
+
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name + "SerialNumberAllocator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the next reserved serial number. A new block is reserved
+     * in the calling thread only if there are no reserved numbers left.
+     */
+    public BigInteger getNextSerialNumber() throws EBaseException {
+
+        Chunk chunk = currentChunk.get();
+
+        while (true) {
+
+            if (chunk != null) {
+
+                if (chunk.generation != generation) {
+                    discardedSerialNumbers.add(chunk.remaining());
+                    chunk = null;
+
+                } else if (chunk.position < chunk.serialNumbers.length) {
+                    BigInteger serialNumber = chunk.serialNumbers[chunk.position++];
+                    currentChunk.set(chunk);
+                    issuedSerialNumbers.increment();
+                    return serialNumber;
+
+                } else {
+                    chunk = null;
+                }
+            }
+
+            chunk = chunks.poll();
+
+            if (chunk != null) {
+                if (available.decrementAndGet() < lowWaterMark) {
+                    scheduleRefill();
+                }
+                continue;
+            }
+
+            // no reserved numbers left, reserve a block in this thread
+            foregroundRefills.increment();
+            chunk = reserveBlock(true);
+        }
+    }
+
+    /**
+     * Reserves a block of serial numbers and adds the chunks into the queue.
+     *
+     * @param keepChunk true to return the first chunk instead of queuing it
+     * @return the first chunk if requested, null otherwise
+     */
+    Chunk reserveBlock(boolean keepChunk) throws EBaseException {
+
+        List<BigInteger> serialNumbers;
+        long blockGeneration;
+
+        synchronized (repository) {
+            blockGeneration = generation;
+            serialNumbers = repository.reserveSerialNumbers(blockSize);
+        }
+
+        if (serialNumbers.isEmpty()) {
+            throw new EBaseException("Unable to reserve serial numbers");
+        }
+
+        reservedSerialNumbers.add(serialNumbers.size());
+
+        Chunk first = null;
+
+        for (int i = 0; i < serialNumbers.size(); i += chunkSize) {
+
+            List<BigInteger> list = serialNumbers.subList(i, Math.min(i + chunkSize, serialNumbers.size()));
+            Chunk chunk = new Chunk(blockGeneration, list.toArray(new BigInteger[list.size()]));
+
+            if (keepChunk && first == null) {
+                first = chunk;
+                continue;
+            }
+
+            chunks.add(chunk);
+            available.incrementAndGet();
+        }
+
+        logger.debug("SerialNumberBlockAllocator: Reserved " + serialNumbers.size() + " serial numbers");
+
+        return first;
+    }
+
+    void scheduleRefill() {
+
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    while (available.get() < lowWaterMark * 2) {
+                        backgroundRefills.increment();
+                        reserveBlock(false);
+                    }
+
+                } catch (Throwable e) {
+                    logger.warn("SerialNumberBlockAllocator: Unable to reserve serial numbers: " + e.getMessage(), e);
+
+                } finally {
+                    refilling.set(false);
+                }
+            });
+
+        } catch (RejectedExecutionException e) {
+            refilling.set(false);
+        }
+    }
+
+    /**
+     * Discards all reserved serial numbers that have not been handed out.
+     * This method must be called while holding the repository lock.
+     */
+    public void reset() {
+
+        generation++;
+
+        Chunk chunk;
+        while ((chunk = chunks.poll()) != null) {
+            available.decrementAndGet();
+            discardedSerialNumbers.add(chunk.remaining());
+        }
+
+        logger.info("SerialNumberBlockAllocator: Discarded reserved serial numbers");
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public long getIssuedSerialNumbers() {
+        return issuedSerialNumbers.sum();
+    }
+
+    public long getReservedSerialNumbers() {
+        return reservedSerialNumbers.sum();
+    }
+
+    public long getDiscardedSerialNumbers() {
+        return discardedSerialNumbers.sum();
+    }
+
+    public long getBackgroundRefills() {
+        return backgroundRefills.sum();
+    }
+
+    public long getForegroundRefills() {
+        return foregroundRefills.sum();
+    }
+
+    public String getStatistics() {
+        return "issued: " + getIssuedSerialNumbers()
+                + ", reserved: " + getReservedSerialNumbers()
+                + ", discarded: " + getDiscardedSerialNumbers()
+                + ", background refills: " + getBackgroundRefills()
+                + ", foreground refills: " + getForegroundRefills();
+    }
+
+    /**
+     * Serial numbers owned by a single thread.
+     */
+    static class Chunk {
+
+        final long generation;
+        final BigInteger[] serialNumbers;
+        int position;
+
+        Chunk(long generation, BigInteger[] serialNumbers) {
+            this.generation = generation;
+            this.serialNumbers = serialNumbers;
+        }
+
+        int remaining() {
+            return serialNumbers.length - position;
+        }
+    }
+}
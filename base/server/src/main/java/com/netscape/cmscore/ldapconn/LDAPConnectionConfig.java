@@ -69,4 +69,15 @@ public class LDAPConnectionConfig extends ConfigStore {
     public boolean getFollowReferrals() throws EBaseException {
         return getBoolean(LdapConnInfo.PROP_FOLLOW_REFERRALS, true);
     }
+
+    /**
+     * Returns <LDAP>.ldapconn.pool parameter.
+     */
+    public String getPool() throws EBaseException {
+        return getString(LdapConnInfo.PROP_POOL, LdapBoundConnFactory.DEFAULT_POOL_NAME);
+    }
+
+    public void setPool(String pool) throws EBaseException {
+        putString(LdapConnInfo.PROP_POOL, pool);
+    }
 }
@@ -51,6 +51,8 @@ public class LdapBoundConnFactory extends LdapConnFactory {
     public static final String PROP_LDAPCONNINFO = "ldapconn";
     public static final String PROP_LDAPAUTHINFO = "ldapauth";
 
+    public static final String DEFAULT_POOL_NAME = "default";
+
     LdapAuthInfo mAuthInfo;
     PasswordStore passwordStore;
 
@@ -129,6 +131,31 @@ public class LdapBoundConnFactory extends LdapConnFactory {
         this.mAuthInfo = authInfo;
     }
 
+    /**
+     * Creates a connection factory with the pool implementation
+     * selected by the &lt;LDAP&gt;.ldapconn.pool parameter.
+     * The factory must be followed by init(LDAPConfig).
+     */
+    public static LdapBoundConnFactory create(
+            String id,
+            boolean defErrorIfDown,
+            LDAPConfig dbConfig
+            ) throws EBaseException {
+
+        String pool = dbConfig.getConnectionConfig().getPool();
+        logger.debug("LdapBoundConnFactory: pool: " + pool);
+
+        if (LdapConcurrentConnFactory.POOL_NAME.equals(pool)) {
+            return new LdapConcurrentConnFactory(id, defErrorIfDown);
+        }
+
+        if (!DEFAULT_POOL_NAME.equals(pool)) {
+            throw new EBaseException("Unsupported LDAP connection pool: " + pool);
+        }
+
+        return new LdapBoundConnFactory(id, defErrorIfDown);
+    }
+
     public void init(LDAPConfig dbConfig) throws EBaseException, ELdapException {
 
         logger.debug("LdapBoundConnFactory: initialization");
@@ -164,23 +191,7 @@ public class LdapBoundConnFactory extends LdapConnFactory {
      */
     public void init() throws ELdapException {
 
-        if (mMinConns < 0)
-            throw new ELdapException("Invalid minimum number of connections: " + mMinConns);
-
-        if (mMaxConns <= 0)
-            throw new ELdapException("Invalid maximum number of connections: " + mMaxConns);
-
-        if (mMinConns > mMaxConns)
-            throw new ELdapException("Minimum number of connections is bigger than maximum: " + mMinConns + " > " + mMaxConns);
-
-        if (mMaxResults < 0)
-            throw new ELdapException("Invalid maximum number of results: " + mMaxResults);
-
-        if (mConnInfo == null)
-            throw new IllegalArgumentException("Missing connection info");
-
-        if (mAuthInfo == null)
-            throw new IllegalArgumentException("Missing authentication info");
+        validate();
 
         logger.debug("LdapBoundConnFactory: mininum: " + mMinConns);
         logger.debug("LdapBoundConnFactory: maximum: " + mMaxConns);
@@ -200,6 +211,31 @@ public class LdapBoundConnFactory extends LdapConnFactory {
         }
     }
 
+    /**
+     * validates parameters obtained from either constructor or
+     * config store
+     */
+    protected void validate() throws ELdapException {
+
+        if (mMinConns < 0)
+            throw new ELdapException("Invalid minimum number of connections: " + mMinConns);
+
+        if (mMaxConns <= 0)
+            throw new ELdapException("Invalid maximum number of connections: " + mMaxConns);
+
+        if (mMinConns > mMaxConns)
+            throw new ELdapException("Minimum number of connections is bigger than maximum: " + mMinConns + " > " + mMaxConns);
+
+        if (mMaxResults < 0)
+            throw new ELdapException("Invalid maximum number of results: " + mMaxResults);
+
+        if (mConnInfo == null)
+            throw new IllegalArgumentException("Missing connection info");
+
+        if (mAuthInfo == null)
+            throw new IllegalArgumentException("Missing authentication info");
+    }
+
     /**
      * makes the initial master connection used to clone others..
      *
@@ -217,7 +253,7 @@ public class LdapBoundConnFactory extends LdapConnFactory {
      *
      * @exception ELdapException if any error occurs.
      */
-    private LdapBoundConnection makeNewConnection(boolean errorIfDown) throws ELdapException {
+    protected LdapBoundConnection makeNewConnection(boolean errorIfDown) throws ELdapException {
 
         logger.debug("LdapBoundConnFactory: makeNewConnection(" + errorIfDown + ")");
 
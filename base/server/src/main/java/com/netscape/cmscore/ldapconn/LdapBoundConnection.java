@@ -45,6 +45,15 @@ public class LdapBoundConnection extends LDAPConnection {
     @SuppressWarnings("unused")
     private boolean mAuthenticated;
 
+    /**
+     * Creates a connection without connecting to a server. This is
+     * only used by subclasses that do not need a real connection
+     * (e.g. in tests).
+     */
+    protected LdapBoundConnection(LDAPSocketFactory socketFactory) {
+        super(socketFactory);
+    }
+
     /**
      * Instantiates a connection to a ldap server, secure or non-secure
      * connection with LDAP basic bind DN and password authentication.
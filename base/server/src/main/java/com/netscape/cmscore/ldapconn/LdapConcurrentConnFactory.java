@@ -0,0 +1,634 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.ldapconn;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.ldap.ELdapException;
+
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPv3;
+
+/**
+ * Factory for getting LDAP Connections to a LDAP server with the same
+ * LDAP authentication, without a global lock.
+ *
+ * Idle connections are kept in several lock-free stripes selected by
+ * the calling thread, and the number of connections in use is bounded
+ * by a fair semaphore, so threads waiting for a connection are served
+ * in arrival order and can time out instead of blocking forever.
+ *
+ * Idle connections are checked before being handed out again, and
+ * connections above the minimum that stay idle too long are closed
+ * by a background task.
+ *
+ * This pool is enabled with the following parameter:
+ *
+ * <pre>
+ * &lt;LDAP&gt;.ldapconn.pool=concurrent
+ * </pre>
+ *
+ * and tuned with the following optional parameters:
+ *
+ * <pre>
+ * &lt;LDAP&gt;.maxWait=0              (milliseconds, 0 = wait forever)
+ * &lt;LDAP&gt;.idleTimeout=300         (seconds, 0 = never evict)
+ * &lt;LDAP&gt;.validationInterval=30   (seconds, 0 = never validate)
+ * &lt;LDAP&gt;.evictionInterval=60     (seconds)
+ * </pre>
+ */
+public class LdapConcurrentConnFactory extends LdapBoundConnFactory {
+
+    public static final String POOL_NAME = "concurrent";
+
+    public static final String PROP_MAX_WAIT = "maxWait";
+    public static final String PROP_IDLE_TIMEOUT = "idleTimeout";
+    public static final String PROP_VALIDATION_INTERVAL = "validationInterval";
+    public static final String PROP_EVICTION_INTERVAL = "evictionInterval";
+
+    protected long maxWait;
+    protected int idleTimeout = 300;
+    protected int validationInterval = 30;
+    protected int evictionInterval = 60;
+
+    IdleConnections[] stripes;
+    Semaphore permits;
+    Set<LDAPConnection> borrowed = ConcurrentHashMap.newKeySet();
+
+    AtomicInteger idle = new AtomicInteger();
+    AtomicInteger total = new AtomicInteger();
+
+    ScheduledExecutorService evictor;
+
+    // statistics
+    LongAdder requests = new LongAdder();
+    LongAdder waits = new LongAdder();
+    LongAdder waitTime = new LongAdder();
+    AtomicLong maxWaitTime = new AtomicLong();
+    LongAdder timeouts = new LongAdder();
+    LongAdder created = new LongAdder();
+    LongAdder evicted = new LongAdder();
+    LongAdder validationFailures = new LongAdder();
+
+    public LdapConcurrentConnFactory(String id) {
+        super(id);
+    }
+
+    public LdapConcurrentConnFactory(String id, boolean defErrorIfDown) {
+        super(id, defErrorIfDown);
+    }
+
+    public LdapConcurrentConnFactory(
+            String id,
+            int minConns,
+            int maxConns,
+            int maxResults,
+            LdapConnInfo connInfo,
+            LdapAuthInfo authInfo
+            ) throws ELdapException {
+        super(id, minConns, maxConns, maxResults, connInfo, authInfo);
+    }
+
+    @Override
+    public void init(LDAPConfig dbConfig) throws EBaseException, ELdapException {
+
+        maxWait = dbConfig.getInteger(PROP_MAX_WAIT, (int) maxWait);
+        idleTimeout = dbConfig.getInteger(PROP_IDLE_TIMEOUT, idleTimeout);
+        validationInterval = dbConfig.getInteger(PROP_VALIDATION_INTERVAL, validationInterval);
+        evictionInterval = dbConfig.getInteger(PROP_EVICTION_INTERVAL, evictionInterval);
+
+        super.init(dbConfig);
+    }
+
+    @Override
+    public void init() throws ELdapException {
+
+        validate();
+
+        if (maxWait < 0)
+            throw new ELdapException("Invalid maximum wait time: " + maxWait);
+
+        if (evictionInterval <= 0)
+            throw new ELdapException("Invalid eviction interval: " + evictionInterval);
+
+        logger.debug("LdapConcurrentConnFactory: mininum: " + mMinConns);
+        logger.debug("LdapConcurrentConnFactory: maximum: " + mMaxConns);
+        logger.debug("LdapConcurrentConnFactory: max wait: " + maxWait);
+        logger.debug("LdapConcurrentConnFactory: idle timeout: " + idleTimeout);
+        logger.debug("LdapConcurrentConnFactory: validation interval: " + validationInterval);
+        logger.debug("LdapConcurrentConnFactory: host: " + mConnInfo.getHost());
+        logger.debug("LdapConcurrentConnFactory: port: " + mConnInfo.getPort());
+        logger.debug("LdapConcurrentConnFactory: secure: " + mConnInfo.getSecure());
+        logger.debug("LdapConcurrentConnFactory: authentication: " + mAuthInfo.getAuthType());
+
+        // use a power of two number of stripes so the stripe
+        // can be selected with a mask
+        int processors = Runtime.getRuntime().availableProcessors();
+        int size = Integer.highestOneBit(Math.max(1, Math.min(processors, mMaxConns)));
+
+        stripes = new IdleConnections[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new IdleConnections();
+        }
+
+        permits = new Semaphore(mMaxConns, true);
+
+        if (mMinConns > 0) {
+            // Create connection handle and make initial connection
+            makeConnection(mErrorIfDown);
+
+            // initalize minimum number of connection handles available.
+            for (int i = 0; i < mMinConns; i++) {
+                LdapBoundConnection conn = createConnection();
+                if (conn == null) break;
+                release(conn);
+            }
+        }
+
+        // the evictor is only started here so that it is not
+        // restarted by a getConn() after reset() or shutdown()
+        startEvictor();
+    }
+
+    synchronized void startEvictor() {
+
+        if (evictor != null) return;
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LdapConcurrentConnFactory-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        evictor.scheduleWithFixedDelay(
+                this::evictIdleConnections,
+                evictionInterval,
+                evictionInterval,
+                TimeUnit.SECONDS);
+    }
+
+    synchronized void stopEvictor() {
+
+        if (evictor == null) return;
+
+        evictor.shutdownNow();
+        evictor = null;
+    }
+
+    /**
+     * Creates a new connection, either cloned from the master
+     * connection or established separately.
+     */
+    LdapBoundConnection createConnection() throws ELdapException {
+
+        LdapBoundConnection conn;
+
+        if (doCloning && mMinConns > 0) {
+            LdapBoundConnection master;
+            synchronized (this) {
+                if (mMasterConn == null || !mMasterConn.isConnected()) {
+                    try {
+                        makeConnection(true);
+                    } catch (ELdapException e) {
+                        mMasterConn = null;
+                        throw new ELdapException("LdapConcurrentConnFactory: Unable to create master connection. " + e.getMessage(), e);
+                    }
+                }
+                master = mMasterConn;
+            }
+            conn = master == null ? null : (LdapBoundConnection) master.clone();
+
+        } else {
+            conn = makeNewConnection(true);
+        }
+
+        if (conn != null) {
+            total.incrementAndGet();
+            created.increment();
+        }
+
+        return conn;
+    }
+
+    IdleConnections getStripe() {
+        return stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)];
+    }
+
+    /**
+     * Takes an idle connection starting from the calling thread's
+     * stripe, or returns null if there are no idle connections.
+     */
+    LdapBoundConnection acquire() {
+
+        int start = (int) Thread.currentThread().threadId();
+
+        for (int i = 0; i < stripes.length; i++) {
+            IdleConnections stripe = stripes[(start + i) & (stripes.length - 1)];
+
+            IdleConnection entry;
+            while ((entry = stripe.pollFirst()) != null) {
+                idle.decrementAndGet();
+
+                if (isHealthy(entry)) {
+                    return entry.conn;
+                }
+
+                validationFailures.increment();
+                discard(entry.conn);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Puts a connection back into the calling thread's stripe.
+     */
+    void release(LdapBoundConnection conn) {
+
+        if (idle.incrementAndGet() > mMaxConns) {
+            idle.decrementAndGet();
+            discard(conn);
+            return;
+        }
+
+        getStripe().offerFirst(new IdleConnection(conn, System.nanoTime()));
+    }
+
+    boolean isHealthy(IdleConnection entry) {
+
+        if (!entry.conn.isConnected()) {
+            logger.debug("LdapConcurrentConnFactory: connection is disconnected");
+            return false;
+        }
+
+        if (validationInterval <= 0) {
+            return true;
+        }
+
+        long idleTime = System.nanoTime() - entry.timestamp;
+        if (idleTime < TimeUnit.SECONDS.toNanos(validationInterval)) {
+            return true;
+        }
+
+        try {
+            entry.conn.read("", new String[] { LDAPv3.NO_ATTRS });
+            return true;
+
+        } catch (LDAPException e) {
+            logger.warn("LdapConcurrentConnFactory: Unable to validate connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    void discard(LDAPConnection conn) {
+
+        total.decrementAndGet();
+
+        try {
+            conn.disconnect();
+        } catch (LDAPException e) {
+            logger.warn("LdapConcurrentConnFactory: Unable to disconnect: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes connections above the minimum that have been idle
+     * longer than the idle timeout.
+     */
+    void evictIdleConnections() {
+
+        logger.debug("LdapConcurrentConnFactory (" + id + "): " + getStatistics());
+
+        if (idleTimeout <= 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long timeout = TimeUnit.SECONDS.toNanos(idleTimeout);
+
+        for (IdleConnections stripe : stripes) {
+
+            // oldest connections are at the end of the stripe
+            Iterator<IdleConnection> i = stripe.descendingIterator();
+            while (i.hasNext() && total.get() > mMinConns) {
+                IdleConnection entry = i.next();
+
+                if (now - entry.timestamp < timeout) {
+                    break;
+                }
+
+                // another thread might have taken the connection
+                if (!stripe.removeFirstOccurrence(entry)) {
+                    continue;
+                }
+
+                idle.decrementAndGet();
+                evicted.increment();
+                discard(entry.conn);
+            }
+        }
+    }
+
+    @Override
+    public LdapBoundConnection getConn(boolean waitForConn) throws ELdapException {
+
+        requests.increment();
+
+        if (!permits.tryAcquire()) {
+
+            if (!waitForConn) {
+                logger.warn("LdapConcurrentConnFactory: out of LDAP connections");
+                return null;
+            }
+
+            logger.debug("LdapConcurrentConnFactory: waiting connections for " + mConnInfo.getHost() + ":" + mConnInfo.getPort());
+
+            waits.increment();
+            long start = System.nanoTime();
+            boolean acquired;
+
+            try {
+                if (maxWait > 0) {
+                    acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+                } else {
+                    permits.acquire();
+                    acquired = true;
+                }
+
+            } catch (InterruptedException e) {
+                logger.warn("LdapConcurrentConnFactory: connection wait interrupted");
+                Thread.currentThread().interrupt();
+                return null;
+
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                waitTime.add(elapsed);
+                maxWaitTime.accumulateAndGet(elapsed, Math::max);
+            }
+
+            if (!acquired) {
+                timeouts.increment();
+                throw new ELdapException("Timed out waiting " + maxWait + " ms for LDAP connection to "
+                        + mConnInfo.getHost() + ":" + mConnInfo.getPort());
+            }
+        }
+
+        LdapBoundConnection conn;
+
+        try {
+            conn = acquire();
+
+            if (conn == null) {
+                logger.debug("LdapConcurrentConnFactory: creating new connection");
+                conn = createConnection();
+            }
+
+            if (conn == null) {
+                throw new ELdapException("Unable to create LDAP connection to "
+                        + mConnInfo.getHost() + ":" + mConnInfo.getPort());
+            }
+
+            // Before returning the connection, set the SIZELIMIT option; this
+            // ensures that if the connection is recycled and the previous owner
+            // changed the SIZELIMIT option to a different value, the next owner
+            // always starts with the default.
+            conn.setOption(LDAPv3.SIZELIMIT, mMaxResults);
+
+        } catch (LDAPException e) {
+            permits.release();
+            throw new ELdapException("Unable to set LDAP size limit: " + e.getMessage(), e);
+
+        } catch (ELdapException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        borrowed.add(conn);
+        return conn;
+    }
+
+    @Override
+    public void returnConn(LDAPConnection conn) {
+
+        if (conn == null) {
+            return;
+        }
+
+        if (!(conn instanceof LdapBoundConnection boundconn)) {
+            logger.warn("LdapConcurrentConnFactory: Unable to return connection: not a bound connection");
+            return;
+        }
+
+        if (!borrowed.remove(conn)) {
+            logger.warn("LdapConcurrentConnFactory: Connection already returned");
+            return;
+        }
+
+        if (boundconn.isConnected()) {
+            release(boundconn);
+        } else {
+            total.decrementAndGet();
+        }
+
+        permits.release();
+    }
+
+    @Override
+    public int freeConn() {
+        return idle.get();
+    }
+
+    @Override
+    public int totalConn() {
+        return total.get();
+    }
+
+    /**
+     * Returns the number of connections currently in use.
+     */
+    public int activeConn() {
+        return borrowed.size();
+    }
+
+    /**
+     * Returns the percentage of the maximum connections currently in use.
+     */
+    public int getUtilization() {
+        return activeConn() * 100 / mMaxConns;
+    }
+
+    /**
+     * Returns the number of threads currently waiting for a connection.
+     */
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    /**
+     * Returns the total time spent waiting for connections in milliseconds.
+     */
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.sum());
+    }
+
+    /**
+     * Returns the longest time spent waiting for a connection in milliseconds.
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get());
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getCreated() {
+        return created.sum();
+    }
+
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    public long getValidationFailures() {
+        return validationFailures.sum();
+    }
+
+    public String getStatistics() {
+        return "total: " + totalConn()
+                + ", active: " + activeConn()
+                + ", idle: " + freeConn()
+                + ", utilization: " + getUtilization() + "%"
+                + ", waiting: " + getWaitingThreads()
+                + ", requests: " + getRequests()
+                + ", waits: " + getWaits()
+                + ", wait time: " + getTotalWaitTime() + " ms"
+                + ", max wait time: " + getMaxWaitTime() + " ms"
+                + ", timeouts: " + getTimeouts()
+                + ", created: " + getCreated()
+                + ", evicted: " + getEvicted()
+                + ", validation failures: " + getValidationFailures();
+    }
+
+    /**
+     * Disconnects all idle connections. Fails if there are outstanding
+     * connections.
+     */
+    @Override
+    public synchronized void reset() throws ELdapException {
+
+        logger.debug("Destroying LdapConcurrentConnFactory(" + id + ")");
+
+        if (!borrowed.isEmpty()) {
+            String message = "Unable to reset LDAP connection factory due to outstanding connections";
+            logger.error("LdapConcurrentConnFactory: " + message);
+            throw new ELdapException(message);
+        }
+
+        stopEvictor();
+        closeIdleConnections(false);
+
+        if (mMasterConn != null) {
+            try {
+                logger.debug("LdapConcurrentConnFactory: disconnecting master connection");
+                mMasterConn.disconnect();
+            } catch (LDAPException e) {
+                String message = "Unable to disconnect master connection: " + e.getMessage();
+                logger.warn("LdapConcurrentConnFactory: " + message, e);
+            }
+        }
+        mMasterConn = null;
+
+        if (mAuthInfo != null) {
+            mAuthInfo.reset();
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() throws ELdapException {
+
+        logger.debug("Destroying LdapConcurrentConnFactory(" + id + ")");
+
+        stopEvictor();
+        closeIdleConnections(true);
+
+        if (mMasterConn != null) {
+            logger.debug("LdapConcurrentConnFactory: disconnecting master connection");
+            mMasterConn.close();
+            mMasterConn = null;
+        }
+
+        if (mAuthInfo != null) {
+            mAuthInfo.reset();
+        }
+    }
+
+    void closeIdleConnections(boolean close) {
+
+        if (stripes == null) return;
+
+        for (IdleConnections stripe : stripes) {
+            IdleConnection entry;
+            while ((entry = stripe.pollFirst()) != null) {
+                idle.decrementAndGet();
+                if (close) {
+                    total.decrementAndGet();
+                    entry.conn.close();
+                } else {
+                    discard(entry.conn);
+                }
+            }
+        }
+    }
+
+    static class IdleConnection {
+
+        final LdapBoundConnection conn;
+        final long timestamp;
+
+        IdleConnection(LdapBoundConnection conn, long timestamp) {
+            this.conn = conn;
+            this.timestamp = timestamp;
+        }
+    }
+
+    static class IdleConnections extends ConcurrentLinkedDeque<IdleConnection> {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -33,6 +33,7 @@ public class LdapConnInfo {
     public final static String PROP_SECURE = "secureConn";
     public final static String PROP_VERSION = "version";
     public final static String PROP_FOLLOW_REFERRALS = "followReferrals";
+    public final static String PROP_POOL = "pool";
     public final static String PROP_HOST_DEFAULT = "localhost";
     public final static String PROP_PORT_DEFAULT = "389";
 
@@ -29,6 +29,10 @@ public class LoggerConfig extends ConfigStore {
     public static final String LAST_HASH_FILE_NAME = "lastHashFileName";
     public static final String BUFFER_SIZE = "bufferSize";
     public static final String FLUSH_INTERVAL = "flushInterval";
+    public static final String ASYNC = "async";
+    public static final String ASYNC_QUEUE_SIZE = "asyncQueueSize";
+    public static final String ASYNC_BATCH_SIZE = "asyncBatchSize";
+    public static final String FSYNC = "fsync";
 
     /**
      * The default output stream buffer size in bytes
@@ -40,6 +44,16 @@ public class LoggerConfig extends ConfigStore {
      */
     public static final int DEFAULT_FLUSH_INTERVAL = 5;
 
+    /**
+     * The default number of pending events for asynchronous logging
+     */
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 8192;
+
+    /**
+     * The default maximum number of events written in one batch
+     */
+    public static final int DEFAULT_ASYNC_BATCH_SIZE = 256;
+
     public LoggerConfig() {
     }
 
@@ -102,4 +116,20 @@ public class LoggerConfig extends ConfigStore {
     public int getFlushInterval() throws EBaseException {
         return getInteger(FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL);
     }
+
+    public boolean getAsync() throws EBaseException {
+        return getBoolean(ASYNC, false);
+    }
+
+    public int getAsyncQueueSize() throws EBaseException {
+        return getInteger(ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE);
+    }
+
+    public int getAsyncBatchSize() throws EBaseException {
+        return getInteger(ASYNC_BATCH_SIZE, DEFAULT_ASYNC_BATCH_SIZE);
+    }
+
+    public boolean getFsync() throws EBaseException {
+        return getBoolean(FSYNC, false);
+    }
 }
@@ -18,14 +18,29 @@
 package com.netscape.cmscore.request;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.request.RequestId;
 import com.netscape.certsrv.request.RequestListener;
+import com.netscape.certsrv.util.OperationStats;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.dbs.RecordPagedList;
 
@@ -34,19 +49,26 @@ import com.netscape.cmscore.dbs.RecordPagedList;
  * so it will be invoked when a request is completely serviced
  * by the IService object, then it will notify all registered
  * request listeners.
+ *
+ * The listeners are notified on a bounded thread pool. If the
+ * publishing queue is enabled, the completed requests are queued
+ * and processed in batches by up to the max number of publishing
+ * threads. When the queue is full the requests are not dropped.
+ * They are loaded from the database once the queue has drained.
  */
 public class RequestNotifier {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RequestNotifier.class);
 
+    public static final int DEFAULT_BATCH_SIZE = 10;
+
     protected CMSEngine engine;
 
     private Hashtable<String, RequestListener> mListeners = new Hashtable<>();
-    private Vector<Thread> mNotifierThreads = new Vector<>();
-    private Vector<String> mRequests = new Vector<>();
     private int mMaxRequests = 100;
-    private boolean mSearchForRequests = false;
     private int mMaxThreads = 1;
+    private int mBatchSize = DEFAULT_BATCH_SIZE;
+    private int mMaxListenerThreads = 0;
 
     private boolean mIsPublishingQueueEnabled = false;
     private int mPublishingQueuePriority = 0;
@@ -55,6 +77,25 @@ public class RequestNotifier {
     private int mSavePublishingStatus = 0;
     private int mSavePublishingCounter = 0;
 
+    private BlockingQueue<QueuedRequest> mRequests = new LinkedBlockingQueue<>(mMaxRequests);
+
+    // ID of the first request that did not fit into the queue,
+    // the requests starting from this ID will be loaded from
+    // the database when the queue has drained
+    private String mSearchFrom;
+
+    private AtomicInteger mActiveWorkers = new AtomicInteger();
+    private ThreadPoolExecutor mExecutor;
+    private boolean mShutdown;
+    private Map<String, Semaphore> mListenerPermits = new ConcurrentHashMap<>();
+
+    // statistics
+    private LongAdder queuedRequests = new LongAdder();
+    private LongAdder deferredRequests = new LongAdder();
+    private LongAdder failedNotifications = new LongAdder();
+    private LongAdder batches = new LongAdder();
+    private OperationStats latencyStats = new OperationStats(); // milliseconds
+
     public RequestNotifier() {
         mPublishingQueuePriority = Thread.currentThread().getPriority();
     }
@@ -67,6 +108,23 @@ public class RequestNotifier {
         this.engine = engine;
     }
 
+    /**
+     * Sets the max number of requests processed by a publishing
+     * thread at a time. Must be called before setPublishingQueue().
+     */
+    public void setBatchSize(int batchSize) {
+        mBatchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Sets the max number of threads that can notify the same listener
+     * at the same time. Zero means no limit.
+     */
+    public void setMaxListenerThreads(int maxListenerThreads) {
+        mMaxListenerThreads = maxListenerThreads;
+        mListenerPermits.clear();
+    }
+
     /**
      * Sets publishing queue parameters.
      *
@@ -86,7 +144,7 @@ public class RequestNotifier {
                   "  Page Size: " + publishingQueuePageSize);
         mIsPublishingQueueEnabled = isPublishingQueueEnabled;
         mMaxThreads = maxNumberOfPublishingThreads;
-        mMaxRequests = publishingQueuePageSize;
+        mMaxRequests = Math.max(1, publishingQueuePageSize);
         mSavePublishingStatus = savePublishingStatus;
 
         // Publishing Queue Priority Levels:  2 - maximum, 1 - higher, 0 - normal, -1 - lower, -2 - minimum
@@ -102,6 +160,17 @@ public class RequestNotifier {
             mPublishingQueuePriority = Thread.currentThread().getPriority();
         }
 
+        synchronized (this) {
+            mRequests = new LinkedBlockingQueue<>(mMaxRequests);
+            mSearchFrom = null;
+
+            // recreate the thread pool with the new parameters
+            if (mExecutor != null) {
+                mExecutor.shutdown();
+                mExecutor = null;
+            }
+        }
+
         RequestRepository requestRepository = engine.getRequestRepository();
 
         if (mIsPublishingQueueEnabled && mSavePublishingStatus > 0 && requestRepository != null) {
@@ -118,6 +187,42 @@ public class RequestNotifier {
 
     }
 
+    /**
+     * Returns the thread pool that notifies the listeners.
+     *
+     * The number of threads is limited by the max number of publishing
+     * threads and the number of queued notifications is limited by the
+     * publishing queue page size.
+     *
+     * @throws RejectedExecutionException if the notifier has been shut down
+     */
+    synchronized ThreadPoolExecutor getExecutor() {
+
+        if (mShutdown) {
+            throw new RejectedExecutionException("RequestNotifier has been shut down");
+        }
+
+        if (mExecutor == null) {
+            int threads = Math.max(1, mMaxThreads);
+            logger.info("RequestNotifier: Creating thread pool with " + threads + " thread(s)");
+
+            mExecutor = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    60,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(mMaxRequests),
+                    Thread.ofPlatform()
+                            .name("RequestNotifier-", 1)
+                            .priority(mPublishingQueuePriority)
+                            .daemon()
+                            .factory());
+            mExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return mExecutor;
+    }
+
     /**
      * Registers a request listener.
      *
@@ -212,88 +317,77 @@ public class RequestNotifier {
     }
 
     /**
-     * Gets request from publishing queue.
+     * Loads the requests that did not fit into the publishing queue
+     * from the database.
      *
-     * @return request
+     * @return true if more requests are available
      */
-    public synchronized Request getRequest() {
-        Request r = null;
-        String id = null;
-
-        logger.debug("getRequest  mRequests=" + mRequests.size() + "  mSearchForRequests=" + mSearchForRequests);
-        if (mSearchForRequests && mRequests.size() == 1) {
-
-            id = mRequests.elementAt(0);
-            RequestRepository requestRepository = engine.getRequestRepository();
-
-            if (id != null && requestRepository != null) {
-                logger.debug("getRequest  request id=" + id);
-                String filter = "(& (requestID >= " + new RequestId(id) + ")(requeststate=complete))";
-                RecordPagedList<RequestRecord> list;
-                try {
-                    list = requestRepository.getPagedRequestsByFilter(
-                            filter,
-                            mMaxRequests,
-                            "requestId");
-
-                } catch (EBaseException e) {
-                    throw new RuntimeException(e);
-                }
-                Iterator<RequestRecord> itReqRecs = list.iterator();
+    synchronized boolean loadRequests() {
 
-                while (itReqRecs.hasNext() && mRequests.size() < mMaxRequests) {
-                    RequestRecord reqRec = itReqRecs.next();
-                    try {
-                        r = reqRec.toRequest();
-                    } catch (Exception e) {
-                        // handled below
-                    }
-                    String requestType = r.getRequestType();
-                    if (requestType == null) {
-                        continue;
-                    }
-                    if (!(requestType.equals(Request.ENROLLMENT_REQUEST) ||
-                            requestType.equals(Request.RENEWAL_REQUEST) ||
-                            requestType.equals(Request.REVOCATION_REQUEST) ||
-                            requestType.equals(Request.CMCREVOKE_REQUEST) ||
-                            requestType.equals(Request.UNREVOCATION_REQUEST))) {
-                        continue;
-                    }
-                    mRequests.addElement(r.getRequestId().toString());
-                    logger.debug("getRequest  added {}  request {} to mRequests: {}  ({})",
-                              r.getRequestType(), r.getRequestId().toString(), mRequests.size(), mMaxRequests);
-                }
-                logger.debug("getRequest  done with adding requests to mRequests: {}", mRequests.size());
-            } else {
-                logger.warn("getRequest  has no access to the request queue");
-            }
+        if (mSearchFrom == null) {
+            return false;
         }
-        if (mRequests.size() > 0) {
-            id = mRequests.elementAt(0);
-            if (id != null) {
-                logger.debug("getRequest  getting request: " + id);
-                RequestRepository requestRepository = engine.getRequestRepository();
 
-                if (requestRepository != null) {
-                    try {
-                        r = requestRepository.readRequest(new RequestId(id));
-                        mRequests.remove(0);
-                        logger.debug("getRequest  request " + id + ((r != null) ? " found" : " not found"));
-                        //updatePublishingStatus(id);
-                    } catch (EBaseException e) {
-                        logger.warn("getRequest  Exception: " + e.getMessage(), e);
-                    }
-                } else {
-                    logger.warn("getRequest  has no access to the request queue");
-                }
+        RequestRepository requestRepository = engine.getRequestRepository();
+        if (requestRepository == null) {
+            logger.warn("RequestNotifier: Unable to load requests: no access to the request queue");
+            mSearchFrom = null;
+            return false;
+        }
+
+        logger.info("RequestNotifier: Loading requests from " + mSearchFrom);
+        String filter = "(& (requestID >= " + new RequestId(mSearchFrom) + ")(requeststate=complete))";
+
+        RecordPagedList<RequestRecord> list;
+        try {
+            list = requestRepository.getPagedRequestsByFilter(
+                    filter,
+                    mMaxRequests,
+                    "requestId");
+
+        } catch (EBaseException e) {
+            logger.warn("RequestNotifier: Unable to load requests: " + e.getMessage(), e);
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        String nextID = null;
+        Iterator<RequestRecord> itReqRecs = list.iterator();
+
+        while (itReqRecs.hasNext()) {
+            RequestRecord reqRec = itReqRecs.next();
+            Request r;
+            try {
+                r = reqRec.toRequest();
+            } catch (Exception e) {
+                logger.warn("RequestNotifier: Unable to load request: " + e.getMessage(), e);
+                continue;
+            }
+
+            String requestType = r.getRequestType();
+            if (requestType == null) {
+                continue;
+            }
+            if (!(requestType.equals(Request.ENROLLMENT_REQUEST) ||
+                    requestType.equals(Request.RENEWAL_REQUEST) ||
+                    requestType.equals(Request.REVOCATION_REQUEST) ||
+                    requestType.equals(Request.CMCREVOKE_REQUEST) ||
+                    requestType.equals(Request.UNREVOCATION_REQUEST))) {
+                continue;
             }
-            if (mRequests.size() == 0) {
-                mSearchForRequests = false;
+
+            String id = r.getRequestId().toString();
+            if (!mRequests.offer(new QueuedRequest(id, now))) {
+                // the queue is full again, continue from this request later
+                nextID = id;
+                break;
             }
         }
-        logger.debug("getRequest  mRequests=" + mRequests.size() + "  mSearchForRequests=" + mSearchForRequests + " done");
 
-        return r;
+        mSearchFrom = nextID;
+        logger.info("RequestNotifier: Queued " + mRequests.size() + " request(s) from the database");
+
+        return !mRequests.isEmpty() || mSearchFrom != null;
     }
 
     /**
@@ -314,24 +408,6 @@ public class RequestNotifier {
         return mIsPublishingQueueEnabled;
     }
 
-    /**
-     * Removes a notifier thread from the pool of publishing queue threads.
-     *
-     * @param notifierThread Thread
-     */
-    public void removeNotifierThread(Thread notifierThread) {
-        if (mNotifierThreads.size() > 0) {
-            mNotifierThreads.remove(notifierThread);
-            if (mNotifierThreads.size() == 0) {
-                RequestRepository requestRepository = engine.getRequestRepository();
-                if (requestRepository != null) {
-                    requestRepository.setPublishingStatus("-1");
-                }
-            }
-        }
-        logger.debug("Number of publishing threads: " + mNotifierThreads.size());
-    }
-
     /**
      * Provides notification that a request has been completed.
      * The implementation may use values stored in the Request
@@ -362,10 +438,14 @@ public class RequestNotifier {
 
         } else {
             logger.info("RequestNotifier: Notifying " + mListeners.size() + " listener(s) asynchronously");
+            RunListeners task = new RunListeners(r, mListeners.elements());
             try {
-                new Thread(new RunListeners(r, mListeners.elements()), "RequestNotifier-notify").start();
-            } catch (Throwable e) {
-                logger.warn("Could not run listeners for request " + r.getRequestId().toHexString() + ": " + e.getMessage(), e);
+                getExecutor().execute(task);
+
+            } catch (RejectedExecutionException e) {
+                // all threads are busy and the queue is full, slow down the caller
+                logger.warn("RequestNotifier: Notifying listeners synchronously: " + e.getMessage());
+                task.run();
             }
         }
     }
@@ -380,30 +460,190 @@ public class RequestNotifier {
     }
 
     /**
-     * Checks if more publishing threads can be added.
-     *
-     * @return true if more publishing threads can be added, false otherwise
+     * Starts a publishing thread if the queue is not being processed,
+     * or adds publishing threads gradually as the queue grows.
      */
-    private boolean morePublishingThreads() {
-        boolean moreThreads = false;
-
-        if (mNotifierThreads.size() == 0) {
-            moreThreads = true;
-        } else if (mNotifierThreads.size() < mMaxThreads) {
-            logger.debug("morePublishingThreads  (" + mRequests.size() + ">" +
-                      ((mMaxRequests * mNotifierThreads.size()) / mMaxThreads) +
-                      " " + "(" + mMaxRequests + "*" + mNotifierThreads.size() + "):" + mMaxThreads);
-            // gradually add new publishing threads
-            if (mRequests.size() > ((mMaxRequests * mNotifierThreads.size()) / mMaxThreads)) {
+    void startPublishingThread() {
+
+        int maxThreads = Math.max(1, mMaxThreads);
+
+        while (true) {
+            int active = mActiveWorkers.get();
+
+            if (active >= maxThreads) {
+                return;
+            }
+
+            if (active > 0) {
+                logger.debug("RequestNotifier: queue size: " + mRequests.size() +
+                        ", threshold: " + ((mMaxRequests * active) / maxThreads));
+
+                if (mRequests.size() <= (mMaxRequests * active) / maxThreads) {
+                    return;
+                }
+
                 // check for available publishing connections
-                if (checkAvailablePublishingConnections()) {
-                    moreThreads = true;
+                if (!checkAvailablePublishingConnections()) {
+                    return;
                 }
             }
+
+            if (mActiveWorkers.compareAndSet(active, active + 1)) {
+                break;
+            }
         }
-        logger.debug("morePublishingThreads  moreThreads: " + moreThreads);
 
-        return moreThreads;
+        logger.info("RequestNotifier: - publishing threads: " + mActiveWorkers.get());
+
+        try {
+            getExecutor().execute(this::processQueue);
+
+        } catch (RejectedExecutionException e) {
+            mActiveWorkers.decrementAndGet();
+            logger.warn("RequestNotifier: Unable to start publishing thread: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Processes the publishing queue until it is empty.
+     */
+    void processQueue() {
+
+        List<QueuedRequest> batch = new ArrayList<>(mBatchSize);
+
+        while (true) {
+            try {
+                batch.clear();
+                mRequests.drainTo(batch, mBatchSize);
+
+                if (!batch.isEmpty()) {
+                    processBatch(batch);
+                    continue;
+                }
+
+                if (loadRequests()) {
+                    continue;
+                }
+
+            } catch (InterruptedException e) {
+                // the thread pool is shutting down, the unprocessed
+                // requests can be recovered from the publishing status
+                logger.info("RequestNotifier: Publishing thread interrupted");
+                Thread.currentThread().interrupt();
+                mActiveWorkers.decrementAndGet();
+                return;
+
+            } catch (Throwable e) {
+                logger.warn("RequestNotifier: Unable to process publishing queue: " + e.getMessage(), e);
+            }
+
+            int active = mActiveWorkers.decrementAndGet();
+
+            if (mRequests.isEmpty() && mSearchFrom == null) {
+                if (active == 0) {
+                    RequestRepository requestRepository = engine.getRequestRepository();
+                    if (requestRepository != null) {
+                        requestRepository.setPublishingStatus("-1");
+                    }
+                }
+                logger.debug("RequestNotifier: Number of publishing threads: " + active);
+                return;
+            }
+
+            // requests were added after the queue was found empty
+            if (active > 0 || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            mActiveWorkers.incrementAndGet();
+        }
+    }
+
+    /**
+     * Notifies the listeners about a batch of requests. Each listener
+     * processes the whole batch at once so a limited listener is
+     * acquired once per batch.
+     */
+    void processBatch(List<QueuedRequest> batch) throws InterruptedException {
+
+        batches.increment();
+
+        // the same request might have been queued more than once
+        Set<String> ids = new LinkedHashSet<>();
+        for (QueuedRequest queuedRequest : batch) {
+            ids.add(queuedRequest.id());
+        }
+
+        RequestRepository requestRepository = engine.getRequestRepository();
+        if (requestRepository == null) {
+            logger.warn("RequestNotifier: Unable to process requests: no access to the request queue");
+            return;
+        }
+
+        List<Request> requests = new ArrayList<>();
+        for (String id : ids) {
+            try {
+                Request r = requestRepository.readRequest(new RequestId(id));
+                logger.debug("RequestNotifier: Request " + id + ((r != null) ? " found" : " not found"));
+                if (r != null) {
+                    requests.add(r);
+                }
+            } catch (EBaseException e) {
+                logger.warn("RequestNotifier: Unable to read request " + id + ": " + e.getMessage(), e);
+            }
+        }
+
+        Map<String, RequestListener> listeners;
+        synchronized (mListeners) {
+            listeners = new LinkedHashMap<>(mListeners);
+        }
+
+        for (Map.Entry<String, RequestListener> entry : listeners.entrySet()) {
+
+            RequestListener l = entry.getValue();
+            Semaphore permits = getListenerPermits(entry.getKey());
+
+            if (permits != null) {
+                permits.acquire();
+            }
+
+            try {
+                for (Request r : requests) {
+                    logger.info("RequestNotifier: Processing request " + r.getRequestId().toHexString() + " with " + l.getClass().getSimpleName());
+                    try {
+                        l.accept(r);
+                    } catch (Exception e) {
+                        failedNotifications.increment();
+                        logger.warn("RequestNotifier: Unable to process request " + r.getRequestId().toHexString() + " with " + l.getClass().getSimpleName() + ": " + e.getMessage(), e);
+                    }
+                }
+
+            } finally {
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        }
+
+        for (Request r : requests) {
+            logger.info("RequestNotifier: Updating publishing status for request " + r.getRequestId().toHexString());
+            updatePublishingStatus(r.getRequestId().toString());
+        }
+
+        long now = System.currentTimeMillis();
+        for (QueuedRequest queuedRequest : batch) {
+            long latency = now - queuedRequest.time();
+            latencyStats.add(latency);
+        }
+    }
+
+    Semaphore getListenerPermits(String name) {
+
+        if (mMaxListenerThreads <= 0) {
+            return null;
+        }
+
+        return mListenerPermits.computeIfAbsent(name, n -> new Semaphore(mMaxListenerThreads));
     }
 
     /**
@@ -411,40 +651,31 @@ public class RequestNotifier {
      *
      * @param r request
      */
-    public synchronized void addToNotify(Request r) {
+    public void addToNotify(Request r) {
 
         logger.info("RequestNotifier: Notifying all listeners for request " + r.getRequestId().toHexString());
 
-        if (!mSearchForRequests) {
+        String id = r.getRequestId().toString();
 
+        synchronized (this) {
             logger.info("RequestNotifier: - max requests: " + mMaxRequests);
-            logger.info("RequestNotifier: - buffer size: " + mRequests.size());
+            logger.info("RequestNotifier: - queue size: " + mRequests.size());
 
-            if (mRequests.size() < mMaxRequests) {
-                logger.info("RequestNotifier: Extending buffer");
-                mRequests.addElement(r.getRequestId().toString());
+            if (mSearchFrom != null) {
+                // the request will be loaded from the database
+                deferredRequests.increment();
 
-                if (morePublishingThreads()) {
-                    try {
-                        Thread notifierThread = new Thread(new RunListeners(this), "RequestNotifier-addToNotify");
-                        if (notifierThread != null) {
-                            mNotifierThreads.addElement(notifierThread);
-                            logger.info("RequestNotifier: - publishing threads: " + mNotifierThreads.size());
-                            if (mPublishingQueuePriority > 0) {
-                                notifierThread.setPriority(mPublishingQueuePriority);
-                            }
-                            notifierThread.start();
-                        }
-
-                    } catch (Throwable e) {
-                        logger.warn("Unable to notify listeners: " + e.getMessage(), e);
-                    }
-                }
+            } else if (mRequests.offer(new QueuedRequest(id, System.currentTimeMillis()))) {
+                queuedRequests.increment();
 
             } else {
-                mSearchForRequests = true;
+                logger.info("RequestNotifier: Queue is full, loading requests from the database later");
+                mSearchFrom = id;
+                deferredRequests.increment();
             }
         }
+
+        startPublishingThread();
     }
 
     /**
@@ -458,30 +689,112 @@ public class RequestNotifier {
         logger.info("RequestNotifier: - requests: " + mRequests.size());
         logger.info("RequestNotifier: - max requests: " + mMaxRequests);
 
-        if (mRequests.size() == 0) {
-            logger.info("RequestNotifier: Extending buffer");
-            mRequests.addElement(id);
+        synchronized (this) {
+            if (!mRequests.isEmpty() || mSearchFrom != null) {
+                return;
+            }
 
-            if (morePublishingThreads()) {
-                synchronized (this) {
-                    mSearchForRequests = true;
-                }
+            mSearchFrom = id;
+        }
 
-                try {
-                    Thread notifierThread = new Thread(new RunListeners(this), "RequestNotifier-recoverPublishingQueue");
-                    if (notifierThread != null) {
-                        mNotifierThreads.addElement(notifierThread);
-                        logger.info("RequestNotifier: - publishing threads: " + mNotifierThreads.size());
-                        if (mPublishingQueuePriority > 0) {
-                            notifierThread.setPriority(mPublishingQueuePriority);
-                        }
-                        notifierThread.start();
-                    }
+        startPublishingThread();
+    }
 
-                } catch (Throwable e) {
-                    logger.warn("Unable to recover publishing queue: " + e.getMessage(), e);
-                }
+    public int getActivePublishingThreads() {
+        return mActiveWorkers.get();
+    }
+
+    public long getQueuedRequests() {
+        return queuedRequests.sum();
+    }
+
+    public long getDeferredRequests() {
+        return deferredRequests.sum();
+    }
+
+    public long getProcessedRequests() {
+        return latencyStats.getCalls();
+    }
+
+    public long getFailedNotifications() {
+        return failedNotifications.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getAverageLatency() {
+        return latencyStats.getAverageTime();
+    }
+
+    public long getMaxLatency() {
+        return latencyStats.getMaxTime();
+    }
+
+    /**
+     * Returns the publishing queue depth, the number of requests
+     * processed, and the average and maximum time between queuing
+     * and processing a request in milliseconds.
+     */
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", mIsPublishingQueueEnabled);
+        stats.put("queueDepth", getNumberOfRequests());
+        stats.put("loadingFromDatabase", mSearchFrom != null);
+        stats.put("activeThreads", getActivePublishingThreads());
+        stats.put("queued", getQueuedRequests());
+        stats.put("deferred", getDeferredRequests());
+        stats.put("processed", getProcessedRequests());
+        stats.put("failed", getFailedNotifications());
+        stats.put("batches", getBatches());
+        stats.put("averageLatency", getAverageLatency());
+        stats.put("maxLatency", getMaxLatency());
+
+        return stats;
+    }
+
+    public String getStatistics() {
+        return "queue depth: " + getNumberOfRequests()
+                + ", active threads: " + getActivePublishingThreads()
+                + ", queued: " + getQueuedRequests()
+                + ", deferred: " + getDeferredRequests()
+                + ", processed: " + getProcessedRequests()
+                + ", failed: " + getFailedNotifications()
+                + ", batches: " + getBatches()
+                + ", latency: " + getAverageLatency() + " ms avg/" + getMaxLatency() + " ms max";
+    }
+
+    public void shutdown() {
+
+        ThreadPoolExecutor executor;
+        synchronized (this) {
+            // do not create a new thread pool for late notifications
+            mShutdown = true;
+            executor = mExecutor;
+            mExecutor = null;
+        }
+
+        if (executor == null) {
+            return;
+        }
+
+        logger.info("RequestNotifier: " + getStatistics());
+
+        // the unprocessed requests can be recovered from the publishing status
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
         }
     }
+
+    record QueuedRequest(String id, long time) {
+    }
 }
@@ -31,7 +31,6 @@ public class RunListeners implements Runnable {
 
     Request mRequest = null;
     Enumeration<RequestListener> mListeners = null;
-    RequestNotifier mRequestNotifier;
 
     /**
      * RunListeners class constructor.
@@ -44,58 +43,26 @@ public class RunListeners implements Runnable {
         mListeners = listeners;
     }
 
-    /**
-     * RunListeners class constructor.
-     *
-     * @param requestNotifier request
-     */
-    public RunListeners(RequestNotifier requestNotifier) {
-        mRequestNotifier = requestNotifier;
-        mListeners = mRequestNotifier.getListeners();
-    }
-
     /**
      * RunListeners thread implementation.
      */
     @Override
     public void run() {
 
-        logger.info("RunListeners: Running listeners:");
-        logger.info("RunListeners: - queue: " + (mRequestNotifier != null ? mRequestNotifier.getNumberOfRequests() : null));
-        logger.info("RunListeners: - request: " + (mRequest != null ? mRequest.getRequestId().toHexString() : null));
-
-        do {
-            if (mRequestNotifier != null) {
-                mRequest = mRequestNotifier.getRequest();
-            }
-
-            if (mListeners != null && mRequest != null) {
-                logger.info("RunListeners: Processing request " + mRequest.getRequestId().toHexString());
-
-                while (mListeners.hasMoreElements()) {
-                    RequestListener l = mListeners.nextElement();
-                    logger.info("RunListeners: Processing request " + mRequest.getRequestId().toHexString() + " with " + l.getClass().getSimpleName());
-                    l.accept(mRequest);
-                }
-
-                if (mRequestNotifier != null) {
-                    logger.info("RunListeners: Updating publishing status for request " + mRequest.getRequestId().toHexString());
-                    mRequestNotifier.updatePublishingStatus(mRequest.getRequestId().toString());
-                }
-            }
+        if (mListeners == null || mRequest == null) {
+            return;
+        }
 
-            logger.info("RunListeners: Running listeners:");
-            logger.info("RunListeners: - queue: " + (mRequestNotifier != null ? mRequestNotifier.getNumberOfRequests() : null));
-            logger.info("RunListeners: - request: " + (mRequest != null ? mRequest.getRequestId().toHexString() : null));
+        logger.info("RunListeners: Processing request " + mRequest.getRequestId().toHexString());
 
-            if (mRequestNotifier != null) {
-                mListeners = mRequestNotifier.getListeners();
+        while (mListeners.hasMoreElements()) {
+            RequestListener l = mListeners.nextElement();
+            logger.info("RunListeners: Processing request " + mRequest.getRequestId().toHexString() + " with " + l.getClass().getSimpleName());
+            try {
+                l.accept(mRequest);
+            } catch (Exception e) {
+                logger.warn("RunListeners: Unable to process request " + mRequest.getRequestId().toHexString() + " with " + l.getClass().getSimpleName() + ": " + e.getMessage(), e);
             }
-
-        } while (mRequestNotifier != null && mRequestNotifier.getNumberOfRequests() > 0);
-
-        if (mRequestNotifier != null) {
-            mRequestNotifier.removeNotifierThread(Thread.currentThread());
         }
     }
 }
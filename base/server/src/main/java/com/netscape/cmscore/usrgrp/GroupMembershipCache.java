@@ -0,0 +1,221 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netscape.certsrv.base.EBaseException;
+
+/**
+ * This class caches the results of group membership lookups so that
+ * the authorization of each request does not require an LDAP search
+ * for each group in the ACLs.
+ *
+ * The results are indexed by user DN and group name (case-insensitive).
+ * Both positive and negative results are cached, but failed lookups
+ * are not. The results of a group are invalidated when the group is
+ * changed, and all results expire after the cache timeout in case
+ * a change was missed.
+ */
+public class GroupMembershipCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GroupMembershipCache.class);
+
+    public static final int DEFAULT_SIZE = 10000;
+    public static final int DEFAULT_TIMEOUT = 300; // seconds
+
+    private int size = DEFAULT_SIZE;
+    private long timeout = TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT);
+
+    private Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // incremented when the cache is invalidated so that results
+    // looked up before the invalidation are not cached
+    private AtomicLong generation = new AtomicLong();
+
+    // statistics
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder expirations = new LongAdder();
+    private LongAdder invalidations = new LongAdder();
+
+    public int getMaxSize() {
+        return size;
+    }
+
+    public void setMaxSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Returns the max age of a result in seconds.
+     */
+    public int getTimeout() {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(timeout);
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = TimeUnit.SECONDS.toMillis(timeout);
+    }
+
+    public void init(GroupMembershipCacheConfig config) throws EBaseException {
+
+        size = config.getSize();
+        setTimeout(config.getTimeout());
+
+        logger.info("GroupMembershipCache: Initializing group membership cache");
+        logger.info("GroupMembershipCache: - size: " + size);
+        logger.info("GroupMembershipCache: - timeout: " + config.getTimeout() + " s");
+    }
+
+    /**
+     * Returns the cached membership of a user in a group, or looks it
+     * up if it is not cached. If the lookup fails the exception is
+     * propagated and nothing is cached.
+     *
+     * @param userDN user DN
+     * @param groupName group name
+     * @param loader function to look up the membership
+     * @return true if the user is a member of the group
+     */
+    public boolean isMemberOf(String userDN, String groupName, MembershipLoader loader) throws Exception {
+
+        Key key = new Key(userDN.toLowerCase(Locale.ROOT), groupName.toLowerCase(Locale.ROOT));
+        long now = System.currentTimeMillis();
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (now < entry.expirationTime) {
+                hits.increment();
+                return entry.member;
+            }
+
+            entries.remove(key, entry);
+            expirations.increment();
+        }
+
+        misses.increment();
+
+        long currentGeneration = generation.get();
+        boolean member = loader.load();
+
+        if (entries.size() >= size) {
+            removeExpiredEntries(now);
+
+            if (entries.size() >= size) {
+                // keep the existing entries, they expire soon enough
+                return member;
+            }
+        }
+
+        entries.put(key, new Entry(member, now + timeout));
+
+        if (generation.get() != currentGeneration) {
+            // the groups were changed during the lookup
+            entries.remove(key);
+        }
+
+        return member;
+    }
+
+    void removeExpiredEntries(long now) {
+        entries.values().removeIf(entry -> entry.expirationTime <= now);
+    }
+
+    /**
+     * Removes the results of a group.
+     */
+    public void invalidate(String groupName) {
+
+        logger.debug("GroupMembershipCache: Invalidating group " + groupName);
+
+        String name = groupName.toLowerCase(Locale.ROOT);
+
+        generation.incrementAndGet();
+        entries.keySet().removeIf(key -> key.groupName().equals(name));
+        invalidations.increment();
+    }
+
+    /**
+     * Removes all results.
+     */
+    public void invalidate() {
+
+        logger.debug("GroupMembershipCache: Invalidating all groups");
+
+        generation.incrementAndGet();
+        entries.clear();
+        invalidations.increment();
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", getSize());
+        stats.put("hits", getHits());
+        stats.put("misses", getMisses());
+        stats.put("hitRate", getHitRate());
+        stats.put("expirations", getExpirations());
+        stats.put("invalidations", getInvalidations());
+
+        return stats;
+    }
+
+    public String getStatistics() {
+        return "size: " + getSize()
+                + ", hits: " + getHits()
+                + ", misses: " + getMisses()
+                + ", hit rate: " + String.format("%.2f", getHitRate())
+                + ", expirations: " + getExpirations()
+                + ", invalidations: " + getInvalidations();
+    }
+
+    /**
+     * A function to look up a group membership in the database.
+     */
+    @FunctionalInterface
+    public interface MembershipLoader {
+        boolean load() throws Exception;
+    }
+
+    record Key(String userDN, String groupName) {
+    }
+
+    record Entry(boolean member, long expirationTime) {
+    }
+}
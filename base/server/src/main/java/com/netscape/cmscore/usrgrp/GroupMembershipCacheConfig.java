@@ -0,0 +1,57 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides usrgrp.cache.* parameters.
+ */
+public class GroupMembershipCacheConfig extends ConfigStore {
+
+    public GroupMembershipCacheConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public GroupMembershipCacheConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns usrgrp.cache.enable parameter.
+     */
+    public boolean getEnable() throws EBaseException {
+        return getBoolean("enable", true);
+    }
+
+    /**
+     * Returns usrgrp.cache.size parameter, the maximum number of
+     * cached user/group pairs.
+     */
+    public int getSize() throws EBaseException {
+        return getInteger("size", 10000);
+    }
+
+    /**
+     * Returns usrgrp.cache.timeout parameter (in seconds).
+     */
+    public int getTimeout() throws EBaseException {
+        return getInteger("timeout", 300);
+    }
+
+    /**
+     * Returns usrgrp.cache.monitor parameter. If true, the group
+     * entries are monitored with a persistent search so the cache
+     * is invalidated when the groups are changed in the database
+     * (e.g. by another clone or directly in LDAP).
+     */
+    public boolean getMonitor() throws EBaseException {
+        return getBoolean("monitor", true);
+    }
+}
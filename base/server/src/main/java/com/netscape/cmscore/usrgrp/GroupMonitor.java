@@ -0,0 +1,193 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmscore.usrgrp;
+
+import com.netscape.certsrv.dbs.DBException;
+import com.netscape.cmsutil.ldap.LDAPUtil;
+
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPDN;
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPSearchConstraints;
+import netscape.ldap.LDAPSearchResults;
+import netscape.ldap.controls.LDAPEntryChangeControl;
+import netscape.ldap.controls.LDAPPersistSearchControl;
+
+/**
+ * This class monitors the group entries with a persistent search
+ * and notifies UGSubsystem when a group is added, modified, removed,
+ * or renamed in the database, including the changes made by other
+ * clones or directly in LDAP.
+ *
+ * Changes might be missed while the connection is down, so all
+ * groups are considered changed when the search is restarted.
+ */
+public class GroupMonitor implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GroupMonitor.class);
+
+    private UGSubsystem ugSubsystem;
+    private String groupBaseDN;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    private volatile LDAPConnection searchConn;
+    private volatile LDAPSearchResults searchResults;
+
+    public GroupMonitor(UGSubsystem ugSubsystem, String groupBaseDN) {
+        this.ugSubsystem = ugSubsystem;
+        this.groupBaseDN = groupBaseDN;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "GroupMonitor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the persistent search and waits until the monitor has
+     * returned its connection so the connection factory can be reset.
+     */
+    public void stop() {
+
+        running = false;
+
+        LDAPConnection conn = searchConn;
+        LDAPSearchResults results = searchResults;
+
+        if (conn != null && results != null) {
+            try {
+                conn.abandon(results);
+            } catch (LDAPException e) {
+                logger.warn("GroupMonitor: Unable to abandon search: " + e.getMessage(), e);
+            }
+        }
+
+        if (thread == null) {
+            return;
+        }
+
+        thread.interrupt();
+
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        thread = null;
+    }
+
+    @Override
+    public void run() {
+
+        int op = LDAPPersistSearchControl.ADD
+            | LDAPPersistSearchControl.MODIFY
+            | LDAPPersistSearchControl.DELETE
+            | LDAPPersistSearchControl.MODDN;
+
+        // only return the changes, the existing groups are not needed
+        LDAPPersistSearchControl persistCtrl =
+            new LDAPPersistSearchControl(op, true, true, true);
+
+        logger.info("GroupMonitor: Starting group monitor for " + groupBaseDN);
+
+        while (running) {
+
+            LDAPConnection conn = null;
+
+            try {
+                conn = ugSubsystem.getConn();
+                LDAPSearchConstraints cons = conn.getSearchConstraints();
+                cons.setServerControls(persistCtrl);
+                cons.setBatchSize(1);
+                cons.setServerTimeLimit(0 /* seconds */);
+                String[] attrs = { "cn" };
+
+                LDAPSearchResults results = conn.search(
+                    groupBaseDN, LDAPConnection.SCOPE_ONE,
+                    "(objectclass=*)", attrs, false, cons);
+
+                searchConn = conn;
+                searchResults = results;
+
+                // the groups might have changed while the search was not running
+                ugSubsystem.groupsChanged();
+
+                while (running && results.hasMoreElements()) {
+
+                    LDAPEntry entry = results.next();
+
+                    LDAPEntryChangeControl changeControl = (LDAPEntryChangeControl)
+                        LDAPUtil.getControl(
+                            LDAPEntryChangeControl.class, results.getResponseControls());
+
+                    if (changeControl == null) {
+                        continue;
+                    }
+
+                    int changeType = changeControl.getChangeType();
+                    logger.debug("GroupMonitor: Change type " + changeType + ": " + entry.getDN());
+
+                    if (changeType == LDAPPersistSearchControl.MODDN) {
+                        groupChanged(changeControl.getPreviousDN());
+                    }
+
+                    groupChanged(entry.getDN());
+                }
+
+            } catch (DBException e) {
+                logger.warn("GroupMonitor: Unable to get LDAP connection: " + e.getMessage());
+                sleep();
+
+            } catch (LDAPException e) {
+                if (running) {
+                    logger.warn("GroupMonitor: Unable to monitor groups: " + e.getMessage(), e);
+                    sleep();
+                }
+
+            } finally {
+                searchConn = null;
+                searchResults = null;
+
+                if (conn != null) {
+                    ugSubsystem.returnConn(conn);
+                }
+            }
+        }
+
+        logger.info("GroupMonitor: Stopping group monitor");
+    }
+
+    void groupChanged(String dn) {
+
+        if (dn == null) {
+            ugSubsystem.groupsChanged();
+            return;
+        }
+
+        String[] rdns = LDAPDN.explodeDN(dn, true);
+        if (rdns == null || rdns.length == 0) {
+            ugSubsystem.groupsChanged();
+            return;
+        }
+
+        ugSubsystem.groupChanged(rdns[0]);
+    }
+
+    void sleep() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
@@ -85,8 +86,18 @@ public class UGSubsystem {
 
     protected CMSEngine engine;
     protected transient LdapBoundConnFactory mLdapConnFactory = null;
+
+    /**
+     * Incremented whenever group memberships are changed through
+     * this subsystem, so cached authorization decisions can be
+     * invalidated.
+     */
+    private final AtomicLong groupsVersion = new AtomicLong();
     protected String mBaseDN = null;
 
+    protected GroupMembershipCache membershipCache;
+    protected GroupMonitor groupMonitor;
+
     /**
      * Constructs LDAP based usr/grp management
      */
@@ -123,16 +134,52 @@ public class UGSubsystem {
         }
         socketFactory.init(socketConfig);
 
-        mLdapConnFactory = new LdapBoundConnFactory("UGSubsystem");
+        mLdapConnFactory = LdapBoundConnFactory.create("UGSubsystem", false, ldapConfig);
         mLdapConnFactory.setSocketFactory(socketFactory);
         mLdapConnFactory.setPasswordStore(passwordStore);
         mLdapConnFactory.init(ldapConfig);
     }
 
+    /**
+     * Enables the group membership cache. If configured, the groups are
+     * monitored so the cache is invalidated when the groups are changed
+     * outside of this subsystem.
+     */
+    public void initGroupMembershipCache(GroupMembershipCacheConfig config) throws Exception {
+
+        if (!config.getEnable()) {
+            logger.info("UGSubsystem: Group membership cache is disabled");
+            return;
+        }
+
+        GroupMembershipCache cache = new GroupMembershipCache();
+        cache.init(config);
+        membershipCache = cache;
+
+        if (config.getMonitor()) {
+            groupMonitor = new GroupMonitor(this, getGroupBaseDN());
+            groupMonitor.start();
+        }
+    }
+
+    public GroupMembershipCache getGroupMembershipCache() {
+        return membershipCache;
+    }
+
     /**
      * Disconnects usr/grp manager from the LDAP
      */
     public void shutdown() {
+
+        if (groupMonitor != null) {
+            groupMonitor.stop();
+            groupMonitor = null;
+        }
+
+        if (membershipCache != null) {
+            logger.info("UGSubsystem: Group membership cache: " + membershipCache.getStatistics());
+        }
+
         try {
             if (mLdapConnFactory != null) {
                 mLdapConnFactory.reset();
@@ -1086,6 +1133,7 @@ public class UGSubsystem {
                     LDAPModification.ADD, memberAttr);
 
             ldapconn.modify(groupDN, singleChange);
+            groupChanged(grp.getGroupID());
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -1114,6 +1162,7 @@ public class UGSubsystem {
                     LDAPModification.DELETE, memberAttr);
 
             ldapconn.modify(groupDN, singleChange);
+            groupChanged(grp.getGroupID());
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -1140,6 +1189,7 @@ public class UGSubsystem {
         try {
             ldapconn = getConn();
             ldapconn.delete("uid=" + LDAPUtil.escapeRDNValue(userid) + "," + getUserBaseDN());
+            groupsChanged();
             // for audit log
             SessionContext sessionContext = SessionContext.getContext();
             String adminId = (String) sessionContext.get(SessionContext.USER_ID);
@@ -1589,6 +1639,34 @@ public class UGSubsystem {
         return null;
     }
 
+    /**
+     * Returns a counter that changes whenever group memberships
+     * are changed through this subsystem.
+     */
+    public long getGroupsVersion() {
+        return groupsVersion.get();
+    }
+
+    /**
+     * Invalidates cached information about group memberships.
+     */
+    public void groupsChanged() {
+        if (membershipCache != null) {
+            membershipCache.invalidate();
+        }
+        groupsVersion.incrementAndGet();
+    }
+
+    /**
+     * Invalidates cached information about the members of a group.
+     */
+    public void groupChanged(String name) {
+        if (membershipCache != null) {
+            membershipCache.invalidate(name);
+        }
+        groupsVersion.incrementAndGet();
+    }
+
     /**
      * Checks if the given group exists
      */
@@ -1660,9 +1738,42 @@ public class UGSubsystem {
 
     /**
      * checks if the given user DN is in the specified group
-     * by running an ldap search for the user in the group
+     * by running an ldap search for the user in the group,
+     * unless the result is in the group membership cache
      */
     protected boolean isMemberOfLdapGroup(String userid, String groupname) {
+        try {
+            if (membershipCache != null && userid != null) {
+                return membershipCache.isMemberOf(userid, groupname,
+                        () -> searchLdapGroup(userid, groupname));
+            }
+            return searchLdapGroup(userid, groupname);
+
+        } catch (LDAPException e) {
+            String errMsg =
+                    "isMemberOfLdapGroup: could not find group " + groupname + ". Error " + e;
+            if (e.getLDAPResultCode() == LDAPException.UNAVAILABLE) {
+                errMsg = "isMemberOfLdapGroup: " + "Internal DB is unavailable";
+            }
+            logger.warn("UGSubsystem: authorization exception: " + errMsg);
+
+        } catch (DBException e) {
+            String errMsg =
+                    "isMemberOfLdapGroup: Could not get connection to internaldb. Error " + e;
+            logger.warn("UGSubsystem: authorization exception: " + errMsg);
+
+        } catch (Exception e) {
+            logger.warn("UGSubsystem: authorization exception: " + e.getMessage(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Runs an ldap search for the user DN in the specified group.
+     * A failed search throws an exception so that it is not
+     * mistaken for a negative result.
+     */
+    protected boolean searchLdapGroup(String userid, String groupname) throws LDAPException, DBException {
         String basedn = "cn=" + LDAPUtil.escapeRDNValue(groupname) + ",ou=groups," + mBaseDN;
         LDAPConnection ldapconn = null;
         boolean founduser = false;
@@ -1691,18 +1802,13 @@ public class UGSubsystem {
                 founduser = true;
             }
             logger.trace("authorization result: " + founduser);
+
         } catch (LDAPException e) {
-            String errMsg =
-                    "isMemberOfLdapGroup: could not find group " + groupname + ". Error " + e;
-            if (e.getLDAPResultCode() == LDAPException.UNAVAILABLE) {
-                errMsg = "isMemberOfLdapGroup: " + "Internal DB is unavailable";
+            if (e.getLDAPResultCode() != LDAPException.NO_SUCH_OBJECT) {
+                throw e;
             }
-            logger.warn("UGSubsystem: authorization exception: " + errMsg);
-
-        } catch (DBException e) {
-            String errMsg =
-                    "isMemberOfLdapGroup: Could not get connection to internaldb. Error " + e;
-            logger.warn("UGSubsystem: authorization exception: " + errMsg);
+            // a missing group has no members, the result can be cached
+            logger.debug("UGSubsystem: Group not found: " + groupname);
 
         } finally {
             if (ldapconn != null)
@@ -1762,6 +1868,7 @@ public class UGSubsystem {
 
             ldapconn = getConn();
             ldapconn.add(entry);
+            groupsChanged();
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -1790,6 +1897,7 @@ public class UGSubsystem {
         try {
             ldapconn = getConn();
             ldapconn.delete("cn=" + LDAPUtil.escapeRDNValue(name) + "," + getGroupBaseDN());
+            groupsChanged();
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
@@ -1850,6 +1958,7 @@ public class UGSubsystem {
 
             ldapconn = getConn();
             ldapconn.modify(dn, mod);
+            groupsChanged();
 
         } catch (LDAPException e) {
             throw LDAPExceptionConverter.toPKIException(e);
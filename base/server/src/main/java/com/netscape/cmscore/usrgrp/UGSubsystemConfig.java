@@ -27,4 +27,8 @@ public class UGSubsystemConfig extends ConfigStore {
     public LDAPConfig getLDAPConfig() throws EBaseException {
         return getSubStore("ldap", LDAPConfig.class);
     }
+
+    public GroupMembershipCacheConfig getGroupMembershipCacheConfig() {
+        return getSubStore("cache", GroupMembershipCacheConfig.class);
+    }
 }
@@ -44,6 +44,14 @@ public class RevocationCheckingConfig extends ConfigStore {
         return getInteger("validityInterval", 28800);
     }
 
+    /**
+     * Returns auths.revocationChecking.revokedInterval parameter.
+     * By default revoked certs are cached as long as valid certs.
+     */
+    public int getRevokedInterval() throws EBaseException {
+        return getInteger("revokedInterval", getValidityInterval());
+    }
+
     /**
      * Returns auths.revocationChecking.unknownStateInterval parameter.
      */
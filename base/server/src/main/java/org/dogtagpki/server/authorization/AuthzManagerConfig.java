@@ -38,6 +38,27 @@ public class AuthzManagerConfig extends ConfigStore {
         return getString("realm", null);
     }
 
+    /**
+     * Returns authz.instance.<name>.cache.enable parameter.
+     */
+    public boolean getCacheEnabled() throws EBaseException {
+        return getBoolean("cache.enable", false);
+    }
+
+    /**
+     * Returns authz.instance.<name>.cache.size parameter.
+     */
+    public int getCacheSize() throws EBaseException {
+        return getInteger("cache.size", 10000);
+    }
+
+    /**
+     * Returns authz.instance.<name>.cache.ttl parameter (in seconds).
+     */
+    public int getCacheTTL() throws EBaseException {
+        return getInteger("cache.ttl", 60);
+    }
+
     /**
      * Returns authz.instance.<name>.ldap.* parameters.
      */
@@ -66,7 +66,7 @@ public class ACLInterceptor implements ContainerRequestFilter {
     private final static String LOGGING_MISSING_ACL_MAPPING = "ACL mapping not found; OK";
     private final static String LOGGING_INVALID_ACL_MAPPING = "internal error: invalid ACL mapping";
 
-    Properties properties;
+    volatile Properties properties;
 
     @Context
     ServletContext servletContext;
@@ -78,12 +78,21 @@ public class ACLInterceptor implements ContainerRequestFilter {
         return (CMSEngine) servletContext.getAttribute("engine");
     }
 
-    public synchronized void loadProperties() throws IOException {
+    public void loadProperties() throws IOException {
 
         if (properties != null)
             return;
 
-        properties = new Properties();
+        synchronized (this) {
+            if (properties == null) {
+                properties = readProperties();
+            }
+        }
+    }
+
+    Properties readProperties() throws IOException {
+
+        Properties props = new Properties();
 
         String context = servletContext.getContextPath();
         String subsystem = context.startsWith("/") ? context.substring(1) : context;
@@ -92,7 +101,7 @@ public class ACLInterceptor implements ContainerRequestFilter {
         String defaultMapping = "/usr/share/pki/" + subsystem + "/conf/acl.properties";
         logger.debug("ACLInterceptor: loading " + defaultMapping);
         try (FileReader in = new FileReader(defaultMapping)) {
-            properties.load(in);
+            props.load(in);
         }
 
         // load custom mapping
@@ -102,9 +111,11 @@ public class ACLInterceptor implements ContainerRequestFilter {
         if (customMapping.exists()) {
             logger.debug("ACLInterceptor: loading " + customMapping);
             try (FileReader in = new FileReader(customMapping)) {
-                properties.load(in);
+                props.load(in);
             }
         }
+
+        return props;
     }
 
     @Override
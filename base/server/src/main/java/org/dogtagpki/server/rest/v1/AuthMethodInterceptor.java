@@ -52,7 +52,7 @@ public class AuthMethodInterceptor implements ContainerRequestFilter {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AuthMethodInterceptor.class);
 
-    Properties properties;
+    volatile Properties properties;
 
     @Context
     ServletContext servletContext;
@@ -60,12 +60,21 @@ public class AuthMethodInterceptor implements ContainerRequestFilter {
     @Context
     SecurityContext securityContext;
 
-    public synchronized void loadProperties() throws IOException {
+    public void loadProperties() throws IOException {
 
         if (properties != null)
             return;
 
-        properties = new Properties();
+        synchronized (this) {
+            if (properties == null) {
+                properties = readProperties();
+            }
+        }
+    }
+
+    Properties readProperties() throws IOException {
+
+        Properties props = new Properties();
 
         String context = servletContext.getContextPath();
         String subsystem = context.startsWith("/") ? context.substring(1) : context;
@@ -74,7 +83,7 @@ public class AuthMethodInterceptor implements ContainerRequestFilter {
         String defaultMapping = "/usr/share/pki/" + subsystem + "/conf/auth-method.properties";
         logger.debug("AuthMethodInterceptor: loading " + defaultMapping);
         try (FileReader in = new FileReader(defaultMapping)) {
-            properties.load(in);
+            props.load(in);
         }
 
         // load custom mapping
@@ -84,9 +93,11 @@ public class AuthMethodInterceptor implements ContainerRequestFilter {
         if (customMapping.exists()) {
             logger.debug("AuthMethodInterceptor: loading " + customMapping);
             try (FileReader in = new FileReader(customMapping)) {
-                properties.load(in);
+                props.load(in);
             }
         }
+
+        return props;
     }
 
     @Override
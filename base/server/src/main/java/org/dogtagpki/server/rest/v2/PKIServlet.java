@@ -8,19 +8,20 @@ package org.dogtagpki.server.rest.v2;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.Principal;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -63,24 +64,53 @@ public abstract class PKIServlet extends HttpServlet {
         GET, POST, PATCH, PUT, DELETE, HEAD
     }
 
+    private static final MethodType ACTION_TYPE = MethodType.methodType(
+            void.class, PKIServlet.class, HttpServletRequest.class, HttpServletResponse.class);
+
     protected Map<String, Method> webActions;
 
+    // compiled from webActions during init
+    private RouteTable<WebActionHandler> routes;
 
     @Override
     public void init() throws ServletException {
         super.init();
         webActions = new HashMap<>();
+        routes = new RouteTable<>();
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
 
         for (Method method : this.getClass().getMethods()) {
             WebAction wActions = method.getAnnotation(WebAction.class);
             if (wActions == null)
                 continue;
+
+            WebActionHandler handler = new WebActionHandler(method, createMethodHandle(lookup, method));
+
             HttpMethod met = wActions.method();
             String[] paths = wActions.paths();
             for (String path: paths) {
                 logger.debug("PKIServlet: class {} handle: {}:{}", this.getClass(), met, path);
                 webActions.put(met.toString() + ":" + path, method);
+                routes.put(met.toString(), path, handler);
+            }
+        }
+    }
+
+    private MethodHandle createMethodHandle(MethodHandles.Lookup lookup, Method method) throws ServletException {
+        try {
+            MethodHandle handle;
+            try {
+                handle = lookup.unreflect(method);
+            } catch (IllegalAccessException e) {
+                // e.g. public method in a non-public servlet class
+                method.setAccessible(true);
+                handle = lookup.unreflect(method);
             }
+            return handle.asType(ACTION_TYPE);
+
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new ServletException("Invalid web action " + method + ": " + e.getMessage(), e);
         }
     }
 
@@ -129,21 +159,21 @@ public abstract class PKIServlet extends HttpServlet {
 
         try {
             setSessionContext(request);
-            Method actionMethod = getActionMethod(method, request.getPathInfo());
+            WebActionHandler handler = getActionHandler(method, request.getPathInfo());
 
-            if (actionMethod == null) {
+            if (handler == null) {
                 String allowMethods = getAllowedMethods(request.getPathInfo());
                 if (allowMethods == null) {
                         response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 } else {
                         response.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
-                        response.setHeader("Allow: ", allowMethods);
+                        response.setHeader("Allow", allowMethods);
                 }
                 return;
             }
 
-            logger.info("PKIServlet: Invoking " + getClass().getSimpleName() + "." + actionMethod.getName() + "()");
-            actionMethod.invoke(this, request, response);
+            logger.info("PKIServlet: Invoking " + getClass().getSimpleName() + "." + handler.method().getName() + "()");
+            handler.invoke(this, request, response);
 
         } catch (InvocationTargetException ite) {
 
@@ -163,48 +193,28 @@ public abstract class PKIServlet extends HttpServlet {
         }
     }
 
+    private WebActionHandler getActionHandler(HttpMethod met, String path) {
+        return routes.get(met.toString(), getRelativePath(path));
+    }
+
     public Method getActionMethod(HttpMethod met, String path) {
-        final String reqMethod;
-        if (path == null) {
-            reqMethod = met.toString() + ":";
-        } else {
-            reqMethod = met.toString() + ":" + (path.startsWith("/") ? path.substring(1) : path);
-        }
-        String keyPath = webActions.keySet().stream().
-                filter( key -> {
-                    String keyRegex = key.replace("{}", "([^/]+)");
-                    return reqMethod.matches(keyRegex);
-                    } ).
-                sorted(Comparator.naturalOrder()).
-                findFirst().
-                orElse(null);
-        return keyPath == null ? null : webActions.get(keyPath);
+        WebActionHandler handler = getActionHandler(met, path);
+        return handler == null ? null : handler.method();
     }
 
     public String getAllowedMethods(String path) {
-        final String matchingPath;
-        if (path == null) {
-            matchingPath = "";
-        } else {
-            matchingPath = path.startsWith("/") ? path.substring(1) : path;
-        }
-        List<String> keyPaths = webActions.keySet().stream().
-                filter( key -> {
-                    String keyRegex = key.substring(key.indexOf(":") + 1);
-                    keyRegex = keyRegex.replace("{}", "([^/]+)");
-                    return matchingPath.matches(keyRegex);
-                    }).
-                collect(Collectors.toList());
-        if (keyPaths == null || keyPaths.isEmpty()) {
+        Set<String> methods = routes.getMethods(getRelativePath(path));
+        if (methods.isEmpty()) {
             return null;
         }
-        StringBuilder methods = new StringBuilder();
-        for (String k: keyPaths) {
-            if (methods.indexOf(k) == -1) {
-                methods.append(k.substring(0, k.indexOf(":"))).append(", ");
-            }
+        return String.join(", ", methods);
+    }
+
+    private static String getRelativePath(String path) {
+        if (path == null) {
+            return "";
         }
-        return methods.substring(0, methods.lastIndexOf(","));
+        return path.startsWith("/") ? path.substring(1) : path;
     }
 
     protected String getSubsystemName() {
@@ -277,4 +287,20 @@ public abstract class PKIServlet extends HttpServlet {
         if (principal instanceof PKIPrincipal pr)
             context.put(SessionContext.USER, pr.getUser());
     }
+
+    /**
+     * A web action method with a cached method handle.
+     */
+    record WebActionHandler(Method method, MethodHandle handle) {
+
+        void invoke(PKIServlet servlet, HttpServletRequest request, HttpServletResponse response)
+                throws InvocationTargetException {
+            try {
+                handle.invokeExact(servlet, request, response);
+            } catch (Throwable e) {
+                // report the exception the same way as Method.invoke()
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
 }
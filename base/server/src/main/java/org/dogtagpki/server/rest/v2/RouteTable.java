@@ -0,0 +1,163 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.rest.v2;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * This class maps REST endpoints to values (e.g. action methods, ACLs,
+ * or authentication methods).
+ *
+ * The endpoints are specified with keys in the following format:
+ *
+ *    key= <method>:<path>
+ *
+ * The path is relative to the servlet and may contain "{}" segments
+ * that match any non-empty path segment. The keys are compiled into
+ * a tree of path segments so a request can be resolved without
+ * scanning all keys.
+ *
+ * If multiple keys match a request, the key with a literal segment
+ * takes precedence over the key with "{}" at the first differing
+ * segment (e.g. POST:raw over POST:{}).
+ *
+ * The table should be populated during initialization and then
+ * only be read.
+ */
+public class RouteTable<T> {
+
+    public static final String WILDCARD = "{}";
+
+    private Node<T> root = new Node<>();
+    private int size;
+
+    public RouteTable() {
+    }
+
+    public RouteTable(Map<String, T> map) {
+        for (Map.Entry<String, T> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Adds a value for a key in <method>:<path> format.
+     */
+    public void put(String key, T value) {
+
+        int i = key.indexOf(':');
+        if (i < 0) {
+            throw new IllegalArgumentException("Invalid route: " + key);
+        }
+
+        put(key.substring(0, i), key.substring(i + 1), value);
+    }
+
+    public void put(String method, String path, T value) {
+
+        Node<T> node = root;
+
+        for (String segment : split(path)) {
+            if (WILDCARD.equals(segment)) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node<>();
+                }
+                node = node.wildcard;
+            } else {
+                node = node.children.computeIfAbsent(segment, s -> new Node<>());
+            }
+        }
+
+        if (node.values.put(method, value) == null) {
+            size++;
+        }
+    }
+
+    /**
+     * Returns the value for a request, or null if there is no match.
+     *
+     * @param method HTTP method
+     * @param path path relative to the servlet without the leading slash
+     */
+    public T get(String method, String path) {
+        return find(root, split(path), 0, method);
+    }
+
+    T find(Node<T> node, String[] segments, int index, String method) {
+
+        if (index == segments.length) {
+            return node.values.get(method);
+        }
+
+        String segment = segments[index];
+
+        Node<T> child = node.children.get(segment);
+        if (child != null) {
+            T value = find(child, segments, index + 1, method);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        if (node.wildcard != null && !segment.isEmpty()) {
+            return find(node.wildcard, segments, index + 1, method);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the sorted HTTP methods that have a value for a path.
+     */
+    public Set<String> getMethods(String path) {
+        Set<String> methods = new TreeSet<>();
+        collectMethods(root, split(path), 0, methods);
+        return methods;
+    }
+
+    void collectMethods(Node<T> node, String[] segments, int index, Set<String> methods) {
+
+        if (index == segments.length) {
+            methods.addAll(node.values.keySet());
+            return;
+        }
+
+        String segment = segments[index];
+
+        Node<T> child = node.children.get(segment);
+        if (child != null) {
+            collectMethods(child, segments, index + 1, methods);
+        }
+
+        if (node.wildcard != null && !segment.isEmpty()) {
+            collectMethods(node.wildcard, segments, index + 1, methods);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    static String[] split(String path) {
+        if (path == null || path.isEmpty()) {
+            return new String[0];
+        }
+        return path.split("/", -1);
+    }
+
+    static class Node<T> {
+        Map<String, Node<T>> children = new HashMap<>();
+        Node<T> wildcard;
+        Map<String, T> values = new HashMap<>();
+    }
+}
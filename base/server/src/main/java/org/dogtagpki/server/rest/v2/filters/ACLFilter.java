@@ -12,7 +12,6 @@ import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.Principal;
-import java.util.Comparator;
 import java.util.Map;
 import java.util.Properties;
 
@@ -28,6 +27,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.catalina.realm.GenericPrincipal;
 import org.dogtagpki.server.authentication.AuthToken;
 import org.dogtagpki.server.authorization.AuthzToken;
+import org.dogtagpki.server.rest.v2.RouteTable;
 
 import com.netscape.certsrv.authentication.ExternalAuthToken;
 import com.netscape.certsrv.authorization.EAuthzAccessDenied;
@@ -58,6 +58,9 @@ import com.netscape.cmscore.logging.Auditor;
  * The path is the endpoint in the associated servlet where the ACL has to be applied. If there is a REST path param this can be indicated
  * with the sequence "{}".
  *
+ * If multiple keys match a request, the key with a literal path segment takes precedence
+ * over the key with "{}" in the same position.
+ *
  * Example of ACL a servlet handking token could be:
  *
  *   default acl: token.read
@@ -80,9 +83,9 @@ public abstract class ACLFilter extends HttpFilter {
     private static final String LOGGING_MISSING_AUTH_TOKEN = "auth token not found";
     private static final String LOGGING_MISSING_ACL_MAPPING = "ACL mapping not found; OK";
     private static final String LOGGING_INVALID_ACL_MAPPING = "internal error: invalid ACL mapping";
-    private Properties aclProperties;
+    private volatile Properties aclProperties;
     private String defaultAcl;
-    private Map<String, String> aclMap;
+    private RouteTable<String> aclRoutes;
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
@@ -93,18 +96,10 @@ public abstract class ACLFilter extends HttpFilter {
                 response instanceof HttpServletResponse resp) {
             method = req.getMethod();
             path = req.getPathInfo() != null ? req.getPathInfo().substring(1) : "";
-            final String aclSearch = method + ":" + path;
-            if (aclMap!=null) {
-                String aclKey = aclMap.keySet().stream().
-                        filter( key -> {
-                            String keyRegex = key.replace("{}", "([^/]+)");
-                            return aclSearch.matches(keyRegex);
-                        } ).
-                        sorted(Comparator.reverseOrder()).
-                        findFirst().
-                        orElse(null);
-                if (aclKey != null) {
-                    acl = aclMap.get(aclKey);
+            if (aclRoutes != null) {
+                String mappedAcl = aclRoutes.get(method, path);
+                if (mappedAcl != null) {
+                    acl = mappedAcl;
                 }
             }
             try {
@@ -125,12 +120,21 @@ public abstract class ACLFilter extends HttpFilter {
         return (CMSEngine) servletContext.getAttribute("engine");
     }
 
-    private synchronized void loadACLProperties() throws IOException {
+    private void loadACLProperties() throws IOException {
 
         if (aclProperties != null)
             return;
 
-        aclProperties = new Properties();
+        synchronized (this) {
+            if (aclProperties == null) {
+                aclProperties = readACLProperties();
+            }
+        }
+    }
+
+    private Properties readACLProperties() throws IOException {
+
+        Properties properties = new Properties();
 
         String context = getServletContext().getContextPath();
         String subsystem = context.startsWith("/") ? context.substring(1) : context;
@@ -140,7 +144,7 @@ public abstract class ACLFilter extends HttpFilter {
         File defaultMapping = defaultMappingACL.toFile();
         logger.debug("ACLFilter: loading {}", defaultMappingACL);
         try (FileReader in = new FileReader(defaultMapping)) {
-            aclProperties.load(in);
+            properties.load(in);
         }
 
         // load custom mapping
@@ -150,9 +154,11 @@ public abstract class ACLFilter extends HttpFilter {
         if (customMapping.exists()) {
             logger.debug("ACLFilter: loading {}",   customMappingACL);
             try (FileReader in = new FileReader(customMapping)) {
-                aclProperties.load(in);
+                properties.load(in);
             }
         }
+
+        return properties;
     }
 
     protected void checkACL(HttpServletRequest request, String aclName) throws ForbiddenException {
@@ -376,6 +382,6 @@ public abstract class ACLFilter extends HttpFilter {
     }
 
     public void setAclMap(Map<String,String> acls) {
-        this.aclMap = acls;
+        this.aclRoutes = acls == null ? null : new RouteTable<>(acls);
     }
 }
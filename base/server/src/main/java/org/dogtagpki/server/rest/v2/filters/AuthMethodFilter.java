@@ -13,7 +13,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.Principal;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
@@ -28,6 +27,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.catalina.realm.GenericPrincipal;
 import org.dogtagpki.server.authentication.AuthToken;
+import org.dogtagpki.server.rest.v2.RouteTable;
 
 import com.netscape.certsrv.authentication.ExternalAuthToken;
 import com.netscape.certsrv.base.ForbiddenException;
@@ -50,6 +50,9 @@ import com.netscape.cmscore.apps.CMS;
  * The path is the endpoint in the associated servlet where the ACL has to be applied. If there is a REST path param this can be indicated
  * with the sequence "{}".
  *
+ * If multiple keys match a request, the key with a literal path segment takes precedence
+ * over the key with "{}" in the same position.
+ *
  * Example of ACL a servlet handking token could be:
  *
  *   default authMethod: token.read
@@ -67,9 +70,9 @@ public abstract class AuthMethodFilter extends HttpFilter {
 
     private static final long serialVersionUID = 1L;
     public static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AuthMethodFilter.class);
-    private Properties authProperties;
+    private volatile Properties authProperties;
     private String defaultAuthMethod;
-    private Map<String, String> authMethodMap;
+    private RouteTable<String> authMethodRoutes;
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
@@ -80,18 +83,10 @@ public abstract class AuthMethodFilter extends HttpFilter {
                 response instanceof HttpServletResponse resp) {
             method = req.getMethod();
             path = req.getPathInfo() != null ? req.getPathInfo().substring(1) : "";
-            final String authMethodSearch = method + ":" + path;
-            if (authMethodMap!=null) {
-                String autMethodKey = authMethodMap.keySet().stream().
-                        filter( key -> {
-                            String keyRegex = key.replace("{}", "([^/]+)");
-                            return authMethodSearch.matches(keyRegex);
-                        } ).
-                        sorted(Comparator.naturalOrder()).
-                        findFirst().
-                        orElse(null);
-                if (autMethodKey != null) {
-                    authMethod = authMethodMap.get(autMethodKey);
+            if (authMethodRoutes != null) {
+                String mappedAuthMethod = authMethodRoutes.get(method, path);
+                if (mappedAuthMethod != null) {
+                    authMethod = mappedAuthMethod;
                 }
             }
             try {
@@ -107,11 +102,20 @@ public abstract class AuthMethodFilter extends HttpFilter {
         }
     }
 
-    private synchronized void loadAuthProperties() throws IOException {
+    private void loadAuthProperties() throws IOException {
         if (authProperties != null)
             return;
 
-        authProperties = new Properties();
+        synchronized (this) {
+            if (authProperties == null) {
+                authProperties = readAuthProperties();
+            }
+        }
+    }
+
+    private Properties readAuthProperties() throws IOException {
+
+        Properties properties = new Properties();
         String context = getServletContext().getContextPath();
         String subsystem = context.startsWith("/") ? context.substring(1) : context;
 
@@ -120,7 +124,7 @@ public abstract class AuthMethodFilter extends HttpFilter {
         File defaultMapping = defaultMappingAuth.toFile();
         logger.debug("AuthMethodFilter: loading {}", defaultMapping);
         try (FileReader in = new FileReader(defaultMapping)) {
-            authProperties.load(in);
+            properties.load(in);
         }
 
         // load custom mapping
@@ -130,9 +134,11 @@ public abstract class AuthMethodFilter extends HttpFilter {
         if (customMapping.exists()) {
             logger.debug("AuthMethodFilter: loading {}", customMapping);
             try (FileReader in = new FileReader(customMapping)) {
-                authProperties.load(in);
+                properties.load(in);
             }
         }
+
+        return properties;
     }
 
     protected void checkAuthenticationMethod(HttpServletRequest request, String authMethName) throws ForbiddenException {
@@ -208,6 +214,6 @@ public abstract class AuthMethodFilter extends HttpFilter {
     }
 
     public void setAuthMethodMap(Map<String, String> authMethodMap) {
-        this.authMethodMap = authMethodMap;
+        this.authMethodRoutes = authMethodMap == null ? null : new RouteTable<>(authMethodMap);
     }
 }
@@ -0,0 +1,110 @@
+package com.netscape.cms.authorization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.dogtagpki.server.authentication.AuthToken;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.evaluators.AccessEvaluator;
+
+public class ACLExpressionTest {
+
+    static Map<String, AccessEvaluator> evaluators;
+
+    @BeforeAll
+    public static void setUp() {
+        evaluators = Map.of("user", new TestEvaluator());
+    }
+
+    static AuthToken createToken(String uid) {
+        AuthToken authToken = new AuthToken(null);
+        authToken.set(AuthToken.UID, uid);
+        return authToken;
+    }
+
+    @Test
+    public void testSingleExpression() {
+        ACLExpression expression = ACLExpression.parse("user=\"alice\"");
+
+        assertTrue(expression.evaluate(createToken("alice"), evaluators));
+        assertFalse(expression.evaluate(createToken("bob"), evaluators));
+    }
+
+    @Test
+    public void testNotEqual() {
+        ACLExpression expression = ACLExpression.parse("user!=\"alice\"");
+
+        assertFalse(expression.evaluate(createToken("alice"), evaluators));
+        assertTrue(expression.evaluate(createToken("bob"), evaluators));
+    }
+
+    @Test
+    public void testLeftToRight() {
+        // evaluated as (alice || bob) && carol, not alice || (bob && carol)
+        ACLExpression expression = ACLExpression.parse(
+                "user=\"alice\" || user=\"bob\" && user=\"carol\"");
+
+        assertFalse(expression.evaluate(createToken("alice"), evaluators));
+        assertFalse(expression.evaluate(createToken("carol"), evaluators));
+
+        expression = ACLExpression.parse(
+                "user=\"alice\" && user=\"bob\" || user=\"carol\"");
+
+        assertTrue(expression.evaluate(createToken("carol"), evaluators));
+        assertFalse(expression.evaluate(createToken("alice"), evaluators));
+    }
+
+    @Test
+    public void testEmptyExpression() {
+        ACLExpression expression = ACLExpression.parse("");
+        assertFalse(expression.evaluate(createToken("alice"), evaluators));
+    }
+
+    @Test
+    public void testUsesOnly() {
+        ACLExpression expression = ACLExpression.parse("user=\"alice\" || ipaddress=\"127.0.0.1\"");
+
+        assertTrue(expression.evaluate(createToken("alice"), evaluators));
+        assertFalse(expression.usesOnly(Set.of("user", "group")));
+        assertTrue(ACLExpression.parse("user=\"alice\" || group=\"Admins\"").usesOnly(Set.of("user", "group")));
+    }
+
+    @Test
+    public void testToString() {
+        String s = "user=\"alice\" || user=\"bob\"";
+        assertEquals(s, ACLExpression.parse(s).toString());
+    }
+
+    static class TestEvaluator extends AccessEvaluator {
+
+        TestEvaluator() {
+            type = "user";
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public boolean evaluate(String type, String op, String value) {
+            return false;
+        }
+
+        @Override
+        public boolean evaluate(AuthToken authToken, String type, String op, String value) {
+            boolean matched = value.equals("\"" + authToken.getInString(AuthToken.UID) + "\"");
+            return op.equals("=") ? matched : !matched;
+        }
+
+        @Override
+        public String[] getSupportedOperators() {
+            return new String[] { "=", "!=" };
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.netscape.cms.request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.request.RequestId;
+import com.netscape.cmscore.base.SimpleProperties;
+import com.netscape.cmscore.request.Request;
+
+public class RequestSchedulerTest {
+
+    static Request createRequest(int id, String type) {
+        Request request = new Request(new RequestId(id));
+        request.setRequestType(type);
+        return request;
+    }
+
+    static RequestSchedulerConfig createConfig() {
+        return new RequestSchedulerConfig("requestScheduler", new SimpleProperties());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+
+        RequestScheduler scheduler = new RequestScheduler();
+        scheduler.init(createConfig());
+
+        assertFalse(scheduler.isEnabled());
+
+        // without limits the requests are not tracked
+        Request request = createRequest(1, Request.ENROLLMENT_REQUEST);
+        scheduler.requestIn(request);
+        scheduler.requestIn(request);
+        scheduler.requestOut(request);
+        scheduler.requestOut(request);
+    }
+
+    @Test
+    public void testTypes() throws Exception {
+        assertEquals(RequestScheduler.ENROLLMENT, RequestScheduler.getType(createRequest(1, Request.ENROLLMENT_REQUEST)));
+        assertEquals(RequestScheduler.RENEWAL, RequestScheduler.getType(createRequest(2, Request.RENEWAL_REQUEST)));
+        assertEquals(RequestScheduler.REVOCATION, RequestScheduler.getType(createRequest(3, Request.CMCREVOKE_REQUEST)));
+        assertEquals(RequestScheduler.RECOVERY, RequestScheduler.getType(createRequest(4, Request.KEYRECOVERY_REQUEST)));
+        assertEquals(RequestScheduler.OTHER, RequestScheduler.getType(createRequest(5, Request.GETCRL_REQUEST)));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+
+        RequestSchedulerConfig config = createConfig();
+        config.putInteger("enrollment.maxConcurrent", 1);
+        config.putInteger("timeout", 1);
+
+        RequestScheduler scheduler = new RequestScheduler();
+        scheduler.init(config);
+
+        Request request1 = createRequest(1, Request.ENROLLMENT_REQUEST);
+        scheduler.requestIn(request1);
+
+        // other types are not limited by the enrollment limit
+        Request request2 = createRequest(2, Request.REVOCATION_REQUEST);
+        scheduler.requestIn(request2);
+        scheduler.requestOut(request2);
+
+        Request request3 = createRequest(3, Request.ENROLLMENT_REQUEST);
+        assertThrows(RequestRejectedException.class, () -> scheduler.requestIn(request3));
+
+        scheduler.requestOut(request1);
+        scheduler.requestIn(request3);
+        scheduler.requestOut(request3);
+    }
+
+    @Test
+    public void testMaxQueueSize() throws Exception {
+
+        RequestSchedulerConfig config = createConfig();
+        config.putInteger("maxConcurrent", 1);
+        config.putInteger("maxQueueSize", 1);
+
+        RequestScheduler scheduler = new RequestScheduler();
+        scheduler.init(config);
+
+        Request request1 = createRequest(1, Request.ENROLLMENT_REQUEST);
+        scheduler.requestIn(request1);
+
+        Request request2 = createRequest(2, Request.ENROLLMENT_REQUEST);
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                scheduler.requestIn(request2);
+                admitted.countDown();
+                scheduler.requestOut(request2);
+            } catch (Exception e) {
+                // the test will time out
+            }
+        });
+        thread.start();
+
+        while (!scheduler.getStatisticsMap().get("waiting").equals(1)) {
+            Thread.sleep(10);
+        }
+
+        Request request3 = createRequest(3, Request.ENROLLMENT_REQUEST);
+        assertThrows(RequestRejectedException.class, () -> scheduler.requestIn(request3));
+
+        scheduler.requestOut(request1);
+        assertTrue(admitted.await(10, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void testFairOrdering() throws Exception {
+
+        RequestSchedulerConfig config = createConfig();
+        config.putInteger("maxConcurrent", 1);
+        config.putString("ordering", "fair");
+        config.putInteger("revocation.weight", 2);
+
+        RequestScheduler scheduler = new RequestScheduler();
+        scheduler.init(config);
+
+        Request first = createRequest(0, Request.ENROLLMENT_REQUEST);
+        scheduler.requestIn(first);
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+
+        // queue a burst of enrollments followed by revocations
+        for (int i = 1; i <= 6; i++) {
+            String type = i <= 4 ? Request.ENROLLMENT_REQUEST : Request.REVOCATION_REQUEST;
+            Request request = createRequest(i, type);
+            Thread thread = new Thread(() -> {
+                try {
+                    scheduler.requestIn(request);
+                    order.add(request.getRequestType());
+                    scheduler.requestOut(request);
+                } catch (Exception e) {
+                    order.add(e.getMessage());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+
+            while (!scheduler.getStatisticsMap().get("waiting").equals(i)) {
+                Thread.sleep(10);
+            }
+        }
+
+        scheduler.requestOut(first);
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // the revocations do not wait for all enrollments
+        assertEquals(6, order.size());
+        assertTrue(order.indexOf(Request.REVOCATION_REQUEST) < 3);
+    }
+}
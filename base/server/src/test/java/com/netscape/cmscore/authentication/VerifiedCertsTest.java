@@ -0,0 +1,89 @@
+package com.netscape.cmscore.authentication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class VerifiedCertsTest {
+
+    static final String ISSUER = "CN=CA Signing Certificate";
+
+    static final byte[] CERT1 = { 1, 2, 3 };
+    static final byte[] CERT2 = { 4, 5, 6 };
+
+    @Test
+    public void testCheck() throws Exception {
+
+        VerifiedCerts vCerts = new VerifiedCerts(10, 120);
+
+        assertEquals(VerifiedCert.UNKNOWN, vCerts.check(ISSUER, BigInteger.ONE, CERT1));
+
+        vCerts.update(ISSUER, BigInteger.ONE, CERT1, VerifiedCert.NOT_REVOKED);
+        vCerts.update(ISSUER, BigInteger.TWO, CERT2, VerifiedCert.REVOKED);
+
+        assertEquals(VerifiedCert.NOT_REVOKED, vCerts.check(ISSUER, BigInteger.ONE, CERT1));
+        assertEquals(VerifiedCert.REVOKED, vCerts.check(ISSUER, BigInteger.TWO, CERT2));
+
+        // different encoding or issuer
+        assertEquals(VerifiedCert.UNKNOWN, vCerts.check(ISSUER, BigInteger.ONE, CERT2));
+        assertEquals(VerifiedCert.UNKNOWN, vCerts.check("CN=Other CA", BigInteger.ONE, CERT1));
+
+        assertEquals(2, vCerts.getHits());
+        assertEquals(3, vCerts.getMisses());
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+
+        VerifiedCerts vCerts = new VerifiedCerts(10, 120, 0, 120);
+
+        vCerts.update(ISSUER, BigInteger.ONE, CERT1, VerifiedCert.NOT_REVOKED);
+        vCerts.update(ISSUER, BigInteger.TWO, CERT2, VerifiedCert.REVOKED);
+
+        assertEquals(VerifiedCert.NOT_REVOKED, vCerts.check(ISSUER, BigInteger.ONE, CERT1));
+
+        // revoked records expire immediately
+        assertEquals(VerifiedCert.UNKNOWN, vCerts.check(ISSUER, BigInteger.TWO, CERT2));
+        assertEquals(1, vCerts.getExpirations());
+        assertEquals(1, vCerts.getCount());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+
+        VerifiedCerts vCerts = new VerifiedCerts(2, 120);
+
+        vCerts.update(ISSUER, BigInteger.ONE, CERT1, VerifiedCert.NOT_REVOKED);
+        Thread.sleep(5);
+        vCerts.update(ISSUER, BigInteger.TWO, CERT1, VerifiedCert.NOT_REVOKED);
+        Thread.sleep(5);
+
+        // make the first record the most recently used
+        vCerts.check(ISSUER, BigInteger.ONE, CERT1);
+
+        vCerts.update(ISSUER, BigInteger.TEN, CERT1, VerifiedCert.NOT_REVOKED);
+
+        assertEquals(2, vCerts.getCount());
+        assertEquals(1, vCerts.getEvictions());
+        assertEquals(VerifiedCert.NOT_REVOKED, vCerts.check(ISSUER, BigInteger.ONE, CERT1));
+        assertEquals(VerifiedCert.UNKNOWN, vCerts.check(ISSUER, BigInteger.TWO, CERT1));
+        assertEquals(VerifiedCert.NOT_REVOKED, vCerts.check(ISSUER, BigInteger.TEN, CERT1));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        VerifiedCerts vCerts = new VerifiedCerts(10, 120);
+
+        vCerts.update(ISSUER, BigInteger.ONE, CERT1, VerifiedCert.NOT_REVOKED);
+        vCerts.update(ISSUER, BigInteger.TWO, CERT2, VerifiedCert.NOT_REVOKED);
+
+        vCerts.invalidate(BigInteger.ONE);
+
+        assertEquals(VerifiedCert.UNKNOWN, vCerts.check(ISSUER, BigInteger.ONE, CERT1));
+        assertEquals(VerifiedCert.NOT_REVOKED, vCerts.check(ISSUER, BigInteger.TWO, CERT2));
+        assertEquals(1, vCerts.getInvalidations());
+    }
+}
@@ -0,0 +1,181 @@
+package com.netscape.cmscore.dbs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.dbs.DBPagedSearch;
+import com.netscape.cmscore.request.RequestRecord;
+
+public class DBSearchCursorsTest {
+
+    static class TestPagedSearch extends DBPagedSearch<RequestRecord> {
+
+        int remaining;
+        boolean closed;
+
+        TestPagedSearch(int total) {
+            remaining = total;
+        }
+
+        @Override
+        public List<RequestRecord> getPage() {
+            return getPage(LDAPSession.MAX_PAGED_SEARCH_SIZE);
+        }
+
+        @Override
+        public List<RequestRecord> getPage(int size) {
+            List<RequestRecord> page = new ArrayList<>();
+            while (remaining > 0 && page.size() < size) {
+                page.add(new RequestRecord());
+                remaining--;
+            }
+            return page;
+        }
+
+        @Override
+        public boolean hasMorePages() {
+            return remaining > 0;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void testPaging() throws Exception {
+
+        DBSearchCursors cursors = new DBSearchCursors();
+
+        DBSearchCursor<RequestRecord> cursor = cursors.open("admin", RequestRecord.class, new TestPagedSearch(25));
+        assertNotNull(cursor);
+
+        assertEquals(10, cursor.next(10).size());
+        assertSame(cursor, cursors.get(cursor.getID(), "admin", RequestRecord.class));
+
+        assertEquals(10, cursor.next(10).size());
+        assertFalse(cursor.isClosed());
+
+        // the cursor is closed after the last page
+        assertEquals(5, cursor.next(10).size());
+        assertTrue(cursor.isClosed());
+        assertNull(cursors.get(cursor.getID(), "admin", RequestRecord.class));
+        assertEquals(0, cursors.getOpenCursors());
+    }
+
+    @Test
+    public void testOwner() throws Exception {
+
+        DBSearchCursors cursors = new DBSearchCursors();
+
+        DBSearchCursor<RequestRecord> cursor = cursors.open("admin", RequestRecord.class, new TestPagedSearch(25));
+
+        assertNull(cursors.get(cursor.getID(), "agent", RequestRecord.class));
+        assertNull(cursors.get(cursor.getID(), null, RequestRecord.class));
+        assertNull(cursors.get("unknown", "admin", RequestRecord.class));
+    }
+
+    @Test
+    public void testMaxCursors() throws Exception {
+
+        DBSearchCursors cursors = new DBSearchCursors();
+        cursors.setMaxCursors(2);
+
+        DBSearchCursor<RequestRecord> cursor1 = cursors.open("admin", RequestRecord.class, new TestPagedSearch(25));
+        assertNotNull(cursors.open("admin", RequestRecord.class, new TestPagedSearch(25)));
+        assertNull(cursors.open("admin", RequestRecord.class, new TestPagedSearch(25)));
+        assertEquals(1, cursors.getRejectedCursors());
+
+        cursor1.close();
+        assertNotNull(cursors.open("admin", RequestRecord.class, new TestPagedSearch(25)));
+    }
+
+    @Test
+    public void testMaxCursorsPerUser() throws Exception {
+
+        DBSearchCursors cursors = new DBSearchCursors();
+        cursors.setMaxCursorsPerUser(2);
+
+        assertNotNull(cursors.open("admin", RequestRecord.class, new TestPagedSearch(25)));
+        assertNotNull(cursors.open("admin", RequestRecord.class, new TestPagedSearch(25)));
+
+        // rejected searches are closed
+        TestPagedSearch search = new TestPagedSearch(25);
+        assertNull(cursors.open("admin", RequestRecord.class, search));
+        assertTrue(search.closed);
+        assertEquals(1, cursors.getRejectedCursors());
+
+        // other users are not affected
+        assertNotNull(cursors.open("agent", RequestRecord.class, new TestPagedSearch(25)));
+        assertEquals(3, cursors.getOpenCursors());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+
+        DBSearchCursors cursors = new DBSearchCursors();
+
+        // the search is closed after the last page
+        TestPagedSearch search1 = new TestPagedSearch(5);
+        DBSearchCursor<RequestRecord> cursor1 = cursors.open("admin", RequestRecord.class, search1);
+        cursor1.next(10);
+        assertTrue(search1.closed);
+
+        // the search is closed when the subsystem shuts down
+        TestPagedSearch search2 = new TestPagedSearch(25);
+        DBSearchCursor<RequestRecord> cursor2 = cursors.open("admin", RequestRecord.class, search2);
+        cursor2.next(10);
+        assertFalse(search2.closed);
+
+        cursors.close();
+        assertTrue(cursor2.isClosed());
+        assertTrue(search2.closed);
+        assertEquals(0, cursors.getOpenCursors());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+
+        DBSearchCursors cursors = new DBSearchCursors();
+        cursors.setMaxCursors(1);
+        cursors.setTimeout(0);
+
+        TestPagedSearch search = new TestPagedSearch(25);
+        DBSearchCursor<RequestRecord> cursor = cursors.open("admin", RequestRecord.class, search);
+        Thread.sleep(10);
+
+        // expired cursors are removed to make room for new cursors
+        assertNotNull(cursors.open("admin", RequestRecord.class, new TestPagedSearch(25)));
+        assertTrue(cursor.isClosed());
+        assertTrue(search.closed);
+        assertEquals(1, cursors.getExpiredCursors());
+    }
+
+    @Test
+    public void testRemoveExpiredCursors() throws Exception {
+
+        DBSearchCursors cursors = new DBSearchCursors();
+        cursors.setTimeout(0);
+
+        TestPagedSearch search = new TestPagedSearch(25);
+        DBSearchCursor<RequestRecord> cursor = cursors.open("admin", RequestRecord.class, search);
+        Thread.sleep(10);
+
+        // abandoned cursors are removed without opening new cursors
+        cursors.removeExpiredCursors();
+        assertTrue(cursor.isClosed());
+        assertTrue(search.closed);
+        assertEquals(0, cursors.getOpenCursors());
+        assertEquals(1, cursors.getExpiredCursors());
+    }
+}
@@ -0,0 +1,381 @@
+package com.netscape.cmscore.dbs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JDBCConnectionPoolTest {
+
+    static final String URL = "jdbc:pkitest:db";
+
+    /**
+     * Physical connection that keeps track of its state and statements.
+     */
+    static class TestConnection implements InvocationHandler {
+
+        Connection proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                this);
+
+        List<TestStatement> statements = new ArrayList<>();
+        boolean closed;
+        boolean valid = true;
+        boolean autoCommit = true;
+        int rollbacks;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            switch (method.getName()) {
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "isValid":
+                return valid;
+            case "getAutoCommit":
+                return autoCommit;
+            case "setAutoCommit":
+                autoCommit = (Boolean) args[0];
+                return null;
+            case "rollback":
+                rollbacks++;
+                return null;
+            case "prepareStatement":
+                TestStatement statement = new TestStatement((String) args[0]);
+                statements.add(statement);
+                return statement.proxy;
+            default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+
+    /**
+     * Physical prepared statement.
+     */
+    static class TestStatement implements InvocationHandler {
+
+        PreparedStatement proxy = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                this);
+
+        String sql;
+        boolean closed;
+        int clearedParameters;
+        SQLException error;
+
+        TestStatement(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            switch (method.getName()) {
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "clearParameters":
+                clearedParameters++;
+                return null;
+            case "clearBatch":
+                return null;
+            case "executeUpdate":
+                if (error != null) throw error;
+                return 1;
+            default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+
+    class TestDriver implements Driver {
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) return null;
+            TestConnection connection = new TestConnection();
+            connections.add(connection);
+            return connection.proxy;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return URL.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    List<TestConnection> connections = new ArrayList<>();
+    TestDriver driver = new TestDriver();
+    JDBCConnectionPool pool;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        DriverManager.registerDriver(driver);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        DriverManager.deregisterDriver(driver);
+    }
+
+    JDBCConnectionPool createPool(String... params) throws Exception {
+
+        Properties info = new Properties();
+        for (int i = 0; i < params.length; i += 2) {
+            info.setProperty(JDBCConnectionPool.PREFIX + params[i], params[i + 1]);
+        }
+
+        pool = new JDBCConnectionPool("TestPool", URL, info);
+        pool.init();
+
+        return pool;
+    }
+
+    @Test
+    public void testCloseReturnsConnection() throws Exception {
+
+        createPool("maxConnections", "1");
+
+        Connection conn1 = pool.getConnection();
+        assertEquals(1, pool.getActiveConnections());
+
+        // discard incomplete transaction
+        conn1.setAutoCommit(false);
+        conn1.close();
+
+        TestConnection tc = connections.get(0);
+        assertFalse(tc.closed);
+        assertEquals(1, tc.rollbacks);
+        assertTrue(tc.autoCommit);
+
+        assertTrue(conn1.isClosed());
+        assertThrows(SQLException.class, () -> conn1.prepareStatement("SELECT 1"));
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(1, pool.getIdleConnections());
+
+        // closing again does not return the connection twice
+        conn1.close();
+        assertEquals(1, pool.getIdleConnections());
+
+        // the physical connection is reused
+        Connection conn2 = pool.getConnection();
+        assertNotSame(conn1, conn2);
+        assertFalse(conn2.isClosed());
+        assertEquals(1, connections.size());
+        assertEquals(1, pool.getCreatedConnections());
+        assertEquals(2, pool.getBorrowedConnections());
+        conn2.close();
+    }
+
+    @Test
+    public void testAcquireTimeout() throws Exception {
+
+        createPool("maxConnections", "1", "acquireTimeout", "0");
+
+        Connection conn = pool.getConnection();
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        assertEquals(1, pool.getTimeouts());
+
+        conn.close();
+        pool.getConnection().close();
+    }
+
+    @Test
+    public void testStatementCacheReuse() throws Exception {
+
+        createPool("maxConnections", "1", "statementCacheSize", "2");
+
+        try (Connection conn = pool.getConnection()) {
+
+            PreparedStatement ps1 = conn.prepareStatement("SELECT 1");
+            ps1.close();
+            assertTrue(ps1.isClosed());
+
+            PreparedStatement ps2 = conn.prepareStatement("SELECT 1");
+            assertSame(ps1, ps2);
+            assertFalse(ps2.isClosed());
+
+            // the same SQL in use gets a separate statement
+            PreparedStatement ps3 = conn.prepareStatement("SELECT 1");
+            assertNotSame(ps2, ps3);
+            ps3.close();
+            ps2.close();
+        }
+
+        TestConnection tc = connections.get(0);
+        assertEquals(2, tc.statements.size());
+
+        TestStatement cached = tc.statements.get(0);
+        assertFalse(cached.closed);
+        assertEquals(2, cached.clearedParameters);
+        assertTrue(tc.statements.get(1).closed);
+
+        // the cache belongs to the physical connection
+        try (Connection conn = pool.getConnection()) {
+            conn.prepareStatement("SELECT 1").close();
+        }
+
+        assertEquals(2, tc.statements.size());
+        assertEquals(2, pool.getStatementCacheHits());
+        assertEquals(2, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    public void testStatementCacheEviction() throws Exception {
+
+        createPool("maxConnections", "1", "statementCacheSize", "2");
+
+        try (Connection conn = pool.getConnection()) {
+
+            PreparedStatement a = conn.prepareStatement("A");
+            conn.prepareStatement("B").close();
+            conn.prepareStatement("C").close();
+
+            TestConnection tc = connections.get(0);
+            TestStatement statementA = tc.statements.get(0);
+
+            // an evicted statement in use is closed when the caller closes it
+            assertFalse(statementA.closed);
+            a.close();
+            assertTrue(statementA.closed);
+
+            // the least recently used statement is evicted
+            conn.prepareStatement("D").close();
+            assertTrue(tc.statements.get(1).closed);
+            assertFalse(tc.statements.get(2).closed);
+
+            conn.prepareStatement("A").close();
+            assertEquals(5, tc.statements.size());
+        }
+
+        // cached statements are closed with the connection
+        pool.close();
+        for (TestStatement statement : connections.get(0).statements) {
+            assertTrue(statement.closed);
+        }
+        assertTrue(connections.get(0).closed);
+    }
+
+    @Test
+    public void testBrokenConnection() throws Exception {
+
+        createPool("maxConnections", "1");
+
+        try (Connection conn = pool.getConnection()) {
+
+            PreparedStatement ps = conn.prepareStatement("UPDATE test");
+            connections.get(0).statements.get(0).error = new SQLException("Connection lost", "08006");
+
+            assertThrows(SQLException.class, () -> ps.executeUpdate());
+            ps.close();
+        }
+
+        // the broken connection is discarded when it is returned
+        TestConnection tc = connections.get(0);
+        assertTrue(tc.closed);
+        assertEquals(0, pool.getTotalConnections());
+        assertEquals(1, pool.getDestroyedConnections());
+
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(2, connections.size());
+        }
+    }
+
+    @Test
+    public void testOtherErrorKeepsConnection() throws Exception {
+
+        createPool("maxConnections", "1");
+
+        try (Connection conn = pool.getConnection()) {
+
+            PreparedStatement ps = conn.prepareStatement("UPDATE test");
+            connections.get(0).statements.get(0).error = new SQLException("Duplicate key", "23505");
+
+            assertThrows(SQLException.class, () -> ps.executeUpdate());
+            ps.close();
+        }
+
+        assertFalse(connections.get(0).closed);
+        assertEquals(1, pool.getIdleConnections());
+    }
+
+    @Test
+    public void testValidation() throws Exception {
+
+        // validate connections every time they are reused
+        createPool("maxConnections", "1", "validationInterval", "0");
+
+        pool.getConnection().close();
+        pool.getConnection().close();
+        assertEquals(1, pool.getValidations());
+        assertEquals(0, pool.getFailedValidations());
+
+        // invalid connections are replaced
+        TestConnection tc = connections.get(0);
+        tc.valid = false;
+
+        pool.getConnection().close();
+        assertEquals(2, pool.getValidations());
+        assertEquals(1, pool.getFailedValidations());
+        assertTrue(tc.closed);
+        assertEquals(2, connections.size());
+        assertEquals(1, pool.getTotalConnections());
+    }
+}
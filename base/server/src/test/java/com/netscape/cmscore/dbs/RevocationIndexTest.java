@@ -0,0 +1,144 @@
+package com.netscape.cmscore.dbs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class RevocationIndexTest {
+
+    static final Date DATE = new Date(1700000000000L);
+
+    @Test
+    public void testLookup() {
+
+        RevocationIndex index = new RevocationIndex.Builder()
+                .add(new BigInteger("7"), DATE, 1)
+                .add(new BigInteger("255"), DATE, RevocationIndex.NO_REASON)
+                .add(new BigInteger("123456789012345678901234567890"), DATE, 4)
+                .add(new BigInteger("-5"), DATE, 0)
+                .setCRLNumber(BigInteger.TEN)
+                .setThisUpdate(DATE)
+                .build();
+
+        assertEquals(4, index.size());
+        assertEquals(BigInteger.TEN, index.getCRLNumber());
+        assertEquals(DATE, index.getThisUpdate());
+
+        RevocationIndex.Entry entry = index.get(new BigInteger("123456789012345678901234567890"));
+        assertNotNull(entry);
+        assertEquals(4, entry.getReasonCode());
+        assertEquals(DATE, entry.getRevocationDate());
+
+        assertEquals(RevocationIndex.NO_REASON, index.get(new BigInteger("255")).getReasonCode());
+        assertTrue(index.contains(new BigInteger("7")));
+        assertTrue(index.contains(new BigInteger("-5")));
+
+        assertFalse(index.contains(new BigInteger("8")));
+        assertFalse(index.contains(new BigInteger("5")));
+        assertFalse(index.contains(new BigInteger("1").shiftLeft(200)));
+    }
+
+    @Test
+    public void testOrder() {
+
+        RevocationIndex index = new RevocationIndex.Builder()
+                .add(new BigInteger("65536"), DATE, 1)
+                .add(new BigInteger("-1"), DATE, 1)
+                .add(new BigInteger("128"), DATE, 1)
+                .add(new BigInteger("3"), DATE, 1)
+                .build();
+
+        List<BigInteger> serials = new ArrayList<>();
+        index.forEach(entry -> serials.add(entry.getSerialNumber()));
+
+        assertEquals(List.of(
+                new BigInteger("-1"),
+                new BigInteger("3"),
+                new BigInteger("128"),
+                new BigInteger("65536")), serials);
+    }
+
+    @Test
+    public void testMerge() {
+
+        RevocationIndex base = new RevocationIndex.Builder()
+                .add(new BigInteger("1"), DATE, 1)
+                .add(new BigInteger("2"), DATE, 6)
+                .add(new BigInteger("3"), DATE, 1)
+                .setCRLNumber(BigInteger.ONE)
+                .build();
+
+        // wider serial number forces the base keys to be re-encoded
+        RevocationIndex index = new RevocationIndex.Builder(base)
+                .remove(new BigInteger("2"))
+                .add(new BigInteger("3"), DATE, 5)
+                .add(new BigInteger("1").shiftLeft(100), DATE, 1)
+                .build();
+
+        assertEquals(3, index.size());
+        assertEquals(BigInteger.ONE, index.getCRLNumber());
+        assertTrue(index.contains(new BigInteger("1")));
+        assertFalse(index.contains(new BigInteger("2")));
+        assertEquals(5, index.get(new BigInteger("3")).getReasonCode());
+        assertTrue(index.contains(new BigInteger("1").shiftLeft(100)));
+
+        // base index is not modified
+        assertEquals(3, base.size());
+        assertTrue(base.contains(new BigInteger("2")));
+    }
+
+    @Test
+    public void testLastChangeWins() {
+
+        RevocationIndex index = new RevocationIndex.Builder()
+                .add(new BigInteger("9"), DATE, 6)
+                .remove(new BigInteger("9"))
+                .add(new BigInteger("10"), DATE, 6)
+                .add(new BigInteger("10"), DATE, 1)
+                .build();
+
+        assertNull(index.get(new BigInteger("9")));
+        assertEquals(1, index.get(new BigInteger("10")).getReasonCode());
+    }
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+
+        RevocationIndex.Builder builder = new RevocationIndex.Builder();
+        for (int i = 0; i < 1000; i++) {
+            builder.add(BigInteger.valueOf(i * 3L), DATE, i % 10);
+        }
+        RevocationIndex index = builder.setThisUpdate(DATE).build();
+
+        Path file = Files.createTempFile("revocation", ".idx");
+
+        try {
+            index.store(file);
+            assertEquals(index.getMemoryUsage(), Files.size(file));
+
+            for (boolean mapped : new boolean[] { true, false }) {
+                RevocationIndex loaded = RevocationIndex.load(file, mapped);
+
+                assertEquals(mapped, loaded.isMapped());
+                assertEquals(1000, loaded.size());
+                assertEquals(DATE, loaded.getThisUpdate());
+                assertEquals(9, loaded.get(BigInteger.valueOf(2997)).getReasonCode());
+                assertFalse(loaded.contains(BigInteger.valueOf(2998)));
+            }
+
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.netscape.cmscore.dbs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+
+public class RevocationStateTest {
+
+    static final Date DATE = new Date(1700000000000L);
+    static final Date DATE2 = new Date(1700000600000L);
+
+    // certificates issued in the tests expire in a day
+    static final Date NOT_AFTER = new Date(System.currentTimeMillis() + 86400000L);
+
+    static RevocationState createState() {
+        RevocationState state = new RevocationState("MasterCRL");
+        state.load(
+                List.of(
+                        new RevokedCertImpl(new BigInteger("10"), DATE),
+                        new RevokedCertImpl(new BigInteger("20"), DATE)),
+                List.of(
+                        new RevokedCertImpl(new BigInteger("30"), DATE2)));
+        return state;
+    }
+
+    @Test
+    public void testNotLoaded() {
+
+        RevocationState state = new RevocationState("MasterCRL");
+        assertFalse(state.isLoaded());
+        assertNull(state.lookup(BigInteger.TEN));
+
+        // changes before the state is loaded are ignored
+        state.revoke(BigInteger.TEN, DATE, 1);
+        assertEquals(0, state.getChanges());
+    }
+
+    @Test
+    public void testLookup() {
+
+        RevocationState state = createState();
+        assertTrue(state.isLoaded());
+        assertEquals(3, state.getSize());
+
+        RevocationState.Status status = state.lookup(new BigInteger("10"));
+        assertTrue(status.revoked());
+        assertEquals(DATE, status.getRevocationDate());
+
+        assertEquals(DATE2, state.lookup(new BigInteger("30")).getRevocationDate());
+
+        // a certificate that is not known to be issued has to be read from the database
+        assertNull(state.lookup(new BigInteger("15")));
+
+        state.addIssuedCert(new BigInteger("15"), NOT_AFTER);
+        status = state.lookup(new BigInteger("15"));
+        assertFalse(status.revoked());
+        assertNull(status.getRevocationDate());
+
+        assertEquals(4, state.getLookups());
+        assertEquals(2, state.getRevokedLookups());
+        assertEquals(1, state.getUnknownLookups());
+    }
+
+    @Test
+    public void testIssuedCerts() {
+
+        RevocationState state = createState();
+        state.setMaxIssuedCerts(2);
+
+        // expired certificates are not reported as good
+        state.addIssuedCert(new BigInteger("15"), DATE);
+        assertNull(state.lookup(new BigInteger("15")));
+        assertEquals(0, state.getIssuedCerts());
+
+        // revoked certificates are reported as revoked even if known to be issued
+        state.addIssuedCert(new BigInteger("10"), NOT_AFTER);
+        assertTrue(state.lookup(new BigInteger("10")).revoked());
+
+        state.addIssuedCert(new BigInteger("16"), NOT_AFTER);
+        assertFalse(state.lookup(new BigInteger("16")).revoked());
+        assertEquals(2, state.getIssuedCerts());
+
+        // the issued certs are cleared when the max size is reached
+        state.addIssuedCert(new BigInteger("17"), NOT_AFTER);
+        assertEquals(1, state.getIssuedCerts());
+        assertNull(state.lookup(new BigInteger("16")));
+        assertFalse(state.lookup(new BigInteger("17")).revoked());
+    }
+
+    @Test
+    public void testUpdates() {
+
+        RevocationState state = createState();
+        state.addIssuedCert(new BigInteger("10"), NOT_AFTER);
+        state.addIssuedCert(new BigInteger("15"), NOT_AFTER);
+
+        state.revoke(new BigInteger("15"), DATE2, 1);
+        state.remove(new BigInteger("10"));
+
+        assertTrue(state.lookup(new BigInteger("15")).revoked());
+        assertFalse(state.lookup(new BigInteger("10")).revoked());
+        assertEquals(2, state.getChanges());
+        assertEquals(3, state.getSize());
+
+        // unrevoke a certificate revoked after the state was loaded
+        state.remove(new BigInteger("15"));
+        assertFalse(state.lookup(new BigInteger("15")).revoked());
+        assertEquals(2, state.getSize());
+    }
+
+    @Test
+    public void testMerge() {
+
+        RevocationState state = createState();
+        state.setMaxChanges(3);
+        state.addIssuedCert(new BigInteger("20"), NOT_AFTER);
+
+        state.revoke(new BigInteger("40"), DATE2, 1);
+        state.remove(new BigInteger("20"));
+        assertEquals(2, state.getChanges());
+
+        // the third change merges all changes into the index
+        state.revoke(new BigInteger("50"), DATE2, 4);
+        assertEquals(0, state.getChanges());
+        assertEquals(1, state.getMerges());
+
+        assertTrue(state.lookup(new BigInteger("40")).revoked());
+        assertEquals(4, state.lookup(new BigInteger("50")).reason());
+        assertFalse(state.lookup(new BigInteger("20")).revoked());
+        assertEquals(4, state.getSize());
+    }
+
+    @Test
+    public void testClear() {
+
+        RevocationState state = createState();
+        state.revoke(new BigInteger("40"), DATE2, 1);
+        state.addIssuedCert(new BigInteger("15"), NOT_AFTER);
+
+        state.clear();
+        assertFalse(state.isLoaded());
+        assertEquals(0, state.getChanges());
+        assertEquals(0, state.getIssuedCerts());
+        assertNull(state.lookup(new BigInteger("10")));
+    }
+}
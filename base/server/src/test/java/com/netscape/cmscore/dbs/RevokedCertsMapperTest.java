@@ -0,0 +1,164 @@
+package com.netscape.cmscore.dbs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+
+public class RevokedCertsMapperTest {
+
+    static final Date DATE = new Date(1700000000000L);
+
+    static RevokedCertImpl createEntry(BigInteger serialNumber, Date date, RevocationReason reason) throws Exception {
+
+        if (reason == null) {
+            return new RevokedCertImpl(serialNumber, date, null);
+        }
+
+        CRLExtensions exts = new CRLExtensions();
+        exts.set(CRLReasonExtension.NAME, new CRLReasonExtension(reason));
+
+        return new RevokedCertImpl(serialNumber, date, exts);
+    }
+
+    static void assertEntry(RevokedCertificate expected, RevokedCertificate actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getSerialNumber(), actual.getSerialNumber());
+        assertEquals(expected.getRevocationDate(), actual.getRevocationDate());
+        assertEquals(RevocationIndex.getReason(expected), RevocationIndex.getReason(actual));
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> revokedCerts = new Hashtable<>();
+
+        BigInteger[] serialNumbers = {
+                new BigInteger("-5"),
+                new BigInteger("7"),
+                new BigInteger("255"),
+                new BigInteger("123456789012345678901234567890")
+        };
+
+        revokedCerts.put(serialNumbers[0], createEntry(serialNumbers[0], DATE, RevocationReason.KEY_COMPROMISE));
+        revokedCerts.put(serialNumbers[1], createEntry(serialNumbers[1], new Date(DATE.getTime() - 1000), null));
+        revokedCerts.put(serialNumbers[2], createEntry(serialNumbers[2], new Date(DATE.getTime() + 5000), RevocationReason.CERTIFICATE_HOLD));
+        revokedCerts.put(serialNumbers[3], createEntry(serialNumbers[3], DATE, RevocationReason.SUPERSEDED));
+
+        byte[] data = RevokedCertsMapper.encode(revokedCerts, false);
+        assertFalse(RevokedCertsMapper.isLegacy(data));
+
+        Hashtable<BigInteger, RevokedCertificate> results = RevokedCertsMapper.decode(List.of(data));
+
+        assertEquals(revokedCerts.size(), results.size());
+        for (BigInteger serialNumber : serialNumbers) {
+            assertEntry(revokedCerts.get(serialNumber), results.get(serialNumber));
+        }
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> revokedCerts = new Hashtable<>();
+
+        for (int i = 0; i < 10000; i++) {
+            BigInteger serialNumber = BigInteger.valueOf(1000 + i * 3);
+            revokedCerts.put(serialNumber, createEntry(serialNumber, DATE, RevocationReason.KEY_COMPROMISE));
+        }
+
+        byte[] data = RevokedCertsMapper.encode(revokedCerts, false);
+
+        // small serial number deltas and identical dates compress well
+        assertTrue(data.length < revokedCerts.size());
+
+        Hashtable<BigInteger, RevokedCertificate> results = RevokedCertsMapper.decode(List.of(data));
+
+        assertEquals(revokedCerts.size(), results.size());
+        for (RevokedCertificate revokedCert : revokedCerts.values()) {
+            assertEntry(revokedCert, results.get(revokedCert.getSerialNumber()));
+        }
+    }
+
+    @Test
+    public void testUpdates() throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> revokedCerts = new Hashtable<>();
+        revokedCerts.put(BigInteger.ONE, createEntry(BigInteger.ONE, DATE, RevocationReason.UNSPECIFIED));
+        revokedCerts.put(BigInteger.TWO, createEntry(BigInteger.TWO, DATE, RevocationReason.UNSPECIFIED));
+
+        List<byte[]> values = new ArrayList<>();
+
+        // the order of the values in LDAP is not guaranteed
+        RevokedCertsMapper.Update update1 = new RevokedCertsMapper.Update()
+                .put(BigInteger.TEN, createEntry(BigInteger.TEN, DATE, RevocationReason.KEY_COMPROMISE))
+                .remove(BigInteger.ONE);
+        byte[] data1 = RevokedCertsMapper.encode(update1.getChanges(), true);
+
+        RevokedCertsMapper.Update update2 = new RevokedCertsMapper.Update()
+                .remove(BigInteger.TEN)
+                .put(BigInteger.ONE, createEntry(BigInteger.ONE, DATE, RevocationReason.CA_COMPROMISE));
+        byte[] data2 = RevokedCertsMapper.encode(update2.getChanges(), true);
+
+        values.add(data2);
+        values.add(RevokedCertsMapper.encode(revokedCerts, false));
+        values.add(data1);
+
+        Hashtable<BigInteger, RevokedCertificate> results = RevokedCertsMapper.decode(values);
+
+        assertEquals(2, results.size());
+        assertFalse(results.containsKey(BigInteger.TEN));
+        assertEntry(update2.getChanges().get(BigInteger.ONE), results.get(BigInteger.ONE));
+        assertEntry(revokedCerts.get(BigInteger.TWO), results.get(BigInteger.TWO));
+    }
+
+    @Test
+    public void testLegacy() throws Exception {
+
+        Hashtable<BigInteger, RevokedCertificate> revokedCerts = new Hashtable<>();
+        revokedCerts.put(BigInteger.ONE, createEntry(BigInteger.ONE, DATE, RevocationReason.KEY_COMPROMISE));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream os = new ObjectOutputStream(bos)) {
+            os.writeObject(revokedCerts);
+        }
+
+        byte[] data = bos.toByteArray();
+        assertTrue(RevokedCertsMapper.isLegacy(data));
+
+        // updates appended after the legacy value are applied too
+        RevokedCertsMapper.Update update = new RevokedCertsMapper.Update()
+                .put(BigInteger.TWO, createEntry(BigInteger.TWO, DATE, null));
+
+        Hashtable<BigInteger, RevokedCertificate> results = RevokedCertsMapper.decode(
+                List.of(data, RevokedCertsMapper.encode(update.getChanges(), true)));
+
+        assertEquals(2, results.size());
+        assertEntry(revokedCerts.get(BigInteger.ONE), results.get(BigInteger.ONE));
+        assertEntry(update.getChanges().get(BigInteger.TWO), results.get(BigInteger.TWO));
+    }
+
+    @Test
+    public void testVarLong() throws Exception {
+
+        long[] values = { 0, 1, -1, 127, 128, Long.MAX_VALUE, Long.MIN_VALUE };
+
+        for (long value : values) {
+            assertEquals(value, RevokedCertsMapper.unzigzag(RevokedCertsMapper.zigzag(value)));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.netscape.cmscore.dbs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.base.EBaseException;
+
+public class SerialNumberBlockAllocatorTest {
+
+    /**
+     * Repository that hands out sequential serial numbers without a database.
+     */
+    static class TestRepository extends Repository {
+
+        BigInteger lastSerialNumber = BigInteger.ZERO;
+        int reservations;
+
+        TestRepository() {
+            super(null, 16);
+        }
+
+        @Override
+        public synchronized List<BigInteger> reserveSerialNumbers(int count) throws EBaseException {
+
+            reservations++;
+
+            List<BigInteger> serialNumbers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                lastSerialNumber = lastSerialNumber.add(BigInteger.ONE);
+                serialNumbers.add(lastSerialNumber);
+            }
+
+            return serialNumbers;
+        }
+
+        @Override
+        public void setMinSerialConfig() {
+        }
+
+        @Override
+        public void setMaxSerialConfig() {
+        }
+
+        @Override
+        public void setNextMinSerialConfig() {
+        }
+
+        @Override
+        public void setNextMaxSerialConfig() {
+        }
+
+        @Override
+        public BigInteger getLastSerialNumberInRange(BigInteger low, BigInteger high) {
+            return null;
+        }
+    }
+
+    TestRepository repository = new TestRepository();
+
+    @AfterEach
+    public void tearDown() {
+        SerialNumberBlockAllocator allocator = repository.getBlockAllocator();
+        if (allocator != null) {
+            allocator.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentGetNextSerialNumber() throws Exception {
+
+        repository.initBlockAllocator("Test", 100, 10);
+
+        int threads = 8;
+        int count = 2000;
+
+        Set<BigInteger> serialNumbers = ConcurrentHashMap.newKeySet();
+        List<BigInteger> duplicates = new ArrayList<>();
+
+        Callable<Void> task = () -> {
+            for (int i = 0; i < count; i++) {
+                BigInteger serialNumber = repository.getNextSerialNumber();
+                if (!serialNumbers.add(serialNumber)) {
+                    synchronized (duplicates) {
+                        duplicates.add(serialNumber);
+                    }
+                }
+            }
+            return null;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(task));
+            }
+
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(), duplicates);
+        assertEquals(threads * count, serialNumbers.size());
+        assertEquals(threads * count, repository.getBlockAllocator().getIssuedSerialNumbers());
+    }
+
+    @Test
+    public void testForegroundRefill() throws Exception {
+
+        // a single chunk per block leaves the queue empty
+        repository.initBlockAllocator("Test", 10, 10);
+        SerialNumberBlockAllocator allocator = repository.getBlockAllocator();
+
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(BigInteger.valueOf(i), repository.getNextSerialNumber());
+        }
+
+        assertEquals(1, allocator.getForegroundRefills());
+
+        // the calling thread reserves the next block
+        assertEquals(BigInteger.valueOf(11), repository.getNextSerialNumber());
+        assertEquals(2, allocator.getForegroundRefills());
+        assertEquals(0, allocator.getBackgroundRefills());
+        assertEquals(20, allocator.getReservedSerialNumbers());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        repository.initBlockAllocator("Test", 100, 10);
+        SerialNumberBlockAllocator allocator = repository.getBlockAllocator();
+
+        assertEquals(BigInteger.ONE, repository.getNextSerialNumber());
+        assertEquals(1, repository.reservations);
+
+        synchronized (repository) {
+            allocator.reset();
+        }
+
+        // neither the queued chunks nor the chunk of this thread are used
+        assertEquals(BigInteger.valueOf(101), repository.getNextSerialNumber());
+        assertEquals(2, repository.reservations);
+        assertEquals(99, allocator.getDiscardedSerialNumbers());
+    }
+
+    @Test
+    public void testRangeTransfer() throws Exception {
+
+        repository.initBlockAllocator("Test", 100, 10);
+        SerialNumberBlockAllocator allocator = repository.getBlockAllocator();
+
+        assertEquals(BigInteger.ONE, repository.getNextSerialNumber());
+
+        // transferring part of the range reduces the max serial
+        repository.setMaxSerial(BigInteger.valueOf(50));
+
+        BigInteger serialNumber = repository.getNextSerialNumber();
+        assertTrue(serialNumber.compareTo(BigInteger.valueOf(100)) > 0);
+        assertEquals(99, allocator.getDiscardedSerialNumbers());
+    }
+}
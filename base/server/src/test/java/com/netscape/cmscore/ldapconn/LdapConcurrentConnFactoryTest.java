@@ -0,0 +1,251 @@
+package com.netscape.cmscore.ldapconn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.ldap.ELdapException;
+
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPSocketFactory;
+
+public class LdapConcurrentConnFactoryTest {
+
+    /**
+     * Connection that does not talk to a server.
+     */
+    static class TestConnection extends LdapBoundConnection {
+
+        private static final long serialVersionUID = 1L;
+
+        boolean connected = true;
+
+        TestConnection() {
+            super((LDAPSocketFactory) null);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public LDAPEntry read(String dn, String[] attrs) throws LDAPException {
+            if (!connected) {
+                throw new LDAPException("Server down", LDAPException.SERVER_DOWN);
+            }
+            return new LDAPEntry(dn);
+        }
+
+        @Override
+        public void disconnect() throws LDAPException {
+            connected = false;
+        }
+
+        @Override
+        public void close() {
+            connected = false;
+        }
+    }
+
+    static class TestConnFactory extends LdapConcurrentConnFactory {
+
+        List<TestConnection> connections = new ArrayList<>();
+
+        TestConnFactory(int maxConns) throws ELdapException {
+            super("test", 0, maxConns, 0, new LdapConnInfo("localhost", 389, false), new LdapAuthInfo());
+        }
+
+        @Override
+        LdapBoundConnection createConnection() throws ELdapException {
+            TestConnection conn = new TestConnection();
+            connections.add(conn);
+            total.incrementAndGet();
+            created.increment();
+            return conn;
+        }
+
+        /**
+         * Makes the idle connections look idle for the given time.
+         */
+        void age(long seconds) {
+            long offset = TimeUnit.SECONDS.toNanos(seconds);
+            for (IdleConnections stripe : stripes) {
+                List<IdleConnection> entries = new ArrayList<>();
+                IdleConnection entry;
+                while ((entry = stripe.pollFirst()) != null) {
+                    entries.add(new IdleConnection(entry.conn, entry.timestamp - offset));
+                }
+                stripe.addAll(entries);
+            }
+        }
+    }
+
+    @Test
+    public void testAcquireRelease() throws Exception {
+
+        TestConnFactory factory = new TestConnFactory(2);
+        factory.init();
+
+        try {
+            LdapBoundConnection conn1 = factory.getConn(false);
+            LdapBoundConnection conn2 = factory.getConn(false);
+            assertNotNull(conn1);
+            assertNotNull(conn2);
+            assertNotSame(conn1, conn2);
+            assertEquals(2, factory.activeConn());
+            assertEquals(0, factory.freeConn());
+
+            // no more connections under the limit
+            assertNull(factory.getConn(false));
+
+            // a returned connection is reused
+            factory.returnConn(conn1);
+            assertEquals(1, factory.freeConn());
+
+            LdapBoundConnection conn3 = factory.getConn(false);
+            assertSame(conn1, conn3);
+            assertEquals(2, factory.getCreated());
+
+            // returning the same connection twice does not add a permit
+            factory.returnConn(conn2);
+            factory.returnConn(conn2);
+            factory.returnConn(conn3);
+            assertEquals(0, factory.activeConn());
+            assertEquals(2, factory.freeConn());
+            assertEquals(2, factory.totalConn());
+
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testMaxWait() throws Exception {
+
+        TestConnFactory factory = new TestConnFactory(1);
+        factory.maxWait = 100;
+        factory.init();
+
+        try {
+            LdapBoundConnection conn = factory.getConn(true);
+            assertNotNull(conn);
+
+            assertThrows(ELdapException.class, () -> factory.getConn(true));
+            assertEquals(1, factory.getTimeouts());
+
+            factory.returnConn(conn);
+            assertSame(conn, factory.getConn(true));
+
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testValidation() throws Exception {
+
+        TestConnFactory factory = new TestConnFactory(2);
+        factory.init();
+
+        try {
+            TestConnection conn1 = (TestConnection) factory.getConn(false);
+            factory.returnConn(conn1);
+
+            // a connection broken while idle is discarded
+            conn1.connected = false;
+
+            LdapBoundConnection conn2 = factory.getConn(false);
+            assertNotSame(conn1, conn2);
+            assertEquals(1, factory.getValidationFailures());
+            assertEquals(1, factory.totalConn());
+
+            // a connection broken while in use is not returned to the pool
+            ((TestConnection) conn2).connected = false;
+            factory.returnConn(conn2);
+            assertEquals(0, factory.freeConn());
+            assertEquals(0, factory.totalConn());
+
+            // connections idle longer than the validation interval are checked
+            TestConnection conn3 = (TestConnection) factory.getConn(false);
+            factory.returnConn(conn3);
+            factory.age(factory.validationInterval + 1);
+            assertSame(conn3, factory.getConn(false));
+
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+
+        TestConnFactory factory = new TestConnFactory(3);
+        factory.init();
+
+        try {
+            LdapBoundConnection conn1 = factory.getConn(false);
+            LdapBoundConnection conn2 = factory.getConn(false);
+            factory.returnConn(conn1);
+            factory.returnConn(conn2);
+            assertEquals(2, factory.freeConn());
+
+            // recently used connections are kept
+            factory.evictIdleConnections();
+            assertEquals(2, factory.freeConn());
+            assertEquals(0, factory.getEvicted());
+
+            factory.age(factory.idleTimeout + 1);
+            factory.evictIdleConnections();
+
+            assertEquals(0, factory.freeConn());
+            assertEquals(0, factory.totalConn());
+            assertEquals(2, factory.getEvicted());
+            for (TestConnection conn : factory.connections) {
+                assertFalse(conn.isConnected());
+            }
+
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+
+        TestConnFactory factory = new TestConnFactory(2);
+        factory.init();
+        assertNotNull(factory.evictor);
+
+        LdapBoundConnection conn = factory.getConn(false);
+        factory.returnConn(conn);
+
+        factory.shutdown();
+
+        assertNull(factory.evictor);
+        assertEquals(0, factory.freeConn());
+        assertEquals(0, factory.totalConn());
+        assertFalse(conn.isConnected());
+
+        // the evictor is not restarted after shutdown
+        conn = factory.getConn(false);
+        assertNotNull(conn);
+        assertNull(factory.evictor);
+        assertTrue(conn.isConnected());
+
+        factory.returnConn(conn);
+        factory.shutdown();
+    }
+}
@@ -0,0 +1,57 @@
+package com.netscape.cmscore.request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.base.Subsystem;
+import com.netscape.certsrv.request.RequestId;
+import com.netscape.certsrv.request.RequestListener;
+import com.netscape.cmscore.base.ConfigStore;
+
+public class RequestNotifierTest {
+
+    static class TestListener extends RequestListener {
+
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void init(Subsystem sub, ConfigStore config) {
+        }
+
+        @Override
+        public void accept(Request request) {
+            threads.add(Thread.currentThread());
+        }
+
+        @Override
+        public void set(String name, String val) {
+        }
+    }
+
+    @Test
+    public void testNotifyAfterShutdown() throws Exception {
+
+        RequestNotifier notifier = new RequestNotifier();
+        TestListener listener = new TestListener();
+        notifier.registerListener(listener);
+
+        notifier.shutdown();
+
+        // the thread pool is not recreated after shutdown
+        assertThrows(RejectedExecutionException.class, notifier::getExecutor);
+
+        // the listeners are notified by the caller
+        notifier.notify(new Request(new RequestId("0x1")));
+
+        assertEquals(1, listener.threads.size());
+        assertSame(Thread.currentThread(), listener.threads.get(0));
+    }
+}
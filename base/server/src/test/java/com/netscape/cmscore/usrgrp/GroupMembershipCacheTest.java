@@ -0,0 +1,129 @@
+package com.netscape.cmscore.usrgrp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class GroupMembershipCacheTest {
+
+    static final String ADMIN_DN = "uid=admin,ou=people,dc=ca,dc=pki,dc=example,dc=com";
+    static final String AGENT_DN = "uid=agent,ou=people,dc=ca,dc=pki,dc=example,dc=com";
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+
+        GroupMembershipCache cache = new GroupMembershipCache();
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertTrue(cache.isMemberOf(ADMIN_DN, "Administrators", () -> {
+            lookups.incrementAndGet();
+            return true;
+        }));
+
+        // the DN and the group name are case-insensitive
+        assertTrue(cache.isMemberOf(ADMIN_DN.toUpperCase(), "administrators", () -> {
+            lookups.incrementAndGet();
+            return false;
+        }));
+
+        assertEquals(1, lookups.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    public void testNegativeResults() throws Exception {
+
+        GroupMembershipCache cache = new GroupMembershipCache();
+        AtomicInteger lookups = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(cache.isMemberOf(AGENT_DN, "Administrators", () -> {
+                lookups.incrementAndGet();
+                return false;
+            }));
+        }
+
+        assertEquals(1, lookups.get());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testFailedLookups() throws Exception {
+
+        GroupMembershipCache cache = new GroupMembershipCache();
+
+        assertThrows(IllegalStateException.class, () -> cache.isMemberOf(ADMIN_DN, "Administrators", () -> {
+            throw new IllegalStateException("LDAP server is down");
+        }));
+
+        assertEquals(0, cache.getSize());
+        assertTrue(cache.isMemberOf(ADMIN_DN, "Administrators", () -> true));
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+
+        GroupMembershipCache cache = new GroupMembershipCache();
+
+        cache.isMemberOf(ADMIN_DN, "Administrators", () -> true);
+        cache.isMemberOf(ADMIN_DN, "Auditors", () -> false);
+        cache.isMemberOf(AGENT_DN, "Administrators", () -> false);
+        assertEquals(3, cache.getSize());
+
+        cache.invalidate("ADMINISTRATORS");
+        assertEquals(1, cache.getSize());
+
+        assertTrue(cache.isMemberOf(AGENT_DN, "Administrators", () -> true));
+
+        cache.invalidate();
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getInvalidations());
+    }
+
+    @Test
+    public void testInvalidationDuringLookup() throws Exception {
+
+        GroupMembershipCache cache = new GroupMembershipCache();
+
+        // the result read before the group was changed is returned but not cached
+        assertFalse(cache.isMemberOf(ADMIN_DN, "Administrators", () -> {
+            cache.invalidate("Administrators");
+            return false;
+        }));
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+
+        GroupMembershipCache cache = new GroupMembershipCache();
+        cache.setTimeout(0);
+
+        cache.isMemberOf(ADMIN_DN, "Administrators", () -> true);
+        assertFalse(cache.isMemberOf(ADMIN_DN, "Administrators", () -> false));
+
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+
+        GroupMembershipCache cache = new GroupMembershipCache();
+        cache.setMaxSize(2);
+
+        cache.isMemberOf(ADMIN_DN, "Administrators", () -> true);
+        cache.isMemberOf(ADMIN_DN, "Auditors", () -> true);
+        assertTrue(cache.isMemberOf(ADMIN_DN, "Certificate Manager Agents", () -> true));
+
+        assertEquals(2, cache.getSize());
+    }
+}
@@ -0,0 +1,100 @@
+package org.dogtagpki.server.rest.v2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class RouteTableTest {
+
+    static RouteTable<String> createProfileRoutes() {
+        Map<String, String> map = new HashMap<>();
+        map.put("GET:", "profiles.list");
+        map.put("GET:{}", "profiles.read");
+        map.put("GET:{}/raw", "profiles.read");
+        map.put("POST:", "profiles.create");
+        map.put("POST:raw", "profiles.create");
+        map.put("POST:{}", "profiles.approve");
+        map.put("PUT:{}", "profiles.modify");
+        map.put("PUT:{}/raw", "profiles.modify");
+        map.put("DELETE:{}", "profiles.delete");
+        return new RouteTable<>(map);
+    }
+
+    @Test
+    public void testGet() throws Exception {
+
+        RouteTable<String> routes = createProfileRoutes();
+        assertEquals(9, routes.size());
+
+        assertEquals("profiles.list", routes.get("GET", ""));
+        assertEquals("profiles.list", routes.get("GET", null));
+        assertEquals("profiles.read", routes.get("GET", "caUserCert"));
+        assertEquals("profiles.read", routes.get("GET", "caUserCert/raw"));
+        assertEquals("profiles.modify", routes.get("PUT", "caUserCert/raw"));
+        assertEquals("profiles.delete", routes.get("DELETE", "caUserCert"));
+
+        assertNull(routes.get("DELETE", ""));
+        assertNull(routes.get("GET", "caUserCert/raw/extra"));
+        assertNull(routes.get("PATCH", "caUserCert"));
+    }
+
+    @Test
+    public void testLiteralPrecedence() throws Exception {
+
+        RouteTable<String> routes = createProfileRoutes();
+
+        assertEquals("profiles.create", routes.get("POST", "raw"));
+        assertEquals("profiles.approve", routes.get("POST", "caUserCert"));
+
+        // falls back to the wildcard if the literal path has no such method
+        assertEquals("profiles.read", routes.get("GET", "raw"));
+    }
+
+    @Test
+    public void testBacktracking() throws Exception {
+
+        RouteTable<String> routes = new RouteTable<>();
+        routes.put("GET:users/{}", "user");
+        routes.put("GET:{}/members", "members");
+        routes.put("GET:users/admin/certs", "certs");
+        routes.put("GET:{}/admin/members", "admin members");
+
+        assertEquals("user", routes.get("GET", "users/admin"));
+        assertEquals("user", routes.get("GET", "users/members"));
+        assertEquals("certs", routes.get("GET", "users/admin/certs"));
+        assertEquals("members", routes.get("GET", "groups/members"));
+
+        // the literal path users/admin does not have members
+        assertEquals("admin members", routes.get("GET", "users/admin/members"));
+    }
+
+    @Test
+    public void testEmptySegments() throws Exception {
+
+        RouteTable<String> routes = new RouteTable<>();
+        routes.put("GET:{}", "read");
+        routes.put("GET:{}/members", "members");
+
+        // wildcards do not match empty segments
+        assertNull(routes.get("GET", "/members"));
+        assertNull(routes.get("GET", "admin/"));
+        assertEquals("read", routes.get("GET", "admin"));
+    }
+
+    @Test
+    public void testMethods() throws Exception {
+
+        RouteTable<String> routes = createProfileRoutes();
+
+        assertEquals(Set.of("DELETE", "GET", "POST", "PUT"), routes.getMethods("caUserCert"));
+        assertEquals(Set.of("GET", "POST", "PUT", "DELETE"), routes.getMethods("raw"));
+        assertEquals(Set.of("GET", "POST"), routes.getMethods(""));
+        assertTrue(routes.getMethods("caUserCert/unknown").isEmpty());
+    }
+}
@@ -0,0 +1,35 @@
+#
+# Copyright Red Hat, Inc.
+#
+# SPDX-License-Identifier: GPL-2.0-or-later
+#
+import logging
+import subprocess
+
+import pki
+
+logger = logging.getLogger(__name__)
+
+KEY_CACHE_ACL = (
+    'certServer.tks.keycache:read,modify:allow (read,modify) '
+    'group="Administrators":Only admins can access the key cache.')
+
+
+class AddTKSKeyCacheACL(pki.server.upgrade.PKIServerUpgradeScriptlet):
+
+    def __init__(self):
+        super().__init__()
+        self.message = 'Add ACL for TKS key cache'
+
+    def upgrade_subsystem(self, instance, subsystem):
+
+        if subsystem.name != 'tks':
+            return
+
+        logger.info('Adding certServer.tks.keycache ACL')
+
+        try:
+            subsystem.add_acl(KEY_CACHE_ACL)
+        except subprocess.CalledProcessError:
+            # the ACL already exists or the database is not accessible
+            logger.info('Unable to add certServer.tks.keycache ACL, it may already exist')
@@ -28,6 +28,8 @@ public class TKSEngine extends CMSEngine {
 
     static TKSEngine instance;
 
+    protected TKSKeyCache keyCache = new TKSKeyCache();
+
     public TKSEngine() {
         super("TKS");
         instance = this;
@@ -47,6 +49,19 @@ public class TKSEngine extends CMSEngine {
         return (TKSEngineConfig) mConfig;
     }
 
+    public TKSKeyCache getKeyCache() {
+        return keyCache;
+    }
+
+    @Override
+    public void initSubsystems() throws Exception {
+
+        TKSEngineConfig engineConfig = getConfig();
+        keyCache.init(engineConfig.getTKSConfig());
+
+        super.initSubsystems();
+    }
+
     @Override
     public void initSubsystem(Subsystem subsystem, ConfigStore subsystemConfig) throws Exception {
 
@@ -57,4 +72,10 @@ public class TKSEngine extends CMSEngine {
 
         super.initSubsystem(subsystem, subsystemConfig);
     }
+
+    @Override
+    public void shutdown() {
+        logger.info("TKSEngine: Key cache: " + keyCache.getStatistics());
+        super.shutdown();
+    }
 }
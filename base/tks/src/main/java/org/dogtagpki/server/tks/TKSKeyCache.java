@@ -0,0 +1,230 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mozilla.jss.crypto.SymmetricKey;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.util.OperationStats;
+
+/**
+ * This class caches the handles of the symmetric keys (e.g. master keys
+ * and shared secrets) used by the TKS so the keys do not have to be
+ * looked up on the token for each secure channel operation.
+ *
+ * The handles are indexed by token name and key nickname. Keys that
+ * cannot be found are not cached. The handles of a key must be
+ * invalidated when the key is replaced or deleted on the token. They
+ * also expire after the cache timeout in case the keys were changed
+ * outside of the server.
+ *
+ * This class also keeps the latency of the key operations.
+ */
+public class TKSKeyCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TKSKeyCache.class);
+
+    public static final int DEFAULT_TIMEOUT = 600; // seconds
+
+    private boolean enabled = true;
+    private int timeout = DEFAULT_TIMEOUT;
+
+    private Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // statistics
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder expirations = new LongAdder();
+    private LongAdder invalidations = new LongAdder();
+    private Map<String, OperationStats> operationStats = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the max age of a key handle in seconds.
+     * Zero means the handles do not expire.
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public void init(TKSConfig config) throws EBaseException {
+
+        enabled = config.getBoolean("keyCache.enable", true);
+        timeout = config.getInteger("keyCache.timeout", DEFAULT_TIMEOUT);
+
+        logger.info("TKSKeyCache: Initializing key cache");
+        logger.info("TKSKeyCache: - enabled: " + enabled);
+        logger.info("TKSKeyCache: - timeout: " + timeout);
+    }
+
+    /**
+     * Returns the key handle from the cache, or loads it from the token
+     * if it is not cached.
+     *
+     * @param tokenName name of the token containing the key
+     * @param nickname key nickname
+     * @param loader function to find the key on the token
+     * @return the key, or null if not found
+     */
+    public SymmetricKey getKey(String tokenName, String nickname, KeyLoader loader) throws EBaseException {
+
+        if (!enabled) {
+            return loader.load();
+        }
+
+        Key key = new Key(tokenName, nickname);
+        long now = System.currentTimeMillis();
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (timeout <= 0 || now - entry.created < TimeUnit.SECONDS.toMillis(timeout)) {
+                hits.increment();
+                return entry.symKey;
+            }
+
+            entries.remove(key, entry);
+            expirations.increment();
+        }
+
+        misses.increment();
+
+        SymmetricKey symKey = loader.load();
+        if (symKey == null) {
+            return null;
+        }
+
+        logger.debug("TKSKeyCache: Caching key " + nickname + " on " + tokenName);
+        entries.put(key, new Entry(symKey, now));
+
+        return symKey;
+    }
+
+    /**
+     * Removes the handles of a key from all tokens.
+     */
+    public void invalidate(String nickname) {
+
+        logger.info("TKSKeyCache: Invalidating key " + nickname);
+
+        if (entries.keySet().removeIf(key -> key.nickname().equals(nickname))) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Removes all key handles.
+     */
+    public void invalidate() {
+
+        logger.info("TKSKeyCache: Invalidating all keys");
+
+        entries.clear();
+        invalidations.increment();
+    }
+
+    /**
+     * Records the latency of a key operation.
+     */
+    public void addOperation(String name, long time, boolean success) {
+        operationStats.computeIfAbsent(name, n -> new OperationStats()).add(time, success);
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Returns the cache counters and the number of calls, errors,
+     * and the average and maximum latency of each operation.
+     */
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", getSize());
+        stats.put("hits", getHits());
+        stats.put("misses", getMisses());
+        stats.put("expirations", getExpirations());
+        stats.put("invalidations", getInvalidations());
+
+        Map<String, Object> operations = new TreeMap<>();
+        for (Map.Entry<String, OperationStats> entry : operationStats.entrySet()) {
+            operations.put(entry.getKey(), entry.getValue().getStatisticsMap());
+        }
+        stats.put("operations", operations);
+
+        return stats;
+    }
+
+    public String getStatistics() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("size: ").append(getSize());
+        sb.append(", hits: ").append(getHits());
+        sb.append(", misses: ").append(getMisses());
+        sb.append(", expirations: ").append(getExpirations());
+        sb.append(", invalidations: ").append(getInvalidations());
+
+        for (Map.Entry<String, OperationStats> entry : new TreeMap<>(operationStats).entrySet()) {
+            OperationStats stats = entry.getValue();
+            sb.append(", ").append(entry.getKey()).append(": ");
+            sb.append(stats.getCalls()).append(" calls/");
+            sb.append(stats.getErrors()).append(" errors/");
+            sb.append(stats.getAverageTime()).append(" ms avg/");
+            sb.append(stats.getMaxTime()).append(" ms max");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * A function to find a key on a token.
+     */
+    @FunctionalInterface
+    public interface KeyLoader {
+        SymmetricKey load() throws EBaseException;
+    }
+
+    record Key(String tokenName, String nickname) {
+    }
+
+    record Entry(SymmetricKey symKey, long created) {
+    }
+}
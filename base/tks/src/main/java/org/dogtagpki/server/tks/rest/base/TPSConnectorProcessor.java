@@ -351,6 +351,8 @@ public class TPSConnectorProcessor {
             CryptoUtil.deleteSharedSecret(nickname);
             CryptoUtil.createSharedSecret(nickname);
 
+            engine.getKeyCache().invalidate(nickname);
+
             //Create aes session sym key to wrap the shared secret.
             SymmetricKey tempKey = CryptoUtil.createAESSessionKeyOnInternal(AES_SESS_KEYSIZE);
 
@@ -399,6 +401,7 @@ public class TPSConnectorProcessor {
                 return;
             }
             CryptoUtil.deleteSharedSecret(nickname);
+            engine.getKeyCache().invalidate(nickname);
 
             tpsConfig.setNickname("");
             config.commit(true);
@@ -383,6 +383,8 @@ public class TPSConnectorService extends PKIService implements TPSConnectorResou
             CryptoUtil.deleteSharedSecret(nickname);
             CryptoUtil.createSharedSecret(nickname);
 
+            engine.getKeyCache().invalidate(nickname);
+
 	    //Create aes session sym key to wrap the shared secret.
             SymmetricKey tempKey = CryptoUtil.createAESSessionKeyOnInternal(AES_SESS_KEYSIZE);
 
@@ -433,6 +435,7 @@ public class TPSConnectorService extends PKIService implements TPSConnectorResou
                 return createNoContentResponse();
             }
             CryptoUtil.deleteSharedSecret(nickname);
+            engine.getKeyCache().invalidate(nickname);
 
             tpsConfig.setNickname("");
             cs.commit(true);
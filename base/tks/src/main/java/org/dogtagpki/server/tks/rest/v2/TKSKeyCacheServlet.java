@@ -0,0 +1,61 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tks.rest.v2;
+
+import java.io.PrintWriter;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.dogtagpki.server.tks.TKSKeyCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netscape.certsrv.base.WebAction;
+
+/**
+ * Provides the statistics of the TKS key cache and allows flushing
+ * the cache after the keys have been changed on the token.
+ */
+@WebServlet(
+        name = "tksKeyCache",
+        urlPatterns = "/v2/admin/key-cache/*")
+public class TKSKeyCacheServlet extends TKSServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LoggerFactory.getLogger(TKSKeyCacheServlet.class);
+
+    @WebAction(method = HttpMethod.GET, paths = {""})
+    public void getStatistics(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        HttpSession session = request.getSession();
+        logger.debug("TKSKeyCacheServlet.getStatistics(): session: {}", session.getId());
+
+        TKSKeyCache keyCache = engine.getKeyCache();
+
+        ObjectMapper mapper = new ObjectMapper();
+        PrintWriter out = response.getWriter();
+        out.println(mapper.writeValueAsString(keyCache.getStatisticsMap()));
+    }
+
+    @WebAction(method = HttpMethod.DELETE, paths = {""})
+    public void flush(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        HttpSession session = request.getSession();
+        logger.debug("TKSKeyCacheServlet.flush(): session: {}", session.getId());
+
+        String nickname = request.getParameter("nickname");
+
+        TKSKeyCache keyCache = engine.getKeyCache();
+        if (nickname == null) {
+            keyCache.invalidate();
+        } else {
+            keyCache.invalidate(nickname);
+        }
+
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+}
@@ -0,0 +1,24 @@
+package org.dogtagpki.server.tks.rest.v2.filters;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebFilter;
+
+import org.dogtagpki.server.rest.v2.filters.ACLFilter;
+
+@WebFilter(servletNames = "tksKeyCache")
+public class TKSKeyCacheACL extends ACLFilter {
+    private static final long serialVersionUID = 1L;
+    private static final String READ = "keycache.read";
+    private static final String MODIFY = "keycache.modify";
+
+    @Override
+    public void init() throws ServletException {
+        setAcl(READ);
+        Map<String, String> aclMap = new HashMap<>();
+        aclMap.put("DELETE:", MODIFY);
+        setAclMap(aclMap);
+    }
+}
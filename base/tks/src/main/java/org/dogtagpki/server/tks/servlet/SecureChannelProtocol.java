@@ -11,6 +11,7 @@ import java.util.Map;
 
 import org.dogtagpki.server.tks.TKSEngine;
 import org.dogtagpki.server.tks.TKSEngineConfig;
+import org.dogtagpki.server.tks.TKSKeyCache;
 import org.mozilla.jss.CryptoManager;
 import org.mozilla.jss.NotInitializedException;
 import org.mozilla.jss.NoSuchTokenException;
@@ -1207,6 +1208,20 @@ logger.debug("session key = divKey");
         if (token == null || name == null) {
             throw new EBaseException(method + "Invalid input data!");
         }
+
+        TKSEngine engine = TKSEngine.getInstance();
+        if (engine == null) {
+            return findSymKeyByName(token, name);
+        }
+
+        // avoid listing all keys on the token for each operation
+        TKSKeyCache keyCache = engine.getKeyCache();
+        return keyCache.getKey(token.getName(), name, () -> findSymKeyByName(token, name));
+    }
+
+    static SymmetricKey findSymKeyByName(CryptoToken token, String name) throws EBaseException {
+
+        String method = "SecureChannelProtocol.findSymKeyByName:";
         SymmetricKey[] keys;
 
         logger.debug(method + "Searching for sym key: " + name);
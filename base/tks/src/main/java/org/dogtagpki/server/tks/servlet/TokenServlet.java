@@ -49,6 +49,7 @@ import org.mozilla.jss.symkey.SessionKey;
 
 import org.dogtagpki.server.tks.TKSEngine;
 import org.dogtagpki.server.tks.TKSEngineConfig;
+import org.dogtagpki.server.tks.TKSKeyCache;
 import org.dogtagpki.server.authentication.AuthToken;
 import org.dogtagpki.server.authorization.AuthzToken;
 import com.netscape.certsrv.base.EBaseException;
@@ -2564,22 +2565,47 @@ public class TokenServlet extends CMSServlet {
         //logger.debug("Protocol: " + protocol + " temp: " + temp);
 
         setDefaultSlotAndKeyName(req);
-        if (temp != null && protocol == null) {
-            processComputeSessionKey(req, resp);
-        } else if (req.getParameter(IRemoteRequest.TOKEN_DATA) != null) {
-            processEncryptData(req, resp);
-        } else if (req.getParameter(IRemoteRequest.TOKEN_NEW_KEYINFO) != null) {
-            processDiversifyKey(req, resp);
-        } else if (req.getParameter(IRemoteRequest.TOKEN_DATA_NUM_BYTES) != null) {
-            processComputeRandomData(req, resp);
-        } else if (protocol != null && protocol.contains("2") && (derivationConstant != null)) {
-            //SCP02 compute one session key.
-            processComputeSessionKeySCP02(req, resp);
-
-        }  else if (protocol != null && protocol.contains("3") ) {
-            processComputeSessionKeysSCP03(req,resp);
-        } else {
-            throw new EBaseException("Process: Can't decide upon function to call!");
+
+        TKSEngine engine = TKSEngine.getInstance();
+        TKSKeyCache keyCache = engine.getKeyCache();
+
+        String operation = null;
+        long start = System.currentTimeMillis();
+        boolean success = false;
+
+        try {
+            if (temp != null && protocol == null) {
+                operation = "computeSessionKey";
+                processComputeSessionKey(req, resp);
+            } else if (req.getParameter(IRemoteRequest.TOKEN_DATA) != null) {
+                operation = "encryptData";
+                processEncryptData(req, resp);
+            } else if (req.getParameter(IRemoteRequest.TOKEN_NEW_KEYINFO) != null) {
+                operation = "diversifyKey";
+                processDiversifyKey(req, resp);
+            } else if (req.getParameter(IRemoteRequest.TOKEN_DATA_NUM_BYTES) != null) {
+                operation = "computeRandomData";
+                processComputeRandomData(req, resp);
+            } else if (protocol != null && protocol.contains("2") && (derivationConstant != null)) {
+                //SCP02 compute one session key.
+                operation = "computeSessionKeySCP02";
+                processComputeSessionKeySCP02(req, resp);
+
+            }  else if (protocol != null && protocol.contains("3") ) {
+                operation = "computeSessionKeysSCP03";
+                processComputeSessionKeysSCP03(req,resp);
+            } else {
+                throw new EBaseException("Process: Can't decide upon function to call!");
+            }
+
+            success = true;
+
+        } finally {
+            if (operation != null) {
+                long time = System.currentTimeMillis() - start;
+                logger.debug("TokenServlet: " + operation + " took " + time + " ms");
+                keyCache.addOperation(operation, time, success);
+            }
         }
     }
 
@@ -3166,6 +3192,23 @@ public class TokenServlet extends CMSServlet {
 
         logger.debug("TokenServlet.getSharedSecretTransportKey: calculated key name: " + sharedSecretName);
 
+        // We know for now that shared secret is on this token
+        String tokenName = CryptoUtil.INTERNAL_TOKEN_FULL_NAME;
+        final String keyName = sharedSecretName;
+
+        TKSKeyCache keyCache = engine.getKeyCache();
+        PK11SymKey sharedSecret = (PK11SymKey) keyCache.getKey(tokenName, keyName,
+                () -> findSharedSecretKey(tokenName, keyName));
+
+        if (sharedSecret == null) {
+            throw new EBaseException("TokenServlet.getSharedSecret: Can't find shared secret!");
+        }
+
+        return sharedSecret;
+    }
+
+    private PK11SymKey findSharedSecretKey(String tokenName, String sharedSecretName) throws EBaseException {
+
         String symmKeys = null;
         boolean keyPresent = false;
         try {
@@ -3186,11 +3229,9 @@ public class TokenServlet extends CMSServlet {
         }
 
         if (!keyPresent) {
-            throw new EBaseException("TokenServlet.getSharedSecret: Can't find shared secret!");
+            return null;
         }
 
-        // We know for now that shared secret is on this token
-        String tokenName = CryptoUtil.INTERNAL_TOKEN_FULL_NAME;
         PK11SymKey sharedSecret = SessionKey.GetSymKeyByName(tokenName, sharedSecretName);
 
         logger.debug("TokenServlet.getSharedSecret: SymKey returns: " + sharedSecret);
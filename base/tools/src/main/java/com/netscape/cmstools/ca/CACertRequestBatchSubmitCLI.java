@@ -0,0 +1,248 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.cmstools.ca;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.dogtagpki.util.cert.CRMFUtil;
+import org.dogtagpki.util.cert.CertUtil;
+import org.mozilla.jss.netscape.security.pkcs.PKCS10;
+import org.mozilla.jss.netscape.security.x509.X500Name;
+
+import com.netscape.certsrv.ca.AuthorityID;
+import com.netscape.certsrv.ca.CACertClient;
+import com.netscape.certsrv.cert.CertBatchEnrollmentRequest;
+import com.netscape.certsrv.cert.CertBatchEnrollmentResult;
+import com.netscape.certsrv.cert.CertBatchEnrollmentResults;
+import com.netscape.certsrv.cert.CertEnrollmentRequest;
+import com.netscape.certsrv.cert.CertRequestInfo;
+import com.netscape.certsrv.client.PKIClient;
+import com.netscape.cmstools.cli.MainCLI;
+import com.netscape.cmstools.cli.SubsystemCommandCLI;
+
+public class CACertRequestBatchSubmitCLI extends SubsystemCommandCLI {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CACertRequestBatchSubmitCLI.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    CACertRequestCLI certRequestCLI;
+
+    public CACertRequestBatchSubmitCLI(CACertRequestCLI certRequestCLI) {
+        super("batch-submit", "Submit multiple certificate requests", certRequestCLI);
+        this.certRequestCLI = certRequestCLI;
+    }
+
+    @Override
+    public void createOptions() {
+
+        super.createOptions();
+
+        Option option = new Option(null, "issuer-id", true, "Authority ID (host authority if omitted)");
+        option.setArgName("ID");
+        options.addOption(option);
+
+        option = new Option(null, "issuer-dn", true, "Authority DN (host authority if omitted)");
+        option.setArgName("DN");
+        options.addOption(option);
+
+        option = new Option(null, "profile", true, "Certificate profile");
+        option.setArgName("profile");
+        options.addOption(option);
+
+        option = new Option(null, "request-type", true, "Request type: pkcs10 (default), crmf");
+        option.setArgName("type");
+        options.addOption(option);
+
+        option = new Option(null, "username", true, "Username for enrollment");
+        option.setArgName("username");
+        options.addOption(option);
+
+        option = new Option(null, "password-file", true, "File containing enrollment password");
+        option.setArgName("path");
+        options.addOption(option);
+
+        option = new Option(null, "pin-file", true, "File containing enrollment PIN");
+        option.setArgName("path");
+        options.addOption(option);
+
+        option = new Option(null, "batch-size", true, "Number of CSRs per batch (default: " + DEFAULT_BATCH_SIZE + ")");
+        option.setArgName("size");
+        options.addOption(option);
+    }
+
+    @Override
+    public void printHelp() {
+        formatter.printHelp(getFullName() + " <CSR file>... [OPTIONS...]", options);
+    }
+
+    /**
+     * Splits the CSRs into batches of at most batchSize CSRs. The CSRs
+     * in batch i start at index i * batchSize of the original list.
+     */
+    public static List<CertBatchEnrollmentRequest> createBatches(
+            CertEnrollmentRequest template,
+            String requestType,
+            List<String> csrs,
+            int batchSize) {
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        List<CertBatchEnrollmentRequest> batches = new ArrayList<>();
+
+        for (int start = 0; start < csrs.size(); start += batchSize) {
+
+            int end = Math.min(start + batchSize, csrs.size());
+
+            CertBatchEnrollmentRequest request = new CertBatchEnrollmentRequest();
+            request.setTemplate(template);
+            request.setCertRequestType(requestType);
+            request.setCertRequests(csrs.subList(start, end));
+
+            batches.add(request);
+        }
+
+        return batches;
+    }
+
+    @Override
+    public void execute(CommandLine cmd) throws Exception {
+
+        String[] cmdArgs = cmd.getArgs();
+
+        if (cmdArgs.length == 0) {
+            throw new Exception("Missing CSR files.");
+        }
+
+        String profileID = cmd.getOptionValue("profile");
+        if (profileID == null) {
+            throw new Exception("Missing profile ID.");
+        }
+
+        AuthorityID aid = null;
+        if (cmd.hasOption("issuer-id")) {
+            String aidString = cmd.getOptionValue("issuer-id");
+            try {
+                aid = new AuthorityID(aidString);
+            } catch (IllegalArgumentException e) {
+                throw new Exception("Bad AuthorityID: " + aidString, e);
+            }
+        }
+
+        X500Name adn = null;
+        if (cmd.hasOption("issuer-dn")) {
+            String adnString = cmd.getOptionValue("issuer-dn");
+            try {
+                adn = new X500Name(adnString);
+            } catch (IOException e) {
+                throw new Exception("Bad DN: " + adnString, e);
+            }
+        }
+
+        if (aid != null && adn != null) {
+            throw new Exception("--issuer-id and --issuer-dn options are mutually exclusive");
+        }
+
+        String requestType = cmd.getOptionValue("request-type", "pkcs10");
+        int batchSize = Integer.parseInt(cmd.getOptionValue("batch-size", "" + DEFAULT_BATCH_SIZE));
+        if (batchSize <= 0) {
+            throw new Exception("Invalid batch size: " + batchSize);
+        }
+
+        // load and check all CSRs before submitting the first batch
+        List<String> csrs = new ArrayList<>();
+        for (String filename : cmdArgs) {
+
+            logger.info("Loading CSR from " + filename);
+            String pem = Files.readString(Paths.get(filename));
+
+            try {
+                if ("pkcs10".equals(requestType)) {
+                    PKCS10 pkcs10 = new PKCS10(CertUtil.parseCSR(pem));
+                    csrs.add(CertUtil.toPEM(pkcs10));
+
+                } else if ("crmf".equals(requestType)) {
+                    csrs.add(CRMFUtil.encodeCRMF(CRMFUtil.parseCRMFMsgs(CertUtil.parseCSR(pem))));
+
+                } else {
+                    throw new Exception("Unsupported request type: " + requestType);
+                }
+
+            } catch (Exception e) {
+                throw new Exception("Invalid CSR in " + filename + ": " + e.getMessage(), e);
+            }
+        }
+
+        MainCLI mainCLI = (MainCLI) getRoot();
+        mainCLI.init();
+
+        PKIClient client = getPKIClient();
+        CACertClient certClient = certRequestCLI.getCertClient(client);
+
+        logger.info("Retrieving " + profileID + " profile");
+        CertEnrollmentRequest template = certClient.getEnrollmentTemplate(profileID);
+
+        String enrollmentUsername = cmd.getOptionValue("username");
+        if (enrollmentUsername != null) {
+            template.setAttribute("uid", enrollmentUsername);
+        }
+
+        String passwordFile = cmd.getOptionValue("password-file");
+        if (passwordFile != null) {
+            template.setAttribute("pwd", Files.readString(Paths.get(passwordFile)).trim());
+        }
+
+        String pinFile = cmd.getOptionValue("pin-file");
+        if (pinFile != null) {
+            template.setAttribute("pin", Files.readString(Paths.get(pinFile)).trim());
+        }
+
+        int total = 0;
+        int errors = 0;
+
+        List<CertBatchEnrollmentRequest> batches = createBatches(template, requestType, csrs, batchSize);
+
+        for (int i = 0; i < batches.size(); i++) {
+
+            int start = i * batchSize;
+            CertBatchEnrollmentRequest request = batches.get(i);
+            logger.info("Submitting CSRs " + start + " to " + (start + request.getCertRequests().size() - 1));
+
+            CertBatchEnrollmentResults results = certClient.enrollBatch(request, aid, adn);
+
+            for (CertBatchEnrollmentResult result : results.getEntries()) {
+
+                if (total > 0) {
+                    System.out.println();
+                }
+
+                int index = start + result.getIndex();
+                System.out.println("  CSR File: " + cmdArgs[index]);
+
+                for (CertRequestInfo info : result.getRequests()) {
+                    CACertRequestCLI.printCertRequestInfo(info);
+                }
+
+                if (result.getError() != null) {
+                    System.out.println("  Error: " + result.getError());
+                    errors++;
+                }
+
+                total++;
+            }
+        }
+
+        MainCLI.printMessage("Submitted " + total + " certificate request(s), " + errors + " error(s)");
+    }
+}
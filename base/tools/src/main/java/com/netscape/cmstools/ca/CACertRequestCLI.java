@@ -46,6 +46,7 @@ public class CACertRequestCLI extends CLI {
         addModule(new CACertRequestFindCLI(this));
         addModule(new CACertRequestShowCLI(this));
         addModule(new CACertRequestSubmitCLI(this));
+        addModule(new CACertRequestBatchSubmitCLI(this));
         addModule(new CACertRequestReviewCLI(this));
         addModule(new CACertRequestApproveCLI(this));
         addModule(new CACertRequestRejectCLI(this));
@@ -0,0 +1,84 @@
+package com.netscape.cmstools.ca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.netscape.certsrv.cert.CertBatchEnrollmentRequest;
+import com.netscape.certsrv.cert.CertEnrollmentRequest;
+
+public class CACertRequestBatchSubmitCLITest {
+
+    static List<String> createCSRs(int count) {
+        List<String> csrs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            csrs.add("csr" + i);
+        }
+        return csrs;
+    }
+
+    @Test
+    public void testCreateBatches() throws Exception {
+
+        CertEnrollmentRequest template = new CertEnrollmentRequest();
+        List<String> csrs = createCSRs(7);
+
+        List<CertBatchEnrollmentRequest> batches =
+                CACertRequestBatchSubmitCLI.createBatches(template, "pkcs10", csrs, 3);
+
+        assertEquals(3, batches.size());
+        assertEquals(List.of("csr0", "csr1", "csr2"), batches.get(0).getCertRequests());
+        assertEquals(List.of("csr3", "csr4", "csr5"), batches.get(1).getCertRequests());
+        assertEquals(List.of("csr6"), batches.get(2).getCertRequests());
+
+        for (CertBatchEnrollmentRequest batch : batches) {
+            assertSame(template, batch.getTemplate());
+            assertEquals("pkcs10", batch.getCertRequestType());
+        }
+    }
+
+    @Test
+    public void testExactBatches() throws Exception {
+
+        List<String> csrs = createCSRs(6);
+
+        List<CertBatchEnrollmentRequest> batches =
+                CACertRequestBatchSubmitCLI.createBatches(new CertEnrollmentRequest(), "crmf", csrs, 3);
+
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(0).getCertRequests().size());
+        assertEquals(3, batches.get(1).getCertRequests().size());
+
+        // single batch when the batch size exceeds the number of CSRs
+        batches = CACertRequestBatchSubmitCLI.createBatches(new CertEnrollmentRequest(), "crmf", csrs, 1000);
+        assertEquals(1, batches.size());
+        assertEquals(csrs, batches.get(0).getCertRequests());
+    }
+
+    @Test
+    public void testNoCSRs() throws Exception {
+
+        List<CertBatchEnrollmentRequest> batches =
+                CACertRequestBatchSubmitCLI.createBatches(new CertEnrollmentRequest(), "pkcs10", new ArrayList<>(), 3);
+
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testInvalidBatchSize() throws Exception {
+
+        List<String> csrs = createCSRs(3);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                CACertRequestBatchSubmitCLI.createBatches(new CertEnrollmentRequest(), "pkcs10", csrs, 0));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                CACertRequestBatchSubmitCLI.createBatches(new CertEnrollmentRequest(), "pkcs10", csrs, -1));
+    }
+}
@@ -40,6 +40,9 @@ public class TPSSession {
     private String ipAddress; /* remote IP */
     private TokenRecord tokenRecord;
 
+    // copy of the token record as last written in this session
+    private TokenRecord savedTokenRecord;
+
     private ExternalRegAttrs extRegAttrs;
     // Store card mgr in session so we only have to query it once per session
     private TPSBuffer selectedCardMgr;
@@ -171,6 +174,14 @@ public class TPSSession {
         this.tokenRecord = tokenRecord;
     }
 
+    public TokenRecord getSavedTokenRecord() {
+        return savedTokenRecord;
+    }
+
+    public void setSavedTokenRecord(TokenRecord savedTokenRecord) {
+        this.savedTokenRecord = savedTokenRecord;
+    }
+
     public String getIpAddress() {
         return ipAddress;
     }
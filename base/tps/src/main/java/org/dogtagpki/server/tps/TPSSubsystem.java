@@ -17,6 +17,7 @@
 // --- END COPYRIGHT BLOCK ---
 package org.dogtagpki.server.tps;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -31,6 +32,8 @@ import org.dogtagpki.server.tps.config.ConnectorDatabase;
 import org.dogtagpki.server.tps.config.ProfileDatabase;
 import org.dogtagpki.server.tps.config.ProfileMappingDatabase;
 import org.dogtagpki.server.tps.dbs.ActivityDatabase;
+import org.dogtagpki.server.tps.dbs.ActivityWriter;
+import org.dogtagpki.server.tps.dbs.ActivityWriterConfig;
 import org.dogtagpki.server.tps.dbs.TPSCertDatabase;
 import org.dogtagpki.server.tps.dbs.TPSCertRecord;
 import org.dogtagpki.server.tps.dbs.TokenDatabase;
@@ -47,6 +50,7 @@ import com.netscape.certsrv.authority.IAuthority;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.Subsystem;
 import com.netscape.certsrv.tps.token.TokenStatus;
+import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.base.FileConfigStorage;
@@ -111,6 +115,15 @@ public class TPSSubsystem extends Subsystem implements IAuthority {
         String activityDatabaseDN = tdbConfig.getString("activityBaseDN");
         activityDatabase = new ActivityDatabase(dbSubsystem, activityDatabaseDN);
 
+        ActivityWriterConfig activityWriterConfig = tdbConfig.getActivityWriterConfig();
+        if (activityWriterConfig.getEnable()) {
+            String journal = CMS.getInstanceDir() + File.separator + "logs" + File.separator
+                    + ID + File.separator + "activity.journal";
+            ActivityWriter activityWriter = new ActivityWriter(activityDatabase);
+            activityWriter.init(activityWriterConfig, journal);
+            activityDatabase.setWriter(activityWriter);
+        }
+
         String certDatabaseDN = tdbConfig.getString("certBaseDN");
         certDatabase = new TPSCertDatabase(dbSubsystem, certDatabaseDN);
 
@@ -306,11 +319,28 @@ public class TPSSubsystem extends Subsystem implements IAuthority {
         authManager.initAuthInstances();
         mappingResolverManager = new MappingResolverManager();
         mappingResolverManager.initMappingResolverInstances();
+
+        ActivityWriter activityWriter = activityDatabase.getWriter();
+        if (activityWriter != null) {
+            activityWriter.start();
+        }
+
         logger.debug("TPSSubsystem: startup() ends.");
     }
 
     @Override
     public void shutdown() {
+        if (connManager != null) {
+            connManager.shutdown();
+        }
+
+        if (activityDatabase != null && activityDatabase.getWriter() != null) {
+            activityDatabase.getWriter().shutdown();
+        }
+
+        if (tdb != null) {
+            logger.info("TPSSubsystem: Token updates: " + tdb.getStatistics());
+        }
     }
 
     @Override
@@ -25,6 +25,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.dogtagpki.server.tps.cms.CARemoteRequestHandler;
 import org.dogtagpki.server.tps.cms.CARevokeCertResponse;
@@ -41,6 +43,7 @@ import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.dbs.DBRecordNotFoundException;
 import com.netscape.certsrv.tps.token.TokenStatus;
+import com.netscape.certsrv.util.OperationStats;
 
 /*
  * TokenDB class offers a collection of tokendb management convenience routines
@@ -51,6 +54,11 @@ public class TokenDB {
 
     private TPSSubsystem tps;
 
+    // statistics
+    private LongAdder coalescedUpdates = new LongAdder();
+    private LongAdder tokenReads = new LongAdder();
+    private OperationStats updateStats = new OperationStats(); // milliseconds
+
     public TokenDB(TPSSubsystem tps) throws EBaseException {
         if (tps == null) {
             String msg = "TokenDB.TokenDB: tps cannot be null";
@@ -212,19 +220,97 @@ public class TokenDB {
             throws Exception {
         String method = "TokenDB.tdbUpdateTokenEntry:";
         String id = tokenRecord.getId();
-        TokenRecord existingTokenRecord;
+        long startTime = System.currentTimeMillis();
+
+        if (tokenRecord.getCreateTimestamp() == null) {
+            // record not read from the database, get the create time
+            TokenRecord existingTokenRecord;
+            try {
+                existingTokenRecord = tps.tokenDatabase.getRecord(id);
+                tokenReads.increment();
+            } catch (DBRecordNotFoundException e) {
+                String logMsg = method + e.getMessage();
+                logger.error(logMsg, e);
+                throw new TPSException(logMsg);
+            }
+            // don't change the create time of an existing token record; put it back
+            tokenRecord.setCreateTimestamp(existingTokenRecord.getCreateTimestamp());
+        }
+
+        // token found; modify
+        logger.debug(method + " Modifying token entry with status: " + tokenRecord.getTokenStatus());
         try {
-            existingTokenRecord = tps.tokenDatabase.getRecord(id);
+            tps.tokenDatabase.updateRecord(id, tokenRecord);
         } catch (DBRecordNotFoundException e) {
             String logMsg = method + e.getMessage();
             logger.error(logMsg, e);
             throw new TPSException(logMsg);
         }
-        // token found; modify
-        logger.debug(method + " token entry found; Modifying with status: " + tokenRecord.getTokenStatus());
-        // don't change the create time of an existing token record; put it back
-        tokenRecord.setCreateTimestamp(existingTokenRecord.getCreateTimestamp());
-        tps.tokenDatabase.updateRecord(id, tokenRecord);
+
+        long time = System.currentTimeMillis() - startTime;
+
+        updateStats.add(time);
+    }
+
+    /**
+     * Updates the token record unless it has not changed since it was
+     * last written in this session, e.g. by an operation nested in
+     * another operation.
+     */
+    public void tdbUpdateTokenEntry(TPSSession session, TokenRecord tokenRecord)
+            throws Exception {
+
+        TokenRecord savedTokenRecord = session.getSavedTokenRecord();
+        if (savedTokenRecord != null && !isModified(savedTokenRecord, tokenRecord)) {
+            logger.debug("TokenDB.tdbUpdateTokenEntry: token entry not modified in this session");
+            coalescedUpdates.increment();
+            return;
+        }
+
+        tdbUpdateTokenEntry(tokenRecord);
+        session.setSavedTokenRecord(copyTokenRecord(tokenRecord));
+    }
+
+    /**
+     * Returns true if the stored attributes of the token records differ,
+     * ignoring the timestamps.
+     */
+    static boolean isModified(TokenRecord savedTokenRecord, TokenRecord tokenRecord) {
+        return !Objects.equals(savedTokenRecord.getId(), tokenRecord.getId())
+                || !Objects.equals(savedTokenRecord.getUserID(), tokenRecord.getUserID())
+                || !Objects.equals(savedTokenRecord.getType(), tokenRecord.getType())
+                || !Objects.equals(savedTokenRecord.getStatus(), tokenRecord.getStatus())
+                || !Objects.equals(savedTokenRecord.getReason(), tokenRecord.getReason())
+                || !Objects.equals(savedTokenRecord.getAppletID(), tokenRecord.getAppletID())
+                || !Objects.equals(savedTokenRecord.getKeyInfo(), tokenRecord.getKeyInfo())
+                || !Objects.equals(savedTokenRecord.getPolicy(), tokenRecord.getPolicy());
+    }
+
+    static TokenRecord copyTokenRecord(TokenRecord tokenRecord) {
+        TokenRecord copy = new TokenRecord();
+        copy.setId(tokenRecord.getId());
+        copy.setUserID(tokenRecord.getUserID());
+        copy.setType(tokenRecord.getType());
+        copy.setStatus(tokenRecord.getStatus());
+        copy.setReason(tokenRecord.getReason());
+        copy.setAppletID(tokenRecord.getAppletID());
+        copy.setKeyInfo(tokenRecord.getKeyInfo());
+        copy.setPolicy(tokenRecord.getPolicy());
+        copy.setCreateTimestamp(tokenRecord.getCreateTimestamp());
+        copy.setModifyTimestamp(tokenRecord.getModifyTimestamp());
+        return copy;
+    }
+
+    public String getStatistics() {
+
+        long n = updateStats.getCalls();
+        double averageUpdateTime = n == 0 ? 0 : (double) updateStats.getTotalTime() / n;
+
+        return "updates: " + n
+                + ", coalesced: " + coalescedUpdates.sum()
+                + ", reads: " + tokenReads.sum()
+                + ", avg update time: " + String.format("%.1f", averageUpdateTime) + " ms"
+                + ", max update time: " + updateStats.getMaxTime() + " ms";
     }
 
     /**
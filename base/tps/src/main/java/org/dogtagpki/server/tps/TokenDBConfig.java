@@ -5,6 +5,8 @@
 //
 package org.dogtagpki.server.tps;
 
+import org.dogtagpki.server.tps.dbs.ActivityWriterConfig;
+
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.ConfigStore;
 import com.netscape.cmscore.base.SimpleProperties;
@@ -21,4 +23,11 @@ public class TokenDBConfig extends ConfigStore {
     public TokenDBConfig(String name, SimpleProperties source) {
         super(name, source);
     }
+
+    /**
+     * Returns tokendb.activityWriter.* parameters.
+     */
+    public ActivityWriterConfig getActivityWriterConfig() {
+        return getSubStore("activityWriter", ActivityWriterConfig.class);
+    }
 }
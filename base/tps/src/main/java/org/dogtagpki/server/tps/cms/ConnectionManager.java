@@ -84,6 +84,8 @@ public class ConnectionManager
      *   tps.connector.ca1.enable=true
      *   tps.connector.ca1.minHttpConns=1
      *   tps.connector.ca1.maxHttpConns=15
+     *   tps.connector.ca1.keepAlive=true
+     *   tps.connector.ca1.idleTimeout=30
      *   tps.connector.ca1.host=host1.EXAMPLE.com:8445 host2.EXAMPLE.com:8445
      *   tps.connector.ca1.port=<port number; unused if for failover case>
      *   tps.connector.ca1.nickName=subsystemCert cert-pki-tomcat TPS
@@ -241,4 +243,18 @@ public class ConnectionManager
         return connectors.get(connID);
     }
 
+    /*
+     * Stops all connectors and closes their connections
+     */
+    public void shutdown() {
+
+        if (connectors == null) {
+            return;
+        }
+
+        for (Connector connector : connectors.values()) {
+            connector.stop();
+        }
+    }
+
 }
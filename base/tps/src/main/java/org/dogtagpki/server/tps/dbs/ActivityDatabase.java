@@ -54,10 +54,24 @@ public class ActivityDatabase extends LDAPDatabase<ActivityRecord> {
 
     public final static String OP_KEY_CHANGEOVER = "key_changeover";
 
+    private ActivityWriter writer;
+
     public ActivityDatabase(DBSubsystem dbSubsystem, String baseDN) throws EBaseException {
         super("Activity", dbSubsystem, baseDN, ActivityRecord.class);
     }
 
+    public ActivityWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Sets the writer used to add the records created by log()
+     * in the background, or null to add them synchronously.
+     */
+    public void setWriter(ActivityWriter writer) {
+        this.writer = writer;
+    }
+
     public ActivityRecord log(
             String ip, String tokenID, String operation, String result,
             String message, String userID, String tokenType) throws Exception {
@@ -79,6 +93,10 @@ public class ActivityDatabase extends LDAPDatabase<ActivityRecord> {
         activityRecord.setType(tokenType);
         activityRecord.setDate(c.getTime());
 
+        if (writer != null && writer.submit(activityRecord)) {
+            return activityRecord;
+        }
+
         super.addRecord(id, activityRecord);
 
         return activityRecord;
@@ -0,0 +1,597 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tps.dbs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.dbs.DBNotAvailableException;
+import com.netscape.certsrv.dbs.DBRecordAlreadyExistsException;
+import com.netscape.certsrv.util.OperationStats;
+import com.netscape.cmscore.dbs.DBSSession;
+
+import netscape.ldap.LDAPException;
+
+/**
+ * This class writes TPS activity records to the database in the
+ * background so that token operations do not wait for the database.
+ *
+ * The records are queued in a bounded queue and written in batches,
+ * each batch in a single database session. If the queue is full the
+ * caller writes the record itself.
+ *
+ * If the database is not available the records are appended to a local
+ * journal. The journal is replayed before the next batch is written or,
+ * if there is no activity, after the retry interval. On shutdown the
+ * queue is flushed into the database or into the journal.
+ *
+ * Only connection errors keep the records in the journal. A record
+ * rejected by the database for any other reason (e.g. a schema
+ * violation) is logged and dropped so that it cannot block the journal.
+ */
+public class ActivityWriter implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ActivityWriter.class);
+
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_RETRY_INTERVAL = 30; // seconds
+
+    // only activity records can be read from the journal
+    static final String JOURNAL_FILTER =
+            "org.dogtagpki.server.tps.dbs.ActivityRecord;"
+            + "com.netscape.cmscore.dbs.DBRecord;"
+            + "java.util.Date;"
+            + "!*";
+
+    private ActivityDatabase activityDatabase;
+
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long retryInterval = DEFAULT_RETRY_INTERVAL * 1000L;
+    private Path journal;
+
+    private BlockingQueue<ActivityRecord> queue;
+    private Thread thread;
+    private volatile boolean running;
+
+    // held by submit() while queuing a record so that shutdown() can wait
+    // for the records being queued before it flushes the queue
+    private ReadWriteLock submitLock = new ReentrantReadWriteLock();
+
+    // time of the last attempt to write the journal to the database,
+    // only accessed by the writer thread or after it has stopped
+    private long lastReplay;
+
+    // statistics
+    private LongAdder submitted = new LongAdder();
+    private LongAdder overflows = new LongAdder();
+    private LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+    private LongAdder written = new LongAdder();
+    private OperationStats batchStats = new OperationStats(); // milliseconds
+    private LongAdder failures = new LongAdder();
+    private LongAdder spilled = new LongAdder();
+    private LongAdder replayed = new LongAdder();
+    private LongAdder lost = new LongAdder();
+    private LongAdder dropped = new LongAdder();
+
+    public ActivityWriter(ActivityDatabase activityDatabase) {
+        this.activityDatabase = activityDatabase;
+    }
+
+    public void init(ActivityWriterConfig config, String defaultJournal) throws EBaseException {
+
+        queueSize = config.getQueueSize();
+        batchSize = config.getBatchSize();
+        retryInterval = config.getRetryInterval() * 1000L;
+
+        String journalPath = config.getJournal();
+        if (journalPath == null) {
+            journalPath = defaultJournal;
+        }
+        journal = journalPath == null ? null : Path.of(journalPath);
+
+        logger.info("ActivityWriter: Initializing activity writer");
+        logger.info("ActivityWriter: - queue size: " + queueSize);
+        logger.info("ActivityWriter: - batch size: " + batchSize);
+        logger.info("ActivityWriter: - journal: " + journal);
+        logger.info("ActivityWriter: - retry interval: " + retryInterval / 1000 + " s");
+
+        queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    public void start() {
+
+        logger.info("ActivityWriter: Starting activity writer");
+
+        running = true;
+        thread = Thread.ofPlatform()
+                .name("ActivityWriter")
+                .daemon()
+                .start(this);
+    }
+
+    /**
+     * Queues an activity record. Returns false if the writer is not
+     * running (including after shutdown has begun) or the queue is full,
+     * in which case the caller should write the record itself.
+     */
+    public boolean submit(ActivityRecord record) {
+
+        Lock lock = submitLock.readLock();
+        lock.lock();
+
+        try {
+            if (!running) {
+                return false;
+            }
+
+            if (!queue.offer(record)) {
+                overflows.increment();
+                return false;
+            }
+
+        } finally {
+            lock.unlock();
+        }
+
+        submitted.increment();
+        maxQueueDepth.accumulate(queue.size());
+
+        return true;
+    }
+
+    @Override
+    public void run() {
+
+        logger.info("ActivityWriter: Activity writer started");
+
+        while (running) {
+            try {
+                ActivityRecord record = queue.poll(1, TimeUnit.SECONDS);
+
+                if (record == null) {
+                    // no activity, retry the journal periodically
+                    if (hasJournal() && System.currentTimeMillis() - lastReplay >= retryInterval) {
+                        replayJournal();
+                    }
+                    continue;
+                }
+
+                List<ActivityRecord> batch = new ArrayList<>(batchSize);
+                batch.add(record);
+                queue.drainTo(batch, batchSize - 1);
+
+                writeBatch(batch);
+
+            } catch (InterruptedException e) {
+                break;
+
+            } catch (Throwable e) {
+                logger.error("ActivityWriter: Unable to write activity records: " + e.getMessage(), e);
+            }
+        }
+
+        logger.info("ActivityWriter: Activity writer stopped");
+    }
+
+    /**
+     * Writes a batch of records. The journal is replayed first so that
+     * the records are added in order. Until the journal can be replayed
+     * the batch is appended to the journal.
+     */
+    void writeBatch(List<ActivityRecord> batch) {
+
+        if (hasJournal()) {
+            boolean retry = System.currentTimeMillis() - lastReplay >= retryInterval;
+            if (!retry || !replayJournal()) {
+                appendJournal(batch);
+                return;
+            }
+        }
+
+        int count = writeRecords(batch);
+
+        if (count < batch.size()) {
+            lastReplay = System.currentTimeMillis();
+            appendJournal(batch.subList(count, batch.size()));
+        }
+    }
+
+    /**
+     * Returns true if the exception means the database cannot be
+     * reached, as opposed to a problem with a particular record.
+     */
+    static boolean isDatabaseDown(Throwable e) {
+
+        for (Throwable t = e; t != null; t = t.getCause()) {
+
+            if (t instanceof DBNotAvailableException) {
+                return true;
+            }
+
+            if (t instanceof LDAPException ldapException) {
+                switch (ldapException.getLDAPResultCode()) {
+                case LDAPException.SERVER_DOWN:
+                case LDAPException.CONNECT_ERROR:
+                case LDAPException.UNAVAILABLE:
+                case LDAPException.BUSY:
+                case LDAPException.LDAP_TIMEOUT:
+                    return true;
+                default:
+                    return false;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes records to the database in a single session. Returns the
+     * number of records processed before the database failed. Records
+     * rejected by the database are dropped and counted as processed.
+     */
+    int writeRecords(List<ActivityRecord> records) {
+
+        long startTime = System.currentTimeMillis();
+        int count = 0;
+
+        try (DBSSession session = activityDatabase.dbSubsystem.createSession()) {
+
+            for (ActivityRecord record : records) {
+                String dn = activityDatabase.createDN(record.getId());
+
+                try {
+                    session.add(dn, record);
+                    written.increment();
+
+                } catch (DBRecordAlreadyExistsException e) {
+                    // already added before a previous failure
+                    logger.debug("ActivityWriter: Activity record " + record.getId() + " already exists");
+
+                } catch (Exception e) {
+                    if (isDatabaseDown(e)) {
+                        throw e;
+                    }
+
+                    // retrying will not help, do not keep it in the journal
+                    logger.error("ActivityWriter: Dropped activity record " + record.getId() + ": " + e.getMessage(), e);
+                    dropped.increment();
+                }
+
+                count++;
+            }
+
+        } catch (Exception e) {
+            logger.warn("ActivityWriter: Unable to add activity records: " + e.getMessage(), e);
+            failures.increment();
+        }
+
+        long time = System.currentTimeMillis() - startTime;
+
+        batchStats.add(time);
+
+        return count;
+    }
+
+    boolean hasJournal() {
+        try {
+            return journal != null && Files.exists(journal) && Files.size(journal) > 0;
+        } catch (IOException e) {
+            logger.warn("ActivityWriter: Unable to check " + journal + ": " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Appends records to the journal.
+     */
+    void appendJournal(List<ActivityRecord> records) {
+
+        if (journal == null) {
+            logger.error("ActivityWriter: Lost " + records.size() + " activity record(s): journal not configured");
+            lost.add(records.size());
+            return;
+        }
+
+        try {
+            writeJournal(journal, records);
+            spilled.add(records.size());
+            logger.info("ActivityWriter: Stored " + records.size() + " activity record(s) in " + journal);
+
+        } catch (IOException e) {
+            logger.error("ActivityWriter: Lost " + records.size() + " activity record(s): " + e.getMessage(), e);
+            lost.add(records.size());
+        }
+    }
+
+    /**
+     * Appends records to a journal file. Each entry consists of the size
+     * of the serialized record followed by the serialized record.
+     */
+    void writeJournal(Path path, List<ActivityRecord> records) throws IOException {
+
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND))) {
+
+            for (ActivityRecord record : records) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                    oos.writeObject(record);
+                }
+                byte[] bytes = bos.toByteArray();
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads the records from the journal. An incomplete entry at the end
+     * of the journal (e.g. after a crash) is ignored. An entry that is
+     * not a valid activity record is dropped.
+     */
+    List<ActivityRecord> readJournal() throws IOException {
+
+        List<ActivityRecord> records = new ArrayList<>();
+        ObjectInputFilter filter = ObjectInputFilter.Config.createFilter(JOURNAL_FILTER);
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(journal))) {
+            while (true) {
+                byte[] bytes;
+                try {
+                    int size = in.readInt();
+                    if (size < 0) {
+                        logger.error("ActivityWriter: Dropped corrupted entries in " + journal);
+                        break;
+                    }
+                    bytes = new byte[size];
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    ois.setObjectInputFilter(filter);
+                    records.add((ActivityRecord) ois.readObject());
+                } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                    // the entry size is known so the next entry can still be read
+                    logger.error("ActivityWriter: Dropped invalid activity record in " + journal + ": " + e.getMessage(), e);
+                    dropped.increment();
+                }
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Writes the records in the journal to the database. The records
+     * that could not be written are kept in the journal. Returns true
+     * if the journal has been fully replayed.
+     */
+    boolean replayJournal() {
+
+        lastReplay = System.currentTimeMillis();
+
+        List<ActivityRecord> records;
+        try {
+            records = readJournal();
+        } catch (IOException e) {
+            logger.error("ActivityWriter: Unable to read " + journal + ": " + e.getMessage(), e);
+            return false;
+        }
+
+        logger.info("ActivityWriter: Replaying " + records.size() + " activity record(s) from " + journal);
+
+        int count = 0;
+        while (count < records.size()) {
+            List<ActivityRecord> batch = records.subList(count, Math.min(count + batchSize, records.size()));
+            int n = writeRecords(batch);
+            count += n;
+            if (n < batch.size()) {
+                break;
+            }
+        }
+
+        replayed.add(count);
+
+        try {
+            if (count == records.size()) {
+                Files.delete(journal);
+                logger.info("ActivityWriter: Journal replayed");
+                return true;
+            }
+
+            if (count == 0) {
+                return false;
+            }
+
+            // keep the remaining records
+            Path tmp = journal.resolveSibling(journal.getFileName() + ".tmp");
+            Files.deleteIfExists(tmp);
+            writeJournal(tmp, records.subList(count, records.size()));
+            Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            logger.error("ActivityWriter: Unable to update " + journal + ": " + e.getMessage(), e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Stops the writer and flushes the queued records into the database
+     * or into the journal.
+     */
+    public void shutdown() {
+
+        logger.info("ActivityWriter: Stopping activity writer");
+
+        // once the write lock is acquired no record can be queued
+        // after the queue is flushed below
+        Lock lock = submitLock.writeLock();
+        lock.lock();
+
+        try {
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+
+        if (thread != null) {
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (thread.isAlive()) {
+                logger.warn("ActivityWriter: Activity writer did not stop");
+                thread.interrupt();
+                try {
+                    thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<ActivityRecord> records = new ArrayList<>();
+        queue.drainTo(records);
+
+        if (!records.isEmpty()) {
+            logger.info("ActivityWriter: Flushing " + records.size() + " activity record(s)");
+            for (int i = 0; i < records.size(); i += batchSize) {
+                writeBatch(records.subList(i, Math.min(i + batchSize, records.size())));
+            }
+        }
+
+        logger.info("ActivityWriter: Activity writer: " + getStatistics());
+    }
+
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getBatches() {
+        return batchStats.getCalls();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    public long getReplayed() {
+        return replayed.sum();
+    }
+
+    public long getLost() {
+        return lost.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the average time to write a batch in milliseconds.
+     */
+    public double getAverageWriteTime() {
+        long n = batchStats.getCalls();
+        return n == 0 ? 0 : (double) batchStats.getTotalTime() / n;
+    }
+
+    /**
+     * Returns the max time to write a batch in milliseconds.
+     */
+    public long getMaxWriteTime() {
+        return batchStats.getMaxTime();
+    }
+
+    public Map<String, Object> getStatisticsMap() {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("maxQueueDepth", getMaxQueueDepth());
+        stats.put("submitted", getSubmitted());
+        stats.put("overflows", getOverflows());
+        stats.put("written", getWritten());
+        stats.put("batches", getBatches());
+        stats.put("averageWriteTime", getAverageWriteTime());
+        stats.put("maxWriteTime", getMaxWriteTime());
+        stats.put("failures", getFailures());
+        stats.put("spilled", getSpilled());
+        stats.put("replayed", getReplayed());
+        stats.put("lost", getLost());
+        stats.put("dropped", getDropped());
+
+        return stats;
+    }
+
+    public String getStatistics() {
+        return "queue depth: " + getQueueDepth()
+                + ", max queue depth: " + getMaxQueueDepth()
+                + ", submitted: " + getSubmitted()
+                + ", overflows: " + getOverflows()
+                + ", written: " + getWritten()
+                + ", batches: " + getBatches()
+                + ", avg write time: " + String.format("%.1f", getAverageWriteTime()) + " ms"
+                + ", max write time: " + getMaxWriteTime() + " ms"
+                + ", failures: " + getFailures()
+                + ", spilled: " + getSpilled()
+                + ", replayed: " + getReplayed()
+                + ", lost: " + getLost()
+                + ", dropped: " + getDropped();
+    }
+}
@@ -0,0 +1,63 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.server.tps.dbs;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.base.ConfigStorage;
+import com.netscape.cmscore.base.ConfigStore;
+import com.netscape.cmscore.base.SimpleProperties;
+
+/**
+ * Provides tokendb.activityWriter.* parameters.
+ */
+public class ActivityWriterConfig extends ConfigStore {
+
+    public ActivityWriterConfig(ConfigStorage storage) {
+        super(storage);
+    }
+
+    public ActivityWriterConfig(String name, SimpleProperties source) {
+        super(name, source);
+    }
+
+    /**
+     * Returns activityWriter.enable parameter.
+     */
+    public boolean getEnable() throws EBaseException {
+        return getBoolean("enable", false);
+    }
+
+    /**
+     * Returns activityWriter.queueSize parameter, the max number of
+     * activity records waiting to be written.
+     */
+    public int getQueueSize() throws EBaseException {
+        return getInteger("queueSize", ActivityWriter.DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Returns activityWriter.batchSize parameter, the max number of
+     * activity records written in a single database session.
+     */
+    public int getBatchSize() throws EBaseException {
+        return getInteger("batchSize", ActivityWriter.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Returns activityWriter.journal parameter, the file that keeps
+     * the activity records that could not be written to the database.
+     */
+    public String getJournal() throws EBaseException {
+        return getString("journal", null);
+    }
+
+    /**
+     * Returns activityWriter.retryInterval parameter in seconds.
+     */
+    public int getRetryInterval() throws EBaseException {
+        return getInteger("retryInterval", ActivityWriter.DEFAULT_RETRY_INTERVAL);
+    }
+}
@@ -698,7 +698,7 @@ public class TPSEnrollProcessor extends TPSProcessor {
         logger.debug(method + logMsg);
         try {
             tokenRecord.setTokenStatus(TokenStatus.ACTIVE);
-            tps.tdb.tdbUpdateTokenEntry(tokenRecord);
+            tps.tdb.tdbUpdateTokenEntry(session, tokenRecord);
             tps.tdb.tdbActivity(ActivityDatabase.OP_ENROLLMENT, tokenRecord, session.getIpAddress(), logMsg, "success");
         } catch (Exception e) {
             logMsg = logMsg + ":" + e.toString();
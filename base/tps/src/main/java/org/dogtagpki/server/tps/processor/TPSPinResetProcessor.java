@@ -355,7 +355,7 @@ public class TPSPinResetProcessor extends TPSProcessor {
             if(testUpdateDBFailure == true) {
                 throw new Exception("Test failure to update DB for Pin Reset!");
             }
-            tps.tdb.tdbUpdateTokenEntry(tokenRecord);
+            tps.tdb.tdbUpdateTokenEntry(session, tokenRecord);
             tps.tdb.tdbActivity(ActivityDatabase.OP_PIN_RESET, tokenRecord, session.getIpAddress(), logMsg, "success");
             logger.debug(method + ": token record updated!");
         } catch (Exception e) {
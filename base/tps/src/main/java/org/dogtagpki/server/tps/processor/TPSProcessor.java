@@ -2667,7 +2667,7 @@ logger.debug("tps: " + tps);
         }
         
         try {
-            tps.tdb.tdbUpdateTokenEntry(tokenRecord);
+            tps.tdb.tdbUpdateTokenEntry(session, tokenRecord);
             tps.tdb.tdbActivity(ActivityDatabase.OP_FORMAT, tokenRecord, session.getIpAddress(), logMsg, "success");
         } catch (Exception e) {
             logMsg = logMsg + ":" + e.toString();
@@ -0,0 +1,203 @@
+package org.dogtagpki.server.tps.dbs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.netscape.certsrv.dbs.DBException;
+import com.netscape.certsrv.dbs.DBNotAvailableException;
+import com.netscape.certsrv.dbs.DBRecordNotFoundException;
+import com.netscape.cmscore.base.SimpleProperties;
+
+import netscape.ldap.LDAPException;
+
+public class ActivityWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    Path journal;
+    ActivityWriter writer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+
+        journal = tempDir.resolve("activity.journal");
+
+        ActivityWriterConfig config = new ActivityWriterConfig("tokendb.activityWriter", new SimpleProperties());
+        config.putString("journal", journal.toString());
+
+        writer = new ActivityWriter(null);
+        writer.init(config, null);
+    }
+
+    static ActivityRecord createRecord(int i) {
+
+        ActivityRecord record = new ActivityRecord();
+        record.setId("activity" + i);
+        record.setTokenID("token" + i);
+        record.setUserID("user" + i);
+        record.setIP("192.0.2." + i);
+        record.setOperation("format");
+        record.setResult("success");
+        record.setMessage("Token formatted");
+        record.setType("tokenFormat");
+        record.setDate(new Date(1700000000000L + i * 1000L));
+
+        return record;
+    }
+
+    static List<ActivityRecord> createRecords(int start, int count) {
+        List<ActivityRecord> records = new ArrayList<>();
+        for (int i = start; i < start + count; i++) {
+            records.add(createRecord(i));
+        }
+        return records;
+    }
+
+    static void assertSameRecord(ActivityRecord expected, ActivityRecord actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTokenID(), actual.getTokenID());
+        assertEquals(expected.getUserID(), actual.getUserID());
+        assertEquals(expected.getIP(), actual.getIP());
+        assertEquals(expected.getOperation(), actual.getOperation());
+        assertEquals(expected.getResult(), actual.getResult());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getDate(), actual.getDate());
+    }
+
+    /**
+     * Appends an arbitrary object to the journal in the journal format.
+     */
+    void appendObject(Object object) throws Exception {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(object);
+        }
+        byte[] bytes = bos.toByteArray();
+
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(
+                journal,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND))) {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    public void testJournalRoundTrip() throws Exception {
+
+        List<ActivityRecord> records = createRecords(1, 3);
+        writer.writeJournal(journal, records.subList(0, 2));
+
+        // subsequent writes are appended
+        writer.writeJournal(journal, records.subList(2, 3));
+        assertTrue(writer.hasJournal());
+
+        List<ActivityRecord> result = writer.readJournal();
+
+        assertEquals(records.size(), result.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertSameRecord(records.get(i), result.get(i));
+        }
+    }
+
+    @Test
+    public void testTruncatedJournal() throws Exception {
+
+        writer.writeJournal(journal, createRecords(1, 2));
+
+        // simulate a crash while writing the last entry
+        byte[] bytes = Files.readAllBytes(journal);
+        Files.write(journal, Arrays.copyOf(bytes, bytes.length - 10));
+
+        List<ActivityRecord> result = writer.readJournal();
+
+        assertEquals(1, result.size());
+        assertSameRecord(createRecord(1), result.get(0));
+    }
+
+    @Test
+    public void testJournalFilter() throws Exception {
+
+        ObjectInputFilter filter = ObjectInputFilter.Config.createFilter(ActivityWriter.JOURNAL_FILTER);
+
+        // other classes are rejected before they are instantiated
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(new ArrayList<>(List.of("value")));
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            ois.setObjectInputFilter(filter);
+            assertThrows(InvalidClassException.class, ois::readObject);
+        }
+
+        // entries that are not activity records are dropped
+        // without blocking the rest of the journal
+        writer.writeJournal(journal, createRecords(1, 1));
+        appendObject(new ArrayList<>(List.of("value")));
+        appendObject("not an activity record");
+        writer.writeJournal(journal, createRecords(2, 1));
+
+        List<ActivityRecord> result = writer.readJournal();
+
+        assertEquals(2, result.size());
+        assertSameRecord(createRecord(1), result.get(0));
+        assertSameRecord(createRecord(2), result.get(1));
+        assertEquals(2, writer.getDropped());
+    }
+
+    @Test
+    public void testDatabaseDown() throws Exception {
+
+        assertTrue(ActivityWriter.isDatabaseDown(new DBNotAvailableException("Database not available")));
+        assertTrue(ActivityWriter.isDatabaseDown(new DBException("Database error",
+                new LDAPException("Server down", LDAPException.SERVER_DOWN))));
+        assertTrue(ActivityWriter.isDatabaseDown(new DBException("Database error",
+                new LDAPException("Connect error", LDAPException.CONNECT_ERROR))));
+        assertTrue(ActivityWriter.isDatabaseDown(new DBException("Database error",
+                new LDAPException("Busy", LDAPException.BUSY))));
+
+        // record errors do not block the journal
+        assertFalse(ActivityWriter.isDatabaseDown(new DBRecordNotFoundException("Record not found")));
+        assertFalse(ActivityWriter.isDatabaseDown(new DBException("Database error",
+                new LDAPException("Object class violation", LDAPException.OBJECT_CLASS_VIOLATION))));
+        assertFalse(ActivityWriter.isDatabaseDown(new NullPointerException()));
+    }
+
+    @Test
+    public void testSubmitAfterShutdown() throws Exception {
+
+        writer.start();
+        writer.shutdown();
+
+        // the caller writes the record itself
+        assertFalse(writer.submit(createRecord(1)));
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(0, writer.getSubmitted());
+    }
+}